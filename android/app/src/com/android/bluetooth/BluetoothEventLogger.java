@@ -18,68 +18,132 @@ package com.android.bluetooth;
 
 import android.util.Log;
 
-import com.google.common.collect.EvictingQueue;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
-/** This class is to store logs for given size. */
+/**
+ * This class is to store logs for given size.
+ *
+ * <p>Events are kept in a ring buffer that any thread can add to without taking a lock. Only the
+ * raw time and message are stored, timestamps and formatted messages are built in {@link #dump}.
+ */
 public class BluetoothEventLogger {
+    private static final DateTimeFormatter TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("MM-dd HH:mm:ss.SSS");
+
     private final String mTitle;
-    private final EvictingQueue<Event> mEvents;
+    private final int mSize;
+    private final AtomicReferenceArray<Event> mEvents;
+    // Sequence number of the next event, its slot is mNextSequence % mSize
+    private final AtomicLong mNextSequence = new AtomicLong();
 
     // Event class contain timestamp and log context.
     private static class Event {
-        private final String mTimeStamp;
+        private final long mSequence;
+        private final long mTimeMillis;
         private final String mMsg;
+        // Arguments of mMsg when it is a format, null otherwise
+        private final Object[] mArgs;
 
-        Event(String msg) {
-            mTimeStamp = Utils.getLocalTimeString();
+        Event(long sequence, String msg, Object[] args) {
+            mSequence = sequence;
+            mTimeMillis = System.currentTimeMillis();
             mMsg = msg;
+            mArgs = args;
         }
 
-        public String toString() {
-            return mTimeStamp + " " + mMsg;
+        void appendTo(StringBuilder sb, DateTimeFormatter formatter) {
+            formatter.formatTo(Instant.ofEpochMilli(mTimeMillis), sb);
+            sb.append(' ');
+            if (mArgs == null) {
+                sb.append(mMsg);
+            } else {
+                try {
+                    sb.append(Utils.formatSimple(mMsg, mArgs));
+                } catch (IllegalArgumentException e) {
+                    sb.append(mMsg).append(" (").append(e.getMessage()).append(')');
+                }
+            }
         }
     }
 
     public BluetoothEventLogger(int size, String title) {
-        mEvents = EvictingQueue.create(size);
+        mSize = size;
+        mEvents = new AtomicReferenceArray<>(size);
         mTitle = title;
     }
 
     /** Add the event record */
-    public synchronized void add(String msg) {
-        Event event = new Event(msg);
-        mEvents.add(event);
+    public void add(String msg) {
+        record(msg, null);
+    }
+
+    /**
+     * Add the event record, formatted with {@link Utils#formatSimple} only when dumped. Arguments
+     * are kept as given, so they must not be modified afterwards.
+     */
+    public void add(String format, Object... args) {
+        record(format, args);
     }
 
     /** Add the event record and log message */
-    public synchronized void logv(String tag, String msg) {
+    public void logv(String tag, String msg) {
         add(msg);
         Log.v(tag, msg);
     }
 
     /** Add the event record and log debug message */
-    public synchronized void logd(String tag, String msg) {
+    public void logd(String tag, String msg) {
         add(msg);
         Log.d(tag, msg);
     }
 
     /** Add the event record and log warning message */
-    public synchronized void logw(String tag, String msg) {
+    public void logw(String tag, String msg) {
         add(msg);
         Log.w(tag, msg);
     }
 
     /** Add the event record and log error message */
-    public synchronized void loge(String tag, String msg) {
+    public void loge(String tag, String msg) {
         add(msg);
         Log.e(tag, msg);
     }
 
     /** Dump all the events */
-    public synchronized void dump(StringBuilder sb) {
+    public void dump(StringBuilder sb) {
+        DateTimeFormatter formatter = TIME_FORMATTER.withZone(ZoneId.systemDefault());
         sb.append(mTitle).append(":\n");
-        for (Event event : mEvents) {
-            sb.append("  ").append(event.toString()).append("\n");
+        long end = mNextSequence.get();
+        for (long sequence = Math.max(0, end - mSize); sequence < end; sequence++) {
+            Event event = mEvents.get((int) (sequence % mSize));
+            // Skip slots already reused by a newer event or not written yet
+            if (event == null || event.mSequence != sequence) {
+                continue;
+            }
+            sb.append("  ");
+            event.appendTo(sb, formatter);
+            sb.append("\n");
+        }
+    }
+
+    private void record(String msg, Object[] args) {
+        if (mSize == 0) {
+            return;
         }
+        long sequence = mNextSequence.getAndIncrement();
+        Event event = new Event(sequence, msg, args);
+        int slot = (int) (sequence % mSize);
+        Event current;
+        do {
+            current = mEvents.get(slot);
+            // A writer preempted for a full lap must not replace the newer event
+            if (current != null && current.mSequence > sequence) {
+                return;
+            }
+        } while (!mEvents.compareAndSet(slot, current, event));
     }
 }
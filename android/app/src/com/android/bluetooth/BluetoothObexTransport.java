@@ -17,28 +17,57 @@ package com.android.bluetooth;
 
 import android.annotation.SuppressLint;
 import android.bluetooth.BluetoothSocket;
+import android.os.SystemClock;
+import android.os.SystemProperties;
+import android.util.Log;
 
 import com.android.bluetooth.flags.Flags;
+import com.android.internal.annotations.VisibleForTesting;
 import com.android.obex.ObexTransport;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
 
 /** Generic Obex Transport class, to be used in OBEX based Bluetooth Profiles. */
 public class BluetoothObexTransport implements ObexTransport {
+    private static final String TAG = BluetoothObexTransport.class.getSimpleName();
+
     private BluetoothSocket mSocket = null;
 
     /** Will default at the maximum packet length. */
     public static final int PACKET_SIZE_UNSPECIFIED = -1;
 
+    // When enabled, OBEX sessions over RFCOMM offer the largest packet size OBEX allows where the
+    // profile doesn't set a limit. The CONNECT exchange still caps it to what the peer accepts, so
+    // bulk transfers to peers without SRM need fewer request/response round trips.
+    @VisibleForTesting
+    static final String RFCOMM_THROUGHPUT_MODE_PROPERTY =
+            "bluetooth.obex.rfcomm_throughput_mode.enabled";
+
+    /** Largest OBEX packet, the packet length field is 2 bytes and 0xFFFF is reserved */
+    @VisibleForTesting static final int MAX_OBEX_PACKET_SIZE = 0xFFFE;
+
     private int mMaxTransmitPacketSize = PACKET_SIZE_UNSPECIFIED;
     private int mMaxReceivePacketSize = PACKET_SIZE_UNSPECIFIED;
 
     private boolean mIsCoverArt = false;
 
+    @VisibleForTesting
+    boolean mRfcommThroughputMode =
+            SystemProperties.getBoolean(RFCOMM_THROUGHPUT_MODE_PROPERTY, false);
+
+    private final AtomicLong mBytesSent = new AtomicLong();
+    private final AtomicLong mBytesReceived = new AtomicLong();
+    // Elapsed realtime of the first and last transfer, 0 until data was transferred
+    private volatile long mFirstTransferMillis;
+    private volatile long mLastTransferMillis;
+
     public BluetoothObexTransport(BluetoothSocket socket) {
         this.mSocket = socket;
     }
@@ -51,6 +80,9 @@ public class BluetoothObexTransport implements ObexTransport {
 
     @Override
     public void close() throws IOException {
+        if (mBytesSent.get() > 0 || mBytesReceived.get() > 0) {
+            Log.i(TAG, "close: " + getTransferStats());
+        }
         mSocket.close();
     }
 
@@ -66,12 +98,12 @@ public class BluetoothObexTransport implements ObexTransport {
 
     @Override
     public InputStream openInputStream() throws IOException {
-        return mSocket.getInputStream();
+        return new CountingInputStream(mSocket.getInputStream());
     }
 
     @Override
     public OutputStream openOutputStream() throws IOException {
-        return mSocket.getOutputStream();
+        return new CountingOutputStream(mSocket.getOutputStream());
     }
 
     @Override
@@ -92,18 +124,50 @@ public class BluetoothObexTransport implements ObexTransport {
 
     @Override
     public int getMaxTransmitPacketSize() {
-        if (mSocket.getConnectionType() != BluetoothSocket.TYPE_L2CAP
+        if (isRfcommThroughputMode(mMaxTransmitPacketSize)) {
+            return MAX_OBEX_PACKET_SIZE;
+        }
+        if (getConnectionType() != BluetoothSocket.TYPE_L2CAP
                 || (mIsCoverArt && mMaxTransmitPacketSize != PACKET_SIZE_UNSPECIFIED)) {
             return mMaxTransmitPacketSize;
         }
-        return mSocket.getMaxTransmitPacketSize();
+        return getSocketMaxTransmitPacketSize();
     }
 
     @Override
     public int getMaxReceivePacketSize() {
-        if (mSocket.getConnectionType() != BluetoothSocket.TYPE_L2CAP) {
+        if (isRfcommThroughputMode(mMaxReceivePacketSize)) {
+            return MAX_OBEX_PACKET_SIZE;
+        }
+        if (getConnectionType() != BluetoothSocket.TYPE_L2CAP) {
             return mMaxReceivePacketSize;
         }
+        return getSocketMaxReceivePacketSize();
+    }
+
+    // A limit set by the profile, like the PBAP server transmit size, is kept. Cover art keeps
+    // the limits of AvrcpCoverArtService.
+    private boolean isRfcommThroughputMode(int profilePacketSize) {
+        return mRfcommThroughputMode
+                && profilePacketSize == PACKET_SIZE_UNSPECIFIED
+                && !mIsCoverArt
+                && getConnectionType() == BluetoothSocket.TYPE_RFCOMM;
+    }
+
+    // BluetoothSocket is final, tests override these instead of mocking it
+
+    @VisibleForTesting
+    int getConnectionType() {
+        return mSocket.getConnectionType();
+    }
+
+    @VisibleForTesting
+    int getSocketMaxTransmitPacketSize() {
+        return mSocket.getMaxTransmitPacketSize();
+    }
+
+    @VisibleForTesting
+    int getSocketMaxReceivePacketSize() {
         return mSocket.getMaxReceivePacketSize();
     }
 
@@ -132,4 +196,95 @@ public class BluetoothObexTransport implements ObexTransport {
     public void setConnectionForCoverArt(boolean isCoverArt) {
         mIsCoverArt = isCoverArt;
     }
+
+    /** Number of bytes written to the socket through the streams of this transport */
+    public long getBytesSent() {
+        return mBytesSent.get();
+    }
+
+    /** Number of bytes read from the socket through the streams of this transport */
+    public long getBytesReceived() {
+        return mBytesReceived.get();
+    }
+
+    /**
+     * Returns the bytes sent and received per second between the first and the last transfer, or
+     * 0 if there was not enough activity to measure it.
+     */
+    public long getThroughputBytesPerSecond() {
+        long durationMillis = mLastTransferMillis - mFirstTransferMillis;
+        if (mFirstTransferMillis == 0 || durationMillis <= 0) {
+            return 0;
+        }
+        return (mBytesSent.get() + mBytesReceived.get()) * 1000 / durationMillis;
+    }
+
+    /** Summary of the transfer statistics, for logs and dumps */
+    public String getTransferStats() {
+        return "sent="
+                + mBytesSent.get()
+                + " received="
+                + mBytesReceived.get()
+                + " throughput="
+                + getThroughputBytesPerSecond()
+                + "B/s"
+                + " rxPacketSize="
+                + getMaxReceivePacketSize()
+                + " txPacketSize="
+                + getMaxTransmitPacketSize();
+    }
+
+    private void onTransfer(AtomicLong counter, int bytes) {
+        long now = SystemClock.elapsedRealtime();
+        if (mFirstTransferMillis == 0) {
+            mFirstTransferMillis = now;
+        }
+        mLastTransferMillis = now;
+        counter.addAndGet(bytes);
+    }
+
+    @VisibleForTesting
+    class CountingInputStream extends FilterInputStream {
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                onTransfer(mBytesReceived, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int offset, int length) throws IOException {
+            int ret = in.read(b, offset, length);
+            if (ret > 0) {
+                onTransfer(mBytesReceived, ret);
+            }
+            return ret;
+        }
+    }
+
+    @VisibleForTesting
+    class CountingOutputStream extends FilterOutputStream {
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            onTransfer(mBytesSent, 1);
+        }
+
+        // FilterOutputStream writes arrays one byte at a time, forward them whole instead
+        @Override
+        public void write(byte[] b, int offset, int length) throws IOException {
+            out.write(b, offset, length);
+            onTransfer(mBytesSent, length);
+        }
+    }
 }
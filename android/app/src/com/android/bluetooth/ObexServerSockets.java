@@ -19,12 +19,24 @@ import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothServerSocket;
 import android.bluetooth.BluetoothSocket;
+import android.os.SystemClock;
 import android.util.Log;
 
+import com.android.internal.annotations.GuardedBy;
+import com.android.internal.annotations.VisibleForTesting;
 import com.android.obex.ResponseCodes;
 import com.android.obex.ServerSession;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Wraps multiple BluetoothServerSocket objects to make it possible to accept connections on both a
@@ -44,27 +56,85 @@ import java.io.IOException;
  * If the an error occur while waiting for an incoming connection {@link
  * IObexConnectionHandler#onConnect(BluetoothDevice, BluetoothSocket)} will be called.<br>
  * In both cases the {@link ObexServerSockets} object have terminated, and a new must be created.
+ * <br>
+ * The accept loops of all instances run on a pool shared by every OBEX profile, so the threads
+ * blocked in accept() are reused when the sockets are recreated after each connection instead of
+ * being started anew.
  */
 public class ObexServerSockets {
     private static final String TAG = "ObexServerSockets";
 
+    /* Idle accept threads are kept this long, for the sockets recreated after a connection */
+    private static final Duration ACCEPT_THREAD_KEEP_ALIVE = Duration.ofSeconds(30);
+
+    /* Not bounded, each accept loop blocks a thread for as long as its socket is listening */
+    private static final ThreadPoolExecutor sAcceptExecutor =
+            new ThreadPoolExecutor(
+                    0,
+                    Integer.MAX_VALUE,
+                    ACCEPT_THREAD_KEEP_ALIVE.toMillis(),
+                    TimeUnit.MILLISECONDS,
+                    new SynchronousQueue<>(),
+                    runnable -> new Thread(runnable, "ObexAccept"));
+
+    private static final AtomicInteger sListeningSockets = new AtomicInteger();
+    private static final AtomicLong sAcceptedConnections = new AtomicLong();
+    private static final AtomicLong sRejectedConnections = new AtomicLong();
+    /* Time from accept() returning to the handler deciding on the connection */
+    private static final AtomicLong sTotalAcceptLatencyMillis = new AtomicLong();
+    private static final AtomicLong sMaxAcceptLatencyMillis = new AtomicLong();
+
     private final IObexConnectionHandler mConHandler;
     /* The wrapped sockets */
-    private final BluetoothServerSocket mRfcommSocket;
-    private final BluetoothServerSocket mL2capSocket;
-    /* Handles to the accept threads. Needed for shutdown. */
-    private SocketAcceptThread mRfcommThread;
-    private SocketAcceptThread mL2capThread;
+    private final ListeningSocket mRfcommSocket;
+    private final ListeningSocket mL2capSocket;
+    /* Handles to the accept tasks. Needed for shutdown. */
+    private SocketAcceptTask mRfcommTask;
+    private SocketAcceptTask mL2capTask;
+
+    /** The part of {@link BluetoothServerSocket} used here, which cannot be mocked */
+    @VisibleForTesting
+    interface ListeningSocket extends Closeable {
+        /** Blocks until a connection is accepted, throws once the socket is closed */
+        BluetoothSocket accept() throws IOException;
+
+        int getChannel();
+    }
 
-    private ObexServerSockets(
+    @VisibleForTesting
+    ObexServerSockets(
             IObexConnectionHandler conHandler,
-            BluetoothServerSocket rfcommSocket,
-            BluetoothServerSocket l2capSocket) {
+            ListeningSocket rfcommSocket,
+            ListeningSocket l2capSocket) {
         mConHandler = conHandler;
         mRfcommSocket = rfcommSocket;
         mL2capSocket = l2capSocket;
     }
 
+    private static ListeningSocket wrap(BluetoothServerSocket serverSocket) {
+        return new ListeningSocket() {
+            @Override
+            public BluetoothSocket accept() throws IOException {
+                return serverSocket.accept();
+            }
+
+            @Override
+            public int getChannel() {
+                return serverSocket.getChannel();
+            }
+
+            @Override
+            public void close() throws IOException {
+                serverSocket.close();
+            }
+
+            @Override
+            public String toString() {
+                return serverSocket.toString();
+            }
+        };
+    }
+
     /**
      * Creates an RFCOMM {@link BluetoothServerSocket} and a L2CAP {@link BluetoothServerSocket}
      *
@@ -170,7 +240,8 @@ public class ObexServerSockets {
 
         if (initSocketOK) {
             Log.d(TAG, "Succeed to create listening sockets ");
-            ObexServerSockets sockets = new ObexServerSockets(validator, rfcommSocket, l2capSocket);
+            ObexServerSockets sockets =
+                    new ObexServerSockets(validator, wrap(rfcommSocket), wrap(l2capSocket));
             sockets.startAccept();
             return sockets;
         } else {
@@ -200,22 +271,22 @@ public class ObexServerSockets {
     }
 
     /**
-     * Initiate the accept threads. Will create a thread for each socket type. an incoming
-     * connection will be signaled to the {@link IObexConnectionValidator#onConnect()}, at which
-     * point both threads will exit.
+     * Initiate the accept tasks. Will run a task on the shared pool for each socket type. an
+     * incoming connection will be signaled to the {@link IObexConnectionValidator#onConnect()}.
      */
-    private void startAccept() {
+    @VisibleForTesting
+    void startAccept() {
         Log.d(TAG, "startAccept()");
 
-        mRfcommThread = new SocketAcceptThread(mRfcommSocket);
-        mRfcommThread.start();
+        mRfcommTask = new SocketAcceptTask(mRfcommSocket);
+        sAcceptExecutor.execute(mRfcommTask);
 
-        mL2capThread = new SocketAcceptThread(mL2capSocket);
-        mL2capThread.start();
+        mL2capTask = new SocketAcceptTask(mL2capSocket);
+        sAcceptExecutor.execute(mL2capTask);
     }
 
     /**
-     * Called from the AcceptThreads to signal an incoming connection.
+     * Called from the accept tasks to signal an incoming connection.
      *
      * @param device the connecting device.
      * @param conSocket the socket associated with the connection.
@@ -237,56 +308,90 @@ public class ObexServerSockets {
     }
 
     /**
-     * Terminate any running accept threads
+     * Terminate any running accept tasks
      *
-     * @param block Set true to block the calling thread until the AcceptThreads has ended execution
+     * @param block Set true to block the calling thread until the accept tasks have ended execution
      */
     public synchronized void shutdown(boolean block) {
         Log.d(TAG, "shutdown(block = " + block + ")");
-        if (mRfcommThread != null) {
-            mRfcommThread.shutdown();
+        if (mRfcommTask != null) {
+            mRfcommTask.shutdown();
         }
-        if (mL2capThread != null) {
-            mL2capThread.shutdown();
+        if (mL2capTask != null) {
+            mL2capTask.shutdown();
         }
         if (block) {
-            while (mRfcommThread != null || mL2capThread != null) {
+            while (mRfcommTask != null || mL2capTask != null) {
                 try {
-                    if (mRfcommThread != null) {
-                        mRfcommThread.join();
-                        mRfcommThread = null;
+                    if (mRfcommTask != null) {
+                        mRfcommTask.await();
+                        mRfcommTask = null;
                     }
-                    if (mL2capThread != null) {
-                        mL2capThread.join();
-                        mL2capThread = null;
+                    if (mL2capTask != null) {
+                        mL2capTask.await();
+                        mL2capTask = null;
                     }
                 } catch (InterruptedException e) {
                     Log.i(TAG, "shutdown() interrupted, continue waiting...", e);
                 }
             }
         } else {
-            mRfcommThread = null;
-            mL2capThread = null;
+            mRfcommTask = null;
+            mL2capTask = null;
         }
     }
 
+    /** Dumps the state of the accept tasks shared by all the OBEX server sockets. */
+    public static void dump(PrintWriter writer) {
+        long accepted = sAcceptedConnections.get();
+        long rejected = sRejectedConnections.get();
+        long connections = accepted + rejected;
+        writer.println("OBEX server sockets:");
+        writer.println("  listening sockets: " + sListeningSockets.get());
+        writer.println(
+                "  accept threads: "
+                        + sAcceptExecutor.getPoolSize()
+                        + " (largest "
+                        + sAcceptExecutor.getLargestPoolSize()
+                        + ")");
+        writer.println("  connections: " + accepted + " accepted, " + rejected + " rejected");
+        writer.println(
+                "  accept latency: avg "
+                        + (connections == 0 ? 0 : sTotalAcceptLatencyMillis.get() / connections)
+                        + " ms, max "
+                        + sMaxAcceptLatencyMillis.get()
+                        + " ms");
+    }
+
+    private static void recordConnection(boolean isValid, long latencyMillis) {
+        (isValid ? sAcceptedConnections : sRejectedConnections).incrementAndGet();
+        sTotalAcceptLatencyMillis.addAndGet(latencyMillis);
+        sMaxAcceptLatencyMillis.accumulateAndGet(latencyMillis, Math::max);
+    }
+
     /**
-     * A thread that runs in the background waiting for remote an incoming connect. Once a remote
-     * socket connects, this thread will be shutdown. When the remote disconnect, this thread shall
-     * be restarted to accept a new connection.
+     * A task that runs on the shared pool waiting for remote an incoming connect. Once a remote
+     * socket connects, this task will be shutdown. When the remote disconnect, this task shall be
+     * restarted to accept a new connection.
      */
-    private class SocketAcceptThread extends Thread {
+    private class SocketAcceptTask implements Runnable {
 
-        private boolean mStopped = false;
-        private final BluetoothServerSocket mServerSocket;
+        private volatile boolean mStopped = false;
+        private final ListeningSocket mServerSocket;
+        private final CountDownLatch mDone = new CountDownLatch(1);
+        private final Object mThreadLock = new Object();
+
+        /* The pool thread running this task, null before and after it runs */
+        @GuardedBy("mThreadLock")
+        private Thread mThread;
 
         /**
-         * Create a SocketAcceptThread
+         * Create a SocketAcceptTask
          *
          * @param serverSocket shall never be null.
          * @throws IllegalArgumentException if {@code serverSocket} is null
          */
-        SocketAcceptThread(BluetoothServerSocket serverSocket) {
+        SocketAcceptTask(ListeningSocket serverSocket) {
             if (serverSocket == null) {
                 throw new IllegalArgumentException("serverSocket cannot be null");
             }
@@ -299,6 +404,10 @@ public class ObexServerSockets {
          */
         @Override
         public void run() {
+            synchronized (mThreadLock) {
+                mThread = Thread.currentThread();
+            }
+            sListeningSockets.incrementAndGet();
             try {
                 while (!mStopped) {
                     BluetoothSocket connSocket;
@@ -308,6 +417,7 @@ public class ObexServerSockets {
                         Log.d(TAG, "Accepting socket connection...");
 
                         connSocket = mServerSocket.accept();
+                        long acceptedMillis = SystemClock.elapsedRealtime();
                         Log.d(TAG, "Accepted socket connection from: " + mServerSocket);
 
                         if (connSocket == null) {
@@ -330,6 +440,7 @@ public class ObexServerSockets {
                         /* Signal to the service that we have received an incoming connection.
                          */
                         boolean isValid = ObexServerSockets.this.onConnect(device, connSocket);
+                        recordConnection(isValid, SystemClock.elapsedRealtime() - acceptedMillis);
 
                         if (!isValid) {
                             /* Close connection if we already have a connection with another device
@@ -360,12 +471,24 @@ public class ObexServerSockets {
                     }
                 } // End while()
             } finally {
-                Log.d(TAG, "AcceptThread ended for: " + mServerSocket);
+                Log.d(TAG, "AcceptTask ended for: " + mServerSocket);
+                sListeningSockets.decrementAndGet();
+                synchronized (mThreadLock) {
+                    mThread = null;
+                    // Clear a shutdown() interrupt, the pool thread is reused by other tasks
+                    Thread.interrupted();
+                }
+                mDone.countDown();
             }
         }
 
+        /** Waits until the task has ended. */
+        void await() throws InterruptedException {
+            mDone.await();
+        }
+
         /**
-         * Shuts down the accept threads, and closes the ServerSockets, causing all related
+         * Shuts down the accept task, and closes the ServerSockets, causing all related
          * BluetoothSockets to disconnect, hence do not call until all all accepted connections are
          * ready to be disconnected.
          */
@@ -381,12 +504,13 @@ public class ObexServerSockets {
                     Log.w(TAG, "Exception while thread shutdown:", e);
                 }
             }
-            // If called from another thread, interrupt the thread
-            if (!Thread.currentThread().equals(this)) {
-                // TODO: Will this interrupt the thread if it is blocked in synchronized?
-                // Else: change to use InterruptableLock
-                Log.d(TAG, "shutdown called from another thread - interrupt().");
-                interrupt();
+            // If called from another thread, interrupt the thread running the task. Under the
+            // lock, so a pool thread that has moved on to another task is never interrupted.
+            synchronized (mThreadLock) {
+                if (mThread != null && !Thread.currentThread().equals(mThread)) {
+                    Log.d(TAG, "shutdown called from another thread - interrupt().");
+                    mThread.interrupt();
+                }
             }
         }
     }
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.bass_client;
+
+import android.os.SystemClock;
+
+import com.android.internal.annotations.VisibleForTesting;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Parsed BASE of broadcast sources, by broadcast ID.
+ *
+ * <p>Sources repeat their BASE in every periodic advertising report. The last BASE of each source
+ * is kept with the bytes it was parsed from, so a report is only parsed again when the BASE of the
+ * source changed. Entries not used for {@link #MAX_AGE} are dropped, as are the least recently
+ * used ones when more than {@link #MAX_ENTRIES} sources are cached.
+ */
+class BaseDataCache {
+    @VisibleForTesting static final int MAX_ENTRIES = 64;
+    @VisibleForTesting static final Duration MAX_AGE = Duration.ofMinutes(5);
+
+    private static class Entry {
+        final int mHash;
+        final byte[] mServiceData;
+        final BaseData mBaseData;
+        long mLastUsedMillis;
+
+        Entry(int hash, byte[] serviceData, BaseData baseData, long nowMillis) {
+            mHash = hash;
+            mServiceData = serviceData;
+            mBaseData = baseData;
+            mLastUsedMillis = nowMillis;
+        }
+    }
+
+    private final int mMaxEntries;
+    private final long mMaxAgeMillis;
+    private final LongSupplier mClock;
+    // Guarded by this. In access order, least recently used first
+    private final LinkedHashMap<Integer, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    // Guarded by this
+    private long mHits;
+    // Guarded by this
+    private long mMisses;
+
+    BaseDataCache() {
+        this(MAX_ENTRIES, MAX_AGE, SystemClock::elapsedRealtime);
+    }
+
+    @VisibleForTesting
+    BaseDataCache(int maxEntries, Duration maxAge, LongSupplier clock) {
+        mMaxEntries = maxEntries;
+        mMaxAgeMillis = maxAge.toMillis();
+        mClock = clock;
+    }
+
+    /**
+     * Returns the BASE parsed from {@code serviceData}, reusing the one of {@code broadcastId} if
+     * it was parsed from the same bytes.
+     *
+     * @return the parsed BASE, or null if {@code serviceData} is not a valid BASE
+     */
+    synchronized BaseData getOrParse(int broadcastId, byte[] serviceData) {
+        if (broadcastId == BassConstants.INVALID_BROADCAST_ID) {
+            return BaseData.parseBaseData(serviceData);
+        }
+        long now = mClock.getAsLong();
+        evictExpired(now);
+        int hash = Arrays.hashCode(serviceData);
+        Entry entry = mEntries.get(broadcastId);
+        if (entry != null
+                && entry.mHash == hash
+                && Arrays.equals(entry.mServiceData, serviceData)) {
+            entry.mLastUsedMillis = now;
+            mHits++;
+            return entry.mBaseData;
+        }
+        mMisses++;
+        BaseData baseData = BaseData.parseBaseData(serviceData);
+        if (baseData == null) {
+            mEntries.remove(broadcastId);
+            return null;
+        }
+        mEntries.put(broadcastId, new Entry(hash, serviceData.clone(), baseData, now));
+        if (mEntries.size() > mMaxEntries) {
+            Iterator<Entry> eldest = mEntries.values().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+        return baseData;
+    }
+
+    synchronized void remove(int broadcastId) {
+        mEntries.remove(broadcastId);
+    }
+
+    synchronized void clear() {
+        mEntries.clear();
+    }
+
+    synchronized int size() {
+        return mEntries.size();
+    }
+
+    synchronized void dump(StringBuilder sb) {
+        sb.append("  BASE cache: ")
+                .append(mEntries.size())
+                .append(" sources, ")
+                .append(mHits)
+                .append(" hits, ")
+                .append(mMisses)
+                .append(" misses\n");
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Entry> it = mEntries.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().mLastUsedMillis < mMaxAgeMillis) {
+                // Later entries were used more recently
+                return;
+            }
+            it.remove();
+        }
+    }
+}
@@ -154,6 +154,7 @@ public class BassClientService extends ProfileService {
     private final Map<BluetoothDevice, BassClientStateMachine> mStateMachines = new HashMap<>();
     private final Object mSearchScanCallbackLock = new Object();
     private final Map<Integer, ScanResult> mCachedBroadcasts = new HashMap<>();
+    private final BaseDataCache mBaseDataCache = new BaseDataCache();
 
     private final List<Integer> mActiveSyncedSources = new ArrayList<>();
     private final Map<Integer, PeriodicAdvertisingCallback> mPeriodicAdvCallbacksMap =
@@ -751,6 +752,7 @@ public class BassClientService extends ProfileService {
             if (mCachedBroadcasts != null) {
                 mCachedBroadcasts.clear();
             }
+            mBaseDataCache.clear();
             if (mBroadcastMetadataMap != null) {
                 mBroadcastMetadataMap.clear();
             }
@@ -2402,10 +2404,15 @@ public class BassClientService extends ProfileService {
 
     boolean parseBaseData(int syncHandle, byte[] serviceData) {
         log("parseBaseData" + Arrays.toString(serviceData));
-        BaseData base = BaseData.parseBaseData(serviceData);
+        // Sources repeat their BASE in every report, only parse it again when it changed
+        BaseData base =
+                mBaseDataCache.getOrParse(getBroadcastIdForSyncHandle(syncHandle), serviceData);
         if (base != null) {
-            updateBase(syncHandle, base);
-            base.print();
+            if (mSyncHandleToBaseDataMap == null
+                    || base != mSyncHandleToBaseDataMap.get(syncHandle)) {
+                updateBase(syncHandle, base);
+                base.print();
+            }
             return true;
         } else {
             Log.e(TAG, "Seems BASE is not in parsable format");
@@ -4115,6 +4122,7 @@ public class BassClientService extends ProfileService {
         super.dump(sb);
 
         sb.append("Broadcast Assistant Service instance:\n");
+        mBaseDataCache.dump(sb);
 
         /* Dump first connected state machines */
         for (Map.Entry<BluetoothDevice, BassClientStateMachine> entry : mStateMachines.entrySet()) {
@@ -97,6 +97,10 @@ class AdapterProperties {
 
     private CopyOnWriteArrayList<BluetoothDevice> mBondedDevices =
             new CopyOnWriteArrayList<BluetoothDevice>();
+    // Republished after every change of mBondedDevices
+    private volatile BondedDeviceSnapshot mBondedDeviceSnapshot = BondedDeviceSnapshot.EMPTY;
+    private final CopyOnWriteArrayList<BondedDeviceSnapshot.Listener> mBondedDevicesListeners =
+            new CopyOnWriteArrayList<>();
 
     private int mProfilesConnecting, mProfilesConnected, mProfilesDisconnecting;
     private final HashMap<Integer, Pair<Integer, Integer>> mProfileConnectionState =
@@ -283,6 +287,8 @@ class AdapterProperties {
             mReceiverRegistered = false;
         }
         mBondedDevices.clear();
+        publishBondedDevices();
+        mBondedDevicesListeners.clear();
         invalidateBluetoothCaches();
     }
 
@@ -564,17 +570,41 @@ class AdapterProperties {
     }
 
     /**
-     * @return the mBondedDevices
+     * @return a copy of the bonded devices
      */
     BluetoothDevice[] getBondedDevices() {
-        BluetoothDevice[] bondedDeviceList = new BluetoothDevice[0];
-        try {
-            bondedDeviceList = mBondedDevices.toArray(bondedDeviceList);
-        } catch (ArrayStoreException ee) {
-            Log.e(TAG, "Error retrieving bonded device array");
+        return mBondedDeviceSnapshot.toArray();
+    }
+
+    /**
+     * @return the current bonded devices, to use instead of {@link #getBondedDevices()} when the
+     *     caller does not need its own copy
+     */
+    BondedDeviceSnapshot getBondedDeviceSnapshot() {
+        return mBondedDeviceSnapshot;
+    }
+
+    void registerBondedDevicesListener(BondedDeviceSnapshot.Listener listener) {
+        mBondedDevicesListeners.addIfAbsent(listener);
+    }
+
+    void unregisterBondedDevicesListener(BondedDeviceSnapshot.Listener listener) {
+        mBondedDevicesListeners.remove(listener);
+    }
+
+    private void publishBondedDevices() {
+        BondedDeviceSnapshot snapshot;
+        synchronized (mBondedDevicesListeners) {
+            snapshot =
+                    new BondedDeviceSnapshot(
+                            mBondedDeviceSnapshot.getVersion() + 1,
+                            mBondedDevices.toArray(new BluetoothDevice[0]));
+            mBondedDeviceSnapshot = snapshot;
+        }
+        infoLog("publishBondedDevices: length=" + snapshot.size());
+        for (BondedDeviceSnapshot.Listener listener : mBondedDevicesListeners) {
+            listener.onBondedDevicesChanged(snapshot);
         }
-        infoLog("getBondedDevices: length=" + bondedDeviceList.length);
-        return bondedDeviceList;
     }
 
     // This function shall be invoked from BondStateMachine whenever the bond
@@ -600,11 +630,13 @@ class AdapterProperties {
                     debugLog("Adding bonded device:" + device);
                     mBondedDevices.add(device);
                     cleanupPrevBondRecordsFor(device);
+                    publishBondedDevices();
                 }
             } else if (state == BluetoothDevice.BOND_NONE) {
                 // remove device from list
                 if (mBondedDevices.remove(device)) {
                     debugLog("Removing bonded device:" + device);
+                    publishBondedDevices();
                 } else {
                     debugLog("Failed to remove device: " + device);
                 }
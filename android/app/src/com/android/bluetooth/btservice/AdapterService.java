@@ -97,6 +97,7 @@ import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
 import android.os.Message;
+import android.os.ParcelFileDescriptor;
 import android.os.ParcelUuid;
 import android.os.Parcelable;
 import android.os.PowerManager;
@@ -116,6 +117,7 @@ import android.util.SparseArray;
 
 import com.android.bluetooth.BluetoothMetricsProto;
 import com.android.bluetooth.BluetoothStatsLog;
+import com.android.bluetooth.ObexServerSockets;
 import com.android.bluetooth.R;
 import com.android.bluetooth.Utils;
 import com.android.bluetooth.a2dp.A2dpService;
@@ -166,6 +168,7 @@ import com.google.common.base.Ascii;
 import com.google.common.collect.EvictingQueue;
 import com.google.protobuf.InvalidProtocolBufferException;
 
+import java.io.Closeable;
 import java.io.FileDescriptor;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -187,6 +190,12 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -206,7 +215,11 @@ public class AdapterService extends Service {
     private static final int MIN_OFFLOADED_FILTERS = 10;
     private static final int MIN_OFFLOADED_SCAN_STORAGE_BYTES = 1024;
 
-    private static final Duration PENDING_SOCKET_HANDOFF_TIMEOUT = Duration.ofMinutes(1);
+    @VisibleForTesting
+    static final Duration PENDING_SOCKET_HANDOFF_TIMEOUT = Duration.ofMinutes(1);
+    // Idle RFCOMM accept threads are kept this long to be reused by the next listener
+    private static final Duration RFCOMM_LISTENER_THREAD_KEEP_ALIVE = Duration.ofSeconds(30);
+    private static final Duration RFCOMM_LISTENER_SHUTDOWN_TIMEOUT = Duration.ofSeconds(1);
     private static final Duration GENERATE_LOCAL_OOB_DATA_TIMEOUT = Duration.ofSeconds(2);
     private static final Duration PREFERRED_AUDIO_PROFILE_CHANGE_TIMEOUT = Duration.ofSeconds(10);
 
@@ -251,6 +264,19 @@ public class AdapterService extends Service {
 
     private final Map<BluetoothStateCallback, Executor> mLocalCallbacks = new ConcurrentHashMap<>();
     private final Map<UUID, RfcommListenerData> mBluetoothServerSockets = new ConcurrentHashMap<>();
+    // Runs the accept loop of every RFCOMM listener. BluetoothServerSocket only has a blocking
+    // accept(), so each listener still occupies a thread while registered, but threads are shared
+    // across listeners and restarts instead of being created for each of them.
+    @VisibleForTesting
+    final ThreadPoolExecutor mRfcommListenerExecutor =
+            new ThreadPoolExecutor(
+                    0,
+                    Integer.MAX_VALUE,
+                    RFCOMM_LISTENER_THREAD_KEEP_ALIVE.toMillis(),
+                    TimeUnit.MILLISECONDS,
+                    new SynchronousQueue<>(),
+                    runnable -> new Thread(runnable, "RfcommListener"));
+    private final ProfileStartupStats mProfileStartupStats = new ProfileStartupStats();
     private final ArrayDeque<IBluetoothOobDataCallback> mOobDataCallbackQueue = new ArrayDeque<>();
 
     private final RemoteCallbackList<IBluetoothPreferredAudioProfilesCallback>
@@ -548,6 +574,7 @@ public class AdapterService extends Service {
                         initProfileServices();
                         mNativeInterface.getAdapterProperty(
                                 AbstractionLayer.BT_PROPERTY_DYNAMIC_AUDIO_BUFFER);
+                        mProfileStartupStats.onProfilesReady();
                         mAdapterStateMachine.sendMessage(AdapterState.BREDR_STARTED);
                         mBtCompanionManager.loadCompanionInfo();
                     }
@@ -1427,6 +1454,10 @@ public class AdapterService extends Service {
         mA2dpService.switchCodecByBufferSize(activeDevices.get(0), isLowLatencyBufferSize);
     }
 
+    /**
+     * Releases the resources of the service. Blocks for up to {@link
+     * #RFCOMM_LISTENER_SHUTDOWN_TIMEOUT} while the RFCOMM accept loops return.
+     */
     @RequiresPermission(BLUETOOTH_CONNECT)
     void cleanup() {
         Log.d(TAG, "cleanup()");
@@ -1569,11 +1600,17 @@ public class AdapterService extends Service {
     void setProfileServiceState(int profileId, int state) {
         if (state == BluetoothAdapter.STATE_ON) {
             if (!mStartedProfiles.containsKey(profileId)) {
-                ProfileService profileService = PROFILE_CONSTRUCTORS.get(profileId).apply(this);
+                ProfileService profileService =
+                        mProfileStartupStats.construct(
+                                profileId, () -> PROFILE_CONSTRUCTORS.get(profileId).apply(this));
                 mStartedProfiles.put(profileId, profileService);
                 addProfile(profileService);
-                profileService.start();
-                profileService.setAvailable(true);
+                mProfileStartupStats.start(
+                        profileId,
+                        () -> {
+                            profileService.start();
+                            profileService.setAvailable(true);
+                        });
                 // With `Flags.scanManagerRefactor()` GattService initialization is pushed back to
                 // `ON` state instead of `BLE_ON`. Here we ensure mGattService is set prior
                 // to other Profiles using it.
@@ -1610,6 +1647,9 @@ public class AdapterService extends Service {
     }
 
     private void setAllProfileServiceStates(int[] profileIds, int state) {
+        if (state == BluetoothAdapter.STATE_ON) {
+            mProfileStartupStats.onStartupBegin();
+        }
         for (int profileId : profileIds) {
             if (!Flags.scanManagerRefactor()) {
                 // TODO(b/228875190): GATT is assumed supported and treated differently as part of
@@ -2030,7 +2070,8 @@ public class AdapterService extends Service {
 
     @BluetoothAdapter.RfcommListenerResult
     @RequiresPermission(BLUETOOTH_CONNECT)
-    private int startRfcommListener(
+    @VisibleForTesting
+    int startRfcommListener(
             String name, ParcelUuid uuid, PendingIntent pendingIntent, AttributionSource source) {
         if (mBluetoothServerSockets.containsKey(uuid.getUuid())) {
             Log.d(TAG, "Cannot start RFCOMM listener: UUID " + uuid.getUuid() + "already in use.");
@@ -2085,7 +2126,7 @@ public class AdapterService extends Service {
             return socketInfo;
         }
 
-        BluetoothSocket socket = listenerData.mPendingSockets.poll();
+        RfcommSocket socket = listenerData.pollPendingSocket();
 
         if (socket == null) {
             socketInfo.status = BluetoothStatusCodes.RFCOMM_LISTENER_NO_SOCKET_AVAILABLE;
@@ -2105,7 +2146,7 @@ public class AdapterService extends Service {
     private void handleIncomingRfcommConnections(UUID uuid) {
         RfcommListenerData listenerData = mBluetoothServerSockets.get(uuid);
         while (true) {
-            BluetoothSocket socket;
+            RfcommSocket socket;
             try {
                 socket = listenerData.mServerSocket.accept();
             } catch (IOException e) {
@@ -2118,7 +2159,7 @@ public class AdapterService extends Service {
                 return;
             }
 
-            listenerData.mPendingSockets.add(socket);
+            listenerData.onSocketAccepted(socket);
             try {
                 listenerData.mPendingIntent.send();
             } catch (PendingIntent.CanceledException e) {
@@ -2154,8 +2195,8 @@ public class AdapterService extends Service {
     }
 
     private void pendingSocketTimeoutRunnable(
-            RfcommListenerData listenerData, BluetoothSocket socket) {
-        boolean socketFound = listenerData.mPendingSockets.remove(socket);
+            RfcommListenerData listenerData, RfcommSocket socket) {
+        boolean socketFound = listenerData.removeTimedOutSocket(socket);
         if (socketFound) {
             try {
                 socket.close();
@@ -2170,28 +2211,117 @@ public class AdapterService extends Service {
     private void startRfcommListenerInternal(
             String name, UUID uuid, PendingIntent intent, AttributionSource source)
             throws IOException {
-        BluetoothServerSocket bluetoothServerSocket =
-                mAdapter.listenUsingRfcommWithServiceRecord(name, uuid);
+        RfcommServerSocket serverSocket = listenUsingRfcomm(name, uuid);
 
         RfcommListenerData listenerData =
-                new RfcommListenerData(bluetoothServerSocket, name, intent, source);
+                new RfcommListenerData(serverSocket, name, intent, source);
 
         mBluetoothServerSockets.put(uuid, listenerData);
 
-        new Thread(() -> handleIncomingRfcommConnections(uuid)).start();
+        try {
+            mRfcommListenerExecutor.execute(() -> handleIncomingRfcommConnections(uuid));
+        } catch (RejectedExecutionException e) {
+            mBluetoothServerSockets.remove(uuid);
+            listenerData.closeServerAndPendingSockets(mHandler);
+            throw new IOException("RFCOMM listeners are shut down", e);
+        }
     }
 
-    private void stopRfcommServerSockets() {
+    /**
+     * Closes every RFCOMM listener and shuts down their accept loops. Blocks for up to {@link
+     * #RFCOMM_LISTENER_SHUTDOWN_TIMEOUT} while the loops return.
+     */
+    @VisibleForTesting
+    void stopRfcommServerSockets() {
         Iterator<Map.Entry<UUID, RfcommListenerData>> socketsIterator =
                 mBluetoothServerSockets.entrySet().iterator();
         while (socketsIterator.hasNext()) {
-            socketsIterator.next().getValue().closeServerAndPendingSockets(mHandler);
+            RfcommListenerData listenerData = socketsIterator.next().getValue();
+            // Remove the entry first, so that the accept loop exits instead of restarting
             socketsIterator.remove();
+            listenerData.closeServerAndPendingSockets(mHandler);
+        }
+
+        // Closing the server sockets unblocks every accept loop, wait for them to return
+        mRfcommListenerExecutor.shutdown();
+        try {
+            if (!mRfcommListenerExecutor.awaitTermination(
+                    RFCOMM_LISTENER_SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "RFCOMM accept loops still running after shutdown");
+                mRfcommListenerExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @VisibleForTesting
+    void dumpRfcommListeners(PrintWriter writer) {
+        writer.println("RFCOMM listeners: " + mBluetoothServerSockets.size());
+        for (Map.Entry<UUID, RfcommListenerData> entry : mBluetoothServerSockets.entrySet()) {
+            writer.println("  " + entry.getKey() + ": " + entry.getValue());
         }
     }
 
+    /**
+     * The server socket of an RFCOMM listener. Tests replace it, since BluetoothServerSocket and
+     * BluetoothSocket are final.
+     */
+    @VisibleForTesting
+    interface RfcommServerSocket extends Closeable {
+        /** Blocks until a connection is accepted, throws once the socket is closed */
+        RfcommSocket accept() throws IOException;
+    }
+
+    /** A connection accepted by an {@link RfcommServerSocket} */
+    @VisibleForTesting
+    interface RfcommSocket extends Closeable {
+        BluetoothDevice getRemoteDevice();
+
+        ParcelFileDescriptor getParcelFileDescriptor();
+    }
+
+    @RequiresPermission(BLUETOOTH_CONNECT)
+    @VisibleForTesting
+    RfcommServerSocket listenUsingRfcomm(String name, UUID uuid) throws IOException {
+        BluetoothServerSocket serverSocket =
+                mAdapter.listenUsingRfcommWithServiceRecord(name, uuid);
+        return new RfcommServerSocket() {
+            @Override
+            public RfcommSocket accept() throws IOException {
+                BluetoothSocket socket = serverSocket.accept();
+                return new RfcommSocket() {
+                    @Override
+                    public BluetoothDevice getRemoteDevice() {
+                        return socket.getRemoteDevice();
+                    }
+
+                    @Override
+                    public ParcelFileDescriptor getParcelFileDescriptor() {
+                        return socket.getParcelFileDescriptor();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        socket.close();
+                    }
+                };
+            }
+
+            @Override
+            public void close() throws IOException {
+                serverSocket.close();
+            }
+
+            @Override
+            public String toString() {
+                return serverSocket.toString();
+            }
+        };
+    }
+
     private static class RfcommListenerData {
-        final BluetoothServerSocket mServerSocket;
+        final RfcommServerSocket mServerSocket;
         // Service record name
         final String mName;
         // The Intent which contains the Service info to which the incoming socket connections are
@@ -2201,11 +2331,19 @@ public class AdapterService extends Service {
         final AttributionSource mAttributionSource;
         // Contains the connected sockets which are pending transfer to the app which requested the
         // listener.
-        final ConcurrentLinkedQueue<BluetoothSocket> mPendingSockets =
-                new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<RfcommSocket> mPendingSockets = new ConcurrentLinkedQueue<>();
+        // When each pending socket was accepted, in elapsed realtime
+        private final Map<RfcommSocket, Long> mAcceptTimes = new ConcurrentHashMap<>();
+        // Metrics, only reported in dumpsys
+        private final AtomicInteger mAcceptedCount = new AtomicInteger();
+        private final AtomicInteger mHandedOffCount = new AtomicInteger();
+        private final AtomicInteger mTimedOutCount = new AtomicInteger();
+        private final AtomicLong mTotalHandoffMillis = new AtomicLong();
+        private final AtomicLong mMaxHandoffMillis = new AtomicLong();
+        private final AtomicInteger mMaxPendingSockets = new AtomicInteger();
 
         RfcommListenerData(
-                BluetoothServerSocket serverSocket,
+                RfcommServerSocket serverSocket,
                 String name,
                 PendingIntent pendingIntent,
                 AttributionSource source) {
@@ -2215,6 +2353,58 @@ public class AdapterService extends Service {
             mAttributionSource = source;
         }
 
+        void onSocketAccepted(RfcommSocket socket) {
+            mAcceptTimes.put(socket, SystemClock.elapsedRealtime());
+            mPendingSockets.add(socket);
+            mAcceptedCount.incrementAndGet();
+            mMaxPendingSockets.accumulateAndGet(mPendingSockets.size(), Math::max);
+        }
+
+        /** Returns the oldest socket pending handoff to the app, or null. */
+        RfcommSocket pollPendingSocket() {
+            RfcommSocket socket = mPendingSockets.poll();
+            if (socket == null) {
+                return null;
+            }
+            Long acceptTime = mAcceptTimes.remove(socket);
+            if (acceptTime != null) {
+                long handoffMillis = SystemClock.elapsedRealtime() - acceptTime;
+                mHandedOffCount.incrementAndGet();
+                mTotalHandoffMillis.addAndGet(handoffMillis);
+                mMaxHandoffMillis.accumulateAndGet(handoffMillis, Math::max);
+            }
+            return socket;
+        }
+
+        boolean removeTimedOutSocket(RfcommSocket socket) {
+            mAcceptTimes.remove(socket);
+            if (!mPendingSockets.remove(socket)) {
+                return false;
+            }
+            mTimedOutCount.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            int handedOff = mHandedOffCount.get();
+            return mName
+                    + " accepted="
+                    + mAcceptedCount.get()
+                    + " handedOff="
+                    + handedOff
+                    + " timedOut="
+                    + mTimedOutCount.get()
+                    + " pending="
+                    + mPendingSockets.size()
+                    + " maxPending="
+                    + mMaxPendingSockets.get()
+                    + " avgHandoffMs="
+                    + (handedOff == 0 ? 0 : mTotalHandoffMillis.get() / handedOff)
+                    + " maxHandoffMs="
+                    + mMaxHandoffMillis.get();
+        }
+
         int closeServerAndPendingSockets(Handler handler) {
             int result = BluetoothStatusCodes.SUCCESS;
             try {
@@ -2233,6 +2423,7 @@ public class AdapterService extends Service {
                         }
                     });
             mPendingSockets.clear();
+            mAcceptTimes.clear();
 
             return result;
         }
@@ -4749,6 +4940,23 @@ public class AdapterService extends Service {
         return mAdapterProperties.getBondedDevices();
     }
 
+    /**
+     * Same devices as {@link #getBondedDevices()}, without a copy. The snapshot never changes and
+     * can be kept until a listener registered with {@link #registerBondedDevicesListener} is given
+     * a newer one.
+     */
+    public BondedDeviceSnapshot getBondedDeviceSnapshot() {
+        return mAdapterProperties.getBondedDeviceSnapshot();
+    }
+
+    public void registerBondedDevicesListener(BondedDeviceSnapshot.Listener listener) {
+        mAdapterProperties.registerBondedDevicesListener(listener);
+    }
+
+    public void unregisterBondedDevicesListener(BondedDeviceSnapshot.Listener listener) {
+        mAdapterProperties.unregisterBondedDevicesListener(listener);
+    }
+
     /**
      * Get the database manager to access Bluetooth storage
      *
@@ -6105,6 +6313,9 @@ public class AdapterService extends Service {
         if (mPbapService != null && mPbapService.isAvailable()) {
             mPbapService.handleBondStateChanged(device, fromState, toState);
         }
+        if (mPbapClientService != null && mPbapClientService.isAvailable()) {
+            mPbapClientService.handleBondStateChanged(device, fromState, toState);
+        }
         if (mCsipSetCoordinatorService != null && mCsipSetCoordinatorService.isAvailable()) {
             mCsipSetCoordinatorService.handleBondStateChanged(device, fromState, toState);
         }
@@ -6359,6 +6570,13 @@ public class AdapterService extends Service {
         writer.println("sSnoopLogSettingAtEnable = " + sSnoopLogSettingAtEnable);
         writer.println("sDefaultSnoopLogSettingAtEnable = " + sDefaultSnoopLogSettingAtEnable);
 
+        writer.println();
+        dumpRfcommListeners(writer);
+        writer.println();
+        ObexServerSockets.dump(writer);
+        writer.println();
+        mProfileStartupStats.dump(writer);
+
         writer.println();
         writer.println("Enabled Profile Services:");
         for (int profileId : Config.getSupportedProfiles()) {
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.btservice;
+
+import android.bluetooth.BluetoothDevice;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable view of the bonded devices at one point in time. A new snapshot, with a higher {@link
+ * #getVersion()}, is published by {@link AdapterProperties} every time the bonded set changes, so
+ * callers can keep a snapshot and reuse it until they are told about a new one.
+ */
+public final class BondedDeviceSnapshot {
+
+    /** Notified on the thread that changed the bonded set. */
+    public interface Listener {
+        void onBondedDevicesChanged(BondedDeviceSnapshot snapshot);
+    }
+
+    static final BondedDeviceSnapshot EMPTY = new BondedDeviceSnapshot(0, new BluetoothDevice[0]);
+
+    private final long mVersion;
+    private final BluetoothDevice[] mDevices;
+    private final List<BluetoothDevice> mDeviceList;
+    private final Set<String> mAddresses;
+
+    BondedDeviceSnapshot(long version, BluetoothDevice[] devices) {
+        mVersion = version;
+        mDevices = devices;
+        mDeviceList = Collections.unmodifiableList(Arrays.asList(devices));
+        Set<String> addresses = new HashSet<>(devices.length * 2);
+        for (BluetoothDevice device : devices) {
+            addresses.add(device.getAddress());
+        }
+        mAddresses = Collections.unmodifiableSet(addresses);
+    }
+
+    /** Increases every time the bonded set changes. */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    /** Returns the bonded devices, in bonding order. */
+    public List<BluetoothDevice> getDevices() {
+        return mDeviceList;
+    }
+
+    public int size() {
+        return mDevices.length;
+    }
+
+    public boolean isBonded(BluetoothDevice device) {
+        return device != null && mAddresses.contains(device.getAddress());
+    }
+
+    /** Returns true if the device with the given address is bonded. */
+    public boolean isBonded(String address) {
+        return mAddresses.contains(address);
+    }
+
+    /** Returns a copy of the bonded devices the caller is free to modify. */
+    BluetoothDevice[] toArray() {
+        return mDevices.clone();
+    }
+}
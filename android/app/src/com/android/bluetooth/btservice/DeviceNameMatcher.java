@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.btservice;
+
+import android.util.Log;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.BloomFilter;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the longest sequence of consecutive words of a device name whose SHA-256 is in the
+ * allowlist bloom filter of {@link MetricsLogger}.
+ *
+ * <p>Names are split into words once, without regular expressions, and each word sequence is
+ * hashed by extending the digest of the sequence before it. Sequences that cannot be longer than
+ * the best match are not hashed, and results are cached by device name since the same names are
+ * reported over and over during discovery.
+ */
+class DeviceNameMatcher {
+    private static final String TAG = "BluetoothDeviceNameMatcher";
+
+    @VisibleForTesting static final int CACHE_SIZE = 256;
+
+    private static final int SHA_256_LENGTH = 32;
+
+    private final BloomFilter<byte[]> mBloomFilter;
+    private final int mMaxWords;
+    // Guarded by this. Null if SHA-256 is not available
+    private final MessageDigest mDigest;
+    // Guarded by this. Hashes each sequence from its first word when mDigest cannot be cloned,
+    // null otherwise
+    private final MessageDigest mSequenceDigest;
+    // Guarded by this
+    private final byte[] mHash = new byte[SHA_256_LENGTH];
+    // Guarded by this
+    private final Map<String, String> mCache =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    DeviceNameMatcher(BloomFilter<byte[]> bloomFilter, int maxWords) {
+        mBloomFilter = bloomFilter;
+        mMaxWords = maxWords;
+        MessageDigest digest = null;
+        MessageDigest sequenceDigest = null;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+            try {
+                digest.clone();
+            } catch (CloneNotSupportedException e) {
+                sequenceDigest = MessageDigest.getInstance("SHA-256");
+            }
+        } catch (NoSuchAlgorithmException e) {
+            Log.w(TAG, "No SHA-256 in MessageDigest");
+            digest = null;
+        }
+        mDigest = digest;
+        mSequenceDigest = sequenceDigest;
+    }
+
+    boolean usesBloomFilter(BloomFilter<byte[]> bloomFilter) {
+        return mBloomFilter == bloomFilter;
+    }
+
+    /**
+     * Returns the words of {@code deviceName}: lower case ASCII letters and digits, separated by
+     * spaces in the name. Characters other than letters, digits and spaces are dropped, so a
+     * separator surrounded by spaces gives an empty word. Returns an empty list for a null name,
+     * or when the name has more than {@code maxWords} words.
+     */
+    static List<String> getWords(String deviceName, int maxWords) {
+        if (deviceName == null) {
+            return Collections.emptyList();
+        }
+        String name = deviceName.trim();
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean previousIsSpace = false;
+        // Whether nothing is left of the name once other characters are dropped
+        boolean isEmpty = true;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == ' ') {
+                isEmpty = false;
+                // Runs of spaces are a single separator
+                if (!previousIsSpace) {
+                    words.add(word.toString());
+                    word.setLength(0);
+                }
+                previousIsSpace = true;
+                continue;
+            }
+            previousIsSpace = false;
+            if (c >= 'A' && c <= 'Z') {
+                word.append((char) (c + ('a' - 'A')));
+                isEmpty = false;
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                word.append(c);
+                isEmpty = false;
+            }
+        }
+        words.add(word.toString());
+        if (!isEmpty) {
+            // Same as String.split(), which drops trailing empty words unless there is no input
+            while (!words.isEmpty() && words.get(words.size() - 1).isEmpty()) {
+                words.remove(words.size() - 1);
+            }
+        }
+        if (words.size() > maxWords) {
+            return Collections.emptyList();
+        }
+        return words;
+    }
+
+    /**
+     * Returns every sequence of consecutive words of {@code deviceName}, concatenated, in the
+     * order of their first word then of their length.
+     */
+    static List<String> getWordBreakdownList(String deviceName, int maxWords) {
+        List<String> words = getWords(deviceName, maxWords);
+        List<String> wordBreakdownList = new ArrayList<>();
+        for (int start = 0; start < words.size(); start++) {
+            StringBuilder deviceNameCombination = new StringBuilder();
+            for (int end = start; end < words.size(); end++) {
+                deviceNameCombination.append(words.get(end));
+                wordBreakdownList.add(deviceNameCombination.toString());
+            }
+        }
+        return Collections.unmodifiableList(wordBreakdownList);
+    }
+
+    /**
+     * Returns the longest sequence of words of {@code deviceName} in the bloom filter, the first
+     * one if several have the same length, or an empty string if there is none.
+     */
+    synchronized String match(String deviceName) {
+        if (deviceName == null || mDigest == null) {
+            return "";
+        }
+        String matched = mCache.get(deviceName);
+        if (matched == null) {
+            matched = findLongestMatch(getWords(deviceName, mMaxWords));
+            mCache.put(deviceName, matched);
+        }
+        return matched;
+    }
+
+    private String findLongestMatch(List<String> words) {
+        int bestStart = 0;
+        int bestEnd = -1;
+        int bestLength = 0;
+        for (int start = 0; start < words.size(); start++) {
+            mDigest.reset();
+            int length = 0;
+            for (int end = start; end < words.size(); end++) {
+                String word = words.get(end);
+                update(mDigest, word);
+                length += word.length();
+                if (length <= bestLength) {
+                    continue;
+                }
+                if (mightContain(words, start, end)) {
+                    bestStart = start;
+                    bestEnd = end;
+                    bestLength = length;
+                }
+            }
+        }
+        if (bestEnd < 0) {
+            return "";
+        }
+        StringBuilder matched = new StringBuilder(bestLength);
+        for (int i = bestStart; i <= bestEnd; i++) {
+            matched.append(words.get(i));
+        }
+        return matched.toString();
+    }
+
+    /** Checks the words from start to end, whose bytes are all in mDigest, against the filter. */
+    private boolean mightContain(List<String> words, int start, int end) {
+        try {
+            if (mSequenceDigest == null) {
+                // Finish a copy, mDigest keeps going with the next word
+                ((MessageDigest) mDigest.clone()).digest(mHash, 0, SHA_256_LENGTH);
+            } else {
+                mSequenceDigest.reset();
+                for (int i = start; i <= end; i++) {
+                    update(mSequenceDigest, words.get(i));
+                }
+                mSequenceDigest.digest(mHash, 0, SHA_256_LENGTH);
+            }
+        } catch (CloneNotSupportedException | DigestException e) {
+            Log.w(TAG, "Can't hash device name", e);
+            return false;
+        }
+        return mBloomFilter.mightContain(mHash);
+    }
+
+    private static void update(MessageDigest digest, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            // Words are ASCII, their UTF-8 encoding is one byte per character
+            digest.update((byte) word.charAt(i));
+        }
+    }
+}
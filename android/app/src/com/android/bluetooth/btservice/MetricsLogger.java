@@ -39,7 +39,6 @@ import com.android.bluetooth.bass_client.BassConstants;
 import com.android.modules.utils.build.SdkLevel;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Ascii;
 import com.google.common.hash.BloomFilter;
 import com.google.common.hash.Funnels;
 
@@ -50,8 +49,6 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 
@@ -76,6 +73,8 @@ public class MetricsLogger {
     private static final Object sLock = new Object();
     private BloomFilter<byte[]> mBloomFilter = null;
     protected boolean mBloomFilterInitialized = false;
+    // Matches device names against mBloomFilter, replaced when the bloom filter changes
+    private volatile DeviceNameMatcher mDeviceNameMatcher = null;
 
     private AlarmManager.OnAlarmListener mOnAlarmListener =
             new AlarmManager.OnAlarmListener() {
@@ -388,31 +387,8 @@ public class MetricsLogger {
     }
 
     private List<String> getWordBreakdownList(String deviceName) {
-        if (deviceName == null) {
-            return Collections.emptyList();
-        }
-        // remove more than one spaces in a row
-        deviceName = deviceName.trim().replaceAll(" +", " ");
-        // remove non alphanumeric characters and spaces, and transform to lower cases.
-        String[] words = Ascii.toLowerCase(deviceName.replaceAll("[^a-zA-Z0-9 ]", "")).split(" ");
-
-        if (words.length > MAX_WORDS_ALLOWED_IN_DEVICE_NAME) {
-            // Validity checking here to avoid excessively long sequences
-            return Collections.emptyList();
-        }
-        // collect the word breakdown in an arraylist
-        ArrayList<String> wordBreakdownList = new ArrayList<String>();
-        for (int start = 0; start < words.length; start++) {
-
-            StringBuilder deviceNameCombination = new StringBuilder();
-            for (int end = start; end < words.length; end++) {
-                deviceNameCombination.append(words[end]);
-                wordBreakdownList.add(deviceNameCombination.toString());
-            }
-        }
-
-        // Prevent returning a mutable list
-        return Collections.unmodifiableList(wordBreakdownList);
+        return DeviceNameMatcher.getWordBreakdownList(
+                deviceName, MAX_WORDS_ALLOWED_IN_DEVICE_NAME);
     }
 
     @RequiresApi(Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
@@ -422,19 +398,16 @@ public class MetricsLogger {
         }
     }
 
-    private String getMatchedString(List<String> wordBreakdownList) {
-        if (!mBloomFilterInitialized || wordBreakdownList.isEmpty()) {
+    private String getMatchedString(String deviceName) {
+        if (!mBloomFilterInitialized || mBloomFilter == null) {
             return "";
         }
-
-        String matchedString = "";
-        for (String word : wordBreakdownList) {
-            byte[] sha256 = getSha256(word);
-            if (mBloomFilter.mightContain(sha256) && word.length() > matchedString.length()) {
-                matchedString = word;
-            }
+        DeviceNameMatcher matcher = mDeviceNameMatcher;
+        if (matcher == null || !matcher.usesBloomFilter(mBloomFilter)) {
+            matcher = new DeviceNameMatcher(mBloomFilter, MAX_WORDS_ALLOWED_IN_DEVICE_NAME);
+            mDeviceNameMatcher = matcher;
         }
-        return matchedString;
+        return matcher.match(deviceName);
     }
 
     /** Logs the app scan stats with app attribution when the app scan state changed. */
@@ -520,19 +493,17 @@ public class MetricsLogger {
     }
 
     protected String getAllowlistedDeviceNameHash(String deviceName) {
-        List<String> wordBreakdownList = getWordBreakdownList(deviceName);
-        String matchedString = getMatchedString(wordBreakdownList);
+        String matchedString = getMatchedString(deviceName);
         return getSha256String(matchedString);
     }
 
     protected String logAllowlistedDeviceNameHash(
             int metricId, String deviceName, boolean logRestrictedNames) {
-        List<String> wordBreakdownList = getWordBreakdownList(deviceName);
-        String matchedString = getMatchedString(wordBreakdownList);
+        String matchedString = getMatchedString(deviceName);
         if (logRestrictedNames) {
             // Log the restricted bluetooth device name
             if (SdkLevel.isAtLeastU()) {
-                uploadRestrictedBluetothDeviceName(wordBreakdownList);
+                uploadRestrictedBluetothDeviceName(getWordBreakdownList(deviceName));
             }
         }
         if (!matchedString.isEmpty()) {
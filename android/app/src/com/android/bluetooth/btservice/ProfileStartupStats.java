@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.btservice;
+
+import android.bluetooth.BluetoothProfile;
+import android.os.SystemClock;
+
+import com.android.internal.annotations.GuardedBy;
+import com.android.internal.annotations.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Keeps how long the profile services took to be constructed and started when Bluetooth was last
+ * enabled, for dumpsys.
+ */
+class ProfileStartupStats {
+    private static class Timing {
+        long mConstructNanos = -1;
+        long mStartNanos = -1;
+    }
+
+    private final LongSupplier mNanoClock;
+
+    @GuardedBy("this")
+    private final Map<Integer, Timing> mTimings = new LinkedHashMap<>();
+
+    @GuardedBy("this")
+    private long mStartupBeginNanos = -1;
+
+    @GuardedBy("this")
+    private long mReadyNanos = -1;
+
+    ProfileStartupStats() {
+        this(SystemClock::elapsedRealtimeNanos);
+    }
+
+    @VisibleForTesting
+    ProfileStartupStats(LongSupplier nanoClock) {
+        mNanoClock = nanoClock;
+    }
+
+    /** Called before the profile services are started, forgets the previous startup. */
+    synchronized void onStartupBegin() {
+        mTimings.clear();
+        mStartupBeginNanos = mNanoClock.getAsLong();
+        mReadyNanos = -1;
+    }
+
+    /** Constructs the service of {@code profileId} with {@code constructor} and times it. */
+    <T> T construct(int profileId, Supplier<T> constructor) {
+        long begin = mNanoClock.getAsLong();
+        T service = constructor.get();
+        long elapsed = mNanoClock.getAsLong() - begin;
+        synchronized (this) {
+            mTimings.computeIfAbsent(profileId, id -> new Timing()).mConstructNanos = elapsed;
+        }
+        return service;
+    }
+
+    /** Starts the service of {@code profileId} with {@code starter} and times it. */
+    void start(int profileId, Runnable starter) {
+        long begin = mNanoClock.getAsLong();
+        starter.run();
+        long elapsed = mNanoClock.getAsLong() - begin;
+        synchronized (this) {
+            mTimings.computeIfAbsent(profileId, id -> new Timing()).mStartNanos = elapsed;
+        }
+    }
+
+    /** Called when every supported profile is running and the adapter is ready. */
+    synchronized void onProfilesReady() {
+        if (mStartupBeginNanos >= 0 && mReadyNanos < 0) {
+            mReadyNanos = mNanoClock.getAsLong();
+        }
+    }
+
+    synchronized void dump(PrintWriter writer) {
+        if (mStartupBeginNanos < 0) {
+            writer.println("Profile startup: never started");
+            return;
+        }
+        writer.println(
+                "Profile startup: "
+                        + (mReadyNanos < 0
+                                ? "in progress"
+                                : "ready in " + formatMillis(mReadyNanos - mStartupBeginNanos)));
+        for (Map.Entry<Integer, Timing> entry : mTimings.entrySet()) {
+            Timing timing = entry.getValue();
+            writer.println(
+                    "  "
+                            + BluetoothProfile.getProfileName(entry.getKey())
+                            + ": constructed in "
+                            + formatMillis(timing.mConstructNanos)
+                            + ", started in "
+                            + formatMillis(timing.mStartNanos));
+        }
+    }
+
+    private static String formatMillis(long nanos) {
+        if (nanos < 0) {
+            return "-";
+        }
+        return String.format(Locale.US, "%.1f ms", nanos / 1_000_000.0);
+    }
+}
@@ -51,6 +51,7 @@ import com.android.bluetooth.btservice.ProfileService;
 import com.android.bluetooth.btservice.ServiceFactory;
 import com.android.bluetooth.btservice.storage.DatabaseManager;
 import com.android.bluetooth.le_audio.LeAudioService;
+import com.android.bluetooth.util.GroupMembershipIndex;
 import com.android.internal.annotations.VisibleForTesting;
 
 import java.util.ArrayList;
@@ -91,6 +92,8 @@ public class CsipSetCoordinatorService extends ProfileService {
     private final Map<Integer, ParcelUuid> mGroupIdToUuidMap = new HashMap<>();
     private final Map<BluetoothDevice, Map<Integer, Integer>> mDeviceGroupIdRankMap =
             new ConcurrentHashMap<>();
+    // Same memberships as mDeviceGroupIdRankMap, indexed by group id
+    private final GroupMembershipIndex mGroupMembers = new GroupMembershipIndex();
     // Tracks the number of devices in the CSIP group (greater than or equal to available devices)
     private final Map<Integer, Integer> mGroupIdToGroupSize = new HashMap<>();
     // Tracks the number of available devices mapped to the group id
@@ -201,6 +204,7 @@ public class CsipSetCoordinatorService extends ProfileService {
         }
 
         mDeviceGroupIdRankMap.clear();
+        mGroupMembers.clear();
         mCallbacks.clear();
         mFoundSetMemberToGroupId.clear();
         mGroupIdToGroupSize.clear();
@@ -599,20 +603,7 @@ public class CsipSetCoordinatorService extends ProfileService {
      * @return related list of devices sorted from the lowest to the highest rank value.
      */
     public @NonNull List<BluetoothDevice> getGroupDevicesOrdered(int groupId) {
-        final Map<BluetoothDevice, Integer> deviceRankMap = new HashMap();
-        for (Map.Entry<BluetoothDevice, ?> entry : mDeviceGroupIdRankMap.entrySet()) {
-            Map<Integer, Integer> rankMap = (Map<Integer, Integer>) entry.getValue();
-            BluetoothDevice device = entry.getKey();
-            if (rankMap.containsKey(groupId)) {
-                deviceRankMap.put(device, rankMap.get(groupId));
-            }
-        }
-
-        // Return device list sorted by descending rank order
-        return deviceRankMap.entrySet().stream()
-                .sorted(Map.Entry.comparingByValue())
-                .map(e -> e.getKey())
-                .collect(Collectors.toList());
+        return new ArrayList<>(mGroupMembers.getMembers(groupId));
     }
 
     /**
@@ -626,9 +617,9 @@ public class CsipSetCoordinatorService extends ProfileService {
             BluetoothDevice device, ParcelUuid uuid) {
         List<Integer> groupIds = getAllGroupIds(uuid);
         for (Integer id : groupIds) {
-            List<BluetoothDevice> devices = getGroupDevicesOrdered(id);
+            List<BluetoothDevice> devices = mGroupMembers.getMembers(id);
             if (devices.contains(device)) {
-                return devices;
+                return new ArrayList<>(devices);
             }
         }
         return Collections.emptyList();
@@ -659,6 +650,7 @@ public class CsipSetCoordinatorService extends ProfileService {
 
         Map<Integer, Integer> all_device_groups = mDeviceGroupIdRankMap.get(device);
         all_device_groups.put(groupId, rank);
+        mGroupMembers.add(device, groupId, rank);
     }
 
     /**
@@ -931,6 +923,7 @@ public class CsipSetCoordinatorService extends ProfileService {
         }
 
         mDeviceGroupIdRankMap.remove(device);
+        mGroupMembers.removeDevice(device);
         for (Map.Entry<Integer, Set<BluetoothDevice>> entry :
                 mGroupIdToConnectedDevices.entrySet()) {
             entry.getValue().remove(device);
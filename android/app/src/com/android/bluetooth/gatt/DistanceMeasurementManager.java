@@ -50,6 +50,7 @@ public class DistanceMeasurementManager {
 
     private final AdapterService mAdapterService;
     private HandlerThread mHandlerThread;
+    private final DistanceMeasurementResultDispatcher mResultDispatcher;
     DistanceMeasurementNativeInterface mDistanceMeasurementNativeInterface;
     private final ConcurrentHashMap<String, CopyOnWriteArraySet<DistanceMeasurementTracker>>
             mRssiTrackers = new ConcurrentHashMap<>();
@@ -63,6 +64,7 @@ public class DistanceMeasurementManager {
         // Start a HandlerThread that handles distance measurement operations
         mHandlerThread = new HandlerThread("DistanceMeasurementManager");
         mHandlerThread.start();
+        mResultDispatcher = new DistanceMeasurementResultDispatcher(mHandlerThread.getLooper());
         mDistanceMeasurementNativeInterface = DistanceMeasurementNativeInterface.getInstance();
         mDistanceMeasurementNativeInterface.init(this);
     }
@@ -216,6 +218,7 @@ public class DistanceMeasurementManager {
                                 : BluetoothStatusCodes.REASON_LOCAL_APP_REQUEST;
                 invokeOnStopped(tracker.mCallback, tracker.mDevice, reason);
                 tracker.cancelTimer();
+                mResultDispatcher.cancel(tracker);
                 set.remove(tracker);
                 break;
             }
@@ -245,6 +248,7 @@ public class DistanceMeasurementManager {
                                 : BluetoothStatusCodes.REASON_LOCAL_APP_REQUEST;
                 invokeOnStopped(tracker.mCallback, tracker.mDevice, reason);
                 tracker.cancelTimer();
+                mResultDispatcher.cancel(tracker);
                 set.remove(tracker);
                 break;
             }
@@ -439,6 +443,7 @@ public class DistanceMeasurementManager {
         for (DistanceMeasurementTracker tracker : set) {
             if (tracker.mStarted) {
                 tracker.cancelTimer();
+                mResultDispatcher.cancel(tracker);
                 invokeOnStopped(tracker.mCallback, tracker.mDevice, reason);
             }
         }
@@ -454,6 +459,7 @@ public class DistanceMeasurementManager {
         for (DistanceMeasurementTracker tracker : set) {
             if (tracker.mStarted) {
                 tracker.cancelTimer();
+                mResultDispatcher.cancel(tracker);
                 invokeOnStopped(tracker.mCallback, tracker.mDevice, reason);
             }
         }
@@ -474,6 +480,7 @@ public class DistanceMeasurementManager {
                         + BluetoothUtils.toAnonymizedAddress(address)
                         + ", centimeter "
                         + centimeter);
+        // Results are immutable, the same one is sent to every tracker of the device
         DistanceMeasurementResult result =
                 new DistanceMeasurementResult.Builder(centimeter / 100.0, errorCentimeter / 100.0)
                         .build();
@@ -499,11 +506,7 @@ public class DistanceMeasurementManager {
             if (!tracker.mStarted) {
                 continue;
             }
-            try {
-                tracker.mCallback.onResult(tracker.mDevice, result);
-            } catch (RemoteException e) {
-                Log.e(TAG, "Exception: " + e);
-            }
+            mResultDispatcher.dispatch(tracker, result);
         }
     }
 
@@ -517,11 +520,7 @@ public class DistanceMeasurementManager {
             if (!tracker.mStarted) {
                 continue;
             }
-            try {
-                tracker.mCallback.onResult(tracker.mDevice, result);
-            } catch (RemoteException e) {
-                Log.e(TAG, "Exception: " + e);
-            }
+            mResultDispatcher.dispatch(tracker, result);
         }
     }
 
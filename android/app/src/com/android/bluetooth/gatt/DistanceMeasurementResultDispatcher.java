@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.gatt;
+
+import android.bluetooth.BluetoothUtils;
+import android.bluetooth.le.DistanceMeasurementResult;
+import android.os.DeadObjectException;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.RemoteException;
+import android.os.SystemProperties;
+import android.util.Log;
+
+import com.android.internal.annotations.GuardedBy;
+import com.android.internal.annotations.VisibleForTesting;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delivers the results of distance measurement procedures to the apps that track them.
+ *
+ * <p>By default a result is sent as soon as it is received. With {@link #MAX_LATENCY_PROPERTY}, the
+ * results of a tracker are held for up to that many milliseconds and sent in a single binder call.
+ * When a oneway call fails while the app is alive, i.e. the app doesn't keep up with the results,
+ * only the last {@link #MAX_PENDING_RESULTS} results are kept and sent again later, older ones are
+ * dropped.
+ */
+class DistanceMeasurementResultDispatcher {
+    private static final String TAG = DistanceMeasurementResultDispatcher.class.getSimpleName();
+
+    @VisibleForTesting
+    static final String MAX_LATENCY_PROPERTY =
+            "bluetooth.distance_measurement.max_result_latency_ms";
+
+    @VisibleForTesting static final int MAX_PENDING_RESULTS = 16;
+    @VisibleForTesting static final int RETRY_DELAY_MS = 100;
+
+    private static class Pending {
+        final ArrayDeque<DistanceMeasurementResult> mResults = new ArrayDeque<>();
+        // Set while a flush runs or is scheduled, only that flush sends the results
+        boolean mFlushing;
+        int mDropped;
+    }
+
+    private final Handler mHandler;
+    private final int mMaxLatencyMs;
+
+    // Trackers of RSSI and CS for the same app and device are equal, key them by identity
+    @GuardedBy("this")
+    private final Map<DistanceMeasurementTracker, Pending> mPending = new IdentityHashMap<>();
+
+    DistanceMeasurementResultDispatcher(Looper looper) {
+        this(new Handler(looper), SystemProperties.getInt(MAX_LATENCY_PROPERTY, 0));
+    }
+
+    @VisibleForTesting
+    DistanceMeasurementResultDispatcher(Handler handler, int maxLatencyMs) {
+        mHandler = handler;
+        mMaxLatencyMs = Math.max(maxLatencyMs, 0);
+    }
+
+    /** Sends {@code result} to the app of {@code tracker}, now or after the latency budget */
+    void dispatch(DistanceMeasurementTracker tracker, DistanceMeasurementResult result) {
+        synchronized (this) {
+            Pending pending = mPending.computeIfAbsent(tracker, t -> new Pending());
+            add(pending, result);
+            if (pending.mFlushing) {
+                return;
+            }
+            pending.mFlushing = true;
+            if (mMaxLatencyMs > 0) {
+                scheduleFlush(tracker, mMaxLatencyMs);
+                return;
+            }
+        }
+        flush(tracker);
+    }
+
+    /** Drops the results not sent yet to the app of {@code tracker}, which is stopped */
+    synchronized void cancel(DistanceMeasurementTracker tracker) {
+        mPending.remove(tracker);
+        mHandler.removeCallbacksAndMessages(tracker);
+    }
+
+    private static void add(Pending pending, DistanceMeasurementResult result) {
+        pending.mResults.addLast(result);
+        dropStale(pending);
+    }
+
+    private static void dropStale(Pending pending) {
+        while (pending.mResults.size() > MAX_PENDING_RESULTS) {
+            pending.mResults.removeFirst();
+            pending.mDropped++;
+        }
+    }
+
+    private void scheduleFlush(DistanceMeasurementTracker tracker, long delayMs) {
+        mHandler.postDelayed(() -> flush(tracker), tracker, delayMs);
+    }
+
+    private void flush(DistanceMeasurementTracker tracker) {
+        while (true) {
+            Pending pending;
+            List<DistanceMeasurementResult> results;
+            synchronized (this) {
+                pending = mPending.get(tracker);
+                if (pending == null) {
+                    return;
+                }
+                if (pending.mResults.isEmpty()) {
+                    pending.mFlushing = false;
+                    return;
+                }
+                results = new ArrayList<>(pending.mResults);
+                pending.mResults.clear();
+            }
+
+            boolean done = send(tracker, results);
+
+            synchronized (this) {
+                if (mPending.get(tracker) != pending) {
+                    // Cancelled while sending
+                    return;
+                }
+                if (!done) {
+                    // Put them back before the ones received meanwhile, keeping the most recent
+                    for (int i = results.size() - 1; i >= 0; i--) {
+                        pending.mResults.addFirst(results.get(i));
+                    }
+                    dropStale(pending);
+                    scheduleFlush(tracker, Math.max(RETRY_DELAY_MS, mMaxLatencyMs));
+                    return;
+                }
+                if (pending.mDropped > 0) {
+                    Log.w(
+                            TAG,
+                            "Dropped "
+                                    + pending.mDropped
+                                    + " stale results of "
+                                    + BluetoothUtils.toAnonymizedAddress(
+                                            tracker.mIdentityAddress));
+                    pending.mDropped = 0;
+                }
+                if (pending.mResults.isEmpty()) {
+                    pending.mFlushing = false;
+                    return;
+                }
+                if (mMaxLatencyMs > 0) {
+                    scheduleFlush(tracker, mMaxLatencyMs);
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Returns false when the results should be sent again later */
+    private static boolean send(
+            DistanceMeasurementTracker tracker, List<DistanceMeasurementResult> results) {
+        try {
+            if (results.size() == 1) {
+                tracker.mCallback.onResult(tracker.mDevice, results.get(0));
+            } else {
+                tracker.mCallback.onResults(tracker.mDevice, results);
+            }
+            return true;
+        } catch (DeadObjectException e) {
+            // The app is gone, there is nobody to send them to
+            Log.e(TAG, "Exception: " + e);
+            return true;
+        } catch (RemoteException e) {
+            Log.w(TAG, "Failed to send " + results.size() + " results, will retry: " + e);
+            return false;
+        }
+    }
+}
@@ -23,11 +23,13 @@ import android.bluetooth.BluetoothDevice;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.SystemProperties;
 import android.provider.CallLog.Calls;
+import android.provider.ContactsContract;
 import android.provider.ContactsContract.CommonDataKinds.Phone;
 import android.provider.ContactsContract.PhoneLookup;
 import android.telephony.PhoneNumberUtils;
@@ -71,6 +73,12 @@ public class AtPhonebook {
     private static final String INCOMING_CALL_WHERE = Calls.TYPE + "=" + Calls.INCOMING_TYPE;
     private static final String MISSED_CALL_WHERE = Calls.TYPE + "=" + Calls.MISSED_TYPE;
 
+    // When enabled, the selected phonebook is read once into a snapshot that serves the following
+    // AT+CPBS?, AT+CPBR=? and AT+CPBR=<index1>,<index2> commands, instead of querying the provider
+    // again for every command. The snapshot is dropped when the contacts or the call log change.
+    @VisibleForTesting
+    static final String CPBR_SNAPSHOT_PROPERTY = "bluetooth.hfp.cpbr_snapshot.enabled";
+
     @VisibleForTesting
     static class PhonebookResult {
         public Cursor cursor; // result set of last query
@@ -80,6 +88,53 @@ public class AtPhonebook {
         public int nameColumn;
     }
 
+    /**
+     * Rows of one phonebook, copied out of the provider cursor. Entry {@code index} of AT+CPBR is
+     * at position {@code index - 1} of the arrays.
+     */
+    @VisibleForTesting
+    static class PhonebookSnapshot {
+        final String phonebook;
+        final int size;
+        final String[] numbers;
+        final String[] names;
+        /** Phone types of the ME phonebook, null for the call logs */
+        final int[] types;
+        /** Number presentations of the call logs, null for the ME phonebook */
+        final int[] presentations;
+        /** Which names of a call log were looked up already */
+        final boolean[] resolved;
+        /** Position of a resolved row for each number looked up, to look it up only once */
+        final HashMap<String, Integer> resolvedNumbers;
+
+        PhonebookSnapshot(String phonebook, PhonebookResult pbr) {
+            Cursor cursor = pbr.cursor;
+            boolean callLog = pbr.nameColumn == -1;
+            this.phonebook = phonebook;
+            size = cursor.getCount();
+            numbers = new String[size];
+            names = new String[size];
+            types = pbr.typeColumn != -1 ? new int[size] : null;
+            presentations = pbr.numberPresentationColumn != -1 ? new int[size] : null;
+            resolved = callLog ? new boolean[size] : null;
+            resolvedNumbers = callLog ? new HashMap<>() : null;
+            int row = 0;
+            for (cursor.moveToFirst(); !cursor.isAfterLast() && row < size; cursor.moveToNext()) {
+                numbers[row] = cursor.getString(pbr.numberColumn);
+                if (!callLog) {
+                    names[row] = cursor.getString(pbr.nameColumn);
+                }
+                if (types != null) {
+                    types[row] = cursor.getInt(pbr.typeColumn);
+                }
+                if (presentations != null) {
+                    presentations[row] = cursor.getInt(pbr.numberPresentationColumn);
+                }
+                row++;
+            }
+        }
+    }
+
     private Context mContext;
     private ContentResolver mContentResolver;
     private HeadsetNativeInterface mNativeInterface;
@@ -95,6 +150,26 @@ public class AtPhonebook {
     @VisibleForTesting
     final HashMap<String, PhonebookResult> mPhonebooks = new HashMap<String, PhonebookResult>(4);
 
+    @VisibleForTesting
+    boolean mSnapshotEnabled = SystemProperties.getBoolean(CPBR_SNAPSHOT_PROPERTY, false);
+
+    /** Guarded by this, see {@link #CPBR_SNAPSHOT_PROPERTY} */
+    @VisibleForTesting PhonebookSnapshot mSnapshot;
+
+    private boolean mSnapshotObserverRegistered;
+
+    @VisibleForTesting
+    final ContentObserver mSnapshotObserver =
+            new ContentObserver(null) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    Log.d(TAG, "Phonebook changed, dropping snapshot");
+                    synchronized (AtPhonebook.this) {
+                        mSnapshot = null;
+                    }
+                }
+            };
+
     static final int TYPE_UNKNOWN = -1;
     static final int TYPE_READ = 0;
     static final int TYPE_SET = 1;
@@ -117,6 +192,7 @@ public class AtPhonebook {
 
     public void cleanup() {
         mPhonebooks.clear();
+        releaseSnapshot();
     }
 
     /** Returns the last dialled number, or null if no numbers have been called */
@@ -220,12 +296,11 @@ public class AtPhonebook {
                     atCommandResult = HeadsetHalConstants.AT_RESPONSE_OK;
                     break;
                 }
-                PhonebookResult pbr = getPhonebookResult(mCurrentPhonebook, true);
-                if (pbr == null) {
+                int size = getPhonebookSize(mCurrentPhonebook);
+                if (size < 0) {
                     atCommandErrorCode = BluetoothCmeError.OPERATION_NOT_SUPPORTED;
                     break;
                 }
-                int size = pbr.cursor.getCount();
                 atCommandResponse =
                         "+CPBS: \""
                                 + mCurrentPhonebook
@@ -233,8 +308,6 @@ public class AtPhonebook {
                                 + size
                                 + ","
                                 + getMaxPhoneBookSize(size);
-                pbr.cursor.close();
-                pbr.cursor = null;
                 atCommandResult = HeadsetHalConstants.AT_RESPONSE_OK;
                 break;
             case TYPE_TEST: // Test
@@ -293,17 +366,14 @@ public class AtPhonebook {
                 if ("SM".equals(mCurrentPhonebook)) {
                     size = 0;
                 } else {
-                    PhonebookResult pbr = getPhonebookResult(mCurrentPhonebook, true); // false);
-                    if (pbr == null) {
+                    size = getPhonebookSize(mCurrentPhonebook);
+                    if (size < 0) {
                         atCommandErrorCode = BluetoothCmeError.OPERATION_NOT_ALLOWED;
                         mNativeInterface.atResponseCode(
                                 remoteDevice, atCommandResult, atCommandErrorCode);
                         break;
                     }
-                    size = pbr.cursor.getCount();
                     Log.d(TAG, "handleCpbrCommand - size = " + size);
-                    pbr.cursor.close();
-                    pbr.cursor = null;
                 }
                 if (size == 0) {
                     /* Sending "+CPBR: (1-0)" can confused some carkits, send "1-1" * instead */
@@ -410,6 +480,106 @@ public class AtPhonebook {
         return pbr;
     }
 
+    /** Returns the number of entries of the given phonebook, or -1 if it can't be read. */
+    private int getPhonebookSize(String pb) {
+        if (mSnapshotEnabled) {
+            PhonebookSnapshot snapshot = getPhonebookSnapshot(pb);
+            return snapshot != null ? snapshot.size : -1;
+        }
+        PhonebookResult pbr = getPhonebookResult(pb, true);
+        if (pbr == null) {
+            return -1;
+        }
+        int size = pbr.cursor.getCount();
+        pbr.cursor.close();
+        pbr.cursor = null;
+        return size;
+    }
+
+    /**
+     * Returns the snapshot of the given phonebook, reading it from the provider if there is none
+     * or if the current one is for another phonebook. Returns null if it can't be read.
+     */
+    @VisibleForTesting
+    synchronized PhonebookSnapshot getPhonebookSnapshot(String pb) {
+        if (mSnapshot != null && mSnapshot.phonebook.equals(pb)) {
+            return mSnapshot;
+        }
+        // Register before querying, so that a change made during the query drops the snapshot
+        registerSnapshotObserver();
+        PhonebookResult pbr = getPhonebookResult(pb, true);
+        if (pbr == null) {
+            return null;
+        }
+        mSnapshot = new PhonebookSnapshot(pb, pbr);
+        pbr.cursor.close();
+        pbr.cursor = null;
+        Log.d(TAG, "Snapshot of phonebook " + pb + " with " + mSnapshot.size + " entries");
+        return mSnapshot;
+    }
+
+    private synchronized void registerSnapshotObserver() {
+        if (mSnapshotObserverRegistered) {
+            return;
+        }
+        mContentResolver.registerContentObserver(Calls.CONTENT_URI, true, mSnapshotObserver);
+        mContentResolver.registerContentObserver(
+                ContactsContract.AUTHORITY_URI, true, mSnapshotObserver);
+        mSnapshotObserverRegistered = true;
+    }
+
+    private synchronized void releaseSnapshot() {
+        mSnapshot = null;
+        if (mSnapshotObserverRegistered) {
+            mContentResolver.unregisterContentObserver(mSnapshotObserver);
+            mSnapshotObserverRegistered = false;
+        }
+    }
+
+    /** Returns the caller id name of a row of a call log snapshot, looking it up if needed. */
+    private String getSnapshotCallerName(PhonebookSnapshot snapshot, int row) {
+        if (snapshot.resolved[row]) {
+            return snapshot.names[row];
+        }
+        String number = snapshot.numbers[row];
+        if (number != null && number.length() > 0) {
+            Integer resolvedRow = snapshot.resolvedNumbers.get(number);
+            if (resolvedRow != null) {
+                snapshot.names[row] = snapshot.names[resolvedRow];
+            } else {
+                snapshot.names[row] = lookupCallerName(number);
+                snapshot.resolvedNumbers.put(number, row);
+            }
+        }
+        snapshot.resolved[row] = true;
+        return snapshot.names[row];
+    }
+
+    private String lookupCallerName(String number) {
+        String name = null;
+        Cursor c =
+                BluetoothMethodProxy.getInstance()
+                        .contentResolverQuery(
+                                mContentResolver,
+                                Uri.withAppendedPath(
+                                        PhoneLookup.ENTERPRISE_CONTENT_FILTER_URI,
+                                        Uri.encode(number)),
+                                new String[] {PhoneLookup.DISPLAY_NAME, PhoneLookup.TYPE},
+                                null,
+                                null,
+                                null);
+        if (c != null) {
+            if (c.moveToFirst()) {
+                name = c.getString(0);
+            }
+            c.close();
+        }
+        if (name == null) {
+            Log.d(TAG, "Caller ID lookup failed for " + number);
+        }
+        return name;
+    }
+
     private synchronized boolean queryPhonebook(String pb, PhonebookResult pbr) {
         String where;
         boolean ancillaryPhonebook = true;
@@ -485,6 +655,7 @@ public class AtPhonebook {
         mCharacterSet = "UTF-8";
         mCpbrIndex1 = mCpbrIndex2 = -1;
         mCheckingAccessPermission = false;
+        releaseSnapshot();
     }
 
     @VisibleForTesting
@@ -515,7 +686,6 @@ public class AtPhonebook {
         Log.d(TAG, "processCpbrCommand");
         int atCommandResult = HeadsetHalConstants.AT_RESPONSE_ERROR;
         String atCommandResponse = null;
-        String record;
 
         // Shortcut SM phonebook
         if ("SM".equals(mCurrentPhonebook)) {
@@ -523,6 +693,10 @@ public class AtPhonebook {
             return atCommandResult;
         }
 
+        if (mSnapshotEnabled) {
+            return processCpbrCommandFromSnapshot(device);
+        }
+
         // Check phonebook
         PhonebookResult pbr = getPhonebookResult(mCurrentPhonebook, true); // false);
         if (pbr == null) {
@@ -557,86 +731,27 @@ public class AtPhonebook {
         for (int index = mCpbrIndex1; index <= mCpbrIndex2; index++) {
             String number = pbr.cursor.getString(pbr.numberColumn);
             String name = null;
-            int type = -1;
             if (pbr.nameColumn == -1 && number != null && number.length() > 0) {
                 // try caller id lookup
                 // TODO: This code is horribly inefficient. I saw it
                 // take 7 seconds to process 100 missed calls.
-                Cursor c =
-                        BluetoothMethodProxy.getInstance()
-                                .contentResolverQuery(
-                                        mContentResolver,
-                                        Uri.withAppendedPath(
-                                                PhoneLookup.ENTERPRISE_CONTENT_FILTER_URI,
-                                                Uri.encode(number)),
-                                        new String[] {PhoneLookup.DISPLAY_NAME, PhoneLookup.TYPE},
-                                        null,
-                                        null,
-                                        null);
-                if (c != null) {
-                    if (c.moveToFirst()) {
-                        name = c.getString(0);
-                        type = c.getInt(1);
-                    }
-                    c.close();
-                }
-                if (name == null) {
-                    Log.d(TAG, "Caller ID lookup failed for " + number);
-                }
-
+                name = lookupCallerName(number);
             } else if (pbr.nameColumn != -1) {
                 name = pbr.cursor.getString(pbr.nameColumn);
             } else {
                 Log.d(TAG, "processCpbrCommand: empty name and number");
             }
-            if (name == null) {
-                name = "";
-            }
-            name = name.trim();
-            if (name.length() > 28) {
-                name = name.substring(0, 28);
-            }
-
+            int type = -1;
             if (pbr.typeColumn != -1) {
                 type = pbr.cursor.getInt(pbr.typeColumn);
-                name = name + "/" + getPhoneType(type);
-            }
-
-            if (number == null) {
-                number = "";
-            }
-            int regionType = PhoneNumberUtils.toaFromString(number);
-
-            number = number.trim();
-            number = PhoneNumberUtils.stripSeparators(number);
-            if (number.length() > 30) {
-                number = number.substring(0, 30);
             }
             int numberPresentation = Calls.PRESENTATION_ALLOWED;
             if (pbr.numberPresentationColumn != -1) {
                 numberPresentation = pbr.cursor.getInt(pbr.numberPresentationColumn);
             }
-            if (numberPresentation != Calls.PRESENTATION_ALLOWED) {
-                number = "";
-                // TODO: there are 3 types of numbers should have resource
-                // strings for: unknown, private, and payphone
-                name = mContext.getString(R.string.unknownNumber);
-            }
-
-            // TODO(): Handle IRA commands. It's basically
-            // a 7 bit ASCII character set.
-            if (!name.isEmpty() && mCharacterSet.equals("GSM")) {
-                byte[] nameByte = GsmAlphabet.stringToGsm8BitPacked(name);
-                if (nameByte == null) {
-                    name = mContext.getString(R.string.unknownNumber);
-                } else {
-                    name = new String(nameByte);
-                }
-            }
-
-            record = "+CPBR: " + index + ",\"" + number + "\"," + regionType + ",\"" + name + "\"";
-            record = record + "\r\n\r\n";
-            atCommandResponse = record;
+            atCommandResponse =
+                    buildCpbrRecord(
+                            index, number, name, pbr.typeColumn != -1, type, numberPresentation);
             mNativeInterface.atResponseString(device, atCommandResponse);
             if (!pbr.cursor.moveToNext()) {
                 break;
@@ -649,6 +764,107 @@ public class AtPhonebook {
         return atCommandResult;
     }
 
+    /* Same as processCpbrCommand(), reading the entries from the phonebook snapshot */
+    private int processCpbrCommandFromSnapshot(BluetoothDevice device) {
+        PhonebookSnapshot snapshot = getPhonebookSnapshot(mCurrentPhonebook);
+        if (snapshot == null) {
+            Log.e(TAG, "snapshot is null");
+            return HeadsetHalConstants.AT_RESPONSE_ERROR;
+        }
+
+        // Send OK instead of ERROR if these checks fail, see processCpbrCommand()
+        if (snapshot.size == 0
+                || mCpbrIndex1 <= 0
+                || mCpbrIndex2 < mCpbrIndex1
+                || mCpbrIndex1 > snapshot.size) {
+            Log.e(TAG, "Invalid request or no results, returning");
+            return HeadsetHalConstants.AT_RESPONSE_OK;
+        }
+        if (mCpbrIndex2 > snapshot.size) {
+            Log.w(TAG, "max index requested is greater than number of records, resetting it");
+            mCpbrIndex2 = snapshot.size;
+        }
+
+        Log.d(TAG, "mCpbrIndex1 = " + mCpbrIndex1 + " and mCpbrIndex2 = " + mCpbrIndex2);
+        for (int index = mCpbrIndex1; index <= mCpbrIndex2; index++) {
+            int row = index - 1;
+            String name;
+            synchronized (this) {
+                name =
+                        snapshot.resolved != null
+                                ? getSnapshotCallerName(snapshot, row)
+                                : snapshot.names[row];
+            }
+            int numberPresentation =
+                    snapshot.presentations != null
+                            ? snapshot.presentations[row]
+                            : Calls.PRESENTATION_ALLOWED;
+            mNativeInterface.atResponseString(
+                    device,
+                    buildCpbrRecord(
+                            index,
+                            snapshot.numbers[row],
+                            name,
+                            snapshot.types != null,
+                            snapshot.types != null ? snapshot.types[row] : -1,
+                            numberPresentation));
+        }
+        return HeadsetHalConstants.AT_RESPONSE_OK;
+    }
+
+    /** Formats one +CPBR response line. {@code type} is only used if {@code withType}. */
+    private String buildCpbrRecord(
+            int index,
+            String number,
+            String name,
+            boolean withType,
+            int type,
+            int numberPresentation) {
+        if (name == null) {
+            name = "";
+        }
+        name = name.trim();
+        if (name.length() > 28) {
+            name = name.substring(0, 28);
+        }
+
+        if (withType) {
+            name = name + "/" + getPhoneType(type);
+        }
+
+        if (number == null) {
+            number = "";
+        }
+        int regionType = PhoneNumberUtils.toaFromString(number);
+
+        number = number.trim();
+        number = PhoneNumberUtils.stripSeparators(number);
+        if (number.length() > 30) {
+            number = number.substring(0, 30);
+        }
+        if (numberPresentation != Calls.PRESENTATION_ALLOWED) {
+            number = "";
+            // TODO: there are 3 types of numbers should have resource
+            // strings for: unknown, private, and payphone
+            name = mContext.getString(R.string.unknownNumber);
+        }
+
+        // TODO(): Handle IRA commands. It's basically
+        // a 7 bit ASCII character set.
+        if (!name.isEmpty() && mCharacterSet.equals("GSM")) {
+            byte[] nameByte = GsmAlphabet.stringToGsm8BitPacked(name);
+            if (nameByte == null) {
+                name = mContext.getString(R.string.unknownNumber);
+            } else {
+                name = new String(nameByte);
+            }
+        }
+
+        String record =
+                "+CPBR: " + index + ",\"" + number + "\"," + regionType + ",\"" + name + "\"";
+        return record + "\r\n\r\n";
+    }
+
     private void requestAccessPermission(BluetoothDevice remoteDevice) {
         Intent intent = new Intent(BluetoothDevice.ACTION_CONNECTION_ACCESS_REQUEST);
         intent.setPackage(mPairingPackage);
@@ -93,6 +93,7 @@ import com.android.bluetooth.hfp.HeadsetService;
 import com.android.bluetooth.mcp.McpService;
 import com.android.bluetooth.tbs.TbsGatt;
 import com.android.bluetooth.tbs.TbsService;
+import com.android.bluetooth.util.GroupMembershipIndex;
 import com.android.bluetooth.vc.VolumeControlService;
 import com.android.internal.annotations.GuardedBy;
 import com.android.internal.annotations.VisibleForTesting;
@@ -488,6 +489,8 @@ public class LeAudioService extends ProfileService {
 
     private final Map<BluetoothDevice, LeAudioDeviceDescriptor> mDeviceDescriptors =
             new LinkedHashMap<>();
+    // Members of each group, follows LeAudioDeviceDescriptor.mGroupId
+    private final GroupMembershipIndex mGroupMembers = new GroupMembershipIndex();
     private final Map<Integer, LeAudioBroadcastDescriptor> mBroadcastDescriptors =
             new LinkedHashMap<>();
     private final Map<Integer, LeAudioBroadcastSessionStats> mBroadcastSessionStats =
@@ -559,6 +562,7 @@ public class LeAudioService extends ProfileService {
         mGroupWriteLock.lock();
         try {
             mDeviceDescriptors.clear();
+            mGroupMembers.clear();
             mGroupDescriptors.clear();
         } finally {
             mGroupWriteLock.unlock();
@@ -700,6 +704,7 @@ public class LeAudioService extends ProfileService {
                 mGroupWriteLock.lock();
             }
             mDeviceDescriptors.clear();
+            mGroupMembers.clear();
             mGroupDescriptors.clear();
         } finally {
             mGroupWriteLock.unlock();
@@ -1075,24 +1080,10 @@ public class LeAudioService extends ProfileService {
      * @return all devices within a given group or empty list
      */
     public List<BluetoothDevice> getGroupDevices(int groupId) {
-        List<BluetoothDevice> result = new ArrayList<>();
-
         if (groupId == LE_AUDIO_GROUP_ID_INVALID) {
-            return result;
-        }
-
-        mGroupReadLock.lock();
-        try {
-            for (Map.Entry<BluetoothDevice, LeAudioDeviceDescriptor> entry :
-                    mDeviceDescriptors.entrySet()) {
-                if (entry.getValue().mGroupId == groupId) {
-                    result.add(entry.getKey());
-                }
-            }
-        } finally {
-            mGroupReadLock.unlock();
+            return new ArrayList<>();
         }
-        return result;
+        return new ArrayList<>(mGroupMembers.getMembers(groupId));
     }
 
     /**
@@ -1102,25 +1093,7 @@ public class LeAudioService extends ProfileService {
      * @return all devices within a given group or empty list
      */
     public List<BluetoothDevice> getGroupDevices(BluetoothDevice device) {
-        List<BluetoothDevice> result = new ArrayList<>();
-        int groupId = getGroupId(device);
-
-        if (groupId == LE_AUDIO_GROUP_ID_INVALID) {
-            return result;
-        }
-
-        mGroupReadLock.lock();
-        try {
-            for (Map.Entry<BluetoothDevice, LeAudioDeviceDescriptor> entry :
-                    mDeviceDescriptors.entrySet()) {
-                if (entry.getValue().mGroupId == groupId) {
-                    result.add(entry.getKey());
-                }
-            }
-        } finally {
-            mGroupReadLock.unlock();
-        }
-        return result;
+        return getGroupDevices(getGroupId(device));
     }
 
     /** Get the active device group id */
@@ -4030,6 +4003,7 @@ public class LeAudioService extends ProfileService {
             }
 
             descriptor.mGroupId = LE_AUDIO_GROUP_ID_INVALID;
+            mGroupMembers.removeDevice(device);
             descriptor.mSinkAudioLocation = BluetoothLeAudio.AUDIO_LOCATION_INVALID;
             descriptor.mDirection = AUDIO_DIRECTION_NONE;
 
@@ -4078,6 +4052,7 @@ public class LeAudioService extends ProfileService {
                 mGroupWriteLock.lock();
             }
             mDeviceDescriptors.remove(device);
+            mGroupMembers.removeDevice(device);
             if (!isScannerNeeded()) {
                 stopAudioServersBackgroundScan();
             }
@@ -4776,7 +4751,12 @@ public class LeAudioService extends ProfileService {
                     return;
                 }
             }
+            if (deviceDescriptor.mGroupId != LE_AUDIO_GROUP_ID_INVALID
+                    && deviceDescriptor.mGroupId != groupId) {
+                mGroupMembers.remove(device, deviceDescriptor.mGroupId);
+            }
             deviceDescriptor.mGroupId = groupId;
+            mGroupMembers.add(device, groupId, GroupMembershipIndex.RANK_UNKNOWN);
 
             mHandler.post(() -> notifyGroupNodeAdded(device, groupId));
         } finally {
@@ -4830,13 +4810,9 @@ public class LeAudioService extends ProfileService {
                 return;
             }
             deviceDescriptor.mGroupId = LE_AUDIO_GROUP_ID_INVALID;
+            mGroupMembers.remove(device, groupId);
 
-            for (LeAudioDeviceDescriptor descriptor : mDeviceDescriptors.values()) {
-                if (descriptor.mGroupId == groupId) {
-                    isGroupEmpty = false;
-                    break;
-                }
-            }
+            isGroupEmpty = mGroupMembers.getMembers(groupId).isEmpty();
 
             if (isGroupEmpty) {
                 /* Device is currently an active device. Group needs to be inactivated before
@@ -39,9 +39,12 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /** ScanStats class helps keep track of information about scans on a per application basis. */
 public class AppScanStats {
@@ -76,13 +79,14 @@ public class AppScanStats {
     @GuardedBy("sLock")
     static long sRadioStartTime = 0;
 
-    static WorkSourceUtil sRadioScanWorkSourceUtil;
+    // Written under sLock, volatile so that results can be counted without taking it
+    static volatile WorkSourceUtil sRadioScanWorkSourceUtil;
     static int sRadioScanType;
     static int sRadioScanMode;
     static int sRadioScanWindowMs;
     static int sRadioScanIntervalMs;
-    static boolean sIsRadioStarted = false;
-    static boolean sIsScreenOn = false;
+    static volatile boolean sIsRadioStarted = false;
+    static volatile boolean sIsScreenOn = false;
 
     static class LastScan {
         public long duration;
@@ -99,7 +103,8 @@ public class AppScanStats {
         public boolean isCallbackScan;
         public boolean isBatchScan;
         public boolean isAutoBatchScan;
-        public int results;
+        // Counted without the AppScanStats lock, see addResult()
+        public final AtomicInteger results = new AtomicInteger();
         public int scannerId;
         public int scanMode;
         public int scanCallbackType;
@@ -126,7 +131,6 @@ public class AppScanStats {
             this.isAutoBatchScan = false;
             this.scanMode = scanMode;
             this.scanCallbackType = scanCallbackType;
-            this.results = 0;
             this.scannerId = scannerId;
             this.suspendDuration = 0;
             this.suspendStartTime = 0;
@@ -156,10 +160,11 @@ public class AppScanStats {
     private int mLowLantencyScan = 0;
     private int mAmbientDiscoveryScan = 0;
     private List<LastScan> mLastScans = new ArrayList<LastScan>();
-    private HashMap<Integer, LastScan> mOngoingScans = new HashMap<Integer, LastScan>();
+    // Modified with the AppScanStats lock held, read without it by addResult()
+    private final Map<Integer, LastScan> mOngoingScans = new ConcurrentHashMap<>();
     private long startTime = 0;
     private long stopTime = 0;
-    private int results = 0;
+    private final LongAdder mResults = new LongAdder();
     public boolean isAppDead = false;
 
     public AppScanStats(
@@ -182,14 +187,13 @@ public class AppScanStats {
         mAdapterService = Objects.requireNonNull(AdapterService.getAdapterService());
     }
 
-    public synchronized void addResult(int scannerId) {
-        LastScan scan = getScanFromScannerId(scannerId);
+    /** Called for every delivered result, so it only updates counters and never blocks. */
+    public void addResult(int scannerId) {
+        LastScan scan = mOngoingScans.get(scannerId);
         if (scan != null) {
-            scan.results++;
-
             // Only update battery stats after receiving 100 new results in order
-            // to lower the cost of the binder transaction
-            if (scan.results % 100 == 0) {
+            // to lower the cost of the binder transaction. A single thread sees each multiple.
+            if (scan.results.incrementAndGet() % 100 == 0) {
                 mBatteryStatsManager.reportBleScanResults(mWorkSource, 100);
                 BluetoothStatsLog.write(
                         BluetoothStatsLog.BLE_SCAN_RESULT_RECEIVED,
@@ -199,7 +203,7 @@ public class AppScanStats {
             }
         }
 
-        results++;
+        mResults.increment();
     }
 
     synchronized boolean isScanning() {
@@ -350,7 +354,7 @@ public class AppScanStats {
                                         .SCAN_TECH_TYPE_LE)
                         .setEventTimeMillis(System.currentTimeMillis())
                         .setInitiator(truncateAppName(appName))
-                        .setNumberResults(scan.results)
+                        .setNumberResults(scan.results.get())
                         .build();
         mScanHelper.addScanEvent(scanEvent);
 
@@ -378,13 +382,14 @@ public class AppScanStats {
         // Inform battery stats of any results it might be missing on scan stop
         boolean isUnoptimized =
                 !(scan.isFilterScan || scan.isBackgroundScan || scan.isOpportunisticScan);
-        mBatteryStatsManager.reportBleScanResults(mWorkSource, scan.results % 100);
+        int resultsRemainder = scan.results.get() % 100;
+        mBatteryStatsManager.reportBleScanResults(mWorkSource, resultsRemainder);
         mBatteryStatsManager.reportBleScanStopped(mWorkSource, isUnoptimized);
         BluetoothStatsLog.write(
                 BluetoothStatsLog.BLE_SCAN_RESULT_RECEIVED,
                 mWorkSourceUtil.getUids(),
                 mWorkSourceUtil.getTags(),
-                scan.results % 100);
+                resultsRemainder);
         BluetoothStatsLog.write(
                 BluetoothStatsLog.BLE_SCAN_STATE_CHANGED,
                 mWorkSourceUtil.getUids(),
@@ -645,19 +650,13 @@ public class AppScanStats {
     }
 
     private static int[] getRadioScanUids() {
-        synchronized (sLock) {
-            return sRadioScanWorkSourceUtil != null
-                    ? sRadioScanWorkSourceUtil.getUids()
-                    : new int[] {0};
-        }
+        WorkSourceUtil workSourceUtil = sRadioScanWorkSourceUtil;
+        return workSourceUtil != null ? workSourceUtil.getUids() : new int[] {0};
     }
 
     private static String[] getRadioScanTags() {
-        synchronized (sLock) {
-            return sRadioScanWorkSourceUtil != null
-                    ? sRadioScanWorkSourceUtil.getTags()
-                    : new String[] {""};
-        }
+        WorkSourceUtil workSourceUtil = sRadioScanWorkSourceUtil;
+        return workSourceUtil != null ? workSourceUtil.getTags() : new String[] {""};
     }
 
     @GuardedBy("sLock")
@@ -688,27 +687,27 @@ public class AppScanStats {
         }
     }
 
+    /** Called for every delivered result, reads the radio state without taking sLock. */
     public static void recordScanRadioResultCount() {
-        synchronized (sLock) {
-            if (!sIsRadioStarted) {
-                return;
-            }
-            if (Flags.bleScanAdvMetricsRedesign()) {
-                BluetoothStatsLog.write(
-                        BluetoothStatsLog.LE_SCAN_RESULT_RECEIVED,
-                        getRadioScanUids(),
-                        getRadioScanTags(),
-                        1 /* num_results */,
-                        BluetoothStatsLog.LE_SCAN_RESULT_RECEIVED__LE_SCAN_TYPE__SCAN_TYPE_REGULAR,
-                        sIsScreenOn);
-            }
-            MetricsLogger logger = MetricsLogger.getInstance();
-            logger.cacheCount(BluetoothProtoEnums.LE_SCAN_RESULTS_COUNT_REGULAR, 1);
-            if (sIsScreenOn) {
-                logger.cacheCount(BluetoothProtoEnums.LE_SCAN_RESULTS_COUNT_REGULAR_SCREEN_ON, 1);
-            } else {
-                logger.cacheCount(BluetoothProtoEnums.LE_SCAN_RESULTS_COUNT_REGULAR_SCREEN_OFF, 1);
-            }
+        if (!sIsRadioStarted) {
+            return;
+        }
+        boolean isScreenOn = sIsScreenOn;
+        if (Flags.bleScanAdvMetricsRedesign()) {
+            BluetoothStatsLog.write(
+                    BluetoothStatsLog.LE_SCAN_RESULT_RECEIVED,
+                    getRadioScanUids(),
+                    getRadioScanTags(),
+                    1 /* num_results */,
+                    BluetoothStatsLog.LE_SCAN_RESULT_RECEIVED__LE_SCAN_TYPE__SCAN_TYPE_REGULAR,
+                    isScreenOn);
+        }
+        MetricsLogger logger = MetricsLogger.getInstance();
+        logger.cacheCount(BluetoothProtoEnums.LE_SCAN_RESULTS_COUNT_REGULAR, 1);
+        if (isScreenOn) {
+            logger.cacheCount(BluetoothProtoEnums.LE_SCAN_RESULTS_COUNT_REGULAR_SCREEN_ON, 1);
+        } else {
+            logger.cacheCount(BluetoothProtoEnums.LE_SCAN_RESULTS_COUNT_REGULAR_SCREEN_OFF, 1);
         }
     }
 
@@ -1039,7 +1038,7 @@ public class AppScanStats {
         sb.append("\n  Score                                                       : ")
                 .append(Score);
         sb.append("\n  Total number of results                                     : ")
-                .append(results);
+                .append(mResults.sum());
 
         if (!mLastScans.isEmpty()) {
             sb.append("\n  Last ")
@@ -1063,7 +1062,7 @@ public class AppScanStats {
                 if (scan.isFilterScan) {
                     sb.append("Filter ");
                 }
-                sb.append(scan.results).append(" results");
+                sb.append(scan.results.get()).append(" results");
                 sb.append(" (").append(scan.scannerId).append(") ");
                 if (scan.isCallbackScan) {
                     sb.append("CB ");
@@ -1119,7 +1118,7 @@ public class AppScanStats {
                 if (scan.isSuspended) {
                     sb.append("Suspended ");
                 }
-                sb.append(scan.results).append(" results");
+                sb.append(scan.results.get()).append(" results");
                 sb.append(" (").append(scan.scannerId).append(") ");
                 if (scan.isCallbackScan) {
                     sb.append("CB ");
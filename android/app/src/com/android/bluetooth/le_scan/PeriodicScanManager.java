@@ -31,9 +31,10 @@ import com.android.bluetooth.btservice.AdapterService;
 import com.android.bluetooth.gatt.GattServiceConfig;
 import com.android.internal.annotations.VisibleForTesting;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -45,6 +46,9 @@ public class PeriodicScanManager {
     private final BluetoothAdapter mAdapter;
     private final PeriodicScanNativeInterface mNativeInterface;
     private final Map<IBinder, SyncInfo> mSyncs = new ConcurrentHashMap<>();
+    /* Syncs by id, see SyncInfo. Updated with mSyncs under its lock, the lists are immutable so
+     * reports are dispatched without a lock or a copy */
+    private final Map<Integer, List<SyncInfo>> mSyncsById = new ConcurrentHashMap<>();
     private final Map<IBinder, SyncTransferInfo> mSyncTransfers =
             Collections.synchronizedMap(new HashMap<>());
     static int sTempRegistrationId = -1;
@@ -60,7 +64,10 @@ public class PeriodicScanManager {
     public void cleanup() {
         Log.d(TAG, "cleanup()");
         mNativeInterface.cleanup();
-        mSyncs.clear();
+        synchronized (mSyncs) {
+            mSyncs.clear();
+            mSyncsById.clear();
+        }
         sTempRegistrationId = -1;
     }
 
@@ -134,14 +141,12 @@ public class PeriodicScanManager {
     }
 
     Map.Entry<IBinder, SyncInfo> findSync(int syncHandle) {
-        Map.Entry<IBinder, SyncInfo> entry = null;
-        for (Map.Entry<IBinder, SyncInfo> e : mSyncs.entrySet()) {
-            if (e.getValue().id == syncHandle) {
-                entry = e;
-                break;
-            }
+        List<SyncInfo> syncs = findAllSync(syncHandle);
+        if (syncs.isEmpty()) {
+            return null;
         }
-        return entry;
+        SyncInfo sync = syncs.get(0);
+        return Map.entry(toBinder(sync.callback), sync);
     }
 
     Map.Entry<IBinder, SyncInfo> findMatchingSync(int advSid, String address) {
@@ -154,24 +159,45 @@ public class PeriodicScanManager {
         return entry;
     }
 
-    Map<IBinder, SyncInfo> findAllSync(int syncHandle) {
-        Map<IBinder, SyncInfo> syncMap = new HashMap<IBinder, SyncInfo>();
-        for (Map.Entry<IBinder, SyncInfo> e : mSyncs.entrySet()) {
-            if (e.getValue().id != syncHandle) {
-                continue;
+    /** Returns the syncs with the given id, in the order they were added. */
+    List<SyncInfo> findAllSync(int syncHandle) {
+        return mSyncsById.getOrDefault(syncHandle, Collections.emptyList());
+    }
+
+    private void putSync(IBinder binder, SyncInfo sync) {
+        synchronized (mSyncs) {
+            SyncInfo previous = mSyncs.put(binder, sync);
+            if (previous != null) {
+                removeFromIndex(previous);
             }
-            syncMap.put(
-                    e.getKey(),
-                    new SyncInfo(
-                            e.getValue().id,
-                            e.getValue().advSid,
-                            e.getValue().address,
-                            e.getValue().skip,
-                            e.getValue().timeout,
-                            e.getValue().deathRecipient,
-                            e.getValue().callback));
+            List<SyncInfo> syncs = findAllSync(sync.id);
+            List<SyncInfo> updated = new ArrayList<>(syncs.size() + 1);
+            updated.addAll(syncs);
+            updated.add(sync);
+            mSyncsById.put(sync.id, Collections.unmodifiableList(updated));
+        }
+    }
+
+    private SyncInfo removeSync(IBinder binder) {
+        synchronized (mSyncs) {
+            SyncInfo sync = mSyncs.remove(binder);
+            if (sync != null) {
+                removeFromIndex(sync);
+            }
+            return sync;
+        }
+    }
+
+    private void removeFromIndex(SyncInfo sync) {
+        List<SyncInfo> updated = new ArrayList<>(findAllSync(sync.id));
+        if (!updated.remove(sync)) {
+            return;
+        }
+        if (updated.isEmpty()) {
+            mSyncsById.remove(sync.id);
+        } else {
+            mSyncsById.put(sync.id, Collections.unmodifiableList(updated));
         }
-        return syncMap;
     }
 
     void onSyncStarted(
@@ -184,50 +210,45 @@ public class PeriodicScanManager {
             int interval,
             int status)
             throws Exception {
-        Map<IBinder, SyncInfo> syncMap = findAllSync(regId);
-        if (syncMap.size() == 0) {
+        if (findAllSync(regId).isEmpty()) {
             Log.d(TAG, "onSyncStarted() - no callback found for regId " + regId);
             mNativeInterface.stopSync(syncHandle);
             return;
         }
 
         synchronized (mSyncs) {
-            Iterator<Map.Entry<IBinder, SyncInfo>> it = mSyncs.entrySet().iterator();
-            while (it.hasNext()) {
-                Map.Entry<IBinder, SyncInfo> e = it.next();
-                if (e.getValue().id != regId) {
-                    continue;
-                }
-                IPeriodicAdvertisingCallback callback = e.getValue().callback;
+            for (SyncInfo sync : findAllSync(regId)) {
+                IPeriodicAdvertisingCallback callback = sync.callback;
+                IBinder binder = toBinder(callback);
                 if (status == 0) {
                     Log.d(TAG, "onSyncStarted: updating id with syncHandle " + syncHandle);
-                    e.setValue(
+                    putSync(
+                            binder,
                             new SyncInfo(
                                     syncHandle,
                                     sid,
                                     address,
-                                    e.getValue().skip,
-                                    e.getValue().timeout,
-                                    e.getValue().deathRecipient,
+                                    sync.skip,
+                                    sync.timeout,
+                                    sync.deathRecipient,
                                     callback));
                     callback.onSyncEstablished(
                             syncHandle,
                             mAdapter.getRemoteLeDevice(address, addressType),
                             sid,
-                            e.getValue().skip,
-                            e.getValue().timeout,
+                            sync.skip,
+                            sync.timeout,
                             status);
                 } else {
                     callback.onSyncEstablished(
                             syncHandle,
                             mAdapter.getRemoteLeDevice(address, addressType),
                             sid,
-                            e.getValue().skip,
-                            e.getValue().timeout,
+                            sync.skip,
+                            sync.timeout,
                             status);
-                    IBinder binder = e.getKey();
-                    binder.unlinkToDeath(e.getValue().deathRecipient, 0);
-                    it.remove();
+                    binder.unlinkToDeath(sync.deathRecipient, 0);
+                    removeSync(binder);
                 }
             }
         }
@@ -235,45 +256,41 @@ public class PeriodicScanManager {
 
     void onSyncReport(int syncHandle, int txPower, int rssi, int dataStatus, byte[] data)
             throws Exception {
-        Map<IBinder, SyncInfo> syncMap = findAllSync(syncHandle);
-        if (syncMap.isEmpty()) {
+        List<SyncInfo> syncs = findAllSync(syncHandle);
+        if (syncs.isEmpty()) {
             Log.i(TAG, "onSyncReport() - no callback found for syncHandle " + syncHandle);
             return;
         }
-        for (Map.Entry<IBinder, SyncInfo> e : syncMap.entrySet()) {
-            IPeriodicAdvertisingCallback callback = e.getValue().callback;
-            PeriodicAdvertisingReport report =
-                    new PeriodicAdvertisingReport(
-                            syncHandle, txPower, rssi, dataStatus, ScanRecord.parseFromBytes(data));
-            callback.onPeriodicAdvertisingReport(report);
+        // Parsed once for all the callbacks, each binder call marshals its own copy
+        PeriodicAdvertisingReport report =
+                new PeriodicAdvertisingReport(
+                        syncHandle, txPower, rssi, dataStatus, ScanRecord.parseFromBytes(data));
+        for (SyncInfo sync : syncs) {
+            sync.callback.onPeriodicAdvertisingReport(report);
         }
     }
 
     void onSyncLost(int syncHandle) throws Exception {
-        Map<IBinder, SyncInfo> syncMap = findAllSync(syncHandle);
-        if (syncMap.isEmpty()) {
+        List<SyncInfo> syncs = findAllSync(syncHandle);
+        if (syncs.isEmpty()) {
             Log.i(TAG, "onSyncLost() - no callback found for syncHandle " + syncHandle);
             return;
         }
-        for (Map.Entry<IBinder, SyncInfo> e : syncMap.entrySet()) {
-            IPeriodicAdvertisingCallback callback = e.getValue().callback;
-            IBinder binder = toBinder(callback);
-            synchronized (mSyncs) {
-                mSyncs.remove(binder);
-            }
+        for (SyncInfo sync : syncs) {
+            IPeriodicAdvertisingCallback callback = sync.callback;
+            removeSync(toBinder(callback));
             callback.onSyncLost(syncHandle);
         }
     }
 
     void onBigInfoReport(int syncHandle, boolean encrypted) throws Exception {
-        Map<IBinder, SyncInfo> syncMap = findAllSync(syncHandle);
-        if (syncMap.isEmpty()) {
+        List<SyncInfo> syncs = findAllSync(syncHandle);
+        if (syncs.isEmpty()) {
             Log.i(TAG, "onBigInfoReport() - no callback found for syncHandle " + syncHandle);
             return;
         }
-        for (Map.Entry<IBinder, SyncInfo> e : syncMap.entrySet()) {
-            IPeriodicAdvertisingCallback callback = e.getValue().callback;
-            callback.onBigInfoAdvertisingReport(syncHandle, encrypted);
+        for (SyncInfo sync : syncs) {
+            sync.callback.onBigInfoAdvertisingReport(syncHandle, encrypted);
         }
     }
 
@@ -303,7 +320,7 @@ public class PeriodicScanManager {
             if (entry != null) {
                 // Found matching sync. Copy sync handle
                 Log.d(TAG, "startSync: Matching entry found");
-                mSyncs.put(
+                putSync(
                         binder,
                         new SyncInfo(
                                 entry.getValue().id,
@@ -333,8 +350,7 @@ public class PeriodicScanManager {
         }
 
         int cbId = --sTempRegistrationId;
-        mSyncs.put(
-                binder, new SyncInfo(cbId, sid, address, skip, timeout, deathRecipient, callback));
+        putSync(binder, new SyncInfo(cbId, sid, address, skip, timeout, deathRecipient, callback));
 
         Log.d(TAG, "startSync() - reg_id=" + cbId + ", callback: " + binder);
         mNativeInterface.startSync(sid, address, skip, timeout, cbId);
@@ -343,10 +359,7 @@ public class PeriodicScanManager {
     public void stopSync(IPeriodicAdvertisingCallback callback) {
         IBinder binder = toBinder(callback);
         Log.d(TAG, "stopSync() " + binder);
-        SyncInfo sync = null;
-        synchronized (mSyncs) {
-            sync = mSyncs.remove(binder);
-        }
+        SyncInfo sync = removeSync(binder);
         if (sync == null) {
             Log.e(TAG, "stopSync() - no client found for callback");
             return;
@@ -18,12 +18,16 @@ package com.android.bluetooth.mapclient;
 
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothMapClient;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.RemoteException;
 import android.provider.BaseColumns;
 import android.provider.Telephony;
 import android.provider.Telephony.Mms;
@@ -57,6 +61,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 
 class MapClientContent {
     private static final String TAG = MapClientContent.class.getSimpleName();
@@ -92,6 +97,21 @@ class MapClientContent {
     private HashMap<String, Uri> mHandleToUriMap = new HashMap<>();
     private HashMap<Uri, MessageStatus> mUriToHandleMap = new HashMap<>();
 
+    /** A downloaded message waiting to be stored with {@link #storeMessages}. */
+    static final class InboundMessage {
+        final Bmessage mMessage;
+        final String mHandle;
+        final Long mTimestamp;
+        final boolean mSeen;
+
+        InboundMessage(Bmessage message, String handle, Long timestamp, boolean seen) {
+            mMessage = message;
+            mHandle = handle;
+            mTimestamp = timestamp;
+            mSeen = seen;
+        }
+    }
+
     /** Callbacks API to notify about statusChanges as observed from the content provider */
     interface Callbacks {
         void onMessageStatusChanged(String handle, int status);
@@ -183,7 +203,7 @@ class MapClientContent {
         Log.w(TAG, "[" + mDevice + "] " + message);
     }
 
-    private void warn(String message, Exception e) {
+    private void warn(String message, Throwable e) {
         Log.w(TAG, "[" + mDevice + "] " + message, e);
     }
 
@@ -241,9 +261,196 @@ class MapClientContent {
         }
     }
 
+    /**
+     * storeMessages
+     *
+     * <p>Store several messages with as few provider transactions as possible. All SMS and MMS
+     * rows are inserted with one {@link ContentResolver#applyBatch} per provider, then the
+     * addresses and parts of every MMS with one more. The telephony providers don't apply a batch
+     * in a transaction, so each insert reports its own failure and the message it belongs to is
+     * stored again on its own. When a whole batch fails, some of its rows may be stored already,
+     * so its messages are dropped rather than duplicated.
+     */
+    void storeMessages(List<InboundMessage> messages) {
+        info("storeMessages(count=" + messages.size() + ")");
+        List<InboundMessage> smsMessages = new ArrayList<>();
+        ArrayList<ContentProviderOperation> smsOperations = new ArrayList<>();
+        List<InboundMessage> mmsMessages = new ArrayList<>();
+        List<BluetoothMapbMessageMime> mmsBodies = new ArrayList<>();
+        ArrayList<ContentProviderOperation> mmsOperations = new ArrayList<>();
+
+        for (InboundMessage inbound : messages) {
+            Bmessage message = inbound.mMessage;
+            switch (message.getType()) {
+                case MMS:
+                    BluetoothMapbMessageMime mmsBmessage = new BluetoothMapbMessageMime();
+                    mmsBmessage.parseMsgPart(message.getBodyContent());
+                    mmsMessages.add(inbound);
+                    mmsBodies.add(mmsBmessage);
+                    mmsOperations.add(
+                            newInsert(
+                                    getMmsContentUri(message),
+                                    buildMmsValues(
+                                            message,
+                                            mmsBmessage,
+                                            inbound.mTimestamp,
+                                            inbound.mSeen)));
+                    break;
+                case SMS_CDMA:
+                case SMS_GSM:
+                    ContentValues values =
+                            buildSmsValues(message, inbound.mTimestamp, inbound.mSeen);
+                    if (values == null) {
+                        break;
+                    }
+                    smsMessages.add(inbound);
+                    smsOperations.add(newInsert(getSmsContentUri(message), values));
+                    break;
+                default:
+                    debug("Request to store unsupported message type: " + message.getType());
+            }
+        }
+
+        ContentProviderResult[] smsResults = applyBatch(Sms.CONTENT_URI, smsOperations);
+        if (smsResults == null) {
+            dropMessages(smsMessages);
+        } else {
+            for (int i = 0; i < smsResults.length; i++) {
+                if (smsResults[i].exception != null) {
+                    storeAgain(smsMessages.get(i), smsResults[i].exception);
+                } else {
+                    recordStoredMessage(smsMessages.get(i), smsResults[i].uri);
+                }
+            }
+        }
+
+        ContentProviderResult[] mmsResults = applyBatch(Mms.CONTENT_URI, mmsOperations);
+        if (mmsResults == null) {
+            dropMessages(mmsMessages);
+            return;
+        }
+        List<Integer> stored = new ArrayList<>();
+        for (int i = 0; i < mmsResults.length; i++) {
+            if (mmsResults[i].exception != null) {
+                storeAgain(mmsMessages.get(i), mmsResults[i].exception);
+            } else if (recordStoredMessage(mmsMessages.get(i), mmsResults[i].uri)) {
+                stored.add(i);
+            }
+        }
+
+        // Parts and addresses are inserted under the URI of their message, so they can only be
+        // built once the messages exist. Addresses go first, see storeMms().
+        ArrayList<ContentProviderOperation> partOperations = new ArrayList<>();
+        List<Integer> partOwners = new ArrayList<>();
+        for (int i : stored) {
+            Uri addressUri = Uri.parse(mmsResults[i].uri.toString() + "/addr");
+            for (ContentValues values : buildAddressValues(mmsMessages.get(i).mMessage)) {
+                partOperations.add(newInsert(addressUri, values));
+                partOwners.add(i);
+            }
+        }
+        for (int i : stored) {
+            Uri partUri = Uri.parse(mmsResults[i].uri.toString() + "/part");
+            for (MimePart part : mmsBodies.get(i).getMimeParts()) {
+                partOperations.add(newInsert(partUri, buildMmsPartValues(part)));
+                partOwners.add(i);
+            }
+        }
+        ContentProviderResult[] partResults = applyBatch(Mms.CONTENT_URI, partOperations);
+        Set<Integer> incomplete = new TreeSet<>();
+        if (partResults == null) {
+            incomplete.addAll(stored);
+        } else {
+            for (int j = 0; j < partResults.length; j++) {
+                if (partResults[j].exception != null) {
+                    incomplete.add(partOwners.get(j));
+                }
+            }
+        }
+        // Don't leave a message without its addresses or body. Deleting it also deletes the
+        // parts that were inserted, so it can be stored again on its own.
+        for (int i : incomplete) {
+            InboundMessage inbound = mmsMessages.get(i);
+            Uri messageUri = mmsResults[i].uri;
+            mResolver.delete(messageUri, null);
+            mHandleToUriMap.remove(inbound.mHandle);
+            mUriToHandleMap.remove(messageUri);
+            storeAgain(inbound, null);
+        }
+    }
+
+    /** An insert that reports its failure in its result instead of failing the rest of the batch */
+    private static ContentProviderOperation newInsert(Uri uri, ContentValues values) {
+        return ContentProviderOperation.newInsert(uri)
+                .withValues(values)
+                .withExceptionAllowed(true)
+                .build();
+    }
+
+    private ContentProviderResult[] applyBatch(
+            Uri authorityUri, ArrayList<ContentProviderOperation> operations) {
+        if (operations.isEmpty()) {
+            return new ContentProviderResult[0];
+        }
+        try {
+            return mResolver.applyBatch(authorityUri.getAuthority(), operations);
+        } catch (OperationApplicationException | RemoteException | RuntimeException e) {
+            warn("Batch insert into " + authorityUri.getAuthority() + " failed", e);
+            return null;
+        }
+    }
+
+    private void storeAgain(InboundMessage inbound, Throwable cause) {
+        warn("Batch insert of " + inbound.mHandle + " failed, storing it on its own", cause);
+        storeMessage(inbound.mMessage, inbound.mHandle, inbound.mTimestamp, inbound.mSeen);
+    }
+
+    private void dropMessages(List<InboundMessage> messages) {
+        for (InboundMessage inbound : messages) {
+            error("Unknown state after a failed batch insert. Dropping message " + inbound.mHandle);
+        }
+    }
+
+    private boolean recordStoredMessage(InboundMessage inbound, Uri results) {
+        if (results == null) {
+            error("Failed to get message URI, insert failed. Dropping message.");
+            return false;
+        }
+        int readStatus = inbound.mMessage.getStatus() == Bmessage.Status.READ ? 1 : 0;
+        mHandleToUriMap.put(inbound.mHandle, results);
+        mUriToHandleMap.put(results, new MessageStatus(inbound.mHandle, readStatus));
+        debug("Map InsertedThread" + results);
+        return true;
+    }
+
     private void storeSms(Bmessage message, String handle, Long timestamp, boolean seen) {
         debug("storeSms");
         verbose(message.toString());
+        ContentValues values = buildSmsValues(message, timestamp, seen);
+        if (values == null) {
+            return;
+        }
+        int readStatus = values.getAsInteger(Sms.READ);
+
+        Uri results = mResolver.insert(getSmsContentUri(message), values);
+        if (results == null) {
+            error("Failed to get SMS URI, insert failed. Dropping message.");
+            return;
+        }
+
+        mHandleToUriMap.put(handle, results);
+        mUriToHandleMap.put(results, new MessageStatus(handle, readStatus));
+        debug("Map InsertedThread" + results);
+    }
+
+    private static Uri getSmsContentUri(Bmessage message) {
+        return INBOX_PATH.equalsIgnoreCase(message.getFolder())
+                ? Sms.Inbox.CONTENT_URI
+                : Sms.Sent.CONTENT_URI;
+    }
+
+    /** Returns the SMS row for {@code message}, or null if it has no valid recipient. */
+    private ContentValues buildSmsValues(Bmessage message, Long timestamp, boolean seen) {
         String recipients;
         if (INBOX_PATH.equals(message.getFolder())) {
             recipients = getOriginatorNumber(message);
@@ -251,15 +458,11 @@ class MapClientContent {
             recipients = getFirstRecipientNumber(message);
             if (recipients == null) {
                 debug("invalid recipients");
-                return;
+                return null;
             }
         }
         verbose("Received SMS from Number " + recipients);
 
-        Uri contentUri =
-                INBOX_PATH.equalsIgnoreCase(message.getFolder())
-                        ? Sms.Inbox.CONTENT_URI
-                        : Sms.Sent.CONTENT_URI;
         ContentValues values = new ContentValues();
         long threadId = getThreadId(message);
         int readStatus = message.getStatus() == Bmessage.Status.READ ? 1 : 0;
@@ -271,16 +474,7 @@ class MapClientContent {
         values.put(Sms.DATE, timestamp);
         values.put(Sms.READ, readStatus);
         values.put(Sms.SEEN, seen);
-
-        Uri results = mResolver.insert(contentUri, values);
-        if (results == null) {
-            error("Failed to get SMS URI, insert failed. Dropping message.");
-            return;
-        }
-
-        mHandleToUriMap.put(handle, results);
-        mUriToHandleMap.put(results, new MessageStatus(handle, readStatus));
-        debug("Map InsertedThread" + results);
+        return values;
     }
 
     /** deleteMessage remove a message from the local provider based on a remote change */
@@ -342,40 +536,13 @@ class MapClientContent {
         debug("storeMms");
         verbose(message.toString());
         try {
-            ContentValues values = new ContentValues();
-            long threadId = getThreadId(message);
             BluetoothMapbMessageMime mmsBmessage = new BluetoothMapbMessageMime();
             mmsBmessage.parseMsgPart(message.getBodyContent());
             int read = message.getStatus() == Bmessage.Status.READ ? 1 : 0;
-            Uri contentUri;
-            int messageBox;
-            if (INBOX_PATH.equalsIgnoreCase(message.getFolder())) {
-                contentUri = Mms.Inbox.CONTENT_URI;
-                messageBox = Mms.MESSAGE_BOX_INBOX;
-            } else {
-                contentUri = Mms.Sent.CONTENT_URI;
-                messageBox = Mms.MESSAGE_BOX_SENT;
-            }
             debug("Parsed");
-            values.put(Mms.SUBSCRIPTION_ID, mSubscriptionId);
-            values.put(Mms.THREAD_ID, threadId);
-            values.put(Mms.DATE, timestamp / 1000L);
-            values.put(Mms.TEXT_ONLY, true);
-            values.put(Mms.MESSAGE_BOX, messageBox);
-            values.put(Mms.READ, read);
-            values.put(Mms.SEEN, seen);
-            values.put(Mms.MESSAGE_TYPE, PduHeaders.MESSAGE_TYPE_SEND_REQ);
-            values.put(Mms.MMS_VERSION, PduHeaders.CURRENT_MMS_VERSION);
-            values.put(Mms.PRIORITY, PduHeaders.PRIORITY_NORMAL);
-            values.put(Mms.READ_REPORT, PduHeaders.VALUE_NO);
-            values.put(Mms.TRANSACTION_ID, "T" + Long.toHexString(System.currentTimeMillis()));
-            values.put(Mms.DELIVERY_REPORT, PduHeaders.VALUE_NO);
-            values.put(Mms.LOCKED, 0);
-            values.put(Mms.CONTENT_TYPE, "application/vnd.wap.multipart.related");
-            values.put(Mms.MESSAGE_CLASS, PduHeaders.MESSAGE_CLASS_PERSONAL_STR);
-            values.put(Mms.MESSAGE_SIZE, mmsBmessage.getSize());
-
-            Uri results = mResolver.insert(contentUri, values);
+            ContentValues values = buildMmsValues(message, mmsBmessage, timestamp, seen);
+
+            Uri results = mResolver.insert(getMmsContentUri(message), values);
             if (results == null) {
                 error("Failed to get MMS entry URI. Cannot store MMS parts. Dropping message.");
                 return;
@@ -401,18 +568,44 @@ class MapClientContent {
         }
     }
 
-    private Uri storeMmsPart(MimePart messagePart, Uri messageUri) {
+    private static Uri getMmsContentUri(Bmessage message) {
+        return INBOX_PATH.equalsIgnoreCase(message.getFolder())
+                ? Mms.Inbox.CONTENT_URI
+                : Mms.Sent.CONTENT_URI;
+    }
+
+    private ContentValues buildMmsValues(
+            Bmessage message, BluetoothMapbMessageMime mmsBmessage, Long timestamp, boolean seen) {
         ContentValues values = new ContentValues();
-        values.put(Mms.Part.CONTENT_TYPE, "text/plain");
-        values.put(Mms.Part.CHARSET, DEFAULT_CHARSET);
-        values.put(Mms.Part.FILENAME, "text_1.txt");
-        values.put(Mms.Part.NAME, "text_1.txt");
-        values.put(Mms.Part.CONTENT_ID, messagePart.mContentId);
-        values.put(Mms.Part.CONTENT_LOCATION, messagePart.mContentLocation);
-        values.put(Mms.Part.TEXT, messagePart.getDataAsString());
+        long threadId = getThreadId(message);
+        int read = message.getStatus() == Bmessage.Status.READ ? 1 : 0;
+        int messageBox =
+                INBOX_PATH.equalsIgnoreCase(message.getFolder())
+                        ? Mms.MESSAGE_BOX_INBOX
+                        : Mms.MESSAGE_BOX_SENT;
+        values.put(Mms.SUBSCRIPTION_ID, mSubscriptionId);
+        values.put(Mms.THREAD_ID, threadId);
+        values.put(Mms.DATE, timestamp / 1000L);
+        values.put(Mms.TEXT_ONLY, true);
+        values.put(Mms.MESSAGE_BOX, messageBox);
+        values.put(Mms.READ, read);
+        values.put(Mms.SEEN, seen);
+        values.put(Mms.MESSAGE_TYPE, PduHeaders.MESSAGE_TYPE_SEND_REQ);
+        values.put(Mms.MMS_VERSION, PduHeaders.CURRENT_MMS_VERSION);
+        values.put(Mms.PRIORITY, PduHeaders.PRIORITY_NORMAL);
+        values.put(Mms.READ_REPORT, PduHeaders.VALUE_NO);
+        values.put(Mms.TRANSACTION_ID, "T" + Long.toHexString(System.currentTimeMillis()));
+        values.put(Mms.DELIVERY_REPORT, PduHeaders.VALUE_NO);
+        values.put(Mms.LOCKED, 0);
+        values.put(Mms.CONTENT_TYPE, "application/vnd.wap.multipart.related");
+        values.put(Mms.MESSAGE_CLASS, PduHeaders.MESSAGE_CLASS_PERSONAL_STR);
+        values.put(Mms.MESSAGE_SIZE, mmsBmessage.getSize());
+        return values;
+    }
 
+    private Uri storeMmsPart(MimePart messagePart, Uri messageUri) {
         Uri contentUri = Uri.parse(messageUri.toString() + "/part");
-        Uri results = mResolver.insert(contentUri, values);
+        Uri results = mResolver.insert(contentUri, buildMmsPartValues(messagePart));
 
         if (results == null) {
             warn("failed to insert MMS part");
@@ -423,29 +616,48 @@ class MapClientContent {
         return results;
     }
 
-    private void storeAddressPart(Bmessage message, Uri messageUri) {
+    private static ContentValues buildMmsPartValues(MimePart messagePart) {
         ContentValues values = new ContentValues();
+        values.put(Mms.Part.CONTENT_TYPE, "text/plain");
+        values.put(Mms.Part.CHARSET, DEFAULT_CHARSET);
+        values.put(Mms.Part.FILENAME, "text_1.txt");
+        values.put(Mms.Part.NAME, "text_1.txt");
+        values.put(Mms.Part.CONTENT_ID, messagePart.mContentId);
+        values.put(Mms.Part.CONTENT_LOCATION, messagePart.mContentLocation);
+        values.put(Mms.Part.TEXT, messagePart.getDataAsString());
+        return values;
+    }
+
+    private void storeAddressPart(Bmessage message, Uri messageUri) {
         Uri contentUri = Uri.parse(messageUri.toString() + "/addr");
-        String originator = getOriginatorNumber(message);
+        List<ContentValues> addresses = buildAddressValues(message);
+        for (int i = 0; i < addresses.size(); i++) {
+            Uri results = mResolver.insert(contentUri, addresses.get(i));
+            if (results == null) {
+                warn("failed to insert " + (i == 0 ? "originator" : "recipient") + " address");
+            }
+        }
+    }
+
+    /** Returns the originator address row followed by one row per recipient. */
+    private List<ContentValues> buildAddressValues(Bmessage message) {
+        List<ContentValues> addresses = new ArrayList<>();
+        ContentValues values = new ContentValues();
         values.put(Mms.Addr.CHARSET, DEFAULT_CHARSET);
-        values.put(Mms.Addr.ADDRESS, originator);
+        values.put(Mms.Addr.ADDRESS, getOriginatorNumber(message));
         values.put(Mms.Addr.TYPE, ORIGINATOR_ADDRESS_TYPE);
-
-        Uri results = mResolver.insert(contentUri, values);
-        if (results == null) {
-            warn("failed to insert originator address");
-        }
+        addresses.add(values);
 
         Set<String> messageContacts = new ArraySet<>();
         getRecipientsFromMessage(message, messageContacts);
         for (String recipient : messageContacts) {
+            values = new ContentValues();
+            values.put(Mms.Addr.CHARSET, DEFAULT_CHARSET);
             values.put(Mms.Addr.ADDRESS, recipient);
             values.put(Mms.Addr.TYPE, RECIPIENT_ADDRESS_TYPE);
-            results = mResolver.insert(contentUri, values);
-            if (results == null) {
-                warn("failed to insert recipient address");
-            }
+            addresses.add(values);
         }
+        return addresses;
     }
 
     /** cleanUp clear the subscription info and content on shutdown */
@@ -86,6 +86,8 @@ public class MasClient {
     private ClientSession mSession;
     private HandlerThread mThread;
     private boolean mConnected = false;
+    // Only used from mThread, where requests are executed one at a time
+    private final MapClientParsers mParsers = new MapClientParsers();
     SdpMasRecord mSdpMasRecord;
 
     public MasClient(
@@ -172,10 +174,15 @@ public class MasClient {
 
     private void executeRequest(Request request) {
         try {
+            request.setParsers(mParsers);
             request.execute(mSession);
             mCallback.sendMessage(MceStateMachine.MSG_MAS_REQUEST_COMPLETED, request);
         } catch (IOException e) {
             Log.d(TAG, "Request failed: " + request);
+            if (request.hasPartialResult()) {
+                // Deliver what was received before the failure, e.g. the first messages of a group
+                mCallback.sendMessage(MceStateMachine.MSG_MAS_REQUEST_COMPLETED, request);
+            }
             // Disconnect to cleanup.
             disconnect();
         }
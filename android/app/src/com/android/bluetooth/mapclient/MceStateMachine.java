@@ -65,6 +65,7 @@ import com.android.vcard.VCardEntry;
 import com.android.vcard.VCardProperty;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -136,6 +137,13 @@ class MceStateMachine extends StateMachine {
     private static final String SEND_MESSAGE_TYPE =
             "persist.bluetooth.pts.mapclient.sendmessagetype";
 
+    // When enabled, the messages of a listing are downloaded in groups and each group is written
+    // to the messaging provider in a single batch instead of one insert per message and part.
+    @VisibleForTesting
+    static final String BATCHED_INGEST_PROPERTY = "bluetooth.mapclient.batched_ingest.enabled";
+
+    @VisibleForTesting static final int BATCHED_INGEST_SIZE = 10;
+
     // Connectivity States
     private int mPreviousState = BluetoothProfile.STATE_DISCONNECTED;
     private int mMostRecentState = BluetoothProfile.STATE_DISCONNECTED;
@@ -766,6 +774,8 @@ class MceStateMachine extends StateMachine {
                 case MSG_MAS_REQUEST_COMPLETED:
                     if (message.obj instanceof RequestGetMessage) {
                         processInboundMessage((RequestGetMessage) message.obj);
+                    } else if (message.obj instanceof RequestGetMessages) {
+                        processInboundMessages((RequestGetMessages) message.obj);
                     } else if (message.obj instanceof RequestPushMessage) {
                         RequestPushMessage requestPushMessage = (RequestPushMessage) message.obj;
                         String messageHandle = requestPushMessage.getMsgHandle();
@@ -945,6 +955,8 @@ class MceStateMachine extends StateMachine {
                                     : "null request"));
 
             List<com.android.bluetooth.mapclient.Message> messageListing = request.getList();
+            boolean batched = SystemProperties.getBoolean(BATCHED_INGEST_PROPERTY, false);
+            List<String> pendingHandles = new ArrayList<>();
             if (messageListing != null) {
                 // Message listings by spec arrive ordered newest first but we wish to broadcast as
                 // oldest first. Iterate in reverse order so we initiate requests oldest first.
@@ -971,9 +983,31 @@ class MceStateMachine extends StateMachine {
                                     msg.getDateTime().getTime(),
                                     msg.isRead(),
                                     MESSAGE_SEEN));
-                    getMessage(msg.getHandle());
+                    if (!batched) {
+                        getMessage(msg.getHandle());
+                        continue;
+                    }
+                    pendingHandles.add(msg.getHandle());
+                    if (pendingHandles.size() == BATCHED_INGEST_SIZE) {
+                        getMessages(pendingHandles);
+                        pendingHandles = new ArrayList<>();
+                    }
                 }
             }
+            if (!pendingHandles.isEmpty()) {
+                getMessages(pendingHandles);
+            }
+        }
+
+        private void getMessages(List<String> handles) {
+            Log.d(
+                    TAG,
+                    Utils.getLoggableAddress(mDevice)
+                            + " [Connected]: fetch message contents, count="
+                            + handles.size());
+            mMasClient.makeRequest(
+                    new RequestGetMessages(
+                            handles, MasClient.CharsetType.UTF_8, DOWNLOAD_ATTACHMENTS));
         }
 
         /**
@@ -1091,6 +1125,41 @@ class MceStateMachine extends StateMachine {
                     request.getHandle(),
                     mMessages.get(request.getHandle()).getTimestamp(),
                     mMessages.get(request.getHandle()).getSeen());
+            notifyInboundMessage(request);
+        }
+
+        /**
+         * Given a group of inbound messages, store them all in one batch and then notify about
+         * each of them, in the order they were requested.
+         *
+         * @param request - A request object that has been resolved and returned with message data
+         */
+        private void processInboundMessages(RequestGetMessages request) {
+            List<RequestGetMessage> received = new ArrayList<>();
+            List<MapClientContent.InboundMessage> messages = new ArrayList<>();
+            for (RequestGetMessage messageRequest : request.getRequests()) {
+                Bmessage message = messageRequest.getMessage();
+                MessageMetadata metadata = mMessages.get(messageRequest.getHandle());
+                if (message == null || metadata == null) {
+                    continue;
+                }
+                received.add(messageRequest);
+                messages.add(
+                        new MapClientContent.InboundMessage(
+                                message,
+                                messageRequest.getHandle(),
+                                metadata.getTimestamp(),
+                                metadata.getSeen()));
+            }
+            Log.d(TAG, "Notify inbound Messages, count=" + messages.size());
+            mDatabase.storeMessages(messages);
+            for (RequestGetMessage messageRequest : received) {
+                notifyInboundMessage(messageRequest);
+            }
+        }
+
+        private void notifyInboundMessage(RequestGetMessage request) {
+            Bmessage message = request.getMessage();
             if (!INBOX_PATH.equalsIgnoreCase(message.getFolder())) {
                 Log.d(TAG, "Ignoring message received in " + message.getFolder() + ".");
                 return;
@@ -30,6 +30,7 @@ import com.android.vcard.exception.VCardVersionException;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 
@@ -62,10 +63,15 @@ class BmessageParser {
      */
     private static final int MSG_CONTAINER_LEN = 22;
 
-    private final Bmessage mBmsg;
+    private Bmessage mBmsg;
     private BmsgTokenizer mParser;
+    private BmsgStreamTokenizer mStream;
 
-    private BmessageParser() {
+    /**
+     * Creates a parser for {@link #parse(InputStream)}. The parser keeps its buffers between
+     * calls, so it should be reused for all messages of a session. It is not thread safe.
+     */
+    BmessageParser() {
         mBmsg = new Bmessage();
     }
 
@@ -87,6 +93,46 @@ class BmessageParser {
         return p.mBmsg;
     }
 
+    /**
+     * Decodes a bMessage directly from {@code in}, without first copying the whole object into a
+     * String. Returns null if the bMessage is malformed.
+     */
+    Bmessage parse(InputStream in) {
+        mBmsg = new Bmessage();
+        if (mStream == null) {
+            mStream = new BmsgStreamTokenizer();
+        }
+        mStream.reset(in);
+
+        try {
+            parseBmessage();
+        } catch (IOException e) {
+            Log.e(TAG, "I/O exception when parsing bMessage", e);
+            return null;
+        } catch (ParseException e) {
+            Log.e(TAG, "Cannot parse bMessage", e);
+            return null;
+        } finally {
+            mStream.reset(null);
+            mParser = null;
+        }
+
+        return mBmsg;
+    }
+
+    /* Next property from the String tokenizer if there is one, from the stream otherwise */
+    private Property next(boolean alwaysReturn) throws IOException, ParseException {
+        return mParser != null ? mParser.next(alwaysReturn) : mStream.next(alwaysReturn);
+    }
+
+    private Property next() throws IOException, ParseException {
+        return next(false);
+    }
+
+    private int pos() {
+        return mParser != null ? mParser.pos() : mStream.pos();
+    }
+
     private ParseException expected(Property... props) {
         boolean first = true;
         StringBuilder sb = new StringBuilder();
@@ -99,19 +145,22 @@ class BmessageParser {
             first = false;
         }
 
-        return new ParseException("Expected: " + sb.toString(), mParser.pos());
+        return new ParseException("Expected: " + sb.toString(), pos());
     }
 
     private void parse(String str) throws IOException, ParseException {
+        mParser = new BmsgTokenizer(str + CRLF);
+        parseBmessage();
+    }
+
+    private void parseBmessage() throws IOException, ParseException {
         Property prop;
 
         /*
          * <bmessage-object>::= { "BEGIN:BMSG" <CRLF> <bmessage-property>
          * [<bmessage-originator>]* <bmessage-envelope> "END:BMSG" <CRLF> }
          */
-        mParser = new BmsgTokenizer(str + CRLF);
-
-        prop = mParser.next();
+        prop = next();
         if (!prop.equals(BEGIN_BMSG)) {
             throw expected(BEGIN_BMSG);
         }
@@ -145,7 +194,7 @@ class BmessageParser {
         mParser = null;
     }
 
-    private Property parseProperties() throws ParseException {
+    private Property parseProperties() throws IOException, ParseException {
         Property prop;
         /*
          * <bmessage-property>::=<bmessage-version-property>
@@ -157,7 +206,7 @@ class BmessageParser {
          * <bmessage-folder-property>::="FOLDER:" 'foldername' <CRLF>
          */
         do {
-            prop = mParser.next();
+            prop = next();
 
             if (prop.name.equals("VERSION")) {
                 mBmsg.mBmsgVersion = prop.value;
@@ -197,7 +246,7 @@ class BmessageParser {
          */
 
         if (level > 3) {
-            throw new ParseException("bEnvelope is nested more than 3 times", mParser.pos());
+            throw new ParseException("bEnvelope is nested more than 3 times", pos());
         }
 
         /*
@@ -205,7 +254,7 @@ class BmessageParser {
          * <bmessage-envelope> | <bmessage-content> "END:BENV" <CRLF> }
          */
 
-        prop = mParser.next();
+        prop = next();
 
         while (prop.equals(BEGIN_VCARD)) {
 
@@ -234,7 +283,7 @@ class BmessageParser {
             throw expected(END_BENV);
         }
 
-        return mParser.next();
+        return next();
     }
 
     private Property parseBody() throws IOException, ParseException {
@@ -256,7 +305,7 @@ class BmessageParser {
          */
 
         do {
-            prop = mParser.next();
+            prop = next();
 
             if (prop.name.equals("PARTID")) {
                 // Do nothing
@@ -273,7 +322,7 @@ class BmessageParser {
                 try {
                     mBmsg.mBbodyLength = Integer.parseInt(prop.value);
                 } catch (NumberFormatException e) {
-                    throw new ParseException("Invalid LENGTH value", mParser.pos());
+                    throw new ParseException("Invalid LENGTH value", pos());
                 }
             }
 
@@ -299,25 +348,42 @@ class BmessageParser {
          */
 
         int messageLen = mBmsg.mBbodyLength - MSG_CONTAINER_LEN;
+        if (mParser == null) {
+            parseStreamMessage(messageLen);
+        } else {
+            parseMessage(messageLen, mParser.remaining());
+        }
+
+        prop = next();
+
+        if (!prop.equals(END_BBODY)) {
+            throw expected(END_BBODY);
+        }
+
+        return next();
+    }
+
+    /* Parses 'message'<CRLF> "END:MSG"<CRLF>, given everything left after "BEGIN:MSG"<CRLF> */
+    private void parseMessage(int messageLen, String remng) throws IOException, ParseException {
+        Property prop;
         int offset = messageLen + CRLF_LEN;
-        int restartPos = mParser.pos() + offset;
+        int restartPos = pos() + offset;
         /*
          * length is specified in bytes so we need to convert from unicode
          * string back to bytes array
          */
-        String remng = mParser.remaining();
         byte[] data = remng.getBytes();
 
         if (offset < 0 || offset > data.length) {
             /* Handle possible exception for incorrect LENGTH value
              * from MSE while parsing end of props */
-            throw new ParseException("Invalid LENGTH value", mParser.pos());
+            throw new ParseException("Invalid LENGTH value", pos());
         }
 
         /* restart parsing from after 'message'<CRLF> */
         mParser = new BmsgTokenizer(new String(data, offset, data.length - offset), restartPos);
 
-        prop = mParser.next(true);
+        prop = next(true);
 
         if (prop != null) {
             if (prop.equals(END_MSG)) {
@@ -343,14 +409,14 @@ class BmessageParser {
             if (offset < 0 || offset > remng.length()) {
                 /* Handle possible exception for incorrect LENGTH value
                  * from MSE while parsing  GET Message response */
-                throw new ParseException("Invalid LENGTH value", mParser.pos());
+                throw new ParseException("Invalid LENGTH value", pos());
             }
 
             Log.w(TAG, "byte LENGTH seems to be invalid, trying with char length");
 
             mParser = new BmsgTokenizer(remng.substring(offset));
 
-            prop = mParser.next();
+            prop = next();
 
             if (!prop.equals(END_MSG)) {
                 throw expected(END_MSG);
@@ -362,14 +428,47 @@ class BmessageParser {
                 mBmsg.mMessage = null;
             }
         }
+    }
 
-        prop = mParser.next();
+    /*
+     * Same as parseMessage(), but reads exactly the announced number of bytes from the stream.
+     * If the LENGTH turns out not to be in bytes, the rest of the stream is buffered and handed
+     * to parseMessage() so the character length fallback behaves the same in both modes.
+     */
+    private void parseStreamMessage(int messageLen) throws IOException, ParseException {
+        int offset = messageLen + CRLF_LEN;
+        if (offset < 0) {
+            throw new ParseException("Invalid LENGTH value", pos());
+        }
 
-        if (!prop.equals(END_BBODY)) {
-            throw expected(END_BBODY);
+        byte[] data = mStream.read(offset);
+        if (data == null) {
+            throw new ParseException("Invalid LENGTH value", pos());
         }
 
-        return mParser.next();
+        Property prop = mStream.next(true);
+        if (prop == null) {
+            byte[] remaining = mStream.readRemaining();
+            byte[] all = new byte[data.length + remaining.length + CRLF_LEN];
+            System.arraycopy(data, 0, all, 0, data.length);
+            System.arraycopy(remaining, 0, all, data.length, remaining.length);
+            all[all.length - 2] = '\r';
+            all[all.length - 1] = '\n';
+            parseMessage(messageLen, new String(all, StandardCharsets.UTF_8));
+            return;
+        }
+
+        if (!prop.equals(END_MSG)) {
+            Log.e(TAG, "Prop Invalid: " + prop.toString());
+            Log.e(TAG, "Possible Invalid LENGTH value");
+            throw expected(END_MSG);
+        }
+
+        if ("UTF-8".equals(mBmsg.mBbodyCharset)) {
+            mBmsg.mMessage = new String(data, 0, messageLen, StandardCharsets.UTF_8);
+        } else {
+            mBmsg.mMessage = new String(data, 0, messageLen);
+        }
     }
 
     private Property extractVcard(StringBuilder out) throws IOException, ParseException {
@@ -378,11 +477,11 @@ class BmessageParser {
         out.append(BEGIN_VCARD).append(CRLF);
 
         do {
-            prop = mParser.next();
+            prop = next();
             out.append(prop).append(CRLF);
         } while (!prop.equals(END_VCARD));
 
-        return mParser.next();
+        return next();
     }
 
     private VCardEntry parseVcard(String str) throws IOException, ParseException {
@@ -421,7 +520,7 @@ class BmessageParser {
 
         if (vcard == null) {
             throw new ParseException(
-                    "Cannot parse vCard object (neither 2.1 nor 3.0?)", mParser.pos());
+                    "Cannot parse vCard object (neither 2.1 nor 3.0?)", pos());
         }
 
         return vcard;
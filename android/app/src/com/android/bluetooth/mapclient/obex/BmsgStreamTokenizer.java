@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.mapclient;
+
+import com.android.bluetooth.mapclient.BmsgTokenizer.Property;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/*
+ * Same tokens as BmsgTokenizer, but read from a stream one line at a time instead of from a
+ * String holding the whole bMessage. The read and line buffers are kept across reset() calls so a
+ * single instance can decode any number of messages without allocating new buffers.
+ *
+ * Positions reported in exceptions are byte offsets from the start of the stream.
+ */
+final class BmsgStreamTokenizer {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private final byte[] mBuffer = new byte[BUFFER_SIZE];
+    private int mBufferPos = 0;
+    private int mBufferLen = 0;
+
+    private byte[] mLine = new byte[256];
+    /* length of the line content, without its terminator */
+    private int mLineLen = 0;
+    /* length of the line as read from the stream, including its terminator */
+    private int mLineRawLen = 0;
+    /* true if mLine holds a line that was read but not returned to the caller yet */
+    private boolean mLinePending = false;
+
+    private InputStream mIn;
+    private int mPos = 0;
+
+    void reset(InputStream in) {
+        mIn = in;
+        mBufferPos = 0;
+        mBufferLen = 0;
+        mLineLen = 0;
+        mLineRawLen = 0;
+        mLinePending = false;
+        mPos = 0;
+    }
+
+    Property next(boolean alwaysReturn) throws IOException, ParseException {
+        while (true) {
+            if (!mLinePending) {
+                if (!readLine()) {
+                    if (alwaysReturn) {
+                        return null;
+                    }
+                    throw new ParseException("Property or empty line expected", pos());
+                }
+                mLinePending = true;
+            }
+
+            if (mLineLen == 0 && mLineRawLen > 0) {
+                /* empty line */
+                consumeLine();
+                continue;
+            }
+
+            Property prop = toProperty();
+            if (prop == null) {
+                if (alwaysReturn) {
+                    return null;
+                }
+                throw new ParseException("Property or empty line expected", pos());
+            }
+            consumeLine();
+            return prop;
+        }
+    }
+
+    Property next() throws IOException, ParseException {
+        return next(false);
+    }
+
+    int pos() {
+        return mPos;
+    }
+
+    /** Returns the next {@code count} bytes, or null if the stream ends before that. */
+    byte[] read(int count) throws IOException {
+        if (mLinePending) {
+            /* lines are only left pending by a failed lookahead, after which no raw data is read */
+            throw new IllegalStateException("read() after a failed lookahead");
+        }
+        byte[] data = new byte[count];
+        int read = Math.min(count, mBufferLen - mBufferPos);
+        System.arraycopy(mBuffer, mBufferPos, data, 0, read);
+        mBufferPos += read;
+        while (read < count) {
+            int len = mIn.read(data, read, count - read);
+            if (len < 0) {
+                return null;
+            }
+            read += len;
+        }
+        mPos += count;
+        return data;
+    }
+
+    /** Returns everything left in the stream, including a line left pending by a lookahead. */
+    byte[] readRemaining() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (mLinePending) {
+            out.write(mLine, 0, mLineRawLen);
+            mLinePending = false;
+        }
+        out.write(mBuffer, mBufferPos, mBufferLen - mBufferPos);
+        mBufferPos = mBufferLen;
+        int len;
+        while ((len = mIn.read(mBuffer)) != -1) {
+            out.write(mBuffer, 0, len);
+        }
+        mPos += out.size();
+        return out.toByteArray();
+    }
+
+    private void consumeLine() {
+        mPos += mLineRawLen;
+        mLinePending = false;
+    }
+
+    /*
+     * Reads up to and including the next LF into mLine. Like BmsgTokenizer, which is always given
+     * a string ending with CRLF, a last line without terminator is still returned as a line.
+     */
+    private boolean readLine() throws IOException {
+        mLineRawLen = 0;
+        while (true) {
+            if (mBufferPos == mBufferLen) {
+                int len = mIn.read(mBuffer);
+                if (len <= 0) {
+                    mLineLen = mLineRawLen;
+                    return mLineRawLen > 0;
+                }
+                mBufferPos = 0;
+                mBufferLen = len;
+            }
+            byte b = mBuffer[mBufferPos++];
+            if (mLineRawLen == mLine.length) {
+                mLine = Arrays.copyOf(mLine, mLine.length * 2);
+            }
+            mLine[mLineRawLen++] = b;
+            if (b == '\n') {
+                mLineLen = mLineRawLen - 1;
+                if (mLineLen > 0 && mLine[mLineLen - 1] == '\r') {
+                    mLineLen--;
+                } else {
+                    /* bare LF, never a valid line terminator */
+                    mLineLen = -1;
+                }
+                return true;
+            }
+        }
+    }
+
+    /* Returns the pending line as a "name:value" property, or null if it is not one. */
+    private Property toProperty() {
+        if (mLineLen < 0) {
+            return null;
+        }
+        int colon = -1;
+        for (int i = 0; i < mLineLen; i++) {
+            byte b = mLine[i];
+            if (b == '\r' || b == '\n') {
+                return null;
+            }
+            if (b == ':' && colon < 0) {
+                colon = i;
+            }
+        }
+        if (colon < 0) {
+            return null;
+        }
+        return new Property(
+                new String(mLine, 0, colon, StandardCharsets.UTF_8),
+                new String(mLine, colon + 1, mLineLen - colon - 1, StandardCharsets.UTF_8));
+    }
+}
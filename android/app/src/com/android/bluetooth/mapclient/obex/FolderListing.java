@@ -20,7 +20,6 @@ import android.util.Log;
 
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
-import org.xmlpull.v1.XmlPullParserFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -34,12 +33,20 @@ class FolderListing {
     private final List<String> mFolders = new ArrayList<>();
 
     FolderListing(InputStream in) {
-        parse(in);
+        this(in, new MapClientParsers());
+    }
+
+    FolderListing(InputStream in, MapClientParsers parsers) {
+        parse(in, parsers);
     }
 
     public void parse(InputStream in) {
+        parse(in, new MapClientParsers());
+    }
+
+    private void parse(InputStream in, MapClientParsers parsers) {
         try {
-            XmlPullParser xpp = XmlPullParserFactory.newInstance().newPullParser();
+            XmlPullParser xpp = parsers.getXmlParser();
             xpp.setInput(in, "utf-8");
 
             int event = xpp.getEventType();
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.mapclient;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+/*
+ * Parsers shared by all requests of a MasClient. Requests are executed one at a time on the
+ * MasClient thread, so one instance of each parser is enough; creating an XmlPullParserFactory
+ * and parser for every listing is comparatively expensive.
+ *
+ * Not thread safe.
+ */
+class MapClientParsers {
+
+    private XmlPullParser mXmlParser;
+    private BmessageParser mBmessageParser;
+
+    /** Returns the shared XML parser. Callers must call setInput() before using it. */
+    XmlPullParser getXmlParser() throws XmlPullParserException {
+        if (mXmlParser == null) {
+            mXmlParser = XmlPullParserFactory.newInstance().newPullParser();
+        }
+        return mXmlParser;
+    }
+
+    BmessageParser getBmessageParser() {
+        if (mBmessageParser == null) {
+            mBmessageParser = new BmessageParser();
+        }
+        return mBmessageParser;
+    }
+}
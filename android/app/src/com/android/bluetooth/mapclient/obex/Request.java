@@ -72,13 +72,34 @@ abstract class Request {
     protected int mResponseCode;
     private boolean mAborted = false;
     private ClientOperation mOp = null;
+    private MapClientParsers mParsers;
 
     Request() {
         mHeaderSet = new HeaderSet();
     }
 
+    /** Use {@code parsers} to decode the response instead of creating new parsers. */
+    void setParsers(MapClientParsers parsers) {
+        mParsers = parsers;
+    }
+
+    protected MapClientParsers getParsers() {
+        if (mParsers == null) {
+            mParsers = new MapClientParsers();
+        }
+        return mParsers;
+    }
+
     public abstract void execute(ClientSession session) throws IOException;
 
+    /**
+     * Returns whether part of the result can be used after {@link #execute} failed, so that it is
+     * delivered before the session is torn down.
+     */
+    boolean hasPartialResult() {
+        return false;
+    }
+
     protected void executeGet(ClientSession session) throws IOException {
         /* in case request is aborted before can be executed */
         if (mAborted) {
@@ -58,7 +58,7 @@ final class RequestGetFolderListing extends Request {
 
     @Override
     protected void readResponse(InputStream stream) {
-        mResponse = new FolderListing(stream);
+        mResponse = new FolderListing(stream, getParsers());
     }
 
     public List<String> getList() {
@@ -22,9 +22,11 @@ import android.bluetooth.client.map.Client.CharsetType;
 import android.bluetooth.client.map.utils.ObexAppParameters;
 */
 
+import android.os.SystemProperties;
 import android.util.Log;
 
 import com.android.bluetooth.ObexAppParameters;
+import com.android.internal.annotations.VisibleForTesting;
 import com.android.obex.ClientSession;
 import com.android.obex.HeaderSet;
 import com.android.obex.ResponseCodes;
@@ -41,6 +43,12 @@ class RequestGetMessage extends Request {
 
     private static final String TYPE = "x-bt/message";
 
+    // When enabled, bMessages are decoded straight from the OBEX stream instead of being copied
+    // into a String first, so large MMS bodies are only held in memory once.
+    @VisibleForTesting
+    static final String STREAMING_PARSER_PROPERTY =
+            "bluetooth.mapclient.streaming_bmessage_parser.enabled";
+
     private Bmessage mBmessage;
 
     RequestGetMessage(String handle, MasClient.CharsetType charset, boolean attachment) {
@@ -62,6 +70,13 @@ class RequestGetMessage extends Request {
 
     @Override
     protected void readResponse(InputStream stream) {
+        if (SystemProperties.getBoolean(STREAMING_PARSER_PROPERTY, false)) {
+            mBmessage = getParsers().getBmessageParser().parse(stream);
+            if (mBmessage == null) {
+                mResponseCode = ResponseCodes.OBEX_HTTP_INTERNAL_ERROR;
+            }
+            return;
+        }
 
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         byte[] buf = new byte[1024];
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.mapclient;
+
+import com.android.internal.annotations.VisibleForTesting;
+import com.android.obex.ClientSession;
+import com.android.obex.ResponseCodes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Get several messages back-to-back in a single MasClient request, so that the state machine is
+ * only notified once for the whole group instead of once per message. When a message fails, the
+ * messages received before it are still delivered.
+ */
+class RequestGetMessages extends Request {
+
+    private final List<RequestGetMessage> mRequests = new ArrayList<>();
+
+    private volatile RequestGetMessage mCurrentRequest;
+
+    private volatile boolean mAborted = false;
+
+    // Number of requests that completed, the first ones of mRequests
+    private int mCompleted = 0;
+
+    RequestGetMessages(List<String> handles, MasClient.CharsetType charset, boolean attachment) {
+        for (String handle : handles) {
+            mRequests.add(new RequestGetMessage(handle, charset, attachment));
+        }
+    }
+
+    @VisibleForTesting
+    RequestGetMessages(RequestGetMessage... requests) {
+        Collections.addAll(mRequests, requests);
+    }
+
+    /** Returns the individual requests, in the order they were executed. */
+    public List<RequestGetMessage> getRequests() {
+        return Collections.unmodifiableList(mRequests);
+    }
+
+    @Override
+    void setParsers(MapClientParsers parsers) {
+        super.setParsers(parsers);
+        for (RequestGetMessage request : mRequests) {
+            request.setParsers(parsers);
+        }
+    }
+
+    @Override
+    public void execute(ClientSession session) throws IOException {
+        mResponseCode = ResponseCodes.OBEX_HTTP_OK;
+        try {
+            for (RequestGetMessage request : mRequests) {
+                if (mAborted) {
+                    mResponseCode = ResponseCodes.OBEX_HTTP_INTERNAL_ERROR;
+                    return;
+                }
+                mCurrentRequest = request;
+                request.execute(session);
+                mCompleted++;
+            }
+        } catch (IOException e) {
+            mResponseCode = ResponseCodes.OBEX_HTTP_INTERNAL_ERROR;
+            throw e;
+        } finally {
+            mCurrentRequest = null;
+        }
+    }
+
+    @Override
+    boolean hasPartialResult() {
+        return mCompleted > 0;
+    }
+
+    @Override
+    public void abort() {
+        super.abort();
+        mAborted = true;
+        RequestGetMessage request = mCurrentRequest;
+        if (request != null) {
+            request.abort();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RequestGetMessages{count=" + mRequests.size() + "}";
+    }
+}
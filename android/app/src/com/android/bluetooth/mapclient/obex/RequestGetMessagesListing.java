@@ -118,7 +118,7 @@ class RequestGetMessagesListing extends Request {
 
     @Override
     protected void readResponse(InputStream stream) {
-        mResponse = new MessagesListing(stream);
+        mResponse = new MessagesListing(stream, getParsers());
     }
 
     @Override
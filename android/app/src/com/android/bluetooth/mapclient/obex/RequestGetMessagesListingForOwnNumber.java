@@ -138,7 +138,7 @@ class RequestGetMessagesListingForOwnNumber extends Request {
             return;
         }
 
-        MessagesListing response = new MessagesListing(stream);
+        MessagesListing response = new MessagesListing(stream, getParsers());
 
         if (response == null) {
             // This shouldn't have happened; move on to the next window
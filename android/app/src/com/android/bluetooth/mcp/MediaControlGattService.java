@@ -1290,18 +1290,18 @@ public class MediaControlGattService implements MediaControlGattServiceInterface
     }
 
     private void handleObjectIdRequest(int objField, long objId) {
-        mEventLogger.add("handleObjectIdRequest: obj= " + objField + ", objId= " + objId);
+        mEventLogger.add("handleObjectIdRequest: obj= %d, objId= %d", objField, objId);
         mCallbacks.onSetObjectIdRequest(objField, objId);
     }
 
     private void handlePlayingOrderRequest(int order) {
-        mEventLogger.add("handlePlayingOrderRequest: order= " + order);
+        mEventLogger.add("handlePlayingOrderRequest: order= %d", order);
         mCallbacks.onPlayingOrderSetRequest(order);
     }
 
     private void handlePlaybackSpeedRequest(int speed) {
         float floatingSpeed = (float) Math.pow(2, speed / 64.0);
-        mEventLogger.add("handlePlaybackSpeedRequest: floatingSpeed= " + floatingSpeed);
+        mEventLogger.add("handlePlaybackSpeedRequest: floatingSpeed= %f", floatingSpeed);
         mCallbacks.onPlaybackSpeedSetRequest(floatingSpeed);
     }
 
@@ -1310,7 +1310,7 @@ public class MediaControlGattService implements MediaControlGattServiceInterface
                 (position != INTERVAL_UNAVAILABLE)
                         ? mcsIntervalToMilliseconds(position)
                         : TRACK_POSITION_UNAVAILABLE;
-        mEventLogger.add("handleTrackPositionRequest: positionMs= " + positionMs);
+        mEventLogger.add("handleTrackPositionRequest: positionMs= %d", positionMs);
         mCallbacks.onTrackPositionSetRequest(positionMs);
     }
 
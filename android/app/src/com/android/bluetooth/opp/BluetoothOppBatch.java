@@ -35,11 +35,14 @@ package com.android.bluetooth.opp;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.content.Context;
+import android.net.Uri;
+import android.util.ArraySet;
 import android.util.Log;
 
 import com.android.bluetooth.BluetoothMethodProxy;
 
 import java.util.ArrayList;
+import java.util.Set;
 
 /**
  * This class stores information about a batch of OPP shares that should be transferred in one
@@ -166,6 +169,17 @@ public class BluetoothOppBatch {
         return mShares.size();
     }
 
+    /** Get the file Uris of the shares in this batch */
+    public Set<Uri> getUris() {
+        Set<Uri> uris = new ArraySet<>();
+        for (BluetoothOppShareInfo share : mShares) {
+            if (share.mUri != null) {
+                uris.add(share.mUri);
+            }
+        }
+        return uris;
+    }
+
     /**
      * Get the running status of the batch
      *
@@ -55,7 +55,10 @@ import com.android.bluetooth.flags.Flags;
 
 import com.google.common.annotations.VisibleForTesting;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * This class handles the updating of the Notification Manager for the cases where there is an
@@ -145,6 +148,9 @@ class BluetoothOppNotification {
 
     private int mPendingUpdate = 0;
 
+    /** Which of the ongoing transfers gets the progress notification next */
+    private int mProgressTurn = 0;
+
     public static final int NOTIFICATION_ID_PROGRESS = -1000004;
 
     @VisibleForTesting static final int NOTIFICATION_ID_OUTBOUND_COMPLETE = -1000005;
@@ -371,6 +377,7 @@ class BluetoothOppNotification {
         cursor.close();
 
         // Add the notifications
+        List<NotificationItem> ongoingItems = new ArrayList<>();
         for (NotificationItem item : mNotifications.values()) {
             if (item.handoverInitiated) {
                 float progress = 0;
@@ -400,56 +407,69 @@ class BluetoothOppNotification {
                         Utils.getTempBroadcastOptions().toBundle());
                 continue;
             }
-            // Build the notification object
-            // TODO: split description into two rows with filename in second row
-            Notification.Builder b = new Notification.Builder(mContext, OPP_NOTIFICATION_CHANNEL);
-            b.setOnlyAlertOnce(true);
-            b.setColor(
-                    mContext.getResources()
-                            .getColor(
-                                    android.R.color.system_notification_accent_color,
-                                    mContext.getTheme()));
-            b.setContentTitle(item.description);
-            b.setSubText(
-                    BluetoothOppUtility.formatProgressText(item.totalTotal, item.totalCurrent));
-            if (item.totalTotal != 0) {
-                Log.v(
-                        TAG,
-                        "mCurrentBytes: "
-                                + item.totalCurrent
-                                + " mTotalBytes: "
-                                + item.totalTotal
-                                + " ("
-                                + (int) ((item.totalCurrent * 100) / item.totalTotal)
-                                + " %)");
-                b.setProgress(
-                        100,
-                        (int) ((item.totalCurrent * 100) / item.totalTotal),
-                        item.totalTotal == -1);
-            } else {
-                b.setProgress(100, 100, item.totalTotal == -1);
-            }
-            b.setWhen(item.timeStamp);
-            if (item.direction == BluetoothShare.DIRECTION_OUTBOUND) {
-                b.setSmallIcon(android.R.drawable.stat_sys_upload);
-            } else if (item.direction == BluetoothShare.DIRECTION_INBOUND) {
-                b.setSmallIcon(android.R.drawable.stat_sys_download);
-            } else {
-                Log.v(TAG, "mDirection ERROR!");
-            }
-            b.setOngoing(true);
-            b.setLocalOnly(true);
-
-            Intent intent = new Intent(Constants.ACTION_LIST);
-            intent.setClassName(mContext, BluetoothOppReceiver.class.getName());
-            intent.setDataAndNormalize(Uri.parse(BluetoothShare.CONTENT_URI + "/" + item.id));
-            b.setContentIntent(
-                    PendingIntent.getBroadcast(mContext, 0, intent, PendingIntent.FLAG_IMMUTABLE));
-            if (Flags.oppFixMultipleNotificationsIssues()) {
-                b.setGroup(NOTIFICATION_GROUP_KEY_PROGRESS);
-            }
-            mNotificationMgr.notify(NOTIFICATION_ID_PROGRESS, b.build());
+            ongoingItems.add(item);
+        }
+        if (ongoingItems.isEmpty()) {
+            return;
+        }
+
+        // All transfers share NOTIFICATION_ID_PROGRESS. When several batches run at the same
+        // time, show them in turns, one per update, so that each one's progress gets displayed.
+        ongoingItems.sort(Comparator.comparingLong(item -> item.timeStamp));
+        int turn = mProgressTurn % ongoingItems.size();
+        mProgressTurn = turn + 1;
+        notifyProgress(ongoingItems.get(turn));
+    }
+
+    private void notifyProgress(NotificationItem item) {
+        // Build the notification object
+        // TODO: split description into two rows with filename in second row
+        Notification.Builder b = new Notification.Builder(mContext, OPP_NOTIFICATION_CHANNEL);
+        b.setOnlyAlertOnce(true);
+        b.setColor(
+                mContext.getResources()
+                        .getColor(
+                                android.R.color.system_notification_accent_color,
+                                mContext.getTheme()));
+        b.setContentTitle(item.description);
+        b.setSubText(BluetoothOppUtility.formatProgressText(item.totalTotal, item.totalCurrent));
+        if (item.totalTotal != 0) {
+            Log.v(
+                    TAG,
+                    "mCurrentBytes: "
+                            + item.totalCurrent
+                            + " mTotalBytes: "
+                            + item.totalTotal
+                            + " ("
+                            + (int) ((item.totalCurrent * 100) / item.totalTotal)
+                            + " %)");
+            b.setProgress(
+                    100,
+                    (int) ((item.totalCurrent * 100) / item.totalTotal),
+                    item.totalTotal == -1);
+        } else {
+            b.setProgress(100, 100, item.totalTotal == -1);
+        }
+        b.setWhen(item.timeStamp);
+        if (item.direction == BluetoothShare.DIRECTION_OUTBOUND) {
+            b.setSmallIcon(android.R.drawable.stat_sys_upload);
+        } else if (item.direction == BluetoothShare.DIRECTION_INBOUND) {
+            b.setSmallIcon(android.R.drawable.stat_sys_download);
+        } else {
+            Log.v(TAG, "mDirection ERROR!");
+        }
+        b.setOngoing(true);
+        b.setLocalOnly(true);
+
+        Intent intent = new Intent(Constants.ACTION_LIST);
+        intent.setClassName(mContext, BluetoothOppReceiver.class.getName());
+        intent.setDataAndNormalize(Uri.parse(BluetoothShare.CONTENT_URI + "/" + item.id));
+        b.setContentIntent(
+                PendingIntent.getBroadcast(mContext, 0, intent, PendingIntent.FLAG_IMMUTABLE));
+        if (Flags.oppFixMultipleNotificationsIssues()) {
+            b.setGroup(NOTIFICATION_GROUP_KEY_PROGRESS);
         }
+        mNotificationMgr.notify(NOTIFICATION_ID_PROGRESS, b.build());
     }
 
     @VisibleForTesting
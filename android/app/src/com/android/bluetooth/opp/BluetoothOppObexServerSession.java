@@ -39,10 +39,13 @@ import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Handler;
+import android.os.Looper;
 import android.os.Message;
+import android.os.ParcelFileDescriptor;
 import android.os.PowerManager;
 import android.os.PowerManager.WakeLock;
 import android.os.SystemClock;
+import android.os.SystemProperties;
 import android.util.Log;
 import android.webkit.MimeTypeMap;
 
@@ -64,18 +67,30 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Ascii;
 
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 
 /** This class runs as an OBEX server */
-// Next tag value for ContentProfileErrorReportUtils.report(): 15
+// Next tag value for ContentProfileErrorReportUtils.report(): 16
 public class BluetoothOppObexServerSession extends ServerRequestHandler
         implements BluetoothOppObexSession {
 
     private static final String TAG = "BtOppObexServer";
 
+    // When enabled, files backed by a regular file are written through a FileChannel in large
+    // blocks, progress is written to the provider by a BluetoothOppProgressCoalescer and the file
+    // is synced once when complete.
+    @VisibleForTesting
+    static final String CHANNEL_RECEIVE_PROPERTY = "bluetooth.opp.channel_receive.enabled";
+
+    // Multiple of the page size, so that all writes but the last one are aligned
+    @VisibleForTesting static final int CHANNEL_RECEIVE_BUFFER_SIZE = 256 * 1024;
+
     @VisibleForTesting public ObexTransport mTransport;
 
     @VisibleForTesting public Context mContext;
@@ -501,8 +516,21 @@ public class BluetoothOppObexServerSession extends ServerRequestHandler
         long position = 0;
         long percent;
         long prevPercent = 0;
+        FileOutputStream channelOutput = null;
 
-        if (!error) {
+        if (!error && SystemProperties.getBoolean(CHANNEL_RECEIVE_PROPERTY, false)) {
+            channelOutput = openChannelOutput(fileInfo.mInsertUri);
+        }
+
+        if (!error && channelOutput != null) {
+            os = channelOutput;
+            try {
+                position = receiveToChannel(is, channelOutput.getChannel(), fileInfo, contentUri);
+            } catch (IOException e1) {
+                status = getReceiveErrorStatus(e1);
+                error = true;
+            }
+        } else if (!error) {
             try {
                 os =
                         BluetoothMethodProxy.getInstance()
@@ -519,7 +547,7 @@ public class BluetoothOppObexServerSession extends ServerRequestHandler
             }
         }
 
-        if (!error) {
+        if (!error && channelOutput == null) {
             int outputBufferSize = op.getMaxPacketSize();
             byte[] b = new byte[outputBufferSize];
             int readLength;
@@ -571,18 +599,7 @@ public class BluetoothOppObexServerSession extends ServerRequestHandler
                     }
                 }
             } catch (IOException e1) {
-                ContentProfileErrorReportUtils.report(
-                        BluetoothProfile.OPP,
-                        BluetoothProtoEnums.BLUETOOTH_OPP_OBEX_SERVER_SESSION,
-                        BluetoothStatsLog.BLUETOOTH_CONTENT_PROFILE_ERROR_REPORTED__TYPE__EXCEPTION,
-                        12);
-                Log.e(TAG, "Error when receiving file: " + e1);
-                /* OBEX Abort packet received from remote device */
-                if ("Abort Received".equals(e1.getMessage())) {
-                    status = BluetoothShare.STATUS_CANCELED;
-                } else {
-                    status = BluetoothShare.STATUS_OBEX_DATA_ERROR;
-                }
+                status = getReceiveErrorStatus(e1);
                 error = true;
             }
         }
@@ -619,6 +636,115 @@ public class BluetoothOppObexServerSession extends ServerRequestHandler
         return status;
     }
 
+    private int getReceiveErrorStatus(IOException e) {
+        ContentProfileErrorReportUtils.report(
+                BluetoothProfile.OPP,
+                BluetoothProtoEnums.BLUETOOTH_OPP_OBEX_SERVER_SESSION,
+                BluetoothStatsLog.BLUETOOTH_CONTENT_PROFILE_ERROR_REPORTED__TYPE__EXCEPTION,
+                12);
+        Log.e(TAG, "Error when receiving file: " + e);
+        /* OBEX Abort packet received from remote device */
+        if ("Abort Received".equals(e.getMessage())) {
+            return BluetoothShare.STATUS_CANCELED;
+        }
+        return BluetoothShare.STATUS_OBEX_DATA_ERROR;
+    }
+
+    /*
+     * Opens the destination for writing through a FileChannel, or returns null if it is not backed
+     * by a regular file, in which case the stream based receive path is used instead.
+     */
+    private FileOutputStream openChannelOutput(Uri insertUri) {
+        ParcelFileDescriptor pfd;
+        try {
+            pfd =
+                    BluetoothMethodProxy.getInstance()
+                            .contentResolverOpenFileDescriptor(
+                                    mContext.getContentResolver(), insertUri, "w");
+        } catch (FileNotFoundException | RuntimeException e) {
+            Log.w(TAG, "Cannot open file descriptor, receiving through a stream", e);
+            return null;
+        }
+        if (pfd == null) {
+            return null;
+        }
+        if (pfd.getStatSize() < 0) {
+            Log.d(TAG, "Destination is not a regular file, receiving through a stream");
+            try {
+                pfd.close();
+            } catch (IOException e) {
+                ContentProfileErrorReportUtils.report(
+                        BluetoothProfile.OPP,
+                        BluetoothProtoEnums.BLUETOOTH_OPP_OBEX_SERVER_SESSION,
+                        BluetoothStatsLog.BLUETOOTH_CONTENT_PROFILE_ERROR_REPORTED__TYPE__EXCEPTION,
+                        15);
+                Log.e(TAG, "Error when closing file descriptor");
+            }
+            return null;
+        }
+        return new ParcelFileDescriptor.AutoCloseOutputStream(pfd);
+    }
+
+    /*
+     * Receives the object into a buffer of CHANNEL_RECEIVE_BUFFER_SIZE bytes that is written to
+     * the channel whenever it is full, instead of one write and one log per OBEX packet. The file
+     * is only synced to storage once all of it was received.
+     */
+    private long receiveToChannel(
+            InputStream is,
+            FileChannel channel,
+            BluetoothOppReceiveFileInfo fileInfo,
+            Uri contentUri)
+            throws IOException {
+        byte[] buffer = new byte[CHANNEL_RECEIVE_BUFFER_SIZE];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        int buffered = 0;
+        long position = 0;
+
+        Looper looper = mCallback != null ? mCallback.getLooper() : null;
+        BluetoothOppProgressCoalescer progress =
+                new BluetoothOppProgressCoalescer(
+                        mContext, contentUri, looper != null ? looper : Looper.getMainLooper());
+        progress.start();
+        try {
+            while (!mInterrupted && position + buffered != fileInfo.mLength) {
+                int readLength = is.read(buffer, buffered, buffer.length - buffered);
+                if (readLength == -1) {
+                    Log.d(
+                            TAG,
+                            "Receive file reached stream end at position" + (position + buffered));
+                    break;
+                }
+                buffered += readLength;
+                if (buffered == buffer.length) {
+                    writeFully(channel, byteBuffer, buffered);
+                    position += buffered;
+                    buffered = 0;
+                }
+                progress.update(position + buffered);
+            }
+            if (buffered > 0) {
+                writeFully(channel, byteBuffer, buffered);
+                position += buffered;
+            }
+            if (position == fileInfo.mLength) {
+                channel.force(false);
+            }
+        } finally {
+            progress.stop(position);
+        }
+        return position;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, int length)
+            throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
     private BluetoothOppReceiveFileInfo processShareInfo() {
         Log.d(TAG, "processShareInfo() " + mInfo.mId);
         BluetoothOppReceiveFileInfo fileInfo =
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.opp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.android.bluetooth.BluetoothMethodProxy;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the progress of a transfer to {@link BluetoothShare#CURRENT_BYTES} from a timer. The
+ * transfer loop only publishes its position with {@link #update}, and at most one provider update
+ * is made per {@link #UPDATE_INTERVAL_MS} however many packets were received in between.
+ */
+class BluetoothOppProgressCoalescer {
+    private static final String TAG = "BtOppProgress";
+
+    @VisibleForTesting static final long UPDATE_INTERVAL_MS = 500;
+
+    private final Context mContext;
+    private final Uri mContentUri;
+    private final Handler mHandler;
+    private final AtomicLong mPosition = new AtomicLong();
+    private final Runnable mTick = this::onTick;
+
+    private volatile boolean mStopped = false;
+
+    // Guarded by this
+    private long mWrittenPosition = 0;
+    private long mWrittenTimestamp;
+
+    BluetoothOppProgressCoalescer(Context context, Uri contentUri, Looper looper) {
+        mContext = context;
+        mContentUri = contentUri;
+        mHandler = new Handler(looper);
+    }
+
+    void start() {
+        synchronized (this) {
+            mWrittenTimestamp = SystemClock.elapsedRealtime();
+        }
+        mHandler.postDelayed(mTick, UPDATE_INTERVAL_MS);
+    }
+
+    /** Records the current position. Cheap enough to be called for every packet. */
+    void update(long position) {
+        mPosition.set(position);
+    }
+
+    /** Stops the timer and writes {@code position} if it was not written yet. */
+    void stop(long position) {
+        mStopped = true;
+        mHandler.removeCallbacks(mTick);
+        mPosition.set(position);
+        flush();
+    }
+
+    private void onTick() {
+        if (mStopped) {
+            return;
+        }
+        flush();
+        mHandler.postDelayed(mTick, UPDATE_INTERVAL_MS);
+    }
+
+    private synchronized void flush() {
+        long position = mPosition.get();
+        long now = SystemClock.elapsedRealtime();
+        // Without new data, still write once a period to notify NFC the transfer is alive
+        if (position == mWrittenPosition
+                && now - mWrittenTimestamp <= Constants.NFC_ALIVE_CHECK_MS) {
+            return;
+        }
+        Log.v(TAG, "Transfer position = " + position);
+        ContentValues updateValues = new ContentValues();
+        updateValues.put(BluetoothShare.CURRENT_BYTES, position);
+        BluetoothMethodProxy.getInstance()
+                .contentResolverUpdate(
+                        mContext.getContentResolver(), mContentUri, updateValues, null, null);
+        mWrittenPosition = position;
+        mWrittenTimestamp = now;
+    }
+}
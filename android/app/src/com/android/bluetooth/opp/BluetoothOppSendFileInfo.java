@@ -52,10 +52,13 @@ import com.android.bluetooth.BluetoothStatsLog;
 import com.android.bluetooth.R;
 import com.android.bluetooth.content_profiles.ContentProfileErrorReportUtils;
 
+import com.google.common.annotations.VisibleForTesting;
+
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.Objects;
 
 /**
@@ -318,8 +321,11 @@ public class BluetoothOppSendFileInfo {
                                 BluetoothMethodProxy.getInstance()
                                         .contentResolverOpenInputStream(contentResolver, uri);
 
-                // If the database doesn't contain the file size, get the size
-                // by reading through the entire stream
+                if (length == 0) {
+                    length = getChannelSize(is);
+                }
+
+                // If the size is still unknown, get it by reading through the entire stream
                 if (length == 0) {
                     length = getStreamSize(is);
                     // Reset the stream
@@ -373,6 +379,24 @@ public class BluetoothOppSendFileInfo {
                 && !Objects.equals(uriUserId, String.valueOf(myUserId()));
     }
 
+    /**
+     * Returns the number of bytes left in {@code is} from the size of its channel, or 0 if the
+     * channel has no size, e.g. for a pipe.
+     */
+    @VisibleForTesting
+    static long getChannelSize(FileInputStream is) {
+        FileChannel channel = is.getChannel();
+        if (channel == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, channel.size() - channel.position());
+        } catch (IOException e) {
+            Log.w(TAG, "Could not get channel size: " + e);
+            return 0;
+        }
+    }
+
     private static long getStreamSize(FileInputStream is) throws IOException {
         long length = 0;
         byte[] unused = new byte[4096];
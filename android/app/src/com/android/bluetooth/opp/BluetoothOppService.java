@@ -55,7 +55,10 @@ import android.os.Binder;
 import android.os.Handler;
 import android.os.Message;
 import android.os.Process;
+import android.os.SystemProperties;
 import android.sysprop.BluetoothProperties;
+import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.Log;
 
 import com.android.bluetooth.BluetoothMethodProxy;
@@ -75,9 +78,13 @@ import com.android.obex.ObexTransport;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Performs the background Bluetooth OPP transfer. It also starts thread to accept incoming OPP
@@ -127,10 +134,45 @@ public class BluetoothOppService extends ProfileService implements IObexConnecti
             }
             updateFromProvider();
         }
+
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            if (!mDeltaTracking) {
+                onChange(selfChange);
+                return;
+            }
+            if (Flags.oppIgnoreContentObserverAfterServiceStop() && mObserver != this) {
+                Log.d(TAG, "onChange() called after stop() is called.");
+                return;
+            }
+            int id = getShareId(uri);
+            if (id < 0) {
+                updateFromProvider();
+            } else {
+                updateShareFromProvider(id);
+            }
+        }
     }
 
     private static final String TAG = "BtOppService";
 
+    // When enabled, a change notified for a single share only reloads that share instead of
+    // walking the whole share table, and a change of its transferred bytes is applied in place.
+    @VisibleForTesting
+    static final String DELTA_TRACKING_PROPERTY = "bluetooth.opp.delta_share_tracking.enabled";
+
+    private final boolean mDeltaTracking =
+            SystemProperties.getBoolean(DELTA_TRACKING_PROPERTY, false);
+
+    // When set above 1, outbound batches to different remote devices run in parallel, up to this
+    // many at a time. Batches to the same device still run one after the other in queue order.
+    @VisibleForTesting
+    static final String MAX_CONCURRENT_TRANSFERS_PROPERTY =
+            "bluetooth.opp.max_concurrent_transfers";
+
+    @VisibleForTesting
+    int mMaxConcurrentTransfers = SystemProperties.getInt(MAX_CONCURRENT_TRANSFERS_PROPERTY, 1);
+
     /** Observer to get notified when the content observer's data changes */
     private BluetoothShareContentObserver mObserver;
 
@@ -139,6 +181,9 @@ public class BluetoothOppService extends ProfileService implements IObexConnecti
 
     private boolean mPendingUpdate;
 
+    /** Ids of shares changed since the last update, see {@link #DELTA_TRACKING_PROPERTY} */
+    private final Set<Integer> mPendingShareUpdates = new ArraySet<>();
+
     @VisibleForTesting UpdateThread mUpdateThread;
 
     private boolean mUpdateThreadRunning;
@@ -150,6 +195,10 @@ public class BluetoothOppService extends ProfileService implements IObexConnecti
 
     private BluetoothOppTransfer mServerTransfer;
 
+    /** Running outbound transfers by destination, see {@link #MAX_CONCURRENT_TRANSFERS_PROPERTY} */
+    @VisibleForTesting
+    final Map<BluetoothDevice, BluetoothOppTransfer> mOutboundTransfers = new ArrayMap<>();
+
     private int mBatchId = 1;
 
     /** Array used when extracting strings from content provider */
@@ -436,7 +485,7 @@ public class BluetoothOppService extends ProfileService implements IObexConnecti
                              * 2. If there is ongoing transfer, hold it for 20 seconds(1 seconds * 20 times)
                              * 3. If there is on-hold connection, reject directly
                              */
-                            if (mBatches.size() == 0 && mPendingConnection == null) {
+                            if (canAcceptIncomingConnection() && mPendingConnection == null) {
                                 Log.i(TAG, "Start Obex Server");
                                 createServerSession(transport);
                             } else {
@@ -470,7 +519,7 @@ public class BluetoothOppService extends ProfileService implements IObexConnecti
                             }
                             break;
                         case MSG_INCOMING_CONNECTION_RETRY:
-                            if (mBatches.size() == 0) {
+                            if (canAcceptIncomingConnection()) {
                                 Log.i(TAG, "Start Obex Server");
                                 createServerSession(mPendingConnection);
                                 mIncomingRetries = 0;
@@ -588,6 +637,10 @@ public class BluetoothOppService extends ProfileService implements IObexConnecti
             mTransfer.onBatchCanceled();
             mTransfer = null;
         }
+        for (BluetoothOppTransfer transfer : mOutboundTransfers.values()) {
+            transfer.onBatchCanceled();
+        }
+        mOutboundTransfers.clear();
         unregisterReceivers();
         synchronized (BluetoothOppService.this) {
             if (mUpdateThread != null) {
@@ -687,6 +740,35 @@ public class BluetoothOppService extends ProfileService implements IObexConnecti
                 }
             };
 
+    private void updateShareFromProvider(int id) {
+        synchronized (BluetoothOppService.this) {
+            mPendingShareUpdates.add(id);
+            if (mUpdateThread == null) {
+                mUpdateThread = new UpdateThread();
+                BluetoothMethodProxy.getInstance().threadStart(mUpdateThread);
+                mUpdateThreadRunning = true;
+            }
+        }
+    }
+
+    /** Returns the id of the share {@code uri} points to, or -1 if it is not a share Uri. */
+    @VisibleForTesting
+    static int getShareId(Uri uri) {
+        if (uri == null
+                || !BluetoothShare.CONTENT_URI.getAuthority().equals(uri.getAuthority())) {
+            return -1;
+        }
+        List<String> segments = uri.getPathSegments();
+        if (segments.size() != 2) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(segments.get(1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     private void updateFromProvider() {
         synchronized (BluetoothOppService.this) {
             mPendingUpdate = true;
@@ -718,6 +800,8 @@ public class BluetoothOppService extends ProfileService implements IObexConnecti
             Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
 
             while (!mIsInterrupted) {
+                boolean fullUpdate;
+                List<Integer> shareUpdates;
                 synchronized (BluetoothOppService.this) {
                     if (mUpdateThread != this) {
                         mUpdateThreadRunning = false;
@@ -732,13 +816,24 @@ public class BluetoothOppService extends ProfileService implements IObexConnecti
                                     + mListenStarted
                                     + " isInterrupted :"
                                     + mIsInterrupted);
-                    if (!mPendingUpdate) {
+                    if (!mPendingUpdate && mPendingShareUpdates.isEmpty()) {
                         mUpdateThread = null;
                         mUpdateThreadRunning = false;
                         return;
                     }
+                    fullUpdate = mPendingUpdate;
+                    shareUpdates = new ArrayList<>(mPendingShareUpdates);
+                    mPendingShareUpdates.clear();
                     mPendingUpdate = false;
                 }
+                if (!fullUpdate) {
+                    // A full update would reload these shares as well
+                    for (int id : shareUpdates) {
+                        applyShareUpdate(id);
+                    }
+                    mNotifier.updateNotification();
+                    continue;
+                }
                 Cursor cursor =
                         getContentResolver()
                                 .query(
@@ -837,6 +932,88 @@ public class BluetoothOppService extends ProfileService implements IObexConnecti
         }
     }
 
+    /**
+     * Applies the current content of one share to {@link #mShares}. Only that row is queried and,
+     * when nothing but its transferred bytes changed, the local copy is updated in place without
+     * going through the batch logic of {@link #updateShare}.
+     */
+    @VisibleForTesting
+    void applyShareUpdate(int id) {
+        Uri uri = Uri.parse(BluetoothShare.CONTENT_URI + "/" + id);
+        Cursor cursor =
+                BluetoothMethodProxy.getInstance()
+                        .contentResolverQuery(getContentResolver(), uri, null, null, null, null);
+        if (cursor == null) {
+            return;
+        }
+        try {
+            int arrayPos = findSharePosition(id);
+            if (!cursor.moveToFirst()) {
+                if (arrayPos >= 0) {
+                    Log.v(TAG, "Share update: removing " + id + " @ " + arrayPos);
+                    deleteShare(arrayPos);
+                }
+                return;
+            }
+            if (arrayPos < 0) {
+                Log.v(TAG, "Share update: inserting " + id + " @ " + (-arrayPos - 1));
+                insertShare(cursor, -arrayPos - 1);
+                return;
+            }
+            BluetoothOppShareInfo info = mShares.get(arrayPos);
+            if (isProgressUpdate(info, cursor)) {
+                info.mCurrentBytes =
+                        cursor.getLong(cursor.getColumnIndexOrThrow(BluetoothShare.CURRENT_BYTES));
+                return;
+            }
+            updateShare(cursor, arrayPos);
+            scanFileIfNeeded(arrayPos);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /** Returns true if the share in {@code cursor} only differs from {@code info} by progress. */
+    private static boolean isProgressUpdate(BluetoothOppShareInfo info, Cursor cursor) {
+        return info.mStatus == cursor.getInt(cursor.getColumnIndexOrThrow(BluetoothShare.STATUS))
+                && info.mConfirm
+                        == cursor.getInt(
+                                cursor.getColumnIndexOrThrow(BluetoothShare.USER_CONFIRMATION))
+                && info.mVisibility
+                        == cursor.getInt(cursor.getColumnIndexOrThrow(BluetoothShare.VISIBILITY))
+                && info.mTotalBytes
+                        == cursor.getLong(cursor.getColumnIndexOrThrow(BluetoothShare.TOTAL_BYTES))
+                && info.mTimestamp
+                        == cursor.getLong(cursor.getColumnIndexOrThrow(BluetoothShare.TIMESTAMP))
+                && info.mMediaScanned
+                        == (cursor.getInt(cursor.getColumnIndexOrThrow(Constants.MEDIA_SCANNED))
+                                != Constants.MEDIA_SCANNED_NOT_SCANNED)
+                && Objects.equals(
+                        info.mFilename,
+                        cursor.getString(cursor.getColumnIndexOrThrow(BluetoothShare._DATA)));
+    }
+
+    /**
+     * Returns the position of the share with {@code id} in {@link #mShares}, which is sorted by
+     * id, or {@code -(insertion point) - 1} if there is none.
+     */
+    private int findSharePosition(int id) {
+        int low = 0;
+        int high = mShares.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = mShares.get(mid).mId;
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
     private void insertShare(Cursor cursor, int arrayPos) {
         String uriString = cursor.getString(cursor.getColumnIndexOrThrow(BluetoothShare.URI));
         Uri uri;
@@ -923,7 +1100,25 @@ public class BluetoothOppService extends ProfileService implements IObexConnecti
                     return;
                 }
             }
-            if (mBatches.size() == 0) {
+            if (isConcurrentScheduling()) {
+                int i = findBatchWithTimeStamp(info.mTimestamp);
+                if (i != -1) {
+                    Log.v(
+                            TAG,
+                            "Service add info "
+                                    + info.mId
+                                    + " to existing batch "
+                                    + mBatches.get(i).mId);
+                    mBatches.get(i).addShare(info);
+                } else {
+                    BluetoothOppBatch newBatch = new BluetoothOppBatch(this, info);
+                    newBatch.mId = mBatchId;
+                    mBatchId++;
+                    mBatches.add(newBatch);
+                    Log.v(TAG, "Service add new Batch " + newBatch.mId + " for info " + info.mId);
+                    startPendingBatches();
+                }
+            } else if (mBatches.size() == 0) {
                 BluetoothOppBatch newBatch = new BluetoothOppBatch(this, info);
                 newBatch.mId = mBatchId;
                 mBatchId++;
@@ -1064,7 +1259,16 @@ public class BluetoothOppService extends ProfileService implements IObexConnecti
             if (batch.mStatus == Constants.BATCH_STATUS_FINISHED
                     || batch.mStatus == Constants.BATCH_STATUS_FAILED) {
                 Log.v(TAG, "Batch " + batch.mId + " is finished");
-                if (batch.mDirection == BluetoothShare.DIRECTION_OUTBOUND) {
+                if (batch.mDirection == BluetoothShare.DIRECTION_OUTBOUND
+                        && isConcurrentScheduling()) {
+                    BluetoothOppTransfer transfer = mOutboundTransfers.get(batch.mDestination);
+                    if (transfer != null && transfer.getBatchId() == batch.mId) {
+                        mOutboundTransfers.remove(batch.mDestination);
+                        transfer.stop();
+                    } else {
+                        Log.e(TAG, "Unexpected error! no transfer for batch " + batch.mId);
+                    }
+                } else if (batch.mDirection == BluetoothShare.DIRECTION_OUTBOUND) {
                     if (mTransfer == null) {
                         Log.e(TAG, "Unexpected error! mTransfer is null");
                         ContentProfileErrorReportUtils.report(
@@ -1187,6 +1391,18 @@ public class BluetoothOppService extends ProfileService implements IObexConnecti
     private void removeBatch(BluetoothOppBatch batch) {
         Log.v(TAG, "Remove batch " + batch.mId);
         mBatches.remove(batch);
+        if (isConcurrentScheduling()) {
+            BluetoothOppTransfer transfer = mOutboundTransfers.get(batch.mDestination);
+            if (transfer != null && transfer.getBatchId() == batch.mId) {
+                // Canceled batch, its transfer was already stopped by onBatchCanceled()
+                mOutboundTransfers.remove(batch.mDestination);
+            }
+            if (mServerTransfer != null && mServerTransfer.getBatchId() == batch.mId) {
+                mServerTransfer = null;
+            }
+            startPendingBatches();
+            return;
+        }
         if (mBatches.size() > 0) {
             for (BluetoothOppBatch nextBatch : mBatches) {
                 // we have a running batch
@@ -1220,6 +1436,92 @@ public class BluetoothOppService extends ProfileService implements IObexConnecti
         }
     }
 
+    private boolean isConcurrentScheduling() {
+        return mMaxConcurrentTransfers > 1;
+    }
+
+    /** Whether an incoming connection can be given the server session now. */
+    private boolean canAcceptIncomingConnection() {
+        if (!isConcurrentScheduling()) {
+            return mBatches.size() == 0;
+        }
+        // Outbound transfers use their own connections, only wait for the inbound ones
+        for (BluetoothOppBatch batch : mBatches) {
+            if (batch.mDirection == BluetoothShare.DIRECTION_INBOUND) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the pending outbound batches that can start now: for each destination without a
+     * running transfer the oldest of its pending batches that sends no file of a running batch,
+     * in queue order, until {@link #mMaxConcurrentTransfers} transfers are running.
+     */
+    @VisibleForTesting
+    List<BluetoothOppBatch> getStartableOutboundBatches() {
+        List<BluetoothOppBatch> startable = new ArrayList<>();
+        Set<BluetoothDevice> busy = new ArraySet<>(mOutboundTransfers.keySet());
+        // A file is read through the single input stream of its send info, so batches sending
+        // the same Uri can't run at the same time either
+        Set<Uri> busyUris = new ArraySet<>();
+        for (BluetoothOppBatch batch : mBatches) {
+            BluetoothOppTransfer transfer = mOutboundTransfers.get(batch.mDestination);
+            if (transfer != null && transfer.getBatchId() == batch.mId) {
+                busyUris.addAll(batch.getUris());
+            }
+        }
+        int slots = mMaxConcurrentTransfers - mOutboundTransfers.size();
+        for (BluetoothOppBatch batch : mBatches) {
+            if (slots <= 0) {
+                break;
+            }
+            if (batch.mDirection != BluetoothShare.DIRECTION_OUTBOUND
+                    || batch.mStatus != Constants.BATCH_STATUS_PENDING) {
+                continue;
+            }
+            // Also skips the later batches of a destination or of a file, so each one is served
+            // in FIFO order
+            Set<Uri> uris = batch.getUris();
+            boolean idleFiles = Collections.disjoint(busyUris, uris);
+            busyUris.addAll(uris);
+            if (busy.add(batch.mDestination) && idleFiles) {
+                startable.add(batch);
+                slots--;
+            }
+        }
+        return startable;
+    }
+
+    /** Starts the batches allowed to run, see {@link #MAX_CONCURRENT_TRANSFERS_PROPERTY}. */
+    private void startPendingBatches() {
+        for (BluetoothOppBatch batch : getStartableOutboundBatches()) {
+            Log.v(TAG, "Start outbound batch " + batch.mId);
+            BluetoothOppTransfer transfer = new BluetoothOppTransfer(mAdapterService, batch);
+            mOutboundTransfers.put(batch.mDestination, transfer);
+            transfer.start();
+        }
+        // Inbound transfers all go through the single server session
+        if (mServerTransfer != null || mServerSession == null) {
+            return;
+        }
+        for (BluetoothOppBatch batch : mBatches) {
+            if (batch.mDirection == BluetoothShare.DIRECTION_INBOUND
+                    && batch.mStatus == Constants.BATCH_STATUS_PENDING) {
+                Log.v(TAG, "Start inbound batch " + batch.mId);
+                mServerTransfer = new BluetoothOppTransfer(mAdapterService, batch, mServerSession);
+                mServerTransfer.start();
+                if (batch.getPendingShare() != null
+                        && batch.getPendingShare().mConfirm
+                                == BluetoothShare.USER_CONFIRMATION_CONFIRMED) {
+                    mServerTransfer.confirmStatusChanged();
+                }
+                return;
+            }
+        }
+    }
+
     private void scanFileIfNeeded(int arrayPos) {
         BluetoothOppShareInfo info = mShares.get(arrayPos);
         boolean isFileReceived =
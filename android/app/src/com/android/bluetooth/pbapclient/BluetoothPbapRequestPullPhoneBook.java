@@ -26,6 +26,7 @@ import com.android.vcard.VCardEntry;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 final class BluetoothPbapRequestPullPhoneBook extends BluetoothPbapRequest {
     private static final String TAG = "PbapClient.PullPb";
@@ -40,6 +41,10 @@ final class BluetoothPbapRequestPullPhoneBook extends BluetoothPbapRequest {
 
     private final byte mFormat;
 
+    private Consumer<VCardEntry> mSink;
+
+    private int mMaxPhotoBytes = BluetoothPbapVcardList.KEEP_ALL_PHOTOS;
+
     BluetoothPbapRequestPullPhoneBook(
             String pbName,
             Account account,
@@ -97,7 +102,7 @@ final class BluetoothPbapRequestPullPhoneBook extends BluetoothPbapRequest {
     protected void readResponse(InputStream stream) throws IOException {
         Log.v(TAG, "readResponse");
 
-        mResponse = new BluetoothPbapVcardList(mAccount, stream, mFormat);
+        mResponse = new BluetoothPbapVcardList(mAccount, stream, mFormat, mSink, mMaxPhotoBytes);
         Log.d(TAG, "Read " + mResponse.getCount() + " entries");
     }
 
@@ -112,10 +117,28 @@ final class BluetoothPbapRequestPullPhoneBook extends BluetoothPbapRequest {
         }
     }
 
+    /**
+     * Hand each entry to {@code sink} as soon as it is parsed instead of collecting the whole
+     * response, {@link #getList()} is then empty. Must be called before {@link #execute}.
+     */
+    public void setEntrySink(Consumer<VCardEntry> sink) {
+        mSink = sink;
+    }
+
+    /** Drop photos larger than {@code maxPhotoBytes} while parsing. Must precede execute. */
+    public void setMaxPhotoBytes(int maxPhotoBytes) {
+        mMaxPhotoBytes = maxPhotoBytes;
+    }
+
     public List<VCardEntry> getList() {
         return mResponse.getList();
     }
 
+    /** Returns the number of entries received, including those handed over to the sink. */
+    public int getCount() {
+        return mResponse == null ? 0 : mResponse.getCount();
+    }
+
     public int getNewMissedCalls() {
         return mNewMissedCalls;
     }
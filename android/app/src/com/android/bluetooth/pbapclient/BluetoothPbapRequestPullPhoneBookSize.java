@@ -28,6 +28,10 @@ final class BluetoothPbapRequestPullPhoneBookSize extends BluetoothPbapRequest {
 
     private int mSize;
 
+    private byte[] mPrimaryVersionCounter;
+    private byte[] mSecondaryVersionCounter;
+    private byte[] mDatabaseIdentifier;
+
     BluetoothPbapRequestPullPhoneBookSize(String pbName, long filter) {
         mHeaderSet.setHeader(HeaderSet.NAME, pbName);
 
@@ -54,9 +58,33 @@ final class BluetoothPbapRequestPullPhoneBookSize extends BluetoothPbapRequest {
         if (oap.exists(OAP_TAGID_PHONEBOOK_SIZE)) {
             mSize = oap.getShort(OAP_TAGID_PHONEBOOK_SIZE);
         }
+
+        // Only present when both sides support the PBAP v1.2 "Folder Version Counters" and
+        // "Database Identifier" features. See PBAP v1.2.3, Sec. 5.1.4.9 and 5.1.4.10.
+        if (oap.exists(OAP_TAGID_PRIMARY_VERSION_COUNTER)) {
+            mPrimaryVersionCounter = oap.getByteArray(OAP_TAGID_PRIMARY_VERSION_COUNTER);
+        }
+        if (oap.exists(OAP_TAGID_SECONDARY_VERSION_COUNTER)) {
+            mSecondaryVersionCounter = oap.getByteArray(OAP_TAGID_SECONDARY_VERSION_COUNTER);
+        }
+        if (oap.exists(OAP_TAGID_DATABASE_IDENTIFIER)) {
+            mDatabaseIdentifier = oap.getByteArray(OAP_TAGID_DATABASE_IDENTIFIER);
+        }
     }
 
     public int getSize() {
         return mSize;
     }
+
+    public byte[] getPrimaryVersionCounter() {
+        return mPrimaryVersionCounter;
+    }
+
+    public byte[] getSecondaryVersionCounter() {
+        return mSecondaryVersionCounter;
+    }
+
+    public byte[] getDatabaseIdentifier() {
+        return mDatabaseIdentifier;
+    }
 }
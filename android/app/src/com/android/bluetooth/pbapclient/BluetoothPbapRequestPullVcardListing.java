@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.bluetooth.pbapclient;
+
+import android.util.Log;
+
+import com.android.bluetooth.ObexAppParameters;
+import com.android.obex.HeaderSet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+final class BluetoothPbapRequestPullVcardListing extends BluetoothPbapRequest {
+    private static final String TAG = "PbapClient.PullListing";
+
+    private static final String TYPE = "x-bt/vcard-listing";
+
+    // PBAP v1.2.3, Sec. 5.3.4.1, "Indexed" order, which matches the order of PullPhoneBook.
+    private static final byte ORDER_INDEXED = 0x00;
+
+    private BluetoothPbapVcardListing mResponse;
+
+    /**
+     * @param folderName the folder to list, relative to the current folder of the session
+     */
+    BluetoothPbapRequestPullVcardListing(String folderName) {
+        mHeaderSet.setHeader(HeaderSet.NAME, folderName);
+
+        mHeaderSet.setHeader(HeaderSet.TYPE, TYPE);
+
+        ObexAppParameters oap = new ObexAppParameters();
+        oap.add(OAP_TAGID_ORDER, ORDER_INDEXED);
+        oap.add(OAP_TAGID_MAX_LIST_COUNT, (short) 65535);
+        oap.addToHeaderSet(mHeaderSet);
+    }
+
+    @Override
+    protected void readResponse(InputStream stream) throws IOException {
+        Log.v(TAG, "readResponse");
+
+        mResponse = new BluetoothPbapVcardListing(stream);
+        Log.d(TAG, "Read " + mResponse.getCount() + " listing entries");
+    }
+
+    /** Returns the listed handle to name map, or {@code null} if nothing was received. */
+    public Map<String, String> getCards() {
+        if (mResponse == null) {
+            return null;
+        }
+        return mResponse.getCards();
+    }
+}
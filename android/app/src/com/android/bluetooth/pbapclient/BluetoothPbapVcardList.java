@@ -20,12 +20,15 @@ import android.accounts.Account;
 import android.util.Log;
 
 import com.android.vcard.VCardConfig;
+import com.android.vcard.VCardConstants;
 import com.android.vcard.VCardEntry;
 import com.android.vcard.VCardEntryConstructor;
 import com.android.vcard.VCardEntryHandler;
+import com.android.vcard.VCardInterpreter;
 import com.android.vcard.VCardParser;
 import com.android.vcard.VCardParser_V21;
 import com.android.vcard.VCardParser_V30;
+import com.android.vcard.VCardProperty;
 import com.android.vcard.exception.VCardException;
 import com.android.vcard.exception.VCardVersionException;
 
@@ -34,14 +37,22 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 class BluetoothPbapVcardList {
     private static final String TAG = BluetoothPbapVcardList.class.getSimpleName();
     // {@link BufferedInputStream#DEFAULT_BUFFER_SIZE} is not public
     private static final int BIS_DEFAULT_BUFFER_SIZE = 8192;
 
+    /** Passed as maxPhotoBytes to keep every photo. */
+    static final int KEEP_ALL_PHOTOS = -1;
+
     private final List<VCardEntry> mCards = new ArrayList<VCardEntry>();
     private final Account mAccount;
+    // When set, entries are handed over as soon as they are parsed instead of being collected.
+    private final Consumer<VCardEntry> mSink;
+    private final int mMaxPhotoBytes;
+    private int mCount = 0;
 
     class CardEntryHandler implements VCardEntryHandler {
         @Override
@@ -49,22 +60,95 @@ class BluetoothPbapVcardList {
 
         @Override
         public void onEntryCreated(VCardEntry entry) {
-            mCards.add(entry);
+            mCount++;
+            if (mSink != null) {
+                mSink.accept(entry);
+            } else {
+                mCards.add(entry);
+            }
         }
 
         @Override
         public void onEnd() {}
     }
 
+    /**
+     * Drops PHOTO properties above a size budget before they reach the {@link VCardEntry}, so a
+     * large embedded image never becomes part of the parsed entry.
+     */
+    private class PhotoFilter implements VCardInterpreter {
+        private final VCardInterpreter mDelegate;
+
+        PhotoFilter(VCardInterpreter delegate) {
+            mDelegate = delegate;
+        }
+
+        @Override
+        public void onVCardStarted() {
+            mDelegate.onVCardStarted();
+        }
+
+        @Override
+        public void onVCardEnded() {
+            mDelegate.onVCardEnded();
+        }
+
+        @Override
+        public void onEntryStarted() {
+            mDelegate.onEntryStarted();
+        }
+
+        @Override
+        public void onEntryEnded() {
+            mDelegate.onEntryEnded();
+        }
+
+        @Override
+        public void onPropertyCreated(VCardProperty property) {
+            if (VCardConstants.PROPERTY_PHOTO.equals(property.getName())) {
+                byte[] photo = property.getByteValue();
+                if (photo != null && photo.length > mMaxPhotoBytes) {
+                    Log.v(TAG, "Dropping photo of " + photo.length + " bytes");
+                    return;
+                }
+            }
+            mDelegate.onPropertyCreated(property);
+        }
+    }
+
     BluetoothPbapVcardList(Account account, InputStream in, byte format) throws IOException {
+        this(account, in, format, null, KEEP_ALL_PHOTOS);
+    }
+
+    /**
+     * @param sink if not null, receives each entry as soon as it is parsed and {@link #getList()}
+     *     stays empty, bounding memory to a single entry rather than the whole response.
+     * @param maxPhotoBytes photos larger than this are dropped, {@link #KEEP_ALL_PHOTOS} keeps all
+     */
+    BluetoothPbapVcardList(
+            Account account,
+            InputStream in,
+            byte format,
+            Consumer<VCardEntry> sink,
+            int maxPhotoBytes)
+            throws IOException {
         if (format != PbapClientConnectionHandler.VCARD_TYPE_21
                 && format != PbapClientConnectionHandler.VCARD_TYPE_30) {
             throw new IllegalArgumentException("Unsupported vCard version.");
         }
         mAccount = account;
+        mSink = sink;
+        mMaxPhotoBytes = maxPhotoBytes;
         parse(in, format);
     }
 
+    private VCardInterpreter wrap(VCardEntryConstructor constructor) {
+        if (mMaxPhotoBytes == KEEP_ALL_PHOTOS) {
+            return constructor;
+        }
+        return new PhotoFilter(constructor);
+    }
+
     private void parse(InputStream in, byte format) throws IOException {
         VCardParser parser;
 
@@ -80,7 +164,7 @@ class BluetoothPbapVcardList {
         CardEntryHandler handler = new CardEntryHandler();
         constructor.addEntryHandler(handler);
 
-        parser.addInterpreter(constructor);
+        parser.addInterpreter(wrap(constructor));
 
         // {@link BufferedInputStream} supports the {@link InputStream#mark} and
         // {@link InputStream#reset} methods.
@@ -91,6 +175,11 @@ class BluetoothPbapVcardList {
         // version. Otherwise, parsing either succeeds (i.e., no {@link VCardException}) or it
         // fails with a different {@link VCardException}.
         if (parsedWithVcardVersionException(parser, bufferedInput)) {
+            if (mSink != null && mCount > 0) {
+                // Entries already handed over cannot be taken back, keep what was parsed.
+                Log.e(TAG, "vCard version mismatch after " + mCount + " streamed entries");
+                return;
+            }
             // PBAP v1.2.3 only supports vCard versions 2.1 and 3.0; it's one or the other
             if (format == PbapClientConnectionHandler.VCARD_TYPE_21) {
                 parser = new VCardParser_V30();
@@ -102,8 +191,9 @@ class BluetoothPbapVcardList {
             // reset and try again
             bufferedInput.reset();
             mCards.clear();
+            mCount = 0;
             constructor.clear();
-            parser.addInterpreter(constructor);
+            parser.addInterpreter(wrap(constructor));
             if (parsedWithVcardVersionException(parser, bufferedInput)) {
                 Log.e(TAG, "unsupported vCard version, neither v2.1 nor v3.0");
             }
@@ -132,8 +222,9 @@ class BluetoothPbapVcardList {
         return false;
     }
 
+    /** Returns the number of parsed entries, including those handed over to the sink. */
     public int getCount() {
-        return mCards.size();
+        return mCount;
     }
 
     public List<VCardEntry> getList() {
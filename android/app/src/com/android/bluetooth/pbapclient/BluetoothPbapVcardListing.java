@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.bluetooth.pbapclient;
+
+import android.util.Log;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Parsed x-bt/vcard-listing object, see PBAP v1.2.3, Sec. 5.3.3. */
+class BluetoothPbapVcardListing {
+    private static final String TAG = BluetoothPbapVcardListing.class.getSimpleName();
+
+    private static final String CARD_TAG = "card";
+    private static final String HANDLE_ATTRIBUTE = "handle";
+    private static final String NAME_ATTRIBUTE = "name";
+
+    // Handle -> name, in the order the PSE listed them.
+    private final Map<String, String> mCards = new LinkedHashMap<>();
+
+    BluetoothPbapVcardListing(InputStream in) throws IOException {
+        parse(in);
+    }
+
+    private void parse(InputStream in) throws IOException {
+        try {
+            XmlPullParser xpp = XmlPullParserFactory.newInstance().newPullParser();
+            xpp.setInput(in, "utf-8");
+
+            int event = xpp.getEventType();
+            while (event != XmlPullParser.END_DOCUMENT) {
+                if (event == XmlPullParser.START_TAG && CARD_TAG.equals(xpp.getName())) {
+                    String handle = xpp.getAttributeValue(null, HANDLE_ATTRIBUTE);
+                    String name = xpp.getAttributeValue(null, NAME_ATTRIBUTE);
+                    if (handle != null) {
+                        mCards.put(handle, name == null ? "" : name);
+                    }
+                }
+                event = xpp.next();
+            }
+        } catch (XmlPullParserException e) {
+            Log.e(TAG, "XML parser error when parsing vCard listing", e);
+        }
+    }
+
+    public int getCount() {
+        return mCards.size();
+    }
+
+    /** Returns an unmodifiable handle to name map, in listing order. */
+    public Map<String, String> getCards() {
+        return Collections.unmodifiableMap(mCards);
+    }
+}
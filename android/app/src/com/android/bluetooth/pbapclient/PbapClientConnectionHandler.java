@@ -22,12 +22,20 @@ import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothSocket;
 import android.bluetooth.BluetoothUuid;
 import android.bluetooth.SdpPseRecord;
+import android.content.ContentProviderOperation;
 import android.content.Context;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
+import android.os.RemoteException;
+import android.os.SystemProperties;
 import android.provider.CallLog;
 import android.provider.CallLog.Calls;
+import android.provider.ContactsContract;
+import android.provider.ContactsContract.RawContacts;
 import android.util.Log;
 
 import com.android.bluetooth.BluetoothObexTransport;
@@ -40,6 +48,7 @@ import com.android.obex.ResponseCodes;
 import com.android.vcard.VCardEntry;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -89,6 +98,9 @@ class PbapClientConnectionHandler extends Handler {
 
     private static final int PBAP_FEATURE_DEFAULT_IMAGE_FORMAT = 0x00000200;
     private static final int PBAP_FEATURE_DOWNLOADING = 0x00000001;
+    private static final int PBAP_FEATURE_BROWSING = 0x00000002;
+    private static final int PBAP_FEATURE_DATABASE_IDENTIFIER = 0x00000004;
+    private static final int PBAP_FEATURE_FOLDER_VERSION_COUNTERS = 0x00000008;
 
     private static final long PBAP_FILTER_VERSION = 1 << 0;
     private static final long PBAP_FILTER_FN = 1 << 1;
@@ -101,6 +113,11 @@ class PbapClientConnectionHandler extends Handler {
 
     private static final int PBAP_SUPPORTED_FEATURE =
             PBAP_FEATURE_DEFAULT_IMAGE_FORMAT | PBAP_FEATURE_DOWNLOADING;
+    // Features needed to detect and download only the changes since the last sync.
+    private static final int PBAP_INCREMENTAL_SYNC_FEATURES =
+            PBAP_FEATURE_BROWSING
+                    | PBAP_FEATURE_DATABASE_IDENTIFIER
+                    | PBAP_FEATURE_FOLDER_VERSION_COUNTERS;
     private static final long PBAP_REQUESTED_FIELDS =
             PBAP_FILTER_VERSION
                     | PBAP_FILTER_FN
@@ -113,6 +130,17 @@ class PbapClientConnectionHandler extends Handler {
 
     @VisibleForTesting static final int L2CAP_INVALID_PSM = -1;
 
+    // When set, phonebook entries are inserted one by one as the response is parsed, so that
+    // memory is bounded by a single entry instead of a whole batch.
+    @VisibleForTesting
+    static final String STREAMING_DOWNLOAD_PROPERTY =
+            "bluetooth.pbapclient.streaming_download.enabled";
+
+    // Photos larger than this many bytes are dropped while parsing. 0 does not request photos
+    // from the PSE at all, the default keeps every photo.
+    @VisibleForTesting
+    static final String MAX_PHOTO_BYTES_PROPERTY = "bluetooth.pbapclient.max_photo_bytes";
+
     public static final String PB_PATH = "telecom/pb.vcf";
     public static final String FAV_PATH = "telecom/fav.vcf";
     public static final String MCH_PATH = "telecom/mch.vcf";
@@ -128,6 +156,19 @@ class PbapClientConnectionHandler extends Handler {
     private static final int SUPPORTED_REPOSITORIES_SIMCARD = 1 << 1;
     private static final int SUPPORTED_REPOSITORIES_FAVORITES = 1 << 3;
 
+    private static final String VCF_EXTENSION = ".vcf";
+    private static final String OWNER_CARD_HANDLE = "0.vcf";
+
+    private static final String SYNCED_CONTACTS_SELECTION =
+            RawContacts.ACCOUNT_NAME
+                    + "=? AND "
+                    + RawContacts.ACCOUNT_TYPE
+                    + "=? AND "
+                    + PhonebookPullRequest.SYNC_COLUMN_FOLDER
+                    + "=? AND "
+                    + RawContacts.DELETED
+                    + "=0";
+
     public static final int PBAP_V1_2 = 0x0102;
     public static final byte VCARD_TYPE_21 = 0;
     public static final byte VCARD_TYPE_30 = 1;
@@ -143,6 +184,10 @@ class PbapClientConnectionHandler extends Handler {
     private BluetoothPbapObexAuthenticator mAuth = null;
     private final PbapClientStateMachine mPbapClientStateMachine;
     private boolean mAccountCreated;
+    private final boolean mIncrementalSync;
+    private final PbapClientSyncState mSyncState;
+    private final boolean mStreamingDownload;
+    private final int mMaxPhotoBytes;
 
     /**
      * Constructs PCEConnectionHandler object
@@ -158,6 +203,12 @@ class PbapClientConnectionHandler extends Handler {
         mAccountManager = AccountManager.get(mPbapClientStateMachine.getContext());
         mAccount =
                 new Account(mDevice.getAddress(), mContext.getString(R.string.pbap_account_type));
+        mIncrementalSync = PbapClientSyncState.isIncrementalSyncEnabled();
+        mSyncState = mIncrementalSync ? new PbapClientSyncState(mContext) : null;
+        mStreamingDownload = SystemProperties.getBoolean(STREAMING_DOWNLOAD_PROPERTY, false);
+        mMaxPhotoBytes =
+                SystemProperties.getInt(
+                        MAX_PHOTO_BYTES_PROPERTY, BluetoothPbapVcardList.KEEP_ALL_PHOTOS);
     }
 
     public static class Builder {
@@ -233,7 +284,9 @@ class PbapClientConnectionHandler extends Handler {
                     closeSocket();
                 }
                 Log.d(TAG, "Completing Disconnect");
-                if (mAccountCreated) {
+                // With incremental sync the account of a bonded device outlives the connection,
+                // PbapClientService removes it once the device is unbonded.
+                if (mAccountCreated && !mIncrementalSync) {
                     removeAccount();
                 }
                 removeCallLog();
@@ -242,7 +295,7 @@ class PbapClientConnectionHandler extends Handler {
                 break;
 
             case MSG_DOWNLOAD:
-                mAccountCreated = addAccount();
+                mAccountCreated = addAccount() || (mIncrementalSync && isAccountPresent());
                 if (!mAccountCreated) {
                     Log.e(TAG, "Account creation failed.");
                     return;
@@ -331,9 +384,13 @@ class PbapClientConnectionHandler extends Handler {
                 ObexAppParameters oap = new ObexAppParameters();
 
                 if (mPseRec.getProfileVersion() >= PBAP_V1_2) {
+                    int supportedFeatures = PBAP_SUPPORTED_FEATURE;
+                    if (mIncrementalSync) {
+                        supportedFeatures |= PBAP_INCREMENTAL_SYNC_FEATURES;
+                    }
                     oap.add(
                             BluetoothPbapRequest.OAP_TAGID_PBAP_SUPPORTED_FEATURES,
-                            PBAP_SUPPORTED_FEATURE);
+                            supportedFeatures);
                 }
 
                 oap.addToHeaderSet(connectionRequest);
@@ -384,6 +441,51 @@ class PbapClientConnectionHandler extends Handler {
                     new BluetoothPbapRequestPullPhoneBookSize(path, PBAP_REQUESTED_FIELDS);
             requestPbSize.execute(mObexSession);
 
+            List<String> handles = null;
+            List<String> names = null;
+            PbapClientSyncState.FolderVersion remoteVersion = null;
+            if (isIncrementalSyncSupported()) {
+                remoteVersion =
+                        new PbapClientSyncState.FolderVersion(
+                                requestPbSize.getDatabaseIdentifier(),
+                                requestPbSize.getPrimaryVersionCounter(),
+                                requestPbSize.getSecondaryVersionCounter());
+                if (!remoteVersion.isComplete()) {
+                    Log.w(TAG, "PSE did not report folder versions for " + path);
+                    remoteVersion = null;
+                }
+            }
+            if (remoteVersion != null) {
+                PbapClientSyncState.FolderVersion localVersion =
+                        mSyncState.get(mDevice.getAddress(), path);
+                if (remoteVersion.equals(localVersion)) {
+                    Log.i(TAG, "Contacts unchanged since last sync, skipping " + path);
+                    return;
+                }
+                mSyncState.remove(mDevice.getAddress(), path);
+                boolean secondaryChanged = remoteVersion.isSecondaryChanged(localVersion);
+                if (remoteVersion.isSameDatabase(localVersion)
+                        && syncContactsByListing(path, secondaryChanged)) {
+                    mSyncState.put(mDevice.getAddress(), path, remoteVersion);
+                    return;
+                }
+
+                // Handles from the previous sync cannot be trusted, start over from scratch. The
+                // listing gives the handle of each entry, it is ordered like PullPhoneBook.
+                Map<String, String> listing = pullVcardListing(path);
+                if (listing != null && listing.size() == requestPbSize.getSize()) {
+                    handles = new ArrayList<>(listing.keySet());
+                    names = new ArrayList<>(listing.values());
+                } else {
+                    Log.w(TAG, "vCard listing does not match phonebook size for " + path);
+                    remoteVersion = null;
+                }
+            }
+            if (mIncrementalSync) {
+                // The account survives disconnections, drop what a previous sync left behind.
+                deleteSyncedContacts(path);
+            }
+
             int numberOfContactsRemaining = requestPbSize.getSize();
             int startOffset = 0;
             if (PB_PATH.equals(path)) {
@@ -404,26 +506,60 @@ class PbapClientConnectionHandler extends Handler {
                         new BluetoothPbapRequestPullPhoneBook(
                                 path,
                                 mAccount,
-                                PBAP_REQUESTED_FIELDS,
+                                getRequestedFields(),
                                 VCARD_TYPE_30,
                                 numberOfContactsToDownload,
                                 startOffset);
+                request.setMaxPhotoBytes(mMaxPhotoBytes);
+                if (mIncrementalSync) {
+                    int end = startOffset + numberOfContactsToDownload;
+                    processor.setSyncTags(
+                            path,
+                            handles == null ? null : handles.subList(startOffset, end),
+                            names == null ? null : names.subList(startOffset, end));
+                }
+                boolean favorite = FAV_PATH.equals(path);
+                if (mStreamingDownload) {
+                    // Insert each entry as soon as it is parsed rather than holding the batch.
+                    request.setEntrySink(
+                            v -> {
+                                if (favorite) {
+                                    v.setStarred(true);
+                                }
+                                processor.addEntry(v);
+                            });
+                }
                 request.execute(mObexSession);
-                List<VCardEntry> vcards = request.getList();
-                if (FAV_PATH.equals(path)) {
-                    // mark each vcard as a favorite
-                    for (VCardEntry v : vcards) {
-                        v.setStarred(true);
+                if (handles != null && request.getCount() != numberOfContactsToDownload) {
+                    // Entries no longer line up with the listing, leave them untagged so the
+                    // next sync starts over.
+                    Log.w(TAG, "Unexpected batch size, incremental sync disabled for " + path);
+                    handles = null;
+                    names = null;
+                    remoteVersion = null;
+                    processor.setSyncTags(path, null, null);
+                }
+                if (mStreamingDownload) {
+                    processor.flushEntries();
+                } else {
+                    List<VCardEntry> vcards = request.getList();
+                    if (favorite) {
+                        // mark each vcard as a favorite
+                        for (VCardEntry v : vcards) {
+                            v.setStarred(true);
+                        }
                     }
+                    processor.setResults(vcards);
+                    processor.onPullComplete();
                 }
-                processor.setResults(vcards);
-                processor.onPullComplete();
 
                 startOffset += numberOfContactsToDownload;
                 numberOfContactsRemaining -= numberOfContactsToDownload;
             }
             if ((startOffset > UPPER_LIMIT) && (numberOfContactsRemaining > 0)) {
                 Log.w(TAG, "Download contacts incomplete, index exceeded upper limit.");
+            } else if (remoteVersion != null && !Thread.currentThread().isInterrupted()) {
+                mSyncState.put(mDevice.getAddress(), path, remoteVersion);
             }
         } catch (IOException e) {
             Log.e(TAG, "Download contacts failure", e);
@@ -432,6 +568,317 @@ class PbapClientConnectionHandler extends Handler {
         }
     }
 
+    /**
+     * Bring the contacts of {@code path} up to date by diffing the vCard listing of the PSE
+     * against the raw contacts tagged by the previous sync, fetching only new or renamed entries.
+     *
+     * @param secondaryChanged whether the PSE reported a change to fields such as N, TEL or EMAIL
+     * @return {@code false} if the caller should fall back to a full download
+     */
+    @VisibleForTesting
+    boolean syncContactsByListing(String path, boolean secondaryChanged) throws IOException {
+        if (secondaryChanged) {
+            // The listing has no TEL, EMAIL or ADR, it can't tell which entries changed them.
+            Log.d(TAG, "Secondary version of " + path + " changed, listing can't be used");
+            return false;
+        }
+
+        Map<String, String> listing = pullVcardListing(path);
+        if (listing == null) {
+            return false;
+        }
+
+        Map<String, String> localNames = new HashMap<>();
+        Map<String, Long> localIds = new HashMap<>();
+        if (!querySyncedContacts(path, localNames, localIds)) {
+            return false;
+        }
+
+        List<String> toFetch = new ArrayList<>();
+        List<Long> toDelete = new ArrayList<>();
+        diffListing(path, listing, localNames, localIds, toFetch, toDelete);
+        if (!isListingDiffUsable(toFetch.size(), toDelete.size(), listing.size())) {
+            Log.d(
+                    TAG,
+                    "Listing of "
+                            + path
+                            + " does not explain its changes: fetch="
+                            + toFetch.size()
+                            + " delete="
+                            + toDelete.size());
+            return false;
+        }
+        Log.i(
+                TAG,
+                "Incremental sync of "
+                        + path
+                        + ": fetch="
+                        + toFetch.size()
+                        + " delete="
+                        + toDelete.size());
+
+        deleteRawContacts(toDelete);
+        if (toFetch.isEmpty()) {
+            return true;
+        }
+
+        String folder = path.substring(0, path.length() - VCF_EXTENSION.length());
+        if (!setPath(folder)) {
+            return false;
+        }
+        try {
+            PhonebookPullRequest processor =
+                    new PhonebookPullRequest(mPbapClientStateMachine.getContext());
+            List<VCardEntry> vcards = new ArrayList<>();
+            List<String> handles = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (String handle : toFetch) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                BluetoothPbapRequestPullVcardEntry request =
+                        new BluetoothPbapRequestPullVcardEntry(
+                                handle, mAccount, getRequestedFields(), VCARD_TYPE_30);
+                request.execute(mObexSession);
+                VCardEntry vcard = request.getEntry();
+                if (vcard == null) {
+                    continue;
+                }
+                if (FAV_PATH.equals(path)) {
+                    vcard.setStarred(true);
+                }
+                vcards.add(vcard);
+                handles.add(handle);
+                names.add(listing.get(handle));
+                if (vcards.size() >= DEFAULT_BATCH_SIZE) {
+                    storeContacts(processor, path, vcards, handles, names);
+                    vcards = new ArrayList<>();
+                    handles = new ArrayList<>();
+                    names = new ArrayList<>();
+                }
+            }
+            storeContacts(processor, path, vcards, handles, names);
+        } finally {
+            setPath(null);
+        }
+        return true;
+    }
+
+    /**
+     * Diff the vCard {@code listing} of {@code path} against the names and raw contact IDs of the
+     * entries tagged by the previous sync. New and renamed entries are added to {@code toFetch},
+     * the raw contacts of removed and renamed entries to {@code toDelete}.
+     */
+    @VisibleForTesting
+    static void diffListing(
+            String path,
+            Map<String, String> listing,
+            Map<String, String> localNames,
+            Map<String, Long> localIds,
+            List<String> toFetch,
+            List<Long> toDelete) {
+        for (Map.Entry<String, String> card : listing.entrySet()) {
+            String handle = card.getKey();
+            if (PB_PATH.equals(path) && OWNER_CARD_HANDLE.equals(handle)) {
+                continue;
+            }
+            String localName = localNames.get(handle);
+            if (localName == null || !localName.equals(card.getValue())) {
+                toFetch.add(handle);
+            }
+        }
+        for (Map.Entry<String, String> local : localNames.entrySet()) {
+            String remoteName = listing.get(local.getKey());
+            if (remoteName == null || !remoteName.equals(local.getValue())) {
+                toDelete.add(localIds.get(local.getKey()));
+            }
+        }
+    }
+
+    /**
+     * Returns whether fetching {@code fetchCount} entries and deleting {@code deleteCount} raw
+     * contacts brings a folder of {@code listingSize} entries up to date, when only its primary
+     * version changed.
+     */
+    @VisibleForTesting
+    static boolean isListingDiffUsable(int fetchCount, int deleteCount, int listingSize) {
+        if (fetchCount == 0 && deleteCount == 0) {
+            // Only a field that is not part of the listing changed, e.g. PHOTO or NICKNAME.
+            return false;
+        }
+        // Batched PullPhoneBook is cheaper than pulling most entries one by one.
+        return fetchCount <= listingSize / 2;
+    }
+
+    private static void storeContacts(
+            PhonebookPullRequest processor,
+            String path,
+            List<VCardEntry> vcards,
+            List<String> handles,
+            List<String> names) {
+        if (vcards.isEmpty()) {
+            return;
+        }
+        processor.setSyncTags(path, handles, names);
+        processor.setResults(vcards);
+        processor.onPullComplete();
+    }
+
+    /**
+     * Pull the vCard listing matching the phonebook object {@code path}.
+     *
+     * @return handle to name map in indexed order, or {@code null} on failure
+     */
+    private Map<String, String> pullVcardListing(String path) throws IOException {
+        // PullvCardListing names a folder relative to the current one, so browse to its parent.
+        String folder = path.substring(0, path.length() - VCF_EXTENSION.length());
+        int separator = folder.lastIndexOf('/');
+        if (!setPath(separator < 0 ? null : folder.substring(0, separator))) {
+            return null;
+        }
+        try {
+            BluetoothPbapRequestPullVcardListing request =
+                    new BluetoothPbapRequestPullVcardListing(folder.substring(separator + 1));
+            request.execute(mObexSession);
+            return request.isSuccess() ? request.getCards() : null;
+        } finally {
+            setPath(null);
+        }
+    }
+
+    /**
+     * Browse to {@code folder}, relative to the root, one level at a time. A {@code null} folder
+     * goes back to the root.
+     */
+    private boolean setPath(String folder) throws IOException {
+        HeaderSet request = new HeaderSet();
+        request.setEmptyNameHeader();
+        HeaderSet response = mObexSession.setPath(request, false, false);
+        if (response.getResponseCode() != ResponseCodes.OBEX_HTTP_OK) {
+            Log.w(TAG, "Failed to browse to root, response=" + response.getResponseCode());
+            return false;
+        }
+        if (folder == null) {
+            return true;
+        }
+        for (String name : folder.split("/")) {
+            request = new HeaderSet();
+            request.setHeader(HeaderSet.NAME, name);
+            response = mObexSession.setPath(request, false, false);
+            if (response.getResponseCode() != ResponseCodes.OBEX_HTTP_OK) {
+                Log.w(TAG, "Failed to browse to " + folder);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collect the handle, listing name and row id of the raw contacts tagged for {@code path}.
+     *
+     * @return {@code false} if some raw contact carries no handle and cannot be diffed
+     */
+    private boolean querySyncedContacts(
+            String path, Map<String, String> names, Map<String, Long> ids) {
+        String[] projection =
+                new String[] {
+                    RawContacts._ID,
+                    PhonebookPullRequest.SYNC_COLUMN_HANDLE,
+                    PhonebookPullRequest.SYNC_COLUMN_NAME
+                };
+        try (Cursor cursor =
+                mContext.getContentResolver()
+                        .query(
+                                RawContacts.CONTENT_URI,
+                                projection,
+                                SYNCED_CONTACTS_SELECTION,
+                                new String[] {mAccount.name, mAccount.type, path},
+                                null)) {
+            if (cursor == null) {
+                return false;
+            }
+            while (cursor.moveToNext()) {
+                String handle = cursor.getString(1);
+                if (handle == null) {
+                    return false;
+                }
+                ids.put(handle, cursor.getLong(0));
+                names.put(handle, cursor.getString(2) == null ? "" : cursor.getString(2));
+            }
+        }
+        return true;
+    }
+
+    private void deleteSyncedContacts(String path) {
+        try {
+            mContext.getContentResolver()
+                    .delete(
+                            syncAdapterUri(RawContacts.CONTENT_URI),
+                            SYNCED_CONTACTS_SELECTION,
+                            new String[] {mAccount.name, mAccount.type, path});
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Contacts of " + path + " could not be deleted", e);
+        }
+    }
+
+    private void deleteRawContacts(List<Long> ids) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        for (Long id : ids) {
+            operations.add(
+                    ContentProviderOperation.newDelete(
+                                    syncAdapterUri(
+                                            Uri.withAppendedPath(
+                                                    RawContacts.CONTENT_URI, String.valueOf(id))))
+                            .build());
+            if (operations.size() >= DEFAULT_BATCH_SIZE) {
+                applyContactsBatch(operations);
+                operations.clear();
+            }
+        }
+        applyContactsBatch(operations);
+    }
+
+    private void applyContactsBatch(ArrayList<ContentProviderOperation> operations) {
+        if (operations.isEmpty()) {
+            return;
+        }
+        try {
+            mContext.getContentResolver().applyBatch(ContactsContract.AUTHORITY, operations);
+        } catch (OperationApplicationException | RemoteException e) {
+            Log.e(TAG, "Failed to delete stale contacts", e);
+        }
+    }
+
+    private static Uri syncAdapterUri(Uri uri) {
+        return uri.buildUpon()
+                .appendQueryParameter(ContactsContract.CALLER_IS_SYNCADAPTER, "true")
+                .build();
+    }
+
+    private long getRequestedFields() {
+        if (mMaxPhotoBytes == 0) {
+            return PBAP_REQUESTED_FIELDS & ~PBAP_FILTER_PHOTO;
+        }
+        return PBAP_REQUESTED_FIELDS;
+    }
+
+    private boolean isIncrementalSyncSupported() {
+        return mIncrementalSync
+                && mPseRec != null
+                && mPseRec.getProfileVersion() >= PBAP_V1_2
+                && (mPseRec.getSupportedFeatures() & PBAP_INCREMENTAL_SYNC_FEATURES)
+                        == PBAP_INCREMENTAL_SYNC_FEATURES;
+    }
+
+    private boolean isAccountPresent() {
+        for (Account account : mAccountManager.getAccountsByType(mAccount.type)) {
+            if (mAccount.equals(account)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @VisibleForTesting
     void downloadCallLog(String path, Map<String, Integer> callCounter) {
         try {
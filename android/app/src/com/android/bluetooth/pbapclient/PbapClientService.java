@@ -52,9 +52,11 @@ import com.android.internal.annotations.VisibleForTesting;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /** Provides Bluetooth Phone Book Access Profile Client profile. */
@@ -245,8 +247,15 @@ public class PbapClientService extends ProfileService {
         Account[] accounts =
                 accountManager.getAccountsByType(getString(R.string.pbap_account_type));
         Log.v(TAG, "Found " + accounts.length + " unclean accounts");
+        Set<String> keptAccounts = getIncrementalSyncAccounts();
+        PbapClientSyncState syncState = new PbapClientSyncState(this);
         for (Account acc : accounts) {
+            if (keptAccounts.contains(acc.name)) {
+                Log.d(TAG, "Keeping " + acc + " for incremental sync");
+                continue;
+            }
             Log.w(TAG, "Deleting " + acc);
+            syncState.clear(acc.name);
             try {
                 getContentResolver()
                         .delete(
@@ -261,6 +270,42 @@ public class PbapClientService extends ProfileService {
         }
     }
 
+    /**
+     * With incremental sync, the contacts of bonded devices are kept so that reconnecting only
+     * downloads what changed. Returns the account names of those devices.
+     */
+    private Set<String> getIncrementalSyncAccounts() {
+        Set<String> accountNames = new HashSet<>();
+        AdapterService adapterService = AdapterService.getAdapterService();
+        if (!PbapClientSyncState.isIncrementalSyncEnabled() || adapterService == null) {
+            return accountNames;
+        }
+        for (BluetoothDevice device : adapterService.getBondedDevices()) {
+            accountNames.add(device.getAddress());
+        }
+        return accountNames;
+    }
+
+    /** Handle bond state changes, removing the contacts kept for a device once it is unbonded. */
+    public void handleBondStateChanged(BluetoothDevice device, int fromState, int toState) {
+        if (toState != BluetoothDevice.BOND_NONE
+                || !PbapClientSyncState.isIncrementalSyncEnabled()
+                || mHandler == null) {
+            return;
+        }
+        mHandler.post(() -> removeUnbondedAccount(device));
+    }
+
+    private void removeUnbondedAccount(BluetoothDevice device) {
+        if (getConnectionState(device) != BluetoothProfile.STATE_DISCONNECTED) {
+            return;
+        }
+        Log.d(TAG, "Removing contacts of unbonded device " + device);
+        new PbapClientSyncState(this).clear(device.getAddress());
+        Account account = new Account(device.getAddress(), getString(R.string.pbap_account_type));
+        AccountManager.get(this).removeAccountExplicitly(account);
+    }
+
     private void removeHfpCallLog(String accountName, Context context) {
         Log.d(TAG, "Removing call logs from " + accountName);
         // Delete call logs belonging to accountName==BD_ADDR that also match
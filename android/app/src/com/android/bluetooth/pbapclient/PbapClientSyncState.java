@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.bluetooth.pbapclient;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemProperties;
+import android.util.Base64;
+import android.util.Log;
+
+import com.android.internal.annotations.VisibleForTesting;
+
+import java.util.Arrays;
+
+/**
+ * Persists, per remote device and phonebook folder, the PBAP v1.2 folder version counters and
+ * database identifier seen at the end of the last successful contacts sync.
+ *
+ * <p>When incremental sync is enabled, the contacts account of a bonded device is kept across
+ * disconnections so that a reconnection only needs to fetch what changed since this snapshot.
+ */
+class PbapClientSyncState {
+    private static final String TAG = PbapClientSyncState.class.getSimpleName();
+
+    @VisibleForTesting
+    static final String INCREMENTAL_SYNC_PROPERTY = "bluetooth.pbapclient.incremental_sync.enabled";
+
+    @VisibleForTesting static final String PREFERENCE_FILE = "pbap_client_sync_state";
+
+    private static final String KEY_DATABASE_IDENTIFIER = "database_identifier";
+    private static final String KEY_PRIMARY_VERSION_COUNTER = "primary_version_counter";
+    private static final String KEY_SECONDARY_VERSION_COUNTER = "secondary_version_counter";
+
+    private final SharedPreferences mPreferences;
+
+    PbapClientSyncState(Context context) {
+        mPreferences = context.getSharedPreferences(PREFERENCE_FILE, Context.MODE_PRIVATE);
+    }
+
+    static boolean isIncrementalSyncEnabled() {
+        return SystemProperties.getBoolean(INCREMENTAL_SYNC_PROPERTY, false);
+    }
+
+    /** The version of a phonebook folder, as reported by the PSE in its PhonebookSize response. */
+    static final class FolderVersion {
+        final byte[] mDatabaseIdentifier;
+        final byte[] mPrimaryVersionCounter;
+        final byte[] mSecondaryVersionCounter;
+
+        FolderVersion(
+                byte[] databaseIdentifier,
+                byte[] primaryVersionCounter,
+                byte[] secondaryVersionCounter) {
+            mDatabaseIdentifier = databaseIdentifier;
+            mPrimaryVersionCounter = primaryVersionCounter;
+            mSecondaryVersionCounter = secondaryVersionCounter;
+        }
+
+        /** Returns whether the PSE reported everything needed to compare folder versions. */
+        boolean isComplete() {
+            return mDatabaseIdentifier != null
+                    && mPrimaryVersionCounter != null
+                    && mSecondaryVersionCounter != null;
+        }
+
+        /** Returns whether handles from {@code other} still refer to the same database. */
+        boolean isSameDatabase(FolderVersion other) {
+            return other != null && Arrays.equals(mDatabaseIdentifier, other.mDatabaseIdentifier);
+        }
+
+        /** Returns whether N, FN, TEL, EMAIL or ADR may have changed since {@code other}. */
+        boolean isSecondaryChanged(FolderVersion other) {
+            return other == null
+                    || !Arrays.equals(mSecondaryVersionCounter, other.mSecondaryVersionCounter);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FolderVersion other)) {
+                return false;
+            }
+            return Arrays.equals(mDatabaseIdentifier, other.mDatabaseIdentifier)
+                    && Arrays.equals(mPrimaryVersionCounter, other.mPrimaryVersionCounter)
+                    && Arrays.equals(mSecondaryVersionCounter, other.mSecondaryVersionCounter);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Arrays.hashCode(mDatabaseIdentifier);
+            result = 31 * result + Arrays.hashCode(mPrimaryVersionCounter);
+            return 31 * result + Arrays.hashCode(mSecondaryVersionCounter);
+        }
+    }
+
+    /** Returns the folder version stored for {@code address} and {@code path}, or null. */
+    FolderVersion get(String address, String path) {
+        byte[] databaseIdentifier = getBytes(key(address, path, KEY_DATABASE_IDENTIFIER));
+        byte[] primary = getBytes(key(address, path, KEY_PRIMARY_VERSION_COUNTER));
+        byte[] secondary = getBytes(key(address, path, KEY_SECONDARY_VERSION_COUNTER));
+        FolderVersion version = new FolderVersion(databaseIdentifier, primary, secondary);
+        return version.isComplete() ? version : null;
+    }
+
+    void put(String address, String path, FolderVersion version) {
+        mPreferences
+                .edit()
+                .putString(
+                        key(address, path, KEY_DATABASE_IDENTIFIER),
+                        encode(version.mDatabaseIdentifier))
+                .putString(
+                        key(address, path, KEY_PRIMARY_VERSION_COUNTER),
+                        encode(version.mPrimaryVersionCounter))
+                .putString(
+                        key(address, path, KEY_SECONDARY_VERSION_COUNTER),
+                        encode(version.mSecondaryVersionCounter))
+                .apply();
+    }
+
+    void remove(String address, String path) {
+        mPreferences
+                .edit()
+                .remove(key(address, path, KEY_DATABASE_IDENTIFIER))
+                .remove(key(address, path, KEY_PRIMARY_VERSION_COUNTER))
+                .remove(key(address, path, KEY_SECONDARY_VERSION_COUNTER))
+                .apply();
+    }
+
+    /** Forgets every folder version stored for {@code address}. */
+    void clear(String address) {
+        Log.d(TAG, "Clearing sync state for " + address);
+        String prefix = address + "/";
+        SharedPreferences.Editor editor = mPreferences.edit();
+        for (String key : mPreferences.getAll().keySet()) {
+            if (key.startsWith(prefix)) {
+                editor.remove(key);
+            }
+        }
+        editor.apply();
+    }
+
+    private static String key(String address, String path, String field) {
+        return address + "/" + path + "/" + field;
+    }
+
+    private byte[] getBytes(String key) {
+        String value = mPreferences.getString(key, null);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Base64.decode(value, Base64.NO_WRAP);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Malformed sync state for key " + key);
+            return null;
+        }
+    }
+
+    private static String encode(byte[] value) {
+        return Base64.encodeToString(value, Base64.NO_WRAP);
+    }
+}
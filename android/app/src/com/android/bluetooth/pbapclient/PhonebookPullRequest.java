@@ -21,26 +21,104 @@ import android.content.Context;
 import android.content.OperationApplicationException;
 import android.os.RemoteException;
 import android.provider.ContactsContract;
+import android.provider.ContactsContract.RawContacts;
 import android.util.Log;
 
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.vcard.VCardEntry;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class PhonebookPullRequest extends PullRequest {
     private static final String TAG = "PhonebookPullRequest";
 
     @VisibleForTesting static final int MAX_OPS = 250;
 
+    // Raw contact columns written when incremental sync is enabled. They let the next sync diff
+    // the local account against the vCard listing of the PSE instead of downloading everything.
+    static final String SYNC_COLUMN_HANDLE = RawContacts.SOURCE_ID;
+    static final String SYNC_COLUMN_NAME = RawContacts.SYNC1;
+    static final String SYNC_COLUMN_FOLDER = RawContacts.SYNC2;
+
     private final Context mContext;
     public boolean complete = false;
 
+    private String mSyncFolder;
+    private List<String> mSyncHandles;
+    private List<String> mSyncNames;
+
+    // Streaming state, see addEntry() and flushEntries().
+    private ArrayList<ContentProviderOperation> mPendingOperations = new ArrayList<>();
+    private int mStreamedEntries = 0;
+
     public PhonebookPullRequest(Context context) {
         mContext = context;
         path = PbapClientConnectionHandler.PB_PATH;
     }
 
+    /**
+     * Tag the raw contacts inserted by the next {@link #onPullComplete()} with the folder they
+     * were pulled from and, when known, with their PSE handle and listing name.
+     *
+     * @param folder the phonebook object the entries were pulled from, e.g. "telecom/pb.vcf"
+     * @param handles the handle of each entry, in the same order as the results, or null
+     * @param names the listing name of each entry, in the same order as the results, or null
+     */
+    public void setSyncTags(String folder, List<String> handles, List<String> names) {
+        mSyncFolder = folder;
+        mSyncHandles = handles;
+        mSyncNames = names;
+        mStreamedEntries = 0;
+    }
+
+    /**
+     * Streaming counterpart of {@link #setResults} and {@link #onPullComplete}: queue the insert
+     * operations of a single entry as soon as it is parsed, submitting them once {@link #MAX_OPS}
+     * is reached. The entry itself is not retained. Call {@link #flushEntries()} once the
+     * response is complete.
+     */
+    public void addEntry(VCardEntry e) {
+        try {
+            ContentResolver contactsProvider = mContext.getContentResolver();
+            int numberOfOperations = mPendingOperations.size();
+            e.constructInsertOperations(contactsProvider, mPendingOperations);
+            if (mPendingOperations.size() >= MAX_OPS) {
+                mPendingOperations
+                        .subList(numberOfOperations, mPendingOperations.size())
+                        .clear();
+                flushEntries();
+                mPendingOperations = e.constructInsertOperations(contactsProvider, null);
+                numberOfOperations = 0;
+                if (mPendingOperations.size() >= MAX_OPS) {
+                    // Current VCard has more than 500 attributes, drop the card.
+                    mPendingOperations.clear();
+                    mStreamedEntries++;
+                    return;
+                }
+            }
+            appendSyncTagOperation(mPendingOperations, numberOfOperations, mStreamedEntries);
+        } catch (NumberFormatException ex) {
+            Log.e(TAG, "Exception occurred while processing streamed entry: ", ex);
+        }
+        mStreamedEntries++;
+    }
+
+    /** Submit the operations queued by {@link #addEntry}. */
+    public void flushEntries() {
+        if (mPendingOperations.isEmpty()) {
+            return;
+        }
+        try {
+            mContext.getContentResolver()
+                    .applyBatch(ContactsContract.AUTHORITY, mPendingOperations);
+        } catch (OperationApplicationException | RemoteException e) {
+            Log.e(TAG, "Exception occurred while processing phonebook pull: ", e);
+        } finally {
+            mPendingOperations.clear();
+        }
+    }
+
     @Override
     public void onPullComplete() {
         if (mEntries == null) {
@@ -52,6 +130,7 @@ public class PhonebookPullRequest extends PullRequest {
         try {
             ContentResolver contactsProvider = mContext.getContentResolver();
             ArrayList<ContentProviderOperation> insertOperations = new ArrayList<>();
+            int position = 0;
             // Group insert operations together to minimize inter process communication and improve
             // processing time.
             for (VCardEntry e : mEntries) {
@@ -71,8 +150,13 @@ public class PhonebookPullRequest extends PullRequest {
                     if (insertOperations.size() >= MAX_OPS) {
                         // Current VCard has more than 500 attributes, drop the card.
                         insertOperations.clear();
+                    } else {
+                        appendSyncTagOperation(insertOperations, 0, position);
                     }
+                } else {
+                    appendSyncTagOperation(insertOperations, numberOfOperations, position);
                 }
+                position++;
             }
             if (insertOperations.size() > 0) {
                 // Apply any unsubmitted vcards.
@@ -86,4 +170,23 @@ public class PhonebookPullRequest extends PullRequest {
             complete = true;
         }
     }
+
+    private void appendSyncTagOperation(
+            List<ContentProviderOperation> operations, int rawContactIndex, int position) {
+        if (mSyncFolder == null) {
+            return;
+        }
+        // The raw contact insert is always the first operation built for a vCard, so its result
+        // holds the _ID of the row to tag.
+        ContentProviderOperation.Builder builder =
+                ContentProviderOperation.newUpdate(RawContacts.CONTENT_URI)
+                        .withSelection(RawContacts._ID + "=?", new String[1])
+                        .withSelectionBackReference(0, rawContactIndex)
+                        .withValue(SYNC_COLUMN_FOLDER, mSyncFolder);
+        if (mSyncHandles != null && mSyncNames != null && position < mSyncHandles.size()) {
+            builder.withValue(SYNC_COLUMN_HANDLE, mSyncHandles.get(position))
+                    .withValue(SYNC_COLUMN_NAME, mSyncNames.get(position));
+        }
+        operations.add(builder.build());
+    }
 }
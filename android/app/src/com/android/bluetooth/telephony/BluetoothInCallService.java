@@ -37,6 +37,7 @@ import android.net.Uri;
 import android.os.Binder;
 import android.os.Bundle;
 import android.os.IBinder;
+import android.os.SystemProperties;
 import android.telecom.BluetoothCallQualityReport;
 import android.telecom.Call;
 import android.telecom.CallAudioState;
@@ -60,6 +61,7 @@ import com.android.bluetooth.tbs.BluetoothLeCallControlProxy;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -67,9 +69,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.Set;
-import java.util.SortedMap;
 import java.util.SortedSet;
-import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
@@ -107,6 +107,11 @@ public class BluetoothInCallService extends InCallService {
     // Indicates that no BluetoothCall is ringing
     private static final int DEFAULT_RINGING_ADDRESS_TYPE = 128;
 
+    // When enabled, the response to AT+CLCC is kept until a call changes, instead of being rebuilt
+    // from all the calls every time a car kit polls the list.
+    @VisibleForTesting
+    static final String CLCC_SNAPSHOT_PROPERTY = "bluetooth.telephony.clcc_snapshot.enabled";
+
     private int mNumActiveCalls = 0;
     private int mNumHeldCalls = 0;
     private int mNumChildrenOfActiveCall = 0;
@@ -149,6 +154,14 @@ public class BluetoothInCallService extends InCallService {
 
     private int mMaxNumberOfCalls = 0;
 
+    @VisibleForTesting
+    boolean mClccSnapshotEnabled = SystemProperties.getBoolean(CLCC_SNAPSHOT_PROPERTY, false);
+
+    /** Last CLCC response, null if a call changed since, see {@link #CLCC_SNAPSHOT_PROPERTY} */
+    private volatile ClccList mClccSnapshot;
+
+    private volatile int mClccSnapshotGeneration;
+
     private BluetoothAdapter mAdapter = null;
 
     private final BluetoothProfile.ServiceListener mProfileListener =
@@ -228,6 +241,7 @@ public class BluetoothInCallService extends InCallService {
 
         @RequiresPermission(allOf = {BLUETOOTH_CONNECT, MODIFY_PHONE_STATE})
         void onStateChanged(BluetoothCall call, int state) {
+            invalidateClccSnapshot();
             if (mCallInfo.isNullCall(call)) {
                 return;
             }
@@ -281,6 +295,7 @@ public class BluetoothInCallService extends InCallService {
 
         @RequiresPermission(allOf = {BLUETOOTH_CONNECT, MODIFY_PHONE_STATE})
         void onDetailsChanged(BluetoothCall call, Call.Details details) {
+            invalidateClccSnapshot();
             if (mCallInfo.isNullCall(call)) {
                 return;
             }
@@ -300,6 +315,7 @@ public class BluetoothInCallService extends InCallService {
 
         @RequiresPermission(allOf = {BLUETOOTH_CONNECT, MODIFY_PHONE_STATE})
         void onParentChanged(BluetoothCall call) {
+            invalidateClccSnapshot();
             if (mCallInfo.isNullCall(call) || call.isExternalCall()) {
                 Log.w(TAG, "null call or external call");
                 return;
@@ -324,6 +340,7 @@ public class BluetoothInCallService extends InCallService {
 
         @RequiresPermission(allOf = {BLUETOOTH_CONNECT, MODIFY_PHONE_STATE})
         void onChildrenChanged(BluetoothCall call, List<BluetoothCall> children) {
+            invalidateClccSnapshot();
             if (mCallInfo.isNullCall(call) || call.isExternalCall()) {
                 Log.w(TAG, "null call or external call");
                 return;
@@ -621,6 +638,7 @@ public class BluetoothInCallService extends InCallService {
 
     @RequiresPermission(allOf = {BLUETOOTH_CONNECT, MODIFY_PHONE_STATE})
     public void onCallAdded(BluetoothCall call) {
+        invalidateClccSnapshot();
         if (call.isExternalCall()) {
             Log.d(TAG, "onCallAdded: external call");
             return;
@@ -692,6 +710,7 @@ public class BluetoothInCallService extends InCallService {
     @RequiresPermission(allOf = {BLUETOOTH_CONNECT, MODIFY_PHONE_STATE})
     public void onCallRemoved(BluetoothCall call, boolean forceRemoveCallback) {
         Log.i(TAG, "onCallRemoved, forceRemoveCallback=" + forceRemoveCallback);
+        invalidateClccSnapshot();
         CallStateCallback callback = getCallback(call);
         if (callback != null && (forceRemoveCallback || !call.isExternalCall())) {
             call.unregisterCallback(callback);
@@ -799,6 +818,7 @@ public class BluetoothInCallService extends InCallService {
         mBluetoothConferenceCallInference.clear();
         mBluetoothCallQueue.clear();
         mMaxNumberOfCalls = 0;
+        invalidateClccSnapshot();
     }
 
     private static boolean isConferenceWithNoChildren(BluetoothCall call) {
@@ -809,11 +829,37 @@ public class BluetoothInCallService extends InCallService {
 
     @RequiresPermission(allOf = {BLUETOOTH_CONNECT, MODIFY_PHONE_STATE})
     private void sendListOfCalls(boolean shouldLog) {
-        Collection<BluetoothCall> calls = mCallInfo.getBluetoothCalls();
+        if (!mClccSnapshotEnabled) {
+            ClccList calls = new ClccList();
+            buildListOfCalls(calls, shouldLog);
+            sendClccList(calls);
+            return;
+        }
+        ClccList snapshot = mClccSnapshot;
+        if (snapshot == null) {
+            int generation = mClccSnapshotGeneration;
+            snapshot = new ClccList();
+            buildListOfCalls(snapshot, shouldLog);
+            // Only keep it if no call changed while it was built
+            if (generation == mClccSnapshotGeneration) {
+                mClccSnapshot = snapshot;
+            }
+        }
+        sendClccList(snapshot);
+    }
+
+    /** Drops the CLCC snapshot, to be called whenever a call changes. */
+    private void invalidateClccSnapshot() {
+        mClccSnapshotGeneration++;
+        mClccSnapshot = null;
+    }
+
+    private void buildListOfCalls(ClccList calls, boolean shouldLog) {
+        Collection<BluetoothCall> bluetoothCalls = mCallInfo.getBluetoothCalls();
 
         // either do conference call CLCC index inference or normal conference call
         BluetoothCall conferenceCallChildrenNotReady = null;
-        for (BluetoothCall call : calls) {
+        for (BluetoothCall call : bluetoothCalls) {
             // find the conference call parent among calls
             if (call.isConference() && !mBluetoothConferenceCallInference.isEmpty()) {
                 Log.d(
@@ -833,7 +879,6 @@ public class BluetoothInCallService extends InCallService {
             }
         }
         if (conferenceCallChildrenNotReady != null) {
-            SortedMap<Integer, Object[]> clccResponseMap = new TreeMap<>();
             for (BluetoothCall inferredCall : mBluetoothConferenceCallInference.values()) {
                 if (inferredCall.isCallNull() || inferredCall.getHandle() == null) {
                     Log.w(TAG, "inferredCall does not have handle");
@@ -882,42 +927,24 @@ public class BluetoothInCallService extends InCallService {
                     address = PhoneNumberUtils.stripSeparators(address);
                 }
                 int addressType = address == null ? -1 : PhoneNumberUtils.toaFromString(address);
-                clccResponseMap.put(
-                        index,
-                        new Object[] {
-                            index, direction, state, 0, isPartOfConference, address, addressType
-                        });
-            }
-            // sort CLCC response based on index
-            for (Object[] response : clccResponseMap.values()) {
-                if (response.length < 7) {
-                    Log.e(TAG, "clccResponseMap entry too short");
-                    continue;
-                }
                 Log.i(
                         TAG,
                         Utils.formatSimple(
                                 "sending inferred clcc for BluetoothCall: index %d, direction"
                                         + " %d, state %d, isPartOfConference %b, addressType %d",
-                                (int) response[0],
-                                (int) response[1],
-                                (int) response[2],
-                                (boolean) response[4],
-                                (int) response[6]));
-                mBluetoothHeadset.clccResponse(
-                        (int) response[0],
-                        (int) response[1],
-                        (int) response[2],
-                        (int) response[3],
-                        (boolean) response[4],
-                        (String) response[5],
-                        (int) response[6]);
-            }
-            sendClccEndMarker();
+                                index,
+                                direction,
+                                state,
+                                isPartOfConference,
+                                addressType));
+                calls.add(index, direction, state, isPartOfConference, address, addressType);
+            }
+            // sort CLCC response based on index
+            calls.sortByIndex();
             return;
         }
 
-        for (BluetoothCall call : calls) {
+        for (BluetoothCall call : bluetoothCalls) {
             // We don't send the parent conference BluetoothCall to the bluetooth device.
             // We do, however want to send conferences that have no children to the bluetooth
             // device (e.g. IMS Conference).
@@ -929,8 +956,30 @@ public class BluetoothInCallService extends InCallService {
                             + ", call.getChildrenIds() size "
                             + call.getChildrenIds().size());
             if (!call.isConference() || isConferenceWithNoChildren) {
-                sendClccForCall(call, shouldLog);
+                addClccForCall(calls, call, shouldLog);
+            }
+        }
+    }
+
+    /** Sends the entries of {@code calls} followed by the end marker. */
+    @RequiresPermission(allOf = {BLUETOOTH_CONNECT, MODIFY_PHONE_STATE})
+    private void sendClccList(ClccList calls) {
+        for (int i = 0; i < calls.size(); i++) {
+            if (mBluetoothHeadset == null) {
+                Log.w(
+                        TAG,
+                        "mBluetoothHeasdset is null when sending clcc for BluetoothCall "
+                                + calls.mIndex[i]);
+                continue;
             }
+            mBluetoothHeadset.clccResponse(
+                    calls.mIndex[i],
+                    calls.mDirection[i],
+                    calls.mState[i],
+                    0,
+                    calls.mIsPartOfConference[i],
+                    calls.mAddress[i],
+                    calls.mAddressType[i]);
         }
         sendClccEndMarker();
     }
@@ -943,9 +992,8 @@ public class BluetoothInCallService extends InCallService {
         }
     }
 
-    /** Sends a single clcc (C* List Current Calls) event for the specified call. */
-    @RequiresPermission(allOf = {BLUETOOTH_CONNECT, MODIFY_PHONE_STATE})
-    private void sendClccForCall(BluetoothCall call, boolean shouldLog) {
+    /** Adds the clcc (C* List Current Calls) entry of the specified call to {@code calls}. */
+    private void addClccForCall(ClccList calls, BluetoothCall call, boolean shouldLog) {
         boolean isForeground = call.equals(mCallInfo.getForegroundCall());
         int state = getBtCallState(call, isForeground);
         boolean isPartOfConference = false;
@@ -1038,23 +1086,7 @@ public class BluetoothInCallService extends InCallService {
                             + addressType);
         }
 
-        if (mBluetoothHeadset == null) {
-            Log.w(
-                    TAG,
-                    "mBluetoothHeasdset is null when sending clcc for BluetoothCall "
-                            + index
-                            + ", "
-                            + direction
-                            + ", "
-                            + state
-                            + ", "
-                            + isPartOfConference
-                            + ", "
-                            + addressType);
-        } else {
-            mBluetoothHeadset.clccResponse(
-                    index, direction, state, 0, isPartOfConference, address, addressType);
-        }
+        calls.add(index, direction, state, isPartOfConference, address, addressType);
     }
 
     int getNextAvailableClccIndex(int index) {
@@ -1432,6 +1464,80 @@ public class BluetoothInCallService extends InCallService {
         return calls;
     }
 
+    /**
+     * Entries of a CLCC response, in parallel arrays so that a snapshot kept between two AT+CLCC
+     * polls holds no reference to the calls themselves.
+     */
+    @VisibleForTesting
+    static final class ClccList {
+        int mSize = 0;
+        int[] mIndex = new int[4];
+        int[] mDirection = new int[4];
+        int[] mState = new int[4];
+        boolean[] mIsPartOfConference = new boolean[4];
+        String[] mAddress = new String[4];
+        int[] mAddressType = new int[4];
+
+        int size() {
+            return mSize;
+        }
+
+        void add(
+                int index,
+                int direction,
+                int state,
+                boolean isPartOfConference,
+                String address,
+                int addressType) {
+            if (mSize == mIndex.length) {
+                int capacity = mSize * 2;
+                mIndex = Arrays.copyOf(mIndex, capacity);
+                mDirection = Arrays.copyOf(mDirection, capacity);
+                mState = Arrays.copyOf(mState, capacity);
+                mIsPartOfConference = Arrays.copyOf(mIsPartOfConference, capacity);
+                mAddress = Arrays.copyOf(mAddress, capacity);
+                mAddressType = Arrays.copyOf(mAddressType, capacity);
+            }
+            mIndex[mSize] = index;
+            mDirection[mSize] = direction;
+            mState[mSize] = state;
+            mIsPartOfConference[mSize] = isPartOfConference;
+            mAddress[mSize] = address;
+            mAddressType[mSize] = addressType;
+            mSize++;
+        }
+
+        /** Insertion sort, there are only a handful of calls. */
+        void sortByIndex() {
+            for (int i = 1; i < mSize; i++) {
+                for (int j = i; j > 0 && mIndex[j - 1] > mIndex[j]; j--) {
+                    swap(j - 1, j);
+                }
+            }
+        }
+
+        private void swap(int a, int b) {
+            int index = mIndex[a];
+            mIndex[a] = mIndex[b];
+            mIndex[b] = index;
+            int direction = mDirection[a];
+            mDirection[a] = mDirection[b];
+            mDirection[b] = direction;
+            int state = mState[a];
+            mState[a] = mState[b];
+            mState[b] = state;
+            boolean isPartOfConference = mIsPartOfConference[a];
+            mIsPartOfConference[a] = mIsPartOfConference[b];
+            mIsPartOfConference[b] = isPartOfConference;
+            String address = mAddress[a];
+            mAddress[a] = mAddress[b];
+            mAddress[b] = address;
+            int addressType = mAddressType[a];
+            mAddressType[a] = mAddressType[b];
+            mAddressType[b] = addressType;
+        }
+    }
+
     // extract call information functions out into this part, so we can mock it in testing
     @VisibleForTesting
     public class CallInfo {
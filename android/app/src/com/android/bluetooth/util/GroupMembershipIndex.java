@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.util;
+
+import android.bluetooth.BluetoothDevice;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the members of device groups, kept up to date as devices join and leave groups so that
+ * listing a group does not require a scan of every known device.
+ *
+ * <p>Members of a group are ordered by rank, then by the order in which they joined. Updates are
+ * serialized, while {@link #getMembers} only reads an immutable list published for each group and
+ * never blocks.
+ */
+public class GroupMembershipIndex {
+
+    /** Rank given to members of groups without an order, e.g. LE Audio groups */
+    public static final int RANK_UNKNOWN = Integer.MAX_VALUE;
+
+    /* Published member lists, read without lock */
+    private final Map<Integer, List<BluetoothDevice>> mMembers = new ConcurrentHashMap<>();
+
+    /* Guarded by this. Rank of each member, in the order the members joined the group */
+    private final Map<Integer, LinkedHashMap<BluetoothDevice, Integer>> mRanks = new HashMap<>();
+
+    /* Guarded by this */
+    private final Map<BluetoothDevice, Set<Integer>> mDeviceGroups = new HashMap<>();
+
+    /** Returns the members of {@code groupId} ordered by rank, or an empty list. */
+    public List<BluetoothDevice> getMembers(int groupId) {
+        return mMembers.getOrDefault(groupId, Collections.emptyList());
+    }
+
+    /** Adds {@code device} to {@code groupId}, or updates its rank if it is already a member. */
+    public synchronized void add(BluetoothDevice device, int groupId, int rank) {
+        LinkedHashMap<BluetoothDevice, Integer> ranks =
+                mRanks.computeIfAbsent(groupId, id -> new LinkedHashMap<>());
+        Integer previous = ranks.put(device, rank);
+        if (previous != null && previous == rank) {
+            return;
+        }
+        mDeviceGroups.computeIfAbsent(device, d -> new HashSet<>()).add(groupId);
+        publish(groupId, ranks);
+    }
+
+    /** Removes {@code device} from {@code groupId}. */
+    public synchronized void remove(BluetoothDevice device, int groupId) {
+        LinkedHashMap<BluetoothDevice, Integer> ranks = mRanks.get(groupId);
+        if (ranks == null || ranks.remove(device) == null) {
+            return;
+        }
+        Set<Integer> groups = mDeviceGroups.get(device);
+        if (groups != null) {
+            groups.remove(groupId);
+            if (groups.isEmpty()) {
+                mDeviceGroups.remove(device);
+            }
+        }
+        publish(groupId, ranks);
+    }
+
+    /** Removes {@code device} from all its groups. */
+    public synchronized void removeDevice(BluetoothDevice device) {
+        Set<Integer> groups = mDeviceGroups.remove(device);
+        if (groups == null) {
+            return;
+        }
+        for (int groupId : groups) {
+            LinkedHashMap<BluetoothDevice, Integer> ranks = mRanks.get(groupId);
+            if (ranks != null && ranks.remove(device) != null) {
+                publish(groupId, ranks);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        mRanks.clear();
+        mDeviceGroups.clear();
+        mMembers.clear();
+    }
+
+    private void publish(int groupId, LinkedHashMap<BluetoothDevice, Integer> ranks) {
+        if (ranks.isEmpty()) {
+            mRanks.remove(groupId);
+            mMembers.remove(groupId);
+            return;
+        }
+        List<Map.Entry<BluetoothDevice, Integer>> entries = new ArrayList<>(ranks.entrySet());
+        // Stable sort, members of the same rank stay in the order they joined
+        entries.sort(Map.Entry.comparingByValue());
+        List<BluetoothDevice> members = new ArrayList<>(entries.size());
+        for (Map.Entry<BluetoothDevice, Integer> entry : entries) {
+            members.add(entry.getKey());
+        }
+        mMembers.put(groupId, Collections.unmodifiableList(members));
+    }
+}
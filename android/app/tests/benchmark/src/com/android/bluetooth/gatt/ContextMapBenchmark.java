@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.gatt;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.filters.LargeTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.UUID;
+
+/** Benchmarks for the lookups of {@link ContextMap}, done for every GATT callback. */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class ContextMapBenchmark {
+    private static final int APP_COUNT = 8;
+    private static final int CONNECTIONS_PER_APP = 2;
+    private static final int LAST_APP_ID = APP_COUNT;
+    private static final int LAST_CONN_ID = APP_COUNT * CONNECTIONS_PER_APP;
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final ContextMap<Object> mContextMap = new ContextMap<>();
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        int connId = 1;
+        for (int appId = 1; appId <= APP_COUNT; appId++) {
+            mContextMap.add(new UUID(0, appId), null, context).id = appId;
+            for (int i = 0; i < CONNECTIONS_PER_APP; i++) {
+                mContextMap.addConnection(appId, connId, address(connId));
+                connId++;
+            }
+        }
+    }
+
+    @Test
+    public void getByConnId() {
+        assertThat(mContextMap.getByConnId(LAST_CONN_ID).id).isEqualTo(LAST_APP_ID);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mContextMap.getByConnId(LAST_CONN_ID);
+        }
+    }
+
+    @Test
+    public void connIdByAddress() {
+        // Addresses are given in lower case by some callers
+        String address = address(LAST_CONN_ID).toLowerCase();
+        assertThat(mContextMap.connIdByAddress(LAST_APP_ID, address)).isEqualTo(LAST_CONN_ID);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mContextMap.connIdByAddress(LAST_APP_ID, address);
+        }
+    }
+
+    @Test
+    public void addressByConnId() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mContextMap.addressByConnId(LAST_CONN_ID);
+        }
+    }
+
+    @Test
+    public void addAndRemoveConnection() {
+        int connId = LAST_CONN_ID + 1;
+        String address = address(connId);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mContextMap.addConnection(LAST_APP_ID, connId, address);
+            mContextMap.removeConnection(LAST_APP_ID, connId);
+        }
+    }
+
+    private static String address(int connId) {
+        return String.format("AA:BB:CC:DD:EE:%02X", connId);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.gatt;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.bluetooth.BluetoothGattService;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.UUID;
+
+/** Benchmarks for the lookups of {@link HandleMap}, done for every GATT server request. */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class HandleMapBenchmark {
+    private static final int SERVER_IF = 5;
+    private static final int SERVICE_COUNT = 8;
+    private static final int CHARACTERISTICS_PER_SERVICE = 6;
+    private static final int DESCRIPTORS_PER_CHARACTERISTIC = 2;
+    private static final int CONN_ID = 1;
+    private static final int REQUEST_ID = 42;
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final HandleMap mHandleMap = new HandleMap();
+    private int mLastServiceHandle;
+    private int mLastHandle;
+
+    @Before
+    public void setUp() {
+        int handle = 1;
+        for (int service = 0; service < SERVICE_COUNT; service++) {
+            int serviceHandle = handle++;
+            mHandleMap.addService(
+                    SERVER_IF,
+                    serviceHandle,
+                    uuid(serviceHandle),
+                    BluetoothGattService.SERVICE_TYPE_PRIMARY,
+                    0,
+                    false);
+            for (int i = 0; i < CHARACTERISTICS_PER_SERVICE; i++) {
+                int characteristicHandle = handle++;
+                // The value handle follows the declaration
+                handle++;
+                mHandleMap.addCharacteristic(
+                        SERVER_IF, characteristicHandle, uuid(characteristicHandle), serviceHandle);
+                for (int j = 0; j < DESCRIPTORS_PER_CHARACTERISTIC; j++) {
+                    int descriptorHandle = handle++;
+                    mHandleMap.addDescriptor(
+                            SERVER_IF, descriptorHandle, uuid(descriptorHandle), serviceHandle);
+                }
+            }
+            mLastServiceHandle = serviceHandle;
+        }
+        mLastHandle = handle - 1;
+        mHandleMap.addRequest(CONN_ID, REQUEST_ID, mLastHandle);
+    }
+
+    @Test
+    public void getByHandle() {
+        assertThat(mHandleMap.getByHandle(mLastHandle)).isNotNull();
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mHandleMap.getByHandle(mLastHandle);
+        }
+    }
+
+    @Test
+    public void getByRequestId() {
+        assertThat(mHandleMap.getByRequestId(REQUEST_ID).handle).isEqualTo(mLastHandle);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mHandleMap.getByRequestId(REQUEST_ID);
+        }
+    }
+
+    @Test
+    public void checkServiceExists() {
+        UUID uuid = uuid(mLastServiceHandle);
+        assertThat(mHandleMap.checkServiceExists(uuid, mLastServiceHandle)).isTrue();
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mHandleMap.checkServiceExists(uuid, mLastServiceHandle);
+        }
+    }
+
+    @Test
+    public void addAndDeleteRequest() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mHandleMap.addRequest(CONN_ID, REQUEST_ID + 1, mLastHandle);
+            mHandleMap.deleteRequest(REQUEST_ID + 1);
+        }
+    }
+
+    private static UUID uuid(int handle) {
+        return new UUID(0x0000000000001000L | ((long) handle << 32), 0x800000805F9B34FBL);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.le_scan;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanSettings;
+import android.content.Context;
+import android.os.BatteryStatsManager;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.bluetooth.btservice.AdapterService;
+import com.android.internal.app.IBatteryStats;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+/** Benchmarks for the accounting of {@link AppScanStats}, done for every scan and result. */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class AppScanStatsBenchmark {
+    private static final int SCANNER_ID = 3;
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    // Stub only mocks don't record invocations, which would otherwise grow for every iteration
+    private final AdapterService mAdapterService = stubOnly(AdapterService.class);
+    private final Context mContext = stubOnly(Context.class);
+    // BatteryStatsManager is final, mock the binder interface under it instead
+    private final BatteryStatsManager mBatteryStatsManager =
+            new BatteryStatsManager(stubOnly(IBatteryStats.class));
+
+    private final ScanSettings mSettings =
+            new ScanSettings.Builder().setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY).build();
+    private final List<ScanFilter> mFilters =
+            List.of(
+                    new ScanFilter.Builder().setDeviceName("Pixel Buds Pro").build(),
+                    new ScanFilter.Builder()
+                            .setManufacturerData(0x00E0, new byte[] {0x01, 0x02})
+                            .build());
+
+    private AppScanStats mAppScanStats;
+
+    @Before
+    public void setUp() {
+        doReturn(5).when(mAdapterService).getScanQuotaCount();
+        doReturn(30_000L).when(mAdapterService).getScanQuotaWindowMillis();
+        doReturn(Context.BATTERY_STATS_SERVICE)
+                .when(mContext)
+                .getSystemServiceName(BatteryStatsManager.class);
+        doReturn(mBatteryStatsManager)
+                .when(mContext)
+                .getSystemService(Context.BATTERY_STATS_SERVICE);
+        AdapterService.setAdapterService(mAdapterService);
+
+        mAppScanStats =
+                new AppScanStats(
+                        "com.example.scanner",
+                        null,
+                        stubOnly(ScannerMap.class),
+                        mContext,
+                        stubOnly(TransitionalScanHelper.class));
+    }
+
+    @After
+    public void tearDown() {
+        AdapterService.clearAdapterService(mAdapterService);
+    }
+
+    @Test
+    public void addResult() {
+        mAppScanStats.recordScanStart(mSettings, mFilters, true, true, SCANNER_ID);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mAppScanStats.addResult(SCANNER_ID);
+        }
+    }
+
+    @Test
+    public void recordScanStartAndStop() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mAppScanStats.recordScanStart(mSettings, mFilters, true, true, SCANNER_ID);
+            mAppScanStats.recordScanStop(SCANNER_ID);
+        }
+    }
+
+    @Test
+    public void isScanningTooFrequently() {
+        for (int i = 0; i < 5; i++) {
+            mAppScanStats.recordScanStart(mSettings, mFilters, true, true, SCANNER_ID);
+            mAppScanStats.recordScanStop(SCANNER_ID);
+        }
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mAppScanStats.isScanningTooFrequently();
+        }
+    }
+
+    private static <T> T stubOnly(Class<T> classToMock) {
+        return mock(classToMock, withSettings().stubOnly());
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.le_scan;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.bluetooth.le.ScanRecord;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/** Benchmarks for {@link ScanRecord#parseFromBytes}, called for every scan result. */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class ScanRecordBenchmark {
+    // Legacy advertisement of a beacon: flags, iBeacon manufacturer data
+    private static final byte[] BEACON_RECORD =
+            record(
+                    field(0x01, 0x06),
+                    field(
+                            0xFF, 0x4C, 0x00, 0x02, 0x15, 0xE2, 0xC5, 0x6D, 0xB5, 0xDF, 0xFB, 0x48,
+                            0xD2, 0xB0, 0x60, 0xD0, 0xF5, 0xA7, 0x10, 0x96, 0xE0, 0x00, 0x01, 0x00,
+                            0x02, 0xC5));
+
+    // Legacy advertisement and scan response of a headset: flags, 16-bit service UUIDs, TX power,
+    // service data, manufacturer data and complete local name
+    private static final byte[] HEADSET_RECORD =
+            record(
+                    field(0x01, 0x1A),
+                    field(0x03, 0x0A, 0x18, 0x0F, 0x18, 0x4E, 0x18),
+                    field(0x0A, 0xF4),
+                    field(0x16, 0x2C, 0xFE, 0x00, 0x11, 0x22, 0x33),
+                    field(0xFF, 0xE0, 0x00, 0x01, 0x02, 0x03, 0x04),
+                    name(0x09, "Pixel Buds Pro"));
+
+    // Extended advertisement of an LE audio broadcast source: flags, 128-bit service UUID,
+    // broadcast audio announcement, broadcast name and a large service data payload
+    private static final byte[] EXTENDED_RECORD = extendedRecord();
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void parseFromBytes_beacon() {
+        assertThat(ScanRecord.parseFromBytes(BEACON_RECORD).getManufacturerSpecificData(0x004C))
+                .isNotNull();
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            ScanRecord.parseFromBytes(BEACON_RECORD);
+        }
+    }
+
+    @Test
+    public void parseFromBytes_headset() {
+        assertThat(ScanRecord.parseFromBytes(HEADSET_RECORD).getDeviceName())
+                .isEqualTo("Pixel Buds Pro");
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            ScanRecord.parseFromBytes(HEADSET_RECORD);
+        }
+    }
+
+    @Test
+    public void parseFromBytes_extendedAdvertisement() {
+        assertThat(ScanRecord.parseFromBytes(EXTENDED_RECORD).getServiceData()).hasSize(2);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            ScanRecord.parseFromBytes(EXTENDED_RECORD);
+        }
+    }
+
+    private static byte[] extendedRecord() {
+        byte[] uuid128 = new byte[17];
+        uuid128[0] = 0x07;
+        for (int i = 1; i < uuid128.length; i++) {
+            uuid128[i] = (byte) (0x10 + i);
+        }
+        byte[] serviceData = new byte[180];
+        serviceData[0] = 0x16;
+        serviceData[1] = 0x51;
+        serviceData[2] = 0x18;
+        for (int i = 3; i < serviceData.length; i++) {
+            serviceData[i] = (byte) i;
+        }
+        return record(
+                field(0x01, 0x06),
+                fieldOf(uuid128),
+                field(0x16, 0x52, 0x18, 0x12, 0x34, 0x56),
+                name(0x30, "Living Room"),
+                fieldOf(serviceData));
+    }
+
+    /** An AD structure of the given type and data */
+    private static byte[] field(int... typeAndData) {
+        byte[] field = new byte[typeAndData.length];
+        for (int i = 0; i < typeAndData.length; i++) {
+            field[i] = (byte) typeAndData[i];
+        }
+        return fieldOf(field);
+    }
+
+    /** An AD structure of the given type holding {@code name} */
+    private static byte[] name(int type, String name) {
+        byte[] typeAndName = new byte[name.length() + 1];
+        typeAndName[0] = (byte) type;
+        System.arraycopy(
+                name.getBytes(StandardCharsets.UTF_8), 0, typeAndName, 1, name.length());
+        return fieldOf(typeAndName);
+    }
+
+    private static byte[] fieldOf(byte[] typeAndData) {
+        byte[] field = new byte[typeAndData.length + 1];
+        field[0] = (byte) typeAndData.length;
+        System.arraycopy(typeAndData, 0, field, 1, typeAndData.length);
+        return field;
+    }
+
+    private static byte[] record(byte[]... fields) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        for (byte[] field : fields) {
+            record.write(field, 0, field.length);
+        }
+        return record.toByteArray();
+    }
+}
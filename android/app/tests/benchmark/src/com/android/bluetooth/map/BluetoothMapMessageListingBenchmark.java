@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.bluetooth.map.BluetoothMapUtils.TYPE;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Benchmarks for the XML encoding of {@link BluetoothMapMessageListing}, sent for every message
+ * listing request of a MAP client.
+ *
+ * <p>Messages have no subject: encoding one looks up the remote device of the running MAP service.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class BluetoothMapMessageListingBenchmark {
+    private static final String VERSION = "1.1";
+    // Carkits usually ask for the messages of a folder by pages of this size
+    private static final int MESSAGE_COUNT = 100;
+    private static final long DATE_TIME = 1_700_000_000_000L;
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final BluetoothMapMessageListing mListing = new BluetoothMapMessageListing();
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            BluetoothMapMessageListingElement element = new BluetoothMapMessageListingElement();
+            element.setHandle(1000 + i);
+            element.setType(i % 4 == 0 ? TYPE.MMS : TYPE.SMS_GSM, true);
+            element.setDateTime(DATE_TIME - i * 60_000L);
+            element.setSenderName("Contact " + (i % 10));
+            element.setSenderAddressing("+1650555" + String.format("%04d", i % 10));
+            element.setRecipientAddressing("+16505550100");
+            element.setSize(40 + i);
+            element.setText("yes");
+            element.setReceptionStatus("complete");
+            element.setAttachmentSize(i % 4 == 0 ? 24_000 : 0);
+            element.setPriority("no");
+            element.setRead(i % 3 == 0, true);
+            element.setSent("no");
+            element.setProtect("no");
+            element.setThreadId(i % 10, TYPE.SMS_GSM);
+            mListing.add(element);
+        }
+        mListing.sort();
+    }
+
+    @Test
+    public void encode() {
+        assertThat(mListing.encode(false, VERSION)).isNotEmpty();
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mListing.encode(false, VERSION);
+        }
+    }
+
+    @Test
+    public void encode_withThreadId() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mListing.encode(true, VERSION);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import android.content.Context;
+import android.telephony.SmsManager;
+import android.telephony.SmsMessage;
+import android.telephony.TelephonyManager;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.bluetooth.map.BluetoothMapSmsPdu.SmsPdu;
+import com.android.bluetooth.map.BluetoothMapUtils.TYPE;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks for the SMS PDU encoding and decoding of {@link BluetoothMapSmsPdu}, done for every
+ * SMS sent to or pushed by a MAP client in native charset.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class BluetoothMapSmsPduBenchmark {
+    private static final String ADDRESS = "+16505550100";
+    // Needs 3 SMS parts in GSM 7-bit
+    private static final String LONG_TEXT =
+            "On my way, traffic is terrible on the 101. ".repeat(9).trim();
+    // Characters of a part of a concatenated SMS in GSM 7-bit
+    private static final int GSM_PART_LENGTH = 153;
+    private static final String SHORT_TEXT = "On my way, see you in 10 minutes!";
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void decodePdu_gsm() {
+        byte[] data = SmsMessage.getSubmitPdu(null, ADDRESS, SHORT_TEXT, false).encodedMessage;
+        assertThat(BluetoothMapSmsPdu.decodePdu(data, BluetoothMapSmsPdu.SMS_TYPE_GSM))
+                .isEqualTo(SHORT_TEXT);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            BluetoothMapSmsPdu.decodePdu(data, BluetoothMapSmsPdu.SMS_TYPE_GSM);
+        }
+    }
+
+    @Test
+    public void encodeBMessage_withPdus() {
+        List<SmsPdu> pdus = new ArrayList<>();
+        for (int start = 0; start < LONG_TEXT.length(); start += GSM_PART_LENGTH) {
+            String part =
+                    LONG_TEXT.substring(
+                            start, Math.min(start + GSM_PART_LENGTH, LONG_TEXT.length()));
+            pdus.add(
+                    new SmsPdu(
+                            SmsMessage.getSubmitPdu(null, ADDRESS, part, false).encodedMessage,
+                            BluetoothMapSmsPdu.SMS_TYPE_GSM));
+        }
+        BluetoothMapbMessageSms message = new BluetoothMapbMessageSms();
+        message.setType(TYPE.SMS_GSM);
+        message.setFolder("telecom/msg/inbox");
+        message.setStatus(false);
+        message.addOriginator("Contact", new String[] {ADDRESS}, null);
+        message.setSmsBodyPdus(pdus);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            message.encode();
+        }
+    }
+
+    @Test
+    public void getSubmitPdus_gsm() {
+        // Splitting the text needs the SMS service
+        Assume.assumeTrue(SmsManager.getDefault().isImsSmsSupported());
+        TelephonyManager telephonyManager =
+                mock(TelephonyManager.class, withSettings().stubOnly());
+        doReturn(TelephonyManager.PHONE_TYPE_GSM).when(telephonyManager).getCurrentPhoneType();
+        Context context = mock(Context.class, withSettings().stubOnly());
+        doReturn(Context.TELEPHONY_SERVICE)
+                .when(context)
+                .getSystemServiceName(TelephonyManager.class);
+        doReturn(telephonyManager).when(context).getSystemService(Context.TELEPHONY_SERVICE);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            BluetoothMapSmsPdu.getSubmitPdus(context, LONG_TEXT, ADDRESS);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.map;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.bluetooth.map.BluetoothMapbMessage.VCard;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Benchmarks for the vCard encoding of {@link VCard}, done for every bMessage originator. */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class BluetoothMapbMessageVCardBenchmark {
+    private static final String NAME = "Doe;Jane;;;";
+    private static final String FORMATTED_NAME = "Jane Doe";
+    private static final String[] PHONE_NUMBERS = {"+1 650-555-0100", "(650) 555-0101"};
+    private static final String[] EMAIL_ADDRESSES = {"jane.doe@example.com", "jane@example.org"};
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void encode_version21() {
+        VCard vCard = new VCard(NAME, PHONE_NUMBERS, EMAIL_ADDRESSES);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            vCard.encode(new StringBuilder());
+        }
+    }
+
+    @Test
+    public void encode_version30() {
+        VCard vCard = new VCard(NAME, FORMATTED_NAME, PHONE_NUMBERS, EMAIL_ADDRESSES, 0);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            vCard.encode(new StringBuilder());
+        }
+    }
+}
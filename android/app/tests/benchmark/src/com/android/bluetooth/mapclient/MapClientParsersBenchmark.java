@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.mapclient;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Benchmarks for the MAP client decoding of the bMessages and message listings received over
+ * OBEX.
+ *
+ * <p>There is no String based baseline: {@link BmessageParser#createBmessage} logs the whole
+ * message, so it would mostly measure logcat.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class MapClientParsersBenchmark {
+    private static final String SIMPLE_MMS_MESSAGE =
+            "BEGIN:BMSG\r\nVERSION:1.0\r\nSTATUS:READ\r\nTYPE:MMS\r\nFOLDER:null\r\nBEGIN:BENV\r\n"
+                    + "BEGIN:VCARD\r\nVERSION:2.1\r\nN:null;;;;\r\nTEL:555-5555\r\nEND:VCARD\r\n"
+                    + "BEGIN:BBODY\r\nLENGTH:39\r\nBEGIN:MSG\r\nThis is a new msg\r\nEND:MSG\r\n"
+                    + "END:BBODY\r\nEND:BENV\r\nEND:BMSG\r\n";
+    private static final int LARGE_BODY_SIZE = 64 * 1024;
+    // Carkits usually ask for the messages of a folder by pages of a few hundred
+    private static final int LISTING_SIZE = 256;
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void parseBmessage_simpleMms() {
+        parseBmessage(SIMPLE_MMS_MESSAGE.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void parseBmessage_largeMms() {
+        StringBuilder body = new StringBuilder(LARGE_BODY_SIZE);
+        while (body.length() < LARGE_BODY_SIZE) {
+            body.append("This is a new msg ");
+        }
+        String bmsg =
+                SIMPLE_MMS_MESSAGE
+                        .replace("LENGTH:39", "LENGTH:" + (body.length() + 22))
+                        .replace("This is a new msg", body.toString());
+        parseBmessage(bmsg.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void parseMessagesListing_newParser() {
+        byte[] data = messagesListing();
+        assertThat(new MessagesListing(new ByteArrayInputStream(data)).getList())
+                .hasSize(LISTING_SIZE);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            new MessagesListing(new ByteArrayInputStream(data));
+        }
+    }
+
+    @Test
+    public void parseMessagesListing_sharedParser() {
+        byte[] data = messagesListing();
+        MapClientParsers parsers = new MapClientParsers();
+        assertThat(new MessagesListing(new ByteArrayInputStream(data), parsers).getList())
+                .hasSize(LISTING_SIZE);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            new MessagesListing(new ByteArrayInputStream(data), parsers);
+        }
+    }
+
+    private void parseBmessage(byte[] data) {
+        BmessageParser parser = new BmessageParser();
+        assertThat(parser.parse(new ByteArrayInputStream(data))).isNotNull();
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            parser.parse(new ByteArrayInputStream(data));
+        }
+    }
+
+    private static byte[] messagesListing() {
+        StringBuilder xml = new StringBuilder("<MAP-msg-listing version=\"1.0\">\n");
+        for (int i = 0; i < LISTING_SIZE; i++) {
+            xml.append("<msg handle=\"")
+                    .append(Integer.toHexString(0x1000 + i))
+                    .append("\" subject=\"test_subject\" datetime=\"20260101T000000\"")
+                    .append(" type=\"SMS_GSM\" read=\"no\" />\n");
+        }
+        xml.append("</MAP-msg-listing>\n");
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
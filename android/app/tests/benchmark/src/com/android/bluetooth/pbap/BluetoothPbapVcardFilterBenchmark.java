@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.pbap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.bluetooth.pbap.BluetoothPbapVcardManager.VCardFilter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Benchmarks for {@link VCardFilter}, applied to every vCard of a phonebook pulled with a property
+ * selector.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class BluetoothPbapVcardFilterBenchmark {
+    private static final String SEPARATOR = System.getProperty("line.separator");
+
+    // Keeps VERSION, FN, N and EMAIL, as asked by carkits that don't show photos
+    private static final byte[] FILTER = {0, 0, 0, 0, 0, 0, 0x01, 0x07};
+
+    private static final String PHOTO_LINE =
+            " BwcJCQgKDBQNDAsLDBkSEw8UHRofHh0aHBwgJC4nICIsIxwcKDcpLDAxNDQ0Hyc5PTgyPC4zNDL/";
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void apply_version30() {
+        String vCard = vCard("3.0");
+        VCardFilter filter = new VCardFilter(FILTER);
+        assertThat(filter.apply(vCard, false)).doesNotContain("PHOTO");
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            filter.apply(vCard, false);
+        }
+    }
+
+    @Test
+    public void apply_version21() {
+        String vCard = vCard("2.1");
+        VCardFilter filter = new VCardFilter(FILTER);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            filter.apply(vCard, true);
+        }
+    }
+
+    /** A contact with the usual properties and a small photo folded over several lines */
+    private static String vCard(String version) {
+        StringBuilder vCard = new StringBuilder();
+        line(vCard, "BEGIN:VCARD");
+        line(vCard, "VERSION:" + version);
+        line(vCard, "FN:Jane Doe");
+        line(vCard, "N:Doe;Jane;;;");
+        line(vCard, "NICKNAME:JD");
+        line(vCard, "TEL;TYPE=CELL:+1 650-555-0100");
+        line(vCard, "TEL;TYPE=WORK:+1 650-555-0101");
+        line(vCard, "EMAIL;TYPE=HOME:jane.doe@example.com");
+        line(vCard, "ADR;TYPE=HOME:;;1600 Amphitheatre Pkwy;Mountain View;CA;94043;USA");
+        line(vCard, "ORG:Example Inc.");
+        line(vCard, "TITLE:Engineer");
+        line(vCard, "BDAY:1990-01-01");
+        line(vCard, "NOTE:Met at the conference");
+        line(vCard, "URL:https://example.com/jane");
+        line(vCard, "PHOTO;ENCODING=BASE64;TYPE=JPEG:/9j/4AAQSkZJRgABAQAAAQABAAD/2wBDAAgGBgcGBQgH");
+        for (int i = 0; i < 40; i++) {
+            line(vCard, PHOTO_LINE);
+        }
+        line(vCard, "END:VCARD");
+        return vCard.toString();
+    }
+
+    private static void line(StringBuilder vCard, String line) {
+        vCard.append(line).append(SEPARATOR);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.filters.SmallTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class BluetoothEventLoggerTest {
+    private static final String TITLE = "Test events";
+
+    @Test
+    public void dump_keepsLastEventsInOrder() {
+        BluetoothEventLogger logger = new BluetoothEventLogger(3, TITLE);
+        for (int i = 0; i < 5; i++) {
+            logger.add("event " + i);
+        }
+
+        List<String> lines = dump(logger);
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0)).isEqualTo(TITLE + ":");
+        assertThat(lines.get(1)).endsWith(" event 2");
+        assertThat(lines.get(2)).endsWith(" event 3");
+        assertThat(lines.get(3)).endsWith(" event 4");
+    }
+
+    @Test
+    public void dump_formatsArgumentsOnlyWhenDumped() {
+        BluetoothEventLogger logger = new BluetoothEventLogger(2, TITLE);
+        logger.add("state=%d enabled=%b", 3, true);
+        logger.add("100%");
+
+        List<String> lines = dump(logger);
+        assertThat(lines.get(1)).endsWith(" state=3 enabled=true");
+        assertThat(lines.get(2)).endsWith(" 100%");
+    }
+
+    @Test
+    public void add_fromManyThreads_keepsBufferSize() throws Exception {
+        BluetoothEventLogger logger = new BluetoothEventLogger(16, TITLE);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int id = t;
+            Thread thread =
+                    new Thread(
+                            () -> {
+                                for (int i = 0; i < 1000; i++) {
+                                    logger.add("thread %d event %d", id, i);
+                                }
+                            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(dump(logger)).hasSize(17);
+    }
+
+    private static List<String> dump(BluetoothEventLogger logger) {
+        StringBuilder sb = new StringBuilder();
+        logger.dump(sb);
+        return List.of(sb.toString().split("\n"));
+    }
+}
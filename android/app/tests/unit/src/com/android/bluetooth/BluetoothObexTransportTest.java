@@ -0,0 +1,200 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth;
+
+import static com.android.bluetooth.BluetoothObexTransport.MAX_OBEX_PACKET_SIZE;
+import static com.android.bluetooth.BluetoothObexTransport.PACKET_SIZE_UNSPECIFIED;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.bluetooth.BluetoothSocket;
+
+import androidx.test.filters.SmallTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/** Test cases for {@link BluetoothObexTransport}. */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class BluetoothObexTransportTest {
+    private static final int SOCKET_TRANSMIT_SIZE = 1000;
+    private static final int SOCKET_RECEIVE_SIZE = 2000;
+    private static final int PROFILE_TRANSMIT_SIZE = 8192;
+
+    private static final byte[] DATA = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+    /** A transport over a socket of {@code type}, since BluetoothSocket cannot be mocked */
+    private static class FakeSocketTransport extends BluetoothObexTransport {
+        private final int mType;
+
+        FakeSocketTransport(int type, int transmitSize, int receiveSize) {
+            super(null, transmitSize, receiveSize);
+            mType = type;
+        }
+
+        @Override
+        int getConnectionType() {
+            return mType;
+        }
+
+        @Override
+        int getSocketMaxTransmitPacketSize() {
+            return SOCKET_TRANSMIT_SIZE;
+        }
+
+        @Override
+        int getSocketMaxReceivePacketSize() {
+            return SOCKET_RECEIVE_SIZE;
+        }
+    }
+
+    @Test
+    public void packetSize_rfcomm_throughputModeOff_usesProfileSizes() {
+        BluetoothObexTransport transport =
+                transport(BluetoothSocket.TYPE_RFCOMM, PROFILE_TRANSMIT_SIZE, false);
+
+        assertThat(transport.getMaxTransmitPacketSize()).isEqualTo(PROFILE_TRANSMIT_SIZE);
+        assertThat(transport.getMaxReceivePacketSize()).isEqualTo(PACKET_SIZE_UNSPECIFIED);
+    }
+
+    @Test
+    public void packetSize_rfcomm_throughputModeOn_usesLargestPacketWhenUnspecified() {
+        BluetoothObexTransport transport =
+                transport(BluetoothSocket.TYPE_RFCOMM, PACKET_SIZE_UNSPECIFIED, true);
+
+        assertThat(transport.getMaxTransmitPacketSize()).isEqualTo(MAX_OBEX_PACKET_SIZE);
+        assertThat(transport.getMaxReceivePacketSize()).isEqualTo(MAX_OBEX_PACKET_SIZE);
+    }
+
+    @Test
+    public void packetSize_rfcomm_throughputModeOn_keepsProfileLimit() {
+        BluetoothObexTransport transport =
+                transport(BluetoothSocket.TYPE_RFCOMM, PROFILE_TRANSMIT_SIZE, true);
+
+        assertThat(transport.getMaxTransmitPacketSize()).isEqualTo(PROFILE_TRANSMIT_SIZE);
+        assertThat(transport.getMaxReceivePacketSize()).isEqualTo(MAX_OBEX_PACKET_SIZE);
+    }
+
+    @Test
+    public void packetSize_l2cap_usesSocketSizes() {
+        for (boolean throughputMode : new boolean[] {false, true}) {
+            BluetoothObexTransport transport =
+                    transport(BluetoothSocket.TYPE_L2CAP, PROFILE_TRANSMIT_SIZE, throughputMode);
+
+            assertThat(transport.getMaxTransmitPacketSize()).isEqualTo(SOCKET_TRANSMIT_SIZE);
+            assertThat(transport.getMaxReceivePacketSize()).isEqualTo(SOCKET_RECEIVE_SIZE);
+        }
+    }
+
+    @Test
+    public void packetSize_coverArt_keepsCoverArtLimits() {
+        for (boolean throughputMode : new boolean[] {false, true}) {
+            BluetoothObexTransport l2cap =
+                    transport(BluetoothSocket.TYPE_L2CAP, PROFILE_TRANSMIT_SIZE, throughputMode);
+            l2cap.setConnectionForCoverArt(true);
+            BluetoothObexTransport rfcomm =
+                    transport(BluetoothSocket.TYPE_RFCOMM, PROFILE_TRANSMIT_SIZE, throughputMode);
+            rfcomm.setConnectionForCoverArt(true);
+
+            assertThat(l2cap.getMaxTransmitPacketSize()).isEqualTo(PROFILE_TRANSMIT_SIZE);
+            assertThat(l2cap.getMaxReceivePacketSize()).isEqualTo(SOCKET_RECEIVE_SIZE);
+            assertThat(rfcomm.getMaxTransmitPacketSize()).isEqualTo(PROFILE_TRANSMIT_SIZE);
+            assertThat(rfcomm.getMaxReceivePacketSize()).isEqualTo(PACKET_SIZE_UNSPECIFIED);
+        }
+    }
+
+    @Test
+    public void countingInputStream_countsBytesRead() throws IOException {
+        BluetoothObexTransport transport =
+                transport(BluetoothSocket.TYPE_RFCOMM, PACKET_SIZE_UNSPECIFIED, false);
+        InputStream in = transport.new CountingInputStream(new ByteArrayInputStream(DATA));
+
+        assertThat(in.read()).isEqualTo((int) DATA[0]);
+        byte[] b = new byte[4];
+        assertThat(in.read(b)).isEqualTo(4);
+        assertThat(in.read(b, 1, 2)).isEqualTo(2);
+        assertThat(transport.getBytesReceived()).isEqualTo(7L);
+
+        assertThat(in.read(new byte[DATA.length])).isEqualTo(3);
+        // The end of the stream is not counted
+        assertThat(in.read()).isEqualTo(-1);
+        assertThat(in.read(b)).isEqualTo(-1);
+        assertThat(transport.getBytesReceived()).isEqualTo((long) DATA.length);
+        assertThat(transport.getBytesSent()).isEqualTo(0L);
+    }
+
+    @Test
+    public void countingOutputStream_countsBytesWritten() throws IOException {
+        BluetoothObexTransport transport =
+                transport(BluetoothSocket.TYPE_RFCOMM, PACKET_SIZE_UNSPECIFIED, false);
+        CountingByteArrayOutputStream socketOut = new CountingByteArrayOutputStream();
+        OutputStream out = transport.new CountingOutputStream(socketOut);
+
+        out.write(DATA[0]);
+        out.write(DATA, 1, 2);
+        out.write(new byte[] {DATA[3], DATA[4], DATA[5], DATA[6], DATA[7], DATA[8], DATA[9]});
+
+        assertThat(transport.getBytesSent()).isEqualTo((long) DATA.length);
+        assertThat(transport.getBytesReceived()).isEqualTo(0L);
+        assertThat(socketOut.toByteArray()).isEqualTo(DATA);
+        // Arrays are forwarded whole, not one byte at a time
+        assertThat(socketOut.mWrites).isEqualTo(3);
+    }
+
+    @Test
+    public void getThroughputBytesPerSecond_noTraffic_returnsZero() {
+        BluetoothObexTransport transport =
+                transport(BluetoothSocket.TYPE_RFCOMM, PACKET_SIZE_UNSPECIFIED, false);
+
+        assertThat(transport.getThroughputBytesPerSecond()).isEqualTo(0L);
+        assertThat(transport.getBytesSent()).isEqualTo(0L);
+        assertThat(transport.getBytesReceived()).isEqualTo(0L);
+    }
+
+    private static BluetoothObexTransport transport(
+            int type, int transmitSize, boolean throughputMode) {
+        BluetoothObexTransport transport =
+                new FakeSocketTransport(type, transmitSize, PACKET_SIZE_UNSPECIFIED);
+        transport.mRfcommThroughputMode = throughputMode;
+        return transport;
+    }
+
+    /** Counts the calls made to write into it */
+    private static class CountingByteArrayOutputStream extends ByteArrayOutputStream {
+        int mWrites;
+
+        @Override
+        public synchronized void write(int b) {
+            mWrites++;
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int offset, int length) {
+            mWrites++;
+            super.write(b, offset, length);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import android.bluetooth.BluetoothSocket;
+
+import androidx.test.filters.MediumTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/** Test cases for the accept tasks of {@link ObexServerSockets} on their shared pool. */
+@MediumTest
+@RunWith(AndroidJUnit4.class)
+public class ObexServerSocketsTest {
+    private static final long TIMEOUT_MS = 5_000;
+
+    @Rule public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock private IObexConnectionHandler mConHandler;
+
+    private final List<ObexServerSockets> mSockets = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (ObexServerSockets sockets : mSockets) {
+            sockets.shutdown(true);
+        }
+    }
+
+    @Test
+    public void shutdown_whileAccepting_closesSocketsAndEndsTasks() throws Exception {
+        FakeListeningSocket rfcomm = new FakeListeningSocket();
+        FakeListeningSocket l2cap = new FakeListeningSocket();
+        ObexServerSockets sockets = startAccept(rfcomm, l2cap);
+        rfcomm.awaitAccepting();
+        l2cap.awaitAccepting();
+
+        sockets.shutdown(true);
+
+        assertThat(rfcomm.mClosed).isTrue();
+        assertThat(l2cap.mClosed).isTrue();
+        assertThat(rfcomm.mAcceptThread.getName()).isEqualTo("ObexAccept");
+        // The tasks are done, and have not left the interrupt of shutdown() on the pool threads
+        assertThat(rfcomm.mAcceptThread.isInterrupted()).isFalse();
+        assertThat(l2cap.mAcceptThread.isInterrupted()).isFalse();
+        // Expected on shutdown, the handler is not told about it
+        verify(mConHandler, never()).onAcceptFailed();
+        verify(mConHandler, never()).onConnect(any(), any());
+    }
+
+    @Test
+    public void startAccept_afterShutdown_reusesPoolWithoutInterrupts() throws Exception {
+        FakeListeningSocket oldRfcomm = new FakeListeningSocket();
+        FakeListeningSocket oldL2cap = new FakeListeningSocket();
+        ObexServerSockets oldSockets = startAccept(oldRfcomm, oldL2cap);
+        oldRfcomm.awaitAccepting();
+        oldL2cap.awaitAccepting();
+        oldSockets.shutdown(true);
+
+        // The sockets are recreated after each connection, on the threads freed by shutdown(). An
+        // interrupt left on them would end the new accept tasks.
+        FakeListeningSocket rfcomm = new FakeListeningSocket();
+        FakeListeningSocket l2cap = new FakeListeningSocket();
+        startAccept(rfcomm, l2cap);
+        rfcomm.awaitAccepting();
+        l2cap.awaitAccepting();
+
+        rfcomm.connect();
+        l2cap.connect();
+        assertThat(rfcomm.mInterrupted).isFalse();
+        assertThat(l2cap.mInterrupted).isFalse();
+        assertThat(rfcomm.mClosed).isFalse();
+        assertThat(l2cap.mClosed).isFalse();
+        verify(mConHandler, never()).onAcceptFailed();
+    }
+
+    private ObexServerSockets startAccept(FakeListeningSocket rfcomm, FakeListeningSocket l2cap) {
+        ObexServerSockets sockets = new ObexServerSockets(mConHandler, rfcomm, l2cap);
+        mSockets.add(sockets);
+        sockets.startAccept();
+        return sockets;
+    }
+
+    /** Accepts the connections queued by the test, BluetoothServerSocket cannot be mocked */
+    private static class FakeListeningSocket implements ObexServerSockets.ListeningSocket {
+        private static final Object CONNECTION = new Object();
+        private static final Object CLOSED = new Object();
+
+        private final BlockingQueue<Object> mIncoming = new LinkedBlockingQueue<>();
+        // Released each time the accept task waits for a connection
+        private final Semaphore mAccepting = new Semaphore(0);
+        volatile Thread mAcceptThread;
+        volatile boolean mInterrupted;
+        volatile boolean mClosed;
+
+        @Override
+        public BluetoothSocket accept() throws IOException {
+            mAcceptThread = Thread.currentThread();
+            mAccepting.release();
+            Object incoming;
+            try {
+                incoming = mIncoming.take();
+            } catch (InterruptedException e) {
+                mInterrupted = true;
+                throw new InterruptedIOException();
+            }
+            if (incoming == CLOSED) {
+                throw new IOException("socket closed");
+            }
+            // The accept task drops a null socket and accepts again
+            return null;
+        }
+
+        @Override
+        public int getChannel() {
+            return 1;
+        }
+
+        @Override
+        public void close() {
+            mClosed = true;
+            mIncoming.add(CLOSED);
+        }
+
+        /** Hands a connection to the accept task and waits until it accepts again */
+        void connect() throws InterruptedException {
+            mIncoming.add(CONNECTION);
+            awaitAccepting();
+        }
+
+        void awaitAccepting() throws InterruptedException {
+            assertThat(mAccepting.tryAcquire(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+        }
+    }
+}
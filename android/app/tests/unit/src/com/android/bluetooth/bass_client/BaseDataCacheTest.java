@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.bass_client;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.Duration;
+
+@RunWith(JUnit4.class)
+public class BaseDataCacheTest {
+    private static final int BROADCAST_ID = 0x123456;
+    private static final int OTHER_BROADCAST_ID = 0x654321;
+    private static final Duration MAX_AGE = Duration.ofSeconds(10);
+    // Offset of the metadata byte in serviceData()
+    private static final int METADATA_OFFSET = 12;
+
+    private long mNowMillis = 1000;
+    private final BaseDataCache mCache = new BaseDataCache(2, MAX_AGE, () -> mNowMillis);
+
+    @Test
+    public void getOrParse_sameBytes_returnsCachedBase() {
+        BaseData first = mCache.getOrParse(BROADCAST_ID, serviceData((byte) 0x01));
+        BaseData second = mCache.getOrParse(BROADCAST_ID, serviceData((byte) 0x01));
+
+        assertThat(first).isNotNull();
+        assertThat(second).isSameInstanceAs(first);
+    }
+
+    @Test
+    public void getOrParse_changedBytes_parsesAgain() {
+        BaseData first = mCache.getOrParse(BROADCAST_ID, serviceData((byte) 0x01));
+        BaseData second = mCache.getOrParse(BROADCAST_ID, serviceData((byte) 0x02));
+
+        assertThat(second).isNotSameInstanceAs(first);
+        assertThat(second.getLevelTwo().get(0).metaData[0]).isEqualTo(0x02);
+        assertThat(mCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void getOrParse_sameBytesOfOtherSource_parsesAgain() {
+        BaseData first = mCache.getOrParse(BROADCAST_ID, serviceData((byte) 0x01));
+        BaseData second = mCache.getOrParse(OTHER_BROADCAST_ID, serviceData((byte) 0x01));
+
+        assertThat(second).isNotSameInstanceAs(first);
+        assertThat(mCache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void getOrParse_bytesModifiedByCaller_doNotChangeCachedEntry() {
+        byte[] data = serviceData((byte) 0x01);
+        BaseData first = mCache.getOrParse(BROADCAST_ID, data);
+        data[METADATA_OFFSET] = (byte) 0x02;
+
+        assertThat(mCache.getOrParse(BROADCAST_ID, data)).isNotSameInstanceAs(first);
+    }
+
+    @Test
+    public void getOrParse_invalidBroadcastId_isNotCached() {
+        BaseData first =
+                mCache.getOrParse(BassConstants.INVALID_BROADCAST_ID, serviceData((byte) 0x01));
+        BaseData second =
+                mCache.getOrParse(BassConstants.INVALID_BROADCAST_ID, serviceData((byte) 0x01));
+
+        assertThat(second).isNotSameInstanceAs(first);
+        assertThat(mCache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void getOrParse_moreSourcesThanMax_evictsLeastRecentlyUsed() {
+        BaseData first = mCache.getOrParse(1, serviceData((byte) 0x01));
+        BaseData second = mCache.getOrParse(2, serviceData((byte) 0x01));
+        // Use the first one again so that the second one is the least recently used
+        mCache.getOrParse(1, serviceData((byte) 0x01));
+        mCache.getOrParse(3, serviceData((byte) 0x01));
+
+        assertThat(mCache.size()).isEqualTo(2);
+        assertThat(mCache.getOrParse(1, serviceData((byte) 0x01))).isSameInstanceAs(first);
+        assertThat(mCache.getOrParse(2, serviceData((byte) 0x01))).isNotSameInstanceAs(second);
+    }
+
+    @Test
+    public void getOrParse_entryNotUsedForMaxAge_isEvicted() {
+        BaseData first = mCache.getOrParse(BROADCAST_ID, serviceData((byte) 0x01));
+        mNowMillis += MAX_AGE.toMillis() - 1;
+        assertThat(mCache.getOrParse(BROADCAST_ID, serviceData((byte) 0x01)))
+                .isSameInstanceAs(first);
+
+        mNowMillis += MAX_AGE.toMillis();
+        assertThat(mCache.getOrParse(BROADCAST_ID, serviceData((byte) 0x01)))
+                .isNotSameInstanceAs(first);
+    }
+
+    @Test
+    public void remove_dropsEntry() {
+        mCache.getOrParse(BROADCAST_ID, serviceData((byte) 0x01));
+        mCache.getOrParse(OTHER_BROADCAST_ID, serviceData((byte) 0x01));
+
+        mCache.remove(BROADCAST_ID);
+        assertThat(mCache.size()).isEqualTo(1);
+
+        mCache.clear();
+        assertThat(mCache.size()).isEqualTo(0);
+    }
+
+    /** One subgroup with one BIS, {@code metaData} is the single byte of metadata */
+    private static byte[] serviceData(byte metaData) {
+        return new byte[] {
+            // LEVEL 1
+            (byte) 0x01,
+            (byte) 0x02,
+            (byte) 0x03, // presentationDelay
+            (byte) 0x01, // numSubGroups
+            // LEVEL 2
+            (byte) 0x01, // numSubGroups
+            (byte) 0x00,
+            (byte) 0x00,
+            (byte) 0x00,
+            (byte) 0x00,
+            (byte) 0x00, // UNKNOWN_CODEC
+            (byte) 0x00, // codecConfigLength
+            (byte) 0x01, // metaDataLength
+            metaData,
+            // LEVEL 3
+            (byte) 0x01, // index
+            (byte) 0x00, // codecConfigLength
+        };
+    }
+}
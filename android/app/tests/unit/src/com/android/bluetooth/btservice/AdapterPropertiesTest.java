@@ -60,6 +60,7 @@ public class AdapterPropertiesTest {
 
     @Mock private AdapterService mAdapterService;
     @Mock private AdapterNativeInterface mNativeInterface;
+    @Mock private BondedDeviceSnapshot.Listener mBondedDevicesListener;
 
     @Before
     public void setUp() throws Exception {
@@ -120,6 +121,37 @@ public class AdapterPropertiesTest {
                 .isEqualTo(Utils.getAddressStringFromByte(TEST_BT_ADDR_BYTES_2));
     }
 
+    @Test
+    public void bondedDeviceSnapshot_republishedOnBondChange() {
+        mRemoteDevices.addDeviceProperties(TEST_BT_ADDR_BYTES);
+        BluetoothDevice device = mRemoteDevices.getDevice(TEST_BT_ADDR_BYTES);
+        BondedDeviceSnapshot empty = mAdapterProperties.getBondedDeviceSnapshot();
+        mAdapterProperties.registerBondedDevicesListener(mBondedDevicesListener);
+
+        mAdapterProperties.onBondStateChanged(device, BluetoothDevice.BOND_BONDED);
+
+        ArgumentCaptor<BondedDeviceSnapshot> captor =
+                ArgumentCaptor.forClass(BondedDeviceSnapshot.class);
+        verify(mBondedDevicesListener).onBondedDevicesChanged(captor.capture());
+        BondedDeviceSnapshot bonded = captor.getValue();
+        assertThat(mAdapterProperties.getBondedDeviceSnapshot()).isSameInstanceAs(bonded);
+        assertThat(bonded.getVersion()).isGreaterThan(empty.getVersion());
+        assertThat(bonded.isBonded(device.getAddress())).isTrue();
+        assertThat(bonded.getDevices()).containsExactly(device);
+        assertThat(empty.isBonded(device)).isFalse();
+
+        // Unchanged bond state does not publish a new snapshot
+        mAdapterProperties.onBondStateChanged(device, BluetoothDevice.BOND_BONDED);
+        assertThat(mAdapterProperties.getBondedDeviceSnapshot()).isSameInstanceAs(bonded);
+
+        mAdapterProperties.onBondStateChanged(device, BluetoothDevice.BOND_NONE);
+
+        verify(mBondedDevicesListener, times(2)).onBondedDevicesChanged(captor.capture());
+        assertThat(captor.getValue().isBonded(device)).isFalse();
+        assertThat(bonded.isBonded(device)).isTrue();
+        assertThat(mAdapterProperties.getBondedDevices()).isEmpty();
+    }
+
     @Test
     public void setName_shortName_isEqual() {
         StringBuilder builder = new StringBuilder();
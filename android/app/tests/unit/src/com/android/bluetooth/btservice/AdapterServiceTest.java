@@ -32,14 +32,19 @@ import static org.mockito.Mockito.*;
 
 import android.app.AlarmManager;
 import android.app.AppOpsManager;
+import android.app.PendingIntent;
 import android.app.admin.DevicePolicyManager;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothManager;
 import android.bluetooth.BluetoothProfile;
+import android.bluetooth.BluetoothStatusCodes;
 import android.bluetooth.IBluetoothCallback;
+import android.bluetooth.IncomingRfcommSocketInfo;
 import android.companion.CompanionDeviceManager;
+import android.content.AttributionSource;
 import android.content.Context;
+import android.content.Intent;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PermissionInfo;
@@ -52,6 +57,8 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
+import android.os.ParcelFileDescriptor;
+import android.os.ParcelUuid;
 import android.os.PowerManager;
 import android.os.Process;
 import android.os.RemoteException;
@@ -100,11 +107,19 @@ import platform.test.runner.parameterized.ParameterizedAndroidJunit4;
 import platform.test.runner.parameterized.Parameters;
 
 import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -125,6 +140,9 @@ public class AdapterServiceTest {
     static class MockAdapterService extends AdapterService {
 
         int mSetProfileServiceStateCounter = 0;
+        // Every server socket created for an RFCOMM listener, restarts included
+        final BlockingQueue<FakeRfcommServerSocket> mRfcommServerSockets =
+                new LinkedBlockingQueue<>();
 
         MockAdapterService(Looper looper) {
             super(looper);
@@ -134,6 +152,92 @@ public class AdapterServiceTest {
         void setProfileServiceState(int profileId, int state) {
             mSetProfileServiceStateCounter++;
         }
+
+        @Override
+        RfcommServerSocket listenUsingRfcomm(String name, UUID uuid) {
+            FakeRfcommServerSocket serverSocket = new FakeRfcommServerSocket();
+            mRfcommServerSockets.add(serverSocket);
+            return serverSocket;
+        }
+
+        FakeRfcommServerSocket nextRfcommServerSocket() throws InterruptedException {
+            FakeRfcommServerSocket serverSocket =
+                    mRfcommServerSockets.poll(RFCOMM_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            assertThat(serverSocket).isNotNull();
+            return serverSocket;
+        }
+    }
+
+    /** Accepts the connections queued by the test, BluetoothServerSocket cannot be mocked */
+    static class FakeRfcommServerSocket implements AdapterService.RfcommServerSocket {
+        // Makes accept() fail
+        private static final FakeRfcommSocket FAILURE = new FakeRfcommSocket(null);
+
+        private final BlockingQueue<FakeRfcommSocket> mIncoming = new LinkedBlockingQueue<>();
+        // Released each time the accept loop waits for a connection
+        private final Semaphore mAccepting = new Semaphore(0);
+        volatile String mAcceptThreadName;
+        volatile boolean mClosed;
+
+        @Override
+        public AdapterService.RfcommSocket accept() throws IOException {
+            mAcceptThreadName = Thread.currentThread().getName();
+            mAccepting.release();
+            FakeRfcommSocket socket;
+            try {
+                socket = mIncoming.take();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            if (socket == FAILURE) {
+                throw new IOException("accept failed");
+            }
+            return socket;
+        }
+
+        @Override
+        public void close() {
+            mClosed = true;
+            mIncoming.add(FAILURE);
+        }
+
+        /** Hands {@code socket} to the accept loop and waits until it is done with it */
+        void connect(FakeRfcommSocket socket) throws InterruptedException {
+            mIncoming.add(socket);
+            awaitAccepting();
+        }
+
+        void failAccept() {
+            mIncoming.add(FAILURE);
+        }
+
+        void awaitAccepting() throws InterruptedException {
+            assertThat(mAccepting.tryAcquire(RFCOMM_TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+        }
+    }
+
+    static class FakeRfcommSocket implements AdapterService.RfcommSocket {
+        private final BluetoothDevice mDevice;
+        volatile boolean mClosed;
+
+        FakeRfcommSocket(BluetoothDevice device) {
+            mDevice = device;
+        }
+
+        @Override
+        public BluetoothDevice getRemoteDevice() {
+            return mDevice;
+        }
+
+        @Override
+        public ParcelFileDescriptor getParcelFileDescriptor() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+            mClosed = true;
+        }
     }
 
     @Rule public MockitoRule mockitoRule = MockitoJUnit.rule();
@@ -174,6 +278,9 @@ public class AdapterServiceTest {
             new BatteryStatsManager(mock(IBatteryStats.class));
 
     private static final int CONTEXT_SWITCH_MS = 100;
+    private static final int RFCOMM_TIMEOUT_MS = 5_000;
+    private static final ParcelUuid RFCOMM_UUID =
+            ParcelUuid.fromString("d1b4e1c8-3c9e-4a7f-9b1e-6f0a2c4d8e10");
 
     private PackageManager mMockPackageManager;
     private MockContentResolver mMockContentResolver;
@@ -1022,6 +1129,112 @@ public class AdapterServiceTest {
         assertThat(mAdapterService.getMetricId(null)).isEqualTo(0);
     }
 
+    @Test
+    public void testRfcommListener_acceptedSocket_isRetrievedOrTimesOut() throws Exception {
+        AttributionSource source = new AttributionSource.Builder(Process.myUid()).build();
+        assertThat(startRfcommListener(source)).isEqualTo(BluetoothStatusCodes.SUCCESS);
+        FakeRfcommServerSocket serverSocket = mAdapterService.nextRfcommServerSocket();
+        serverSocket.awaitAccepting();
+        BluetoothDevice device =
+                BluetoothAdapter.getDefaultAdapter().getRemoteDevice(TEST_BT_ADDR_1);
+        FakeRfcommSocket retrieved = new FakeRfcommSocket(device);
+        FakeRfcommSocket timedOut = new FakeRfcommSocket(device);
+
+        serverSocket.connect(retrieved);
+        IncomingRfcommSocketInfo socketInfo =
+                mAdapterService.retrievePendingSocketForServiceRecord(RFCOMM_UUID, source);
+        assertThat(socketInfo.status).isEqualTo(BluetoothStatusCodes.SUCCESS);
+        assertThat(socketInfo.bluetoothDevice).isEqualTo(device);
+
+        serverSocket.connect(timedOut);
+        mLooper.moveTimeForward(2 * AdapterService.PENDING_SOCKET_HANDOFF_TIMEOUT.toMillis());
+        mLooper.dispatchAll();
+        assertThat(timedOut.mClosed).isTrue();
+        assertThat(retrieved.mClosed).isFalse();
+        assertThat(
+                        mAdapterService.retrievePendingSocketForServiceRecord(RFCOMM_UUID, source)
+                                .status)
+                .isEqualTo(BluetoothStatusCodes.RFCOMM_LISTENER_NO_SOCKET_AVAILABLE);
+
+        StringWriter dump = new StringWriter();
+        mAdapterService.dumpRfcommListeners(new PrintWriter(dump));
+        assertThat(dump.toString())
+                .contains("accepted=2 handedOff=1 timedOut=1 pending=0 maxPending=1");
+
+        assertThat(mAdapterService.stopRfcommListener(RFCOMM_UUID, source))
+                .isEqualTo(BluetoothStatusCodes.SUCCESS);
+        assertThat(serverSocket.mClosed).isTrue();
+    }
+
+    @Test
+    public void testRfcommListener_stoppedWhileAccepting_isNotRestarted() throws Exception {
+        AttributionSource source = new AttributionSource.Builder(Process.myUid()).build();
+        startRfcommListener(source);
+        FakeRfcommServerSocket serverSocket = mAdapterService.nextRfcommServerSocket();
+        serverSocket.awaitAccepting();
+
+        assertThat(mAdapterService.stopRfcommListener(RFCOMM_UUID, source))
+                .isEqualTo(BluetoothStatusCodes.SUCCESS);
+        // Waits for the accept loop to return
+        mAdapterService.stopRfcommServerSockets();
+
+        assertThat(serverSocket.mClosed).isTrue();
+        assertThat(mAdapterService.mRfcommListenerExecutor.isTerminated()).isTrue();
+        assertThat(mAdapterService.mRfcommServerSockets).isEmpty();
+    }
+
+    @Test
+    public void testStopRfcommServerSockets_closesListenersWithoutRestart() throws Exception {
+        AttributionSource source = new AttributionSource.Builder(Process.myUid()).build();
+        startRfcommListener(source);
+        FakeRfcommServerSocket serverSocket = mAdapterService.nextRfcommServerSocket();
+        serverSocket.awaitAccepting();
+        BluetoothDevice device =
+                BluetoothAdapter.getDefaultAdapter().getRemoteDevice(TEST_BT_ADDR_1);
+        FakeRfcommSocket pending = new FakeRfcommSocket(device);
+        serverSocket.connect(pending);
+
+        mAdapterService.stopRfcommServerSockets();
+
+        assertThat(serverSocket.mClosed).isTrue();
+        assertThat(pending.mClosed).isTrue();
+        assertThat(mAdapterService.mRfcommListenerExecutor.isTerminated()).isTrue();
+        assertThat(mAdapterService.mRfcommServerSockets).isEmpty();
+        // The pending socket timeout was cancelled
+        assertThat(mLooper.nextMessage()).isNull();
+    }
+
+    @Test
+    public void testRfcommListener_acceptFailure_restartsOnThePool() throws Exception {
+        AttributionSource source = new AttributionSource.Builder(Process.myUid()).build();
+        startRfcommListener(source);
+        FakeRfcommServerSocket serverSocket = mAdapterService.nextRfcommServerSocket();
+        serverSocket.awaitAccepting();
+
+        serverSocket.failAccept();
+        FakeRfcommServerSocket restarted = mAdapterService.nextRfcommServerSocket();
+        restarted.awaitAccepting();
+
+        assertThat(serverSocket.mClosed).isTrue();
+        assertThat(restarted.mAcceptThreadName).isEqualTo("RfcommListener");
+        assertThat(mAdapterService.mRfcommListenerExecutor.getTaskCount()).isEqualTo(2);
+        assertThat(mAdapterService.stopRfcommListener(RFCOMM_UUID, source))
+                .isEqualTo(BluetoothStatusCodes.SUCCESS);
+        assertThat(restarted.mClosed).isTrue();
+    }
+
+    private int startRfcommListener(AttributionSource source) {
+        Context targetContext = InstrumentationRegistry.getTargetContext();
+        PendingIntent pendingIntent =
+                PendingIntent.getBroadcast(
+                        targetContext,
+                        0,
+                        new Intent("com.android.bluetooth.test.RFCOMM_SOCKET")
+                                .setPackage(targetContext.getPackageName()),
+                        PendingIntent.FLAG_IMMUTABLE);
+        return mAdapterService.startRfcommListener("test", RFCOMM_UUID, pendingIntent, source);
+    }
+
     @Test
     public void testDump_doesNotCrash() {
         FileDescriptor fd = new FileDescriptor();
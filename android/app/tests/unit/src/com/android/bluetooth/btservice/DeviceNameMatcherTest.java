@@ -0,0 +1,184 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.btservice;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import com.google.common.base.Ascii;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class DeviceNameMatcherTest {
+    private static final int MAX_WORDS = 7;
+
+    private static final String[] ALLOWLIST = {
+        "a", "ab", "b", "bc", "abc", "1", "x1", "pixel", "buds", "pixelbuds"
+    };
+
+    private static final String[] NAMES = {
+        "",
+        " ",
+        " - ",
+        "--",
+        "- -",
+        "a -",
+        "- a",
+        "a - b",
+        "a  -  b",
+        "Pixel Buds",
+        "PIXEL  buds!",
+        "My Pixel Buds Pro",
+        "\tab\t",
+        "a\tb",
+        "A B C",
+        "x1 é pixel",
+        "a b c d e f g",
+        "a b c d e f g h",
+        "Pixel_Buds (2)",
+    };
+
+    @Test
+    public void getWordBreakdownList_sameAsLegacyAlgorithm() {
+        for (String name : NAMES) {
+            assertWithMessage(name)
+                    .that(DeviceNameMatcher.getWordBreakdownList(name, MAX_WORDS))
+                    .isEqualTo(legacyWordBreakdownList(name));
+        }
+        for (String name : randomNames(2000)) {
+            assertWithMessage(name)
+                    .that(DeviceNameMatcher.getWordBreakdownList(name, MAX_WORDS))
+                    .isEqualTo(legacyWordBreakdownList(name));
+        }
+        assertThat(DeviceNameMatcher.getWordBreakdownList(null, MAX_WORDS)).isEmpty();
+    }
+
+    @Test
+    public void match_sameAsLegacyAlgorithm() throws Exception {
+        BloomFilter<byte[]> bloomFilter =
+                BloomFilter.create(Funnels.byteArrayFunnel(), ALLOWLIST.length, 0.0001);
+        for (String word : ALLOWLIST) {
+            bloomFilter.put(MetricsLogger.getSha256(word));
+        }
+        assertMatchesLegacy(bloomFilter);
+    }
+
+    @Test
+    public void match_withDefaultBloomFilter_sameAsLegacyAlgorithm() throws Exception {
+        byte[] bloomFilterData =
+                DeviceBloomfilterGenerator.hexStringToByteArray(
+                        DeviceBloomfilterGenerator.BLOOM_FILTER_DEFAULT);
+        BloomFilter<byte[]> bloomFilter =
+                BloomFilter.readFrom(
+                        new ByteArrayInputStream(bloomFilterData), Funnels.byteArrayFunnel());
+        assertMatchesLegacy(bloomFilter);
+    }
+
+    @Test
+    public void match_longestFirstMatch() throws Exception {
+        BloomFilter<byte[]> bloomFilter =
+                BloomFilter.create(Funnels.byteArrayFunnel(), ALLOWLIST.length, 0.0001);
+        for (String word : ALLOWLIST) {
+            bloomFilter.put(MetricsLogger.getSha256(word));
+        }
+        DeviceNameMatcher matcher = new DeviceNameMatcher(bloomFilter, MAX_WORDS);
+
+        assertThat(matcher.match("My Pixel Buds Pro")).isEqualTo("pixelbuds");
+        assertThat(matcher.match("A B C D")).isEqualTo("abc");
+        // "ab" and "bc" have the same length, the first one wins
+        assertThat(matcher.match("ab - bc")).isEqualTo("ab");
+        assertThat(matcher.match("nothing here")).isEmpty();
+        assertThat(matcher.match(null)).isEmpty();
+        // Cached results are the same
+        assertThat(matcher.match("My Pixel Buds Pro")).isEqualTo("pixelbuds");
+    }
+
+    private static void assertMatchesLegacy(BloomFilter<byte[]> bloomFilter) throws Exception {
+        DeviceNameMatcher matcher = new DeviceNameMatcher(bloomFilter, MAX_WORDS);
+        List<String> names = new ArrayList<>(List.of(NAMES));
+        names.addAll(randomNames(2000));
+        for (String name : names) {
+            assertWithMessage(name)
+                    .that(matcher.match(name))
+                    .isEqualTo(legacyMatchedString(bloomFilter, legacyWordBreakdownList(name)));
+        }
+    }
+
+    private static List<String> randomNames(int count) {
+        String alphabet = "aAbBcCxX1  -_\té.";
+        Random random = new Random(1);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder name = new StringBuilder();
+            int length = random.nextInt(16);
+            for (int j = 0; j < length; j++) {
+                name.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            names.add(name.toString());
+        }
+        return names;
+    }
+
+    /** The word breakdown MetricsLogger used before DeviceNameMatcher */
+    private static List<String> legacyWordBreakdownList(String deviceName) {
+        if (deviceName == null) {
+            return Collections.emptyList();
+        }
+        deviceName = deviceName.trim().replaceAll(" +", " ");
+        String[] words = Ascii.toLowerCase(deviceName.replaceAll("[^a-zA-Z0-9 ]", "")).split(" ");
+        if (words.length > MAX_WORDS) {
+            return Collections.emptyList();
+        }
+        List<String> wordBreakdownList = new ArrayList<>();
+        for (int start = 0; start < words.length; start++) {
+            StringBuilder deviceNameCombination = new StringBuilder();
+            for (int end = start; end < words.length; end++) {
+                deviceNameCombination.append(words[end]);
+                wordBreakdownList.add(deviceNameCombination.toString());
+            }
+        }
+        return wordBreakdownList;
+    }
+
+    /** The matching MetricsLogger used before DeviceNameMatcher */
+    private static String legacyMatchedString(
+            BloomFilter<byte[]> bloomFilter, List<String> wordBreakdownList) throws Exception {
+        String matchedString = "";
+        for (String word : wordBreakdownList) {
+            byte[] sha256 =
+                    MessageDigest.getInstance("SHA-256")
+                            .digest(word.getBytes(StandardCharsets.UTF_8));
+            if (bloomFilter.mightContain(sha256) && word.length() > matchedString.length()) {
+                matchedString = word;
+            }
+        }
+        return matchedString;
+    }
+}
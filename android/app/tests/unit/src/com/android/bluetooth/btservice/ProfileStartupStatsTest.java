@@ -0,0 +1,94 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.btservice;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.bluetooth.BluetoothProfile;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicLong;
+
+@RunWith(AndroidJUnit4.class)
+public class ProfileStartupStatsTest {
+    private final AtomicLong mNanos = new AtomicLong();
+    private final ProfileStartupStats mStats = new ProfileStartupStats(mNanos::get);
+
+    @Test
+    public void dump_neverStarted() {
+        assertThat(dump()).contains("Profile startup: never started");
+    }
+
+    @Test
+    public void dump_containsTimingOfEachProfile() {
+        mStats.onStartupBegin();
+        startProfile(BluetoothProfile.A2DP);
+        startProfile(BluetoothProfile.HEADSET);
+
+        assertThat(dump()).contains("Profile startup: in progress");
+
+        mNanos.addAndGet(5_000_000);
+        mStats.onProfilesReady();
+
+        String dump = dump();
+        assertThat(dump).contains("Profile startup: ready in 11.0 ms");
+        assertThat(dump).contains("A2DP: constructed in 1.0 ms, started in 2.0 ms");
+        assertThat(dump).contains("HEADSET: constructed in 1.0 ms, started in 2.0 ms");
+    }
+
+    @Test
+    public void construct_returnsService() {
+        assertThat(mStats.construct(BluetoothProfile.A2DP, () -> "service")).isEqualTo("service");
+    }
+
+    @Test
+    public void onStartupBegin_forgetsPreviousStartup() {
+        mStats.onStartupBegin();
+        startProfile(BluetoothProfile.A2DP);
+        mStats.onProfilesReady();
+
+        mStats.onStartupBegin();
+        startProfile(BluetoothProfile.HEADSET);
+
+        String dump = dump();
+        assertThat(dump).contains("Profile startup: in progress");
+        assertThat(dump).doesNotContain("A2DP");
+        assertThat(dump).contains("HEADSET");
+    }
+
+    private void startProfile(int profileId) {
+        mStats.construct(
+                profileId,
+                () -> {
+                    mNanos.addAndGet(1_000_000);
+                    return BluetoothProfile.getProfileName(profileId);
+                });
+        mStats.start(profileId, () -> mNanos.addAndGet(2_000_000));
+    }
+
+    private String dump() {
+        StringWriter writer = new StringWriter();
+        mStats.dump(new PrintWriter(writer));
+        return writer.toString();
+    }
+}
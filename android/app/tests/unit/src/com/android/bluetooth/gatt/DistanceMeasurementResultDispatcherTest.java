@@ -0,0 +1,183 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.gatt;
+
+import static com.android.bluetooth.gatt.DistanceMeasurementResultDispatcher.MAX_PENDING_RESULTS;
+import static com.android.bluetooth.gatt.DistanceMeasurementResultDispatcher.RETRY_DELAY_MS;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.le.DistanceMeasurementMethod;
+import android.bluetooth.le.DistanceMeasurementParams;
+import android.bluetooth.le.DistanceMeasurementResult;
+import android.bluetooth.le.IDistanceMeasurementCallback;
+import android.os.DeadObjectException;
+import android.os.Handler;
+import android.os.RemoteException;
+import android.os.test.TestLooper;
+
+import androidx.test.filters.SmallTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/** Test cases for {@link DistanceMeasurementResultDispatcher}. */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class DistanceMeasurementResultDispatcherTest {
+    @Rule public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock private DistanceMeasurementManager mDistanceMeasurementManager;
+    @Mock private IDistanceMeasurementCallback mCallback;
+    private TestLooper mTestLooper;
+    private BluetoothDevice mDevice;
+    private DistanceMeasurementTracker mTracker;
+    private final List<DistanceMeasurementResult> mResults = new ArrayList<>();
+
+    private static final String IDENTITY_ADDRESS = "00:01:02:03:04:05";
+    private static final int MAX_LATENCY_MS = 200;
+
+    @Before
+    public void setUp() throws Exception {
+        mTestLooper = new TestLooper();
+        mDevice = BluetoothAdapter.getDefaultAdapter().getRemoteDevice(IDENTITY_ADDRESS);
+        DistanceMeasurementParams params =
+                new DistanceMeasurementParams.Builder(mDevice)
+                        .setDurationSeconds(1000)
+                        .setFrequency(DistanceMeasurementParams.REPORT_FREQUENCY_HIGH)
+                        .setMethodId(
+                                DistanceMeasurementMethod
+                                        .DISTANCE_MEASUREMENT_METHOD_CHANNEL_SOUNDING)
+                        .build();
+        mTracker =
+                new DistanceMeasurementTracker(
+                        mDistanceMeasurementManager,
+                        params,
+                        IDENTITY_ADDRESS,
+                        UUID.randomUUID(),
+                        1000,
+                        mCallback);
+        // Results don't implement equals, the same instances are checked
+        for (int i = 0; i < MAX_PENDING_RESULTS + 4; i++) {
+            mResults.add(new DistanceMeasurementResult.Builder(i / 100.0, 0.01).build());
+        }
+    }
+
+    @Test
+    public void dispatch_noLatencyBudget_sendsEachResultRightAway() throws RemoteException {
+        DistanceMeasurementResultDispatcher dispatcher = newDispatcher(0);
+
+        dispatcher.dispatch(mTracker, result(1));
+        dispatcher.dispatch(mTracker, result(2));
+
+        verify(mCallback).onResult(mDevice, result(1));
+        verify(mCallback).onResult(mDevice, result(2));
+        verify(mCallback, never()).onResults(any(), any());
+    }
+
+    @Test
+    public void dispatch_latencyBudget_sendsResultsInOneCall() throws RemoteException {
+        DistanceMeasurementResultDispatcher dispatcher = newDispatcher(MAX_LATENCY_MS);
+
+        dispatcher.dispatch(mTracker, result(1));
+        dispatcher.dispatch(mTracker, result(2));
+        dispatcher.dispatch(mTracker, result(3));
+        mTestLooper.moveTimeForward(MAX_LATENCY_MS - 1);
+        mTestLooper.dispatchAll();
+        verifyNoMoreInteractions(mCallback);
+
+        mTestLooper.moveTimeForward(1);
+        mTestLooper.dispatchAll();
+        verify(mCallback).onResults(mDevice, List.of(result(1), result(2), result(3)));
+        verifyNoMoreInteractions(mCallback);
+    }
+
+    @Test
+    public void dispatch_sendFails_keepsMostRecentResultsAndRetries() throws RemoteException {
+        DistanceMeasurementResultDispatcher dispatcher = newDispatcher(0);
+        doThrow(new RemoteException()).when(mCallback).onResult(eq(mDevice), any());
+
+        for (int i = 0; i < MAX_PENDING_RESULTS + 4; i++) {
+            dispatcher.dispatch(mTracker, result(i));
+        }
+        doNothing().when(mCallback).onResult(eq(mDevice), any());
+        mTestLooper.moveTimeForward(RETRY_DELAY_MS);
+        mTestLooper.dispatchAll();
+
+        ArgumentCaptor<List<DistanceMeasurementResult>> results =
+                ArgumentCaptor.forClass(List.class);
+        verify(mCallback).onResults(eq(mDevice), results.capture());
+        assertThat(results.getValue())
+                .containsExactlyElementsIn(mResults.subList(4, mResults.size()))
+                .inOrder();
+    }
+
+    @Test
+    public void dispatch_appDied_dropsResults() throws RemoteException {
+        DistanceMeasurementResultDispatcher dispatcher = newDispatcher(0);
+        doThrow(new DeadObjectException()).when(mCallback).onResult(eq(mDevice), any());
+
+        dispatcher.dispatch(mTracker, result(1));
+        mTestLooper.moveTimeForward(RETRY_DELAY_MS);
+        mTestLooper.dispatchAll();
+
+        verify(mCallback).onResult(mDevice, result(1));
+        verifyNoMoreInteractions(mCallback);
+    }
+
+    @Test
+    public void cancel_dropsPendingResults() throws RemoteException {
+        DistanceMeasurementResultDispatcher dispatcher = newDispatcher(MAX_LATENCY_MS);
+
+        dispatcher.dispatch(mTracker, result(1));
+        dispatcher.cancel(mTracker);
+        mTestLooper.moveTimeForward(MAX_LATENCY_MS);
+        mTestLooper.dispatchAll();
+
+        verifyNoMoreInteractions(mCallback);
+    }
+
+    private DistanceMeasurementResultDispatcher newDispatcher(int maxLatencyMs) {
+        return new DistanceMeasurementResultDispatcher(
+                new Handler(mTestLooper.getLooper()), maxLatencyMs);
+    }
+
+    private DistanceMeasurementResult result(int index) {
+        return mResults.get(index);
+    }
+}
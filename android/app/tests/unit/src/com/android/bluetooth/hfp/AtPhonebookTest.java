@@ -20,9 +20,11 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -30,8 +32,10 @@ import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.provider.CallLog;
 import android.provider.ContactsContract.CommonDataKinds.Phone;
+import android.provider.ContactsContract.PhoneLookup;
 import android.telephony.PhoneNumberUtils;
 
 import androidx.test.InstrumentationRegistry;
@@ -370,6 +374,86 @@ public class AtPhonebookTest {
         mAtPhonebook.processCpbrCommand(mTestDevice);
     }
 
+    @Test
+    public void processCpbrCommand_withSnapshot_readsPhonebookOnce() {
+        MatrixCursor calls =
+                new MatrixCursor(
+                        new String[] {
+                            CallLog.Calls._ID,
+                            CallLog.Calls.NUMBER,
+                            CallLog.Calls.NUMBER_PRESENTATION
+                        });
+        calls.addRow(new Object[] {1, "111", CallLog.Calls.PRESENTATION_ALLOWED});
+        calls.addRow(new Object[] {2, "111", CallLog.Calls.PRESENTATION_ALLOWED});
+        calls.addRow(new Object[] {3, "222", CallLog.Calls.PRESENTATION_ALLOWED});
+        doReturn(calls)
+                .when(mHfpMethodProxy)
+                .contentResolverQuery(any(), any(), any(), any(), any());
+        doAnswer(
+                        invocation -> {
+                            MatrixCursor lookup =
+                                    new MatrixCursor(
+                                            new String[] {
+                                                PhoneLookup.DISPLAY_NAME, PhoneLookup.TYPE
+                                            });
+                            lookup.addRow(new Object[] {"name", Phone.TYPE_MOBILE});
+                            return lookup;
+                        })
+                .when(mHfpMethodProxy)
+                .contentResolverQuery(any(), any(), any(), any(), any(), any());
+
+        mAtPhonebook.mSnapshotEnabled = true;
+        mAtPhonebook.mCurrentPhonebook = "MC";
+        mAtPhonebook.mCpbrIndex1 = 1;
+        mAtPhonebook.mCpbrIndex2 = 1;
+        assertThat(mAtPhonebook.processCpbrCommand(mTestDevice))
+                .isEqualTo(HeadsetHalConstants.AT_RESPONSE_OK);
+        mAtPhonebook.mCpbrIndex1 = 2;
+        mAtPhonebook.mCpbrIndex2 = 3;
+        assertThat(mAtPhonebook.processCpbrCommand(mTestDevice))
+                .isEqualTo(HeadsetHalConstants.AT_RESPONSE_OK);
+
+        verify(mHfpMethodProxy, times(1)).contentResolverQuery(any(), any(), any(), any(), any());
+        // One caller id lookup per distinct number
+        verify(mHfpMethodProxy, times(2))
+                .contentResolverQuery(any(), any(), any(), any(), any(), any());
+        verify(mNativeInterface)
+                .atResponseString(
+                        mTestDevice,
+                        "+CPBR: 2,\"111\","
+                                + PhoneNumberUtils.toaFromString("111")
+                                + ",\"name\"\r\n\r\n");
+        verify(mNativeInterface)
+                .atResponseString(
+                        mTestDevice,
+                        "+CPBR: 3,\"222\","
+                                + PhoneNumberUtils.toaFromString("222")
+                                + ",\"name\"\r\n\r\n");
+        mAtPhonebook.cleanup();
+    }
+
+    @Test
+    public void getPhonebookSnapshot_droppedOnPhonebookChange() {
+        MatrixCursor phones =
+                new MatrixCursor(
+                        new String[] {Phone._ID, Phone.DISPLAY_NAME, Phone.NUMBER, Phone.TYPE});
+        phones.addRow(new Object[] {1, "name", "111", Phone.TYPE_HOME});
+        doReturn(phones)
+                .when(mHfpMethodProxy)
+                .contentResolverQuery(any(), any(), any(), any(), any());
+        mAtPhonebook.mSnapshotEnabled = true;
+
+        AtPhonebook.PhonebookSnapshot snapshot = mAtPhonebook.getPhonebookSnapshot("ME");
+        assertThat(snapshot.size).isEqualTo(1);
+        assertThat(snapshot.names[0]).isEqualTo("name");
+        assertThat(mAtPhonebook.getPhonebookSnapshot("ME")).isSameInstanceAs(snapshot);
+
+        mAtPhonebook.mSnapshotObserver.onChange(false);
+
+        assertThat(mAtPhonebook.mSnapshot).isNull();
+        mAtPhonebook.cleanup();
+    }
+
     @Test
     public void setCpbrIndex() {
         int index = 1;
@@ -119,4 +119,35 @@ public class AppScanStatsTest {
 
         appScanStats.dumpToString(stringBuilder);
     }
+
+    @Test
+    public void addResult_fromManyThreads_countsEveryResult() throws Exception {
+        AppScanStats appScanStats =
+                new AppScanStats("appName", null, map, mMockContext, mMockScanHelper);
+        int scannerId = 0;
+        appScanStats.recordScanStart(
+                new ScanSettings.Builder().build(), new ArrayList<>(), false, false, scannerId);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread =
+                    new Thread(
+                            () -> {
+                                for (int i = 0; i < 250; i++) {
+                                    appScanStats.addResult(scannerId);
+                                }
+                            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(appScanStats.getScanFromScannerId(scannerId).results.get()).isEqualTo(1000);
+        StringBuilder stringBuilder = new StringBuilder();
+        appScanStats.dumpToString(stringBuilder);
+        assertThat(stringBuilder.toString()).contains("Total number of results");
+        assertThat(stringBuilder.toString()).contains(": 1000");
+    }
 }
@@ -19,11 +19,14 @@ package com.android.bluetooth.le_scan;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyBoolean;
 import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import android.bluetooth.BluetoothAdapter;
@@ -50,6 +53,9 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /** Test cases for {@link PeriodicScanManagerTest}. */
 @SmallTest
 @RunWith(AndroidJUnit4.class)
@@ -68,6 +74,8 @@ public class PeriodicScanManagerTest {
     private Context mTargetContext;
 
     private static final String REMOTE_DEVICE_ADDRESS = "00:01:02:03:04:05";
+    private static final String OTHER_DEVICE_ADDRESS = "00:01:02:03:04:06";
+    private static final byte[] REPORT_DATA = new byte[0];
 
     @Before
     public void setUp() throws Exception {
@@ -121,4 +129,138 @@ public class PeriodicScanManagerTest {
                 0);
         verify(mCallback).onSyncEstablished(anyInt(), eq(mTestDevice), eq(0), eq(0), eq(0), eq(0));
     }
+
+    @Test
+    public void syncsWithSameHandle_shareReportsUntilLastOneStops() throws Exception {
+        List<IPeriodicAdvertisingCallback> callbacks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            callbacks.add(newCallback());
+            mPeriodicScanManager.startSync(mScanResult, 0, 0, callbacks.get(i));
+        }
+        // Only the first one starts a sync, the others join it
+        int regId = captureRegId();
+        int syncHandle = 1;
+        mPeriodicScanManager.onSyncStarted(
+                regId,
+                syncHandle,
+                0,
+                BluetoothDevice.ADDRESS_TYPE_RANDOM,
+                REMOTE_DEVICE_ADDRESS,
+                0,
+                100,
+                0);
+        mPeriodicScanManager.onSyncReport(syncHandle, 0, 0, 0, REPORT_DATA);
+
+        for (IPeriodicAdvertisingCallback callback : callbacks) {
+            verify(callback)
+                    .onSyncEstablished(eq(syncHandle), eq(mTestDevice), eq(0), eq(0), eq(0), eq(0));
+            verify(callback).onPeriodicAdvertisingReport(any());
+        }
+
+        mPeriodicScanManager.stopSync(callbacks.get(0));
+        mPeriodicScanManager.stopSync(callbacks.get(1));
+        verify(mPeriodicScanNativeInterface, never()).stopSync(anyInt());
+        mPeriodicScanManager.onSyncReport(syncHandle, 0, 0, 0, REPORT_DATA);
+
+        verify(callbacks.get(0)).onPeriodicAdvertisingReport(any());
+        verify(callbacks.get(1)).onPeriodicAdvertisingReport(any());
+        verify(callbacks.get(2), times(2)).onPeriodicAdvertisingReport(any());
+
+        mPeriodicScanManager.stopSync(callbacks.get(2));
+        verify(mPeriodicScanNativeInterface).stopSync(syncHandle);
+        assertThat(mPeriodicScanManager.findAllSync(syncHandle)).isEmpty();
+    }
+
+    @Test
+    public void syncsWithDifferentHandles_onlyGetTheirOwnReports() throws Exception {
+        IPeriodicAdvertisingCallback callback1 = newCallback();
+        IPeriodicAdvertisingCallback callback2 = newCallback();
+        BluetoothDevice otherDevice =
+                mAdapter.getRemoteLeDevice(
+                        OTHER_DEVICE_ADDRESS, BluetoothDevice.ADDRESS_TYPE_RANDOM);
+        ScanResult otherScanResult = new ScanResult(otherDevice, 0, 0, 0, 0, 0, 0, 0, null, 0);
+
+        mPeriodicScanManager.startSync(mScanResult, 0, 0, callback1);
+        mPeriodicScanManager.startSync(otherScanResult, 0, 0, callback2);
+        ArgumentCaptor<Integer> regIds = ArgumentCaptor.forClass(Integer.class);
+        verify(mPeriodicScanNativeInterface, times(2))
+                .startSync(eq(0), any(), eq(0), eq(0), regIds.capture());
+        mPeriodicScanManager.onSyncStarted(
+                regIds.getAllValues().get(0),
+                1,
+                0,
+                BluetoothDevice.ADDRESS_TYPE_RANDOM,
+                REMOTE_DEVICE_ADDRESS,
+                0,
+                100,
+                0);
+        mPeriodicScanManager.onSyncStarted(
+                regIds.getAllValues().get(1),
+                2,
+                0,
+                BluetoothDevice.ADDRESS_TYPE_RANDOM,
+                OTHER_DEVICE_ADDRESS,
+                0,
+                100,
+                0);
+
+        mPeriodicScanManager.onSyncReport(1, 0, 0, 0, REPORT_DATA);
+        mPeriodicScanManager.onSyncReport(1, 0, 0, 0, REPORT_DATA);
+        mPeriodicScanManager.onBigInfoReport(2, true);
+
+        verify(callback1, times(2)).onPeriodicAdvertisingReport(any());
+        verify(callback2, never()).onPeriodicAdvertisingReport(any());
+        verify(callback1, never()).onBigInfoAdvertisingReport(anyInt(), anyBoolean());
+        verify(callback2).onBigInfoAdvertisingReport(2, true);
+
+        mPeriodicScanManager.onSyncLost(1);
+        mPeriodicScanManager.onSyncReport(1, 0, 0, 0, REPORT_DATA);
+        mPeriodicScanManager.onSyncReport(2, 0, 0, 0, REPORT_DATA);
+
+        verify(callback1).onSyncLost(1);
+        verify(callback2, never()).onSyncLost(anyInt());
+        verify(callback1, times(2)).onPeriodicAdvertisingReport(any());
+        verify(callback2).onPeriodicAdvertisingReport(any());
+        assertThat(mPeriodicScanManager.findAllSync(1)).isEmpty();
+        assertThat(mPeriodicScanManager.findAllSync(2)).hasSize(1);
+    }
+
+    @Test
+    public void onSyncStarted_failed_removesAllPendingSyncs() throws Exception {
+        IPeriodicAdvertisingCallback callback1 = newCallback();
+        IPeriodicAdvertisingCallback callback2 = newCallback();
+        mPeriodicScanManager.startSync(mScanResult, 0, 0, callback1);
+        mPeriodicScanManager.startSync(mScanResult, 0, 0, callback2);
+        int regId = captureRegId();
+
+        mPeriodicScanManager.onSyncStarted(
+                regId,
+                1,
+                0,
+                BluetoothDevice.ADDRESS_TYPE_RANDOM,
+                REMOTE_DEVICE_ADDRESS,
+                0,
+                100,
+                1 /* failure */);
+
+        verify(callback1).onSyncEstablished(eq(1), any(), eq(0), eq(0), eq(0), eq(1));
+        verify(callback2).onSyncEstablished(eq(1), any(), eq(0), eq(0), eq(0), eq(1));
+        assertThat(mPeriodicScanManager.findAllSync(regId)).isEmpty();
+        assertThat(mPeriodicScanManager.findAllSync(1)).isEmpty();
+    }
+
+    private IPeriodicAdvertisingCallback newCallback() throws Exception {
+        IPeriodicAdvertisingCallback callback = mock(IPeriodicAdvertisingCallback.class);
+        IBinder binder = mock(IBinder.class);
+        doReturn(binder).when(callback).asBinder();
+        doNothing().when(binder).linkToDeath(any(), eq(0));
+        return callback;
+    }
+
+    private int captureRegId() {
+        ArgumentCaptor<Integer> regId = ArgumentCaptor.forClass(Integer.class);
+        verify(mPeriodicScanNativeInterface)
+                .startSync(eq(0), eq(REMOTE_DEVICE_ADDRESS), eq(0), eq(0), regId.capture());
+        return regId.getValue();
+    }
 }
@@ -25,6 +25,10 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
 @MediumTest
 @RunWith(AndroidJUnit4.class)
 public class BmessageTest {
@@ -94,6 +98,60 @@ public class BmessageTest {
         Assert.assertNull(message);
     }
 
+    @Test
+    public void testStreamParser_matchesStringParser() {
+        Bmessage expected = BmessageParser.createBmessage(SIMPLE_MMS_MESSAGE);
+        Bmessage message = new BmessageParser().parse(toStream(SIMPLE_MMS_MESSAGE));
+        Assert.assertNotNull(message);
+        Assert.assertEquals(expected.toString(), message.toString());
+        Assert.assertEquals(expected.getBodyContent(), message.getBodyContent());
+    }
+
+    @Test
+    public void testStreamParser_malformedMessages() {
+        BmessageParser parser = new BmessageParser();
+        Assert.assertNull(parser.parse(toStream(WRONG_LENGTH_MESSAGE)));
+        Assert.assertNull(parser.parse(toStream(NO_END_MESSAGE)));
+        Assert.assertNull(parser.parse(toStream(NO_BODY_MESSAGE)));
+        Assert.assertNull(parser.parse(toStream(NEGATIVE_LENGTH_MESSAGE)));
+        Assert.assertNull(
+                parser.parse(toStream(new String(new char[68048]).replace('\0', 'A'))));
+    }
+
+    @Test
+    public void testStreamParser_reusedAfterError() {
+        BmessageParser parser = new BmessageParser();
+        Assert.assertNull(parser.parse(toStream(NO_END_MESSAGE)));
+        Bmessage first = parser.parse(toStream(SIMPLE_MMS_MESSAGE));
+        Bmessage second = parser.parse(toStream(SIMPLE_MMS_MESSAGE));
+        Assert.assertNotNull(first);
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(first.toString(), second.toString());
+    }
+
+    @Test
+    public void testStreamParser_multiByteBody() {
+        String body = "h\u00e9llo \u4e16\u754c";
+        int length = body.getBytes(StandardCharsets.UTF_8).length + 22;
+        String bmsg =
+                "BEGIN:BMSG\r\nVERSION:1.0\r\nSTATUS:READ\r\nTYPE:SMS_GSM\r\nFOLDER:null\r\n"
+                        + "BEGIN:BENV\r\nBEGIN:BBODY\r\nCHARSET:UTF-8\r\nLENGTH:"
+                        + length
+                        + "\r\nBEGIN:MSG\r\n"
+                        + body
+                        + "\r\nEND:MSG\r\nEND:BBODY\r\nEND:BENV\r\nEND:BMSG\r\n";
+
+        Bmessage message = new BmessageParser().parse(toStream(bmsg));
+        Assert.assertNotNull(message);
+        Assert.assertEquals(body, message.getBodyContent());
+        Assert.assertEquals(
+                BmessageParser.createBmessage(bmsg).getBodyContent(), message.getBodyContent());
+    }
+
+    static InputStream toStream(String bmsg) {
+        return new ByteArrayInputStream(bmsg.getBytes(StandardCharsets.UTF_8));
+    }
+
     @Test
     public void setCharset() {
         Bmessage message = new Bmessage();
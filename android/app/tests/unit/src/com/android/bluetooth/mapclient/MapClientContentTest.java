@@ -30,9 +30,13 @@ import static org.mockito.Mockito.when;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothMapClient;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.Telephony.Mms;
@@ -61,8 +65,10 @@ import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @MediumTest
@@ -226,6 +232,65 @@ public class MapClientContentTest {
         Assert.assertEquals(0, mMockMmsContentProvider.mContentValues.size());
     }
 
+    /** Test that a group of messages is stored with one batch per provider. */
+    @Test
+    public void testStoreMessages_batchesProviderWrites() {
+        mMapClientContent = new MapClientContent(mMockContext, mCallbacks, mTestDevice);
+        mMapClientContent.storeMessages(inboundMessages());
+
+        assertThat(mMockSmsContentProvider.mContentValues).hasSize(2);
+        assertThat(mMockMmsContentProvider.mContentValues).hasSize(1);
+        assertThat(mMockSmsContentProvider.mBatchCount).isEqualTo(1);
+        // One batch for the message rows, one for their addresses and parts
+        assertThat(mMockMmsContentProvider.mBatchCount).isEqualTo(2);
+
+        mMapClientContent.cleanUp();
+        assertThat(mMockSmsContentProvider.mContentValues).isEmpty();
+        assertThat(mMockMmsContentProvider.mContentValues).isEmpty();
+    }
+
+    /** Test that only the message whose insert failed in a batch is stored again. */
+    @Test
+    public void testStoreMessages_failedInsert_storesOnlyThatMessageAgain() {
+        mMockSmsContentProvider.mFailingPath = "inbox";
+        mMockSmsContentProvider.mFailingInserts = 1;
+        mMapClientContent = new MapClientContent(mMockContext, mCallbacks, mTestDevice);
+
+        mMapClientContent.storeMessages(inboundMessages());
+
+        assertThat(mMockSmsContentProvider.mContentValues).hasSize(2);
+        assertThat(mMockSmsContentProvider.mBatchCount).isEqualTo(1);
+        assertThat(mMockMmsContentProvider.mContentValues).hasSize(1);
+    }
+
+    /** Test that messages aren't inserted again after a batch failed in an unknown state. */
+    @Test
+    public void testStoreMessages_failedBatch_doesNotDuplicateMessages() {
+        mMockSmsContentProvider.mBatchFailsAfter = 1;
+        mMapClientContent = new MapClientContent(mMockContext, mCallbacks, mTestDevice);
+
+        mMapClientContent.storeMessages(inboundMessages());
+
+        // The first message was inserted before the failure, the second one is dropped
+        assertThat(mMockSmsContentProvider.mContentValues).hasSize(1);
+        assertThat(mMockMmsContentProvider.mContentValues).hasSize(1);
+    }
+
+    /** Test that an MMS whose parts failed to be inserted is rolled back and stored again. */
+    @Test
+    public void testStoreMessages_failedMmsPart_rollsBackAndStoresMessageAgain() {
+        mMockMmsContentProvider.mFailingPath = "/part";
+        mMockMmsContentProvider.mFailingInserts = 1;
+        mMapClientContent = new MapClientContent(mMockContext, mCallbacks, mTestDevice);
+
+        mMapClientContent.storeMessages(inboundMessages());
+
+        assertThat(mMockMmsContentProvider.mDeletedUris)
+                .containsExactly(Uri.withAppendedPath(Mms.CONTENT_URI, "1"));
+        assertThat(mMockMmsContentProvider.mContentValues).hasSize(1);
+        assertThat(mMockSmsContentProvider.mContentValues).hasSize(2);
+    }
+
     /** Test read status changed */
     @Test
     public void testReadStatusChanged() {
@@ -506,6 +571,17 @@ public class MapClientContentTest {
         assertThat(sb.toString()).isNotNull();
     }
 
+    /** Two SMS and an MMS received together */
+    private List<MapClientContent.InboundMessage> inboundMessages() {
+        return Arrays.asList(
+                new MapClientContent.InboundMessage(
+                        mTestMessage1, mTestMessage1Handle, mTestMessage1Timestamp, MESSAGE_SEEN),
+                new MapClientContent.InboundMessage(
+                        mTestMessage2, mTestMessage2Handle, mTestMessage1Timestamp, MESSAGE_SEEN),
+                new MapClientContent.InboundMessage(
+                        mTestMessage1, "0003", mTestMessage1Timestamp, MESSAGE_SEEN));
+    }
+
     void createTestMessages() {
         mOriginator = new VCardEntry();
         VCardProperty property = new VCardProperty();
@@ -529,15 +605,46 @@ public class MapClientContentTest {
     static class FakeContentProvider extends MockContentProvider {
 
         Map<Uri, ContentValues> mContentValues = new HashMap<>();
+        List<Uri> mDeletedUris = new ArrayList<>();
+        int mBatchCount = 0;
+        // Number of the next inserts into a URI ending with mFailingPath that fail
+        int mFailingInserts = 0;
+        String mFailingPath;
+        // Number of operations applied before the whole batch fails, -1 to apply all of them
+        int mBatchFailsAfter = -1;
 
         FakeContentProvider(Context context) {
             super(context);
         }
 
+        @Override
+        public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+                throws OperationApplicationException {
+            mBatchCount++;
+            ContentProviderResult[] results = new ContentProviderResult[operations.size()];
+            for (int i = 0; i < operations.size(); i++) {
+                if (i == mBatchFailsAfter) {
+                    throw new IllegalStateException("Batch failed after " + i + " operations");
+                }
+                ContentProviderOperation operation = operations.get(i);
+                try {
+                    ContentValues values = operation.resolveValueBackReferences(results, i);
+                    results[i] = new ContentProviderResult(insert(operation.getUri(), values));
+                } catch (RuntimeException e) {
+                    if (!operation.isExceptionAllowed()) {
+                        throw e;
+                    }
+                    results[i] = new ContentProviderResult(e);
+                }
+            }
+            return results;
+        }
+
         @Override
         public int delete(Uri uri, String selection, String[] selectionArgs) {
             Log.i(TAG, "Delete " + uri);
             Log.i(TAG, "Contents" + mContentValues.toString());
+            mDeletedUris.add(uri);
             mContentValues.remove(uri);
             if (uri.equals(Sms.CONTENT_URI) || uri.equals(Mms.CONTENT_URI)) {
                 mContentValues.clear();
@@ -548,6 +655,10 @@ public class MapClientContentTest {
         @Override
         public Uri insert(Uri uri, ContentValues values) {
             Log.i(TAG, "URI = " + uri);
+            if (mFailingInserts > 0 && uri.toString().endsWith(mFailingPath)) {
+                mFailingInserts--;
+                throw new SQLiteException("Insert into " + uri + " failed");
+            }
             if (uri.equals(Mms.Inbox.CONTENT_URI)) uri = Mms.CONTENT_URI;
             Uri returnUri = Uri.withAppendedPath(uri, String.valueOf(mContentValues.size() + 1));
             // only store top level message parts
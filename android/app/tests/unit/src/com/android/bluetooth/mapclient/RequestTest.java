@@ -18,6 +18,8 @@ package com.android.bluetooth.mapclient;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.junit.Assert.assertThrows;
+
 import androidx.test.filters.MediumTest;
 import androidx.test.runner.AndroidJUnit4;
 
@@ -39,6 +41,7 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
 @MediumTest
 @RunWith(AndroidJUnit4.class)
@@ -113,6 +116,65 @@ public class RequestTest {
         assertThat(newRequest.getHandle()).isEqualTo(HANDLE);
     }
 
+    @Test
+    public void testRequestGetMessages() throws IOException {
+        RequestGetMessages newRequest =
+                new RequestGetMessages(
+                        Arrays.asList(HANDLE, HANDLE),
+                        MasClient.CharsetType.UTF_8,
+                        /*attachment*/ false);
+        newRequest.execute(mFakeClientSession);
+
+        assertThat(newRequest.isSuccess()).isTrue();
+        assertThat(newRequest.getRequests()).hasSize(2);
+        for (RequestGetMessage request : newRequest.getRequests()) {
+            assertThat(request.isSuccess()).isTrue();
+            assertThat(request.getHandle()).isEqualTo(HANDLE);
+            assertThat(request.getMessage().toString()).isEqualTo(TEST_MESSAGE.toString());
+        }
+    }
+
+    @Test
+    public void testRequestGetMessages_failureInTheMiddle_keepsPreviousMessages() {
+        RequestGetMessage failingRequest =
+                new RequestGetMessage(HANDLE, MasClient.CharsetType.UTF_8, /*attachment*/ false) {
+                    @Override
+                    public void execute(ClientSession session) throws IOException {
+                        throw new IOException("Connection lost");
+                    }
+                };
+        RequestGetMessages newRequest =
+                new RequestGetMessages(
+                        new RequestGetMessage(HANDLE, MasClient.CharsetType.UTF_8, false),
+                        failingRequest,
+                        new RequestGetMessage(HANDLE, MasClient.CharsetType.UTF_8, false));
+
+        assertThrows(IOException.class, () -> newRequest.execute(mFakeClientSession));
+
+        assertThat(newRequest.isSuccess()).isFalse();
+        assertThat(newRequest.hasPartialResult()).isTrue();
+        List<RequestGetMessage> requests = newRequest.getRequests();
+        assertThat(requests.get(0).getMessage().toString()).isEqualTo(TEST_MESSAGE.toString());
+        assertThat(requests.get(1).getMessage()).isNull();
+        assertThat(requests.get(2).getMessage()).isNull();
+    }
+
+    @Test
+    public void testRequestGetMessages_firstFails_hasNoPartialResult() {
+        RequestGetMessage failingRequest =
+                new RequestGetMessage(HANDLE, MasClient.CharsetType.UTF_8, /*attachment*/ false) {
+                    @Override
+                    public void execute(ClientSession session) throws IOException {
+                        throw new IOException("Connection lost");
+                    }
+                };
+        RequestGetMessages newRequest = new RequestGetMessages(failingRequest);
+
+        assertThrows(IOException.class, () -> newRequest.execute(mFakeClientSession));
+
+        assertThat(newRequest.hasPartialResult()).isFalse();
+    }
+
     @Test
     public void testRequestGetFolderListing() throws IOException {
         RequestGetFolderListing newRequest =
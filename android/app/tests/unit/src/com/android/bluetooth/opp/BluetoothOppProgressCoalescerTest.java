@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.opp;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+import android.os.test.TestLooper;
+
+import androidx.test.filters.SmallTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.bluetooth.BluetoothMethodProxy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.verification.VerificationMode;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class BluetoothOppProgressCoalescerTest {
+    @Rule public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock BluetoothMethodProxy mMethodProxy;
+
+    private final Uri mContentUri = Uri.parse(BluetoothShare.CONTENT_URI + "/1");
+    private TestLooper mLooper;
+    private BluetoothOppProgressCoalescer mCoalescer;
+
+    @Before
+    public void setUp() {
+        BluetoothMethodProxy.setInstanceForTesting(mMethodProxy);
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mLooper = new TestLooper();
+        mCoalescer = new BluetoothOppProgressCoalescer(context, mContentUri, mLooper.getLooper());
+    }
+
+    @After
+    public void tearDown() {
+        BluetoothMethodProxy.setInstanceForTesting(null);
+    }
+
+    @Test
+    public void update_writesLatestPositionOncePerInterval() {
+        mCoalescer.start();
+        mCoalescer.update(100);
+        mCoalescer.update(200);
+        mCoalescer.update(300);
+        verifyCurrentBytesWritten(300, never());
+
+        mLooper.moveTimeForward(BluetoothOppProgressCoalescer.UPDATE_INTERVAL_MS);
+        mLooper.dispatchAll();
+        verifyCurrentBytesWritten(300, times(1));
+        verifyCurrentBytesWritten(100, never());
+        verifyCurrentBytesWritten(200, never());
+
+        // Nothing new since the last write
+        mLooper.moveTimeForward(BluetoothOppProgressCoalescer.UPDATE_INTERVAL_MS);
+        mLooper.dispatchAll();
+        verifyCurrentBytesWritten(300, times(1));
+    }
+
+    @Test
+    public void stop_writesFinalPositionAndStopsTimer() {
+        mCoalescer.start();
+        mCoalescer.update(100);
+        mCoalescer.stop(500);
+        verifyCurrentBytesWritten(500, times(1));
+
+        mCoalescer.update(600);
+        mLooper.moveTimeForward(BluetoothOppProgressCoalescer.UPDATE_INTERVAL_MS);
+        mLooper.dispatchAll();
+        verifyCurrentBytesWritten(600, never());
+    }
+
+    @Test
+    public void stop_withoutProgress_doesNotWrite() {
+        mCoalescer.start();
+        mCoalescer.stop(0);
+        verify(mMethodProxy, never())
+                .contentResolverUpdate(any(), any(), any(), isNull(), isNull());
+    }
+
+    private void verifyCurrentBytesWritten(long position, VerificationMode mode) {
+        verify(mMethodProxy, mode)
+                .contentResolverUpdate(
+                        any(),
+                        eq(mContentUri),
+                        argThat(hasCurrentBytes(position)),
+                        isNull(),
+                        isNull());
+    }
+
+    private static ArgumentMatcher<ContentValues> hasCurrentBytes(long position) {
+        return values ->
+                values != null
+                        && Long.valueOf(position)
+                                .equals(values.getAsLong(BluetoothShare.CURRENT_BYTES));
+    }
+}
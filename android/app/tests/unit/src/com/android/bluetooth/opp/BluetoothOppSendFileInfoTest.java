@@ -26,11 +26,14 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import android.content.Context;
 import android.content.res.AssetFileDescriptor;
 import android.database.MatrixCursor;
 import android.net.Uri;
+import android.os.ParcelFileDescriptor;
 import android.provider.OpenableColumns;
 
 import androidx.test.platform.app.InstrumentationRegistry;
@@ -47,7 +50,10 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 
 @RunWith(AndroidJUnit4.class)
@@ -308,6 +314,108 @@ public class BluetoothOppSendFileInfoTest {
         assertThat(info.mStatus).isEqualTo(0);
     }
 
+    @Test
+    public void generateFileInfo_withoutLengthFromProvider_usesChannelSizeWithoutReopening()
+            throws IOException {
+        String type = "text/plain";
+        Uri uri = Uri.parse("content:///hello/world");
+        String fileName = "coolName.txt";
+        int fileLength = 1000;
+
+        File file = createTempFile(fileLength);
+        try {
+            mCursor =
+                    new MatrixCursor(
+                            new String[] {OpenableColumns.DISPLAY_NAME, OpenableColumns.SIZE});
+            mCursor.addRow(new Object[] {fileName, 0});
+            doReturn(mCursor)
+                    .when(mCallProxy)
+                    .contentResolverQuery(any(), eq(uri), any(), any(), any(), any());
+            doThrow(new FileNotFoundException())
+                    .when(mCallProxy)
+                    .contentResolverOpenAssetFileDescriptor(any(), eq(uri), any());
+            doReturn(new FileInputStream(file))
+                    .when(mCallProxy)
+                    .contentResolverOpenInputStream(any(), eq(uri));
+
+            BluetoothOppSendFileInfo info =
+                    BluetoothOppSendFileInfo.generateFileInfo(mContext, uri, type, true);
+
+            assertThat(info.mLength).isEqualTo((long) fileLength);
+            assertThat(info.mStatus).isEqualTo(0);
+            // The stream was not consumed to find the size
+            assertThat(info.mInputStream.getChannel().position()).isEqualTo(0L);
+            verify(mCallProxy, times(1)).contentResolverOpenInputStream(any(), eq(uri));
+            info.mInputStream.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void generateFileInfo_withoutLengthFromPipe_readsStreamAndReopens()
+            throws IOException {
+        String type = "text/plain";
+        Uri uri = Uri.parse("content:///hello/world");
+        String fileName = "coolName.txt";
+        int fileLength = 10;
+
+        ParcelFileDescriptor[] pipe = ParcelFileDescriptor.createPipe();
+        try (FileOutputStream out = new ParcelFileDescriptor.AutoCloseOutputStream(pipe[1])) {
+            out.write(new byte[fileLength]);
+        }
+        FileInputStream pipeStream = new ParcelFileDescriptor.AutoCloseInputStream(pipe[0]);
+        FileInputStream reopenedStream = mock(FileInputStream.class);
+        try {
+            mCursor =
+                    new MatrixCursor(
+                            new String[] {OpenableColumns.DISPLAY_NAME, OpenableColumns.SIZE});
+            mCursor.addRow(new Object[] {fileName, 0});
+            doReturn(mCursor)
+                    .when(mCallProxy)
+                    .contentResolverQuery(any(), eq(uri), any(), any(), any(), any());
+            doThrow(new FileNotFoundException())
+                    .when(mCallProxy)
+                    .contentResolverOpenAssetFileDescriptor(any(), eq(uri), any());
+            doReturn(pipeStream, reopenedStream)
+                    .when(mCallProxy)
+                    .contentResolverOpenInputStream(any(), eq(uri));
+
+            BluetoothOppSendFileInfo info =
+                    BluetoothOppSendFileInfo.generateFileInfo(mContext, uri, type, true);
+
+            // A pipe has no size, it is read through and opened again for the transfer
+            assertThat(info.mLength).isEqualTo((long) fileLength);
+            assertThat(info.mInputStream).isSameInstanceAs(reopenedStream);
+            verify(mCallProxy, times(2)).contentResolverOpenInputStream(any(), eq(uri));
+        } finally {
+            pipeStream.close();
+        }
+    }
+
+    @Test
+    public void getChannelSize_withFile_returnsBytesLeft() throws IOException {
+        File file = createTempFile(1000);
+        try (FileInputStream is = new FileInputStream(file)) {
+            assertThat(BluetoothOppSendFileInfo.getChannelSize(is)).isEqualTo(1000L);
+
+            assertThat(is.skip(100)).isEqualTo(100);
+            assertThat(BluetoothOppSendFileInfo.getChannelSize(is)).isEqualTo(900L);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void getChannelSize_withPipe_returnsZero() throws IOException {
+        ParcelFileDescriptor[] pipe = ParcelFileDescriptor.createPipe();
+        try (FileInputStream is = new ParcelFileDescriptor.AutoCloseInputStream(pipe[0])) {
+            assertThat(BluetoothOppSendFileInfo.getChannelSize(is)).isEqualTo(0L);
+        } finally {
+            pipe[1].close();
+        }
+    }
+
     @Test
     public void generateFileInfo_withFileUriNotInExternalStorageDir_returnFileErrorInfo() {
         String type = "text/plain";
@@ -318,4 +426,12 @@ public class BluetoothOppSendFileInfoTest {
 
         assertThat(info).isEqualTo(BluetoothOppSendFileInfo.SEND_FILE_INFO_ERROR);
     }
+
+    private static File createTempFile(int length) throws IOException {
+        File file = File.createTempFile("BluetoothOppSendFileInfoTest", ".txt");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[length]);
+        }
+        return file;
+    }
 }
@@ -32,6 +32,7 @@ import static org.mockito.Mockito.verify;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.database.MatrixCursor;
+import android.net.Uri;
 import android.os.Looper;
 
 import androidx.test.filters.MediumTest;
@@ -176,6 +177,201 @@ public class BluetoothOppServiceTest {
         assertThat(mService.mBatches).containsExactly(batch2);
     }
 
+    @Test
+    public void getShareId_onlyAcceptsShareUris() {
+        assertThat(BluetoothOppService.getShareId(Uri.parse(BluetoothShare.CONTENT_URI + "/12")))
+                .isEqualTo(12);
+        assertThat(BluetoothOppService.getShareId(BluetoothShare.CONTENT_URI)).isEqualTo(-1);
+        assertThat(BluetoothOppService.getShareId(Uri.parse(BluetoothShare.CONTENT_URI + "/a")))
+                .isEqualTo(-1);
+        assertThat(BluetoothOppService.getShareId(Uri.parse("content://other/btopp/12")))
+                .isEqualTo(-1);
+        assertThat(BluetoothOppService.getShareId(null)).isEqualTo(-1);
+    }
+
+    @Test
+    public void applyShareUpdate_progressOnly_updatesShareInPlace() {
+        BluetoothOppShareInfo shareInfo = createShareInfo(3, 1000);
+        mService.mShares.clear();
+        mService.mShares.add(shareInfo);
+        mService.mBatches.clear();
+
+        MatrixCursor cursor = createShareCursor();
+        cursor.addRow(shareRow(shareInfo, 400));
+        doReturn(cursor)
+                .when(mBluetoothMethodProxy)
+                .contentResolverQuery(
+                        any(),
+                        eq(Uri.parse(BluetoothShare.CONTENT_URI + "/3")),
+                        any(),
+                        any(),
+                        any(),
+                        any());
+
+        mService.applyShareUpdate(3);
+
+        assertThat(mService.mShares).containsExactly(shareInfo);
+        assertThat(shareInfo.mCurrentBytes).isEqualTo(400);
+        assertThat(cursor.isClosed()).isTrue();
+    }
+
+    @Test
+    public void applyShareUpdate_deletedShare_removesShare() {
+        BluetoothOppShareInfo shareInfo = createShareInfo(3, 1000);
+        BluetoothOppShareInfo otherInfo = createShareInfo(5, 1000);
+        mService.mShares.clear();
+        mService.mShares.add(shareInfo);
+        mService.mShares.add(otherInfo);
+        mService.mBatches.clear();
+
+        doReturn(createShareCursor())
+                .when(mBluetoothMethodProxy)
+                .contentResolverQuery(
+                        any(),
+                        eq(Uri.parse(BluetoothShare.CONTENT_URI + "/3")),
+                        any(),
+                        any(),
+                        any(),
+                        any());
+
+        mService.applyShareUpdate(3);
+
+        assertThat(mService.mShares).containsExactly(otherInfo);
+    }
+
+    @Test
+    public void getStartableOutboundBatches_perDeviceFifoUpToCap() {
+        BluetoothOppBatch deviceA1 = createOutboundBatch(1, "00:11:22:33:44:01");
+        BluetoothOppBatch deviceA2 = createOutboundBatch(2, "00:11:22:33:44:01");
+        BluetoothOppBatch deviceB = createOutboundBatch(3, "00:11:22:33:44:02");
+        BluetoothOppBatch deviceC = createOutboundBatch(4, "00:11:22:33:44:03");
+        mService.mBatches.clear();
+        mService.mBatches.add(deviceA1);
+        mService.mBatches.add(deviceA2);
+        mService.mBatches.add(deviceB);
+        mService.mBatches.add(deviceC);
+        mService.mMaxConcurrentTransfers = 2;
+
+        assertThat(mService.getStartableOutboundBatches())
+                .containsExactly(deviceA1, deviceB)
+                .inOrder();
+
+        // A1 is running, only one slot is left and A2 has to wait for A1
+        deviceA1.mStatus = Constants.BATCH_STATUS_RUNNING;
+        mService.mOutboundTransfers.put(deviceA1.mDestination, mock(BluetoothOppTransfer.class));
+
+        assertThat(mService.getStartableOutboundBatches()).containsExactly(deviceB);
+
+        mService.mOutboundTransfers.clear();
+    }
+
+    @Test
+    public void getStartableOutboundBatches_sameUri_runsOneBatchAtATime() {
+        Uri file = Uri.parse("content://com.android.bluetooth.opp.test/file@1");
+        Uri otherFile = Uri.parse("content://com.android.bluetooth.opp.test/file@2");
+        BluetoothOppBatch deviceA = createOutboundBatch(1, "00:11:22:33:44:01", file);
+        BluetoothOppBatch deviceB = createOutboundBatch(2, "00:11:22:33:44:02", file);
+        BluetoothOppBatch deviceC = createOutboundBatch(3, "00:11:22:33:44:03", otherFile);
+        mService.mBatches.clear();
+        mService.mBatches.add(deviceA);
+        mService.mBatches.add(deviceB);
+        mService.mBatches.add(deviceC);
+        mService.mMaxConcurrentTransfers = 3;
+
+        // B would read the input stream of the same send info as A
+        assertThat(mService.getStartableOutboundBatches())
+                .containsExactly(deviceA, deviceC)
+                .inOrder();
+
+        BluetoothOppTransfer transferA = mock(BluetoothOppTransfer.class);
+        doReturn(deviceA.mId).when(transferA).getBatchId();
+        deviceA.mStatus = Constants.BATCH_STATUS_RUNNING;
+        mService.mOutboundTransfers.put(deviceA.mDestination, transferA);
+
+        assertThat(mService.getStartableOutboundBatches()).containsExactly(deviceC);
+
+        // B starts once A is done with the file
+        mService.mBatches.remove(deviceA);
+        mService.mOutboundTransfers.clear();
+
+        assertThat(mService.getStartableOutboundBatches())
+                .containsExactly(deviceB, deviceC)
+                .inOrder();
+    }
+
+    private BluetoothOppBatch createOutboundBatch(int id, String destination) {
+        return createOutboundBatch(id, destination, null);
+    }
+
+    private BluetoothOppBatch createOutboundBatch(int id, String destination, Uri uri) {
+        BluetoothOppShareInfo info =
+                new BluetoothOppShareInfo(
+                        id,
+                        uri,
+                        "hint",
+                        "filename",
+                        "mimetype",
+                        BluetoothShare.DIRECTION_OUTBOUND,
+                        destination,
+                        BluetoothShare.VISIBILITY_VISIBLE,
+                        BluetoothShare.USER_CONFIRMATION_AUTO_CONFIRMED,
+                        BluetoothShare.STATUS_PENDING,
+                        1000, // totalBytes
+                        0, // currentBytes
+                        id, // timestamp
+                        false); // mediaScanned
+        BluetoothOppBatch batch = new BluetoothOppBatch(mService, info);
+        batch.mId = id;
+        return batch;
+    }
+
+    private static BluetoothOppShareInfo createShareInfo(int id, long totalBytes) {
+        return new BluetoothOppShareInfo(
+                id,
+                null, // Uri,
+                "hint",
+                "filename",
+                "mimetype",
+                BluetoothShare.DIRECTION_INBOUND,
+                "AA:BB:CC:DD:EE:FF", // destination
+                BluetoothShare.VISIBILITY_VISIBLE,
+                BluetoothShare.USER_CONFIRMATION_CONFIRMED,
+                BluetoothShare.STATUS_RUNNING,
+                totalBytes,
+                0, // currentBytes
+                123456789, // timestamp
+                false); // mediaScanned
+    }
+
+    private static MatrixCursor createShareCursor() {
+        return new MatrixCursor(
+                new String[] {
+                    BluetoothShare._ID,
+                    BluetoothShare.STATUS,
+                    BluetoothShare.USER_CONFIRMATION,
+                    BluetoothShare.VISIBILITY,
+                    BluetoothShare.TOTAL_BYTES,
+                    BluetoothShare.CURRENT_BYTES,
+                    BluetoothShare.TIMESTAMP,
+                    Constants.MEDIA_SCANNED,
+                    BluetoothShare._DATA
+                });
+    }
+
+    private static Object[] shareRow(BluetoothOppShareInfo info, long currentBytes) {
+        return new Object[] {
+            info.mId,
+            info.mStatus,
+            info.mConfirm,
+            info.mVisibility,
+            info.mTotalBytes,
+            currentBytes,
+            info.mTimestamp,
+            Constants.MEDIA_SCANNED_NOT_SCANNED,
+            info.mFilename
+        };
+    }
+
     @Test
     public void dump_shouldNotThrow() {
         BluetoothOppShareInfo info = mock(BluetoothOppShareInfo.class);
@@ -30,6 +30,7 @@ import androidx.test.filters.SmallTest;
 import androidx.test.runner.AndroidJUnit4;
 
 import com.android.bluetooth.TestUtils;
+import com.android.vcard.VCardEntry;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -37,6 +38,8 @@ import org.junit.runner.RunWith;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 @SmallTest
 @RunWith(AndroidJUnit4.class)
@@ -120,4 +123,50 @@ public class BluetoothPbapVcardListTest {
                         ACCOUNT, fileStream, PbapClientConnectionHandler.VCARD_TYPE_30);
         assertThat(result.getCount()).isEqualTo(0);
     }
+
+    private static final String TWO_VCARDS_WITH_PHOTO =
+            "BEGIN:VCARD\r\n"
+                    + "VERSION:3.0\r\n"
+                    + "N:Doe;John;;;\r\n"
+                    + "FN:John Doe\r\n"
+                    + "PHOTO;ENCODING=b;TYPE=JPEG:AAECAwQFBgcICQ==\r\n"
+                    + "END:VCARD\r\n"
+                    + "BEGIN:VCARD\r\n"
+                    + "VERSION:3.0\r\n"
+                    + "N:Roe;Jane;;;\r\n"
+                    + "FN:Jane Roe\r\n"
+                    + "END:VCARD\r\n";
+
+    @Test
+    public void constructor_withSink_streamsEntriesWithoutCollectingThem() throws IOException {
+        List<VCardEntry> streamed = new ArrayList<>();
+
+        BluetoothPbapVcardList result =
+                new BluetoothPbapVcardList(
+                        ACCOUNT,
+                        new ByteArrayInputStream(TWO_VCARDS_WITH_PHOTO.getBytes()),
+                        PbapClientConnectionHandler.VCARD_TYPE_30,
+                        streamed::add,
+                        BluetoothPbapVcardList.KEEP_ALL_PHOTOS);
+
+        assertThat(result.getCount()).isEqualTo(2);
+        assertThat(result.getList()).isEmpty();
+        assertThat(streamed).hasSize(2);
+        assertThat(streamed.get(0).getPhotoList()).hasSize(1);
+    }
+
+    @Test
+    public void constructor_withPhotoLimit_dropsLargerPhotos() throws IOException {
+        BluetoothPbapVcardList result =
+                new BluetoothPbapVcardList(
+                        ACCOUNT,
+                        new ByteArrayInputStream(TWO_VCARDS_WITH_PHOTO.getBytes()),
+                        PbapClientConnectionHandler.VCARD_TYPE_30,
+                        null,
+                        /* maxPhotoBytes= */ 4);
+
+        assertThat(result.getCount()).isEqualTo(2);
+        assertThat(result.getFirst().getPhotoList()).isNull();
+        assertThat(result.getFirst().getDisplayName()).isEqualTo("John Doe");
+    }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.pbapclient;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.filters.SmallTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class BluetoothPbapVcardListingTest {
+
+    @Test
+    public void parse_keepsHandlesAndNamesInOrder() throws IOException {
+        String xml =
+                "<?xml version=\"1.0\"?>"
+                        + "<!DOCTYPE vcard-listing SYSTEM \"vcard-listing.dtd\">"
+                        + "<vCard-listing version=\"1.0\">"
+                        + "<card handle=\"0.vcf\" name=\"Owner\"/>"
+                        + "<card handle=\"2.vcf\" name=\"Doe;John\"/>"
+                        + "<card handle=\"1.vcf\"/>"
+                        + "</vCard-listing>";
+
+        BluetoothPbapVcardListing listing =
+                new BluetoothPbapVcardListing(
+                        new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(listing.getCount()).isEqualTo(3);
+        assertThat(listing.getCards().keySet())
+                .containsExactly("0.vcf", "2.vcf", "1.vcf")
+                .inOrder();
+        assertThat(listing.getCards().get("2.vcf")).isEqualTo("Doe;John");
+        assertThat(listing.getCards().get("1.vcf")).isEmpty();
+    }
+
+    @Test
+    public void parse_malformedXml_returnsEntriesBeforeError() throws IOException {
+        String xml = "<vCard-listing><card handle=\"1.vcf\" name=\"A\"/><card";
+
+        BluetoothPbapVcardListing listing =
+                new BluetoothPbapVcardListing(
+                        new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(listing.getCards()).containsExactly("1.vcf", "A");
+    }
+}
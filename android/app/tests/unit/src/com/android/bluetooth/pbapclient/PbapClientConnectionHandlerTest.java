@@ -51,6 +51,12 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @SmallTest
 @RunWith(AndroidJUnit4.class)
 public class PbapClientConnectionHandlerTest {
@@ -193,6 +199,83 @@ public class PbapClientConnectionHandlerTest {
         assertThat(mHandler.isRepositorySupported(mask)).isTrue();
     }
 
+    @Test
+    public void syncContactsByListing_secondaryVersionChanged_fallsBackToFullDownload()
+            throws Exception {
+        // Returns before using the OBEX session, the listing can't tell which TEL changed
+        assertThat(
+                        mHandler.syncContactsByListing(
+                                PbapClientConnectionHandler.PB_PATH, /* secondaryChanged= */ true))
+                .isFalse();
+    }
+
+    @Test
+    public void diffListing_fetchesNewAndRenamedEntries_deletesRemovedAndRenamedOnes() {
+        Map<String, String> listing = new LinkedHashMap<>();
+        listing.put("1.vcf", "Alice");
+        listing.put("2.vcf", "Bob Renamed");
+        listing.put("4.vcf", "Dave");
+        Map<String, String> localNames = new HashMap<>();
+        localNames.put("1.vcf", "Alice");
+        localNames.put("2.vcf", "Bob");
+        localNames.put("3.vcf", "Carol");
+        Map<String, Long> localIds = new HashMap<>();
+        localIds.put("1.vcf", 11L);
+        localIds.put("2.vcf", 12L);
+        localIds.put("3.vcf", 13L);
+        List<String> toFetch = new ArrayList<>();
+        List<Long> toDelete = new ArrayList<>();
+
+        PbapClientConnectionHandler.diffListing(
+                PbapClientConnectionHandler.FAV_PATH,
+                listing,
+                localNames,
+                localIds,
+                toFetch,
+                toDelete);
+
+        assertThat(toFetch).containsExactly("2.vcf", "4.vcf").inOrder();
+        assertThat(toDelete).containsExactly(12L, 13L);
+    }
+
+    @Test
+    public void diffListing_phonebook_skipsOwnerCard() {
+        Map<String, String> listing = new LinkedHashMap<>();
+        listing.put("0.vcf", "Owner");
+        listing.put("1.vcf", "Alice");
+        List<String> toFetch = new ArrayList<>();
+        List<Long> toDelete = new ArrayList<>();
+
+        PbapClientConnectionHandler.diffListing(
+                PbapClientConnectionHandler.PB_PATH,
+                listing,
+                new HashMap<>(),
+                new HashMap<>(),
+                toFetch,
+                toDelete);
+
+        assertThat(toFetch).containsExactly("1.vcf");
+        assertThat(toDelete).isEmpty();
+    }
+
+    @Test
+    public void isListingDiffUsable_primaryVersionChangedWithoutDiff_returnsFalse() {
+        // e.g. a PHOTO or NICKNAME changed, which the listing does not show
+        assertThat(PbapClientConnectionHandler.isListingDiffUsable(0, 0, 10)).isFalse();
+    }
+
+    @Test
+    public void isListingDiffUsable_addedAndRemovedEntries_returnsTrue() {
+        assertThat(PbapClientConnectionHandler.isListingDiffUsable(2, 0, 10)).isTrue();
+        assertThat(PbapClientConnectionHandler.isListingDiffUsable(0, 3, 10)).isTrue();
+        assertThat(PbapClientConnectionHandler.isListingDiffUsable(5, 1, 10)).isTrue();
+    }
+
+    @Test
+    public void isListingDiffUsable_mostEntriesToFetch_returnsFalse() {
+        assertThat(PbapClientConnectionHandler.isListingDiffUsable(6, 0, 10)).isFalse();
+    }
+
     @Test
     public void createAndDisconnectWithoutAddingAccount_doesNotCrash() {
         mHandler.obtainMessage(PbapClientConnectionHandler.MSG_DISCONNECT).sendToTarget();
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.pbapclient;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import androidx.test.filters.SmallTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class PbapClientSyncStateTest {
+    private static final String ADDRESS = "00:01:02:03:04:05";
+    private static final String OTHER_ADDRESS = "00:01:02:03:04:06";
+
+    private static final byte[] DATABASE_ID = new byte[] {1, 2, 3, 4};
+    private static final byte[] PRIMARY = new byte[] {0, 0, 0, 1};
+    private static final byte[] SECONDARY = new byte[] {0, 0, 0, 2};
+
+    private Context mTargetContext;
+    private PbapClientSyncState mSyncState;
+
+    @Before
+    public void setUp() {
+        mTargetContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mSyncState = new PbapClientSyncState(mTargetContext);
+        mSyncState.clear(ADDRESS);
+        mSyncState.clear(OTHER_ADDRESS);
+    }
+
+    @After
+    public void tearDown() {
+        mSyncState.clear(ADDRESS);
+        mSyncState.clear(OTHER_ADDRESS);
+    }
+
+    @Test
+    public void get_whenNothingStored_returnsNull() {
+        assertThat(mSyncState.get(ADDRESS, PbapClientConnectionHandler.PB_PATH)).isNull();
+    }
+
+    @Test
+    public void putThenGet_returnsEqualVersion() {
+        PbapClientSyncState.FolderVersion version =
+                new PbapClientSyncState.FolderVersion(DATABASE_ID, PRIMARY, SECONDARY);
+
+        mSyncState.put(ADDRESS, PbapClientConnectionHandler.PB_PATH, version);
+
+        assertThat(mSyncState.get(ADDRESS, PbapClientConnectionHandler.PB_PATH))
+                .isEqualTo(version);
+        assertThat(mSyncState.get(ADDRESS, PbapClientConnectionHandler.FAV_PATH)).isNull();
+        assertThat(mSyncState.get(OTHER_ADDRESS, PbapClientConnectionHandler.PB_PATH)).isNull();
+    }
+
+    @Test
+    public void clear_removesOnlyGivenDevice() {
+        PbapClientSyncState.FolderVersion version =
+                new PbapClientSyncState.FolderVersion(DATABASE_ID, PRIMARY, SECONDARY);
+        mSyncState.put(ADDRESS, PbapClientConnectionHandler.PB_PATH, version);
+        mSyncState.put(ADDRESS, PbapClientConnectionHandler.FAV_PATH, version);
+        mSyncState.put(OTHER_ADDRESS, PbapClientConnectionHandler.PB_PATH, version);
+
+        mSyncState.clear(ADDRESS);
+
+        assertThat(mSyncState.get(ADDRESS, PbapClientConnectionHandler.PB_PATH)).isNull();
+        assertThat(mSyncState.get(ADDRESS, PbapClientConnectionHandler.FAV_PATH)).isNull();
+        assertThat(mSyncState.get(OTHER_ADDRESS, PbapClientConnectionHandler.PB_PATH))
+                .isEqualTo(version);
+    }
+
+    @Test
+    public void folderVersion_compare() {
+        PbapClientSyncState.FolderVersion version =
+                new PbapClientSyncState.FolderVersion(DATABASE_ID, PRIMARY, SECONDARY);
+        PbapClientSyncState.FolderVersion primaryChanged =
+                new PbapClientSyncState.FolderVersion(DATABASE_ID, SECONDARY, SECONDARY);
+        PbapClientSyncState.FolderVersion otherDatabase =
+                new PbapClientSyncState.FolderVersion(PRIMARY, PRIMARY, SECONDARY);
+
+        assertThat(version.isComplete()).isTrue();
+        assertThat(new PbapClientSyncState.FolderVersion(null, PRIMARY, SECONDARY).isComplete())
+                .isFalse();
+        assertThat(primaryChanged).isNotEqualTo(version);
+        assertThat(primaryChanged.isSameDatabase(version)).isTrue();
+        assertThat(primaryChanged.isSecondaryChanged(version)).isFalse();
+        assertThat(otherDatabase.isSameDatabase(version)).isFalse();
+        assertThat(version.isSecondaryChanged(null)).isTrue();
+    }
+}
@@ -224,6 +224,41 @@ public class BluetoothInCallServiceTest {
         verify(mMockBluetoothHeadset).clccResponse(0, 0, 0, 0, false, null, 0);
     }
 
+    @Test
+    public void listCurrentCalls_withSnapshot_rebuildsOnlyAfterCallChange() {
+        mBluetoothInCallService.mClccSnapshotEnabled = true;
+        BluetoothCall activeCall = createActiveCall(UUID.randomUUID());
+        doReturn(Call.STATE_ACTIVE).when(activeCall).getState();
+        doReturn(Uri.parse("tel:555-000")).when(activeCall).getHandle();
+
+        doReturn(List.of(activeCall)).when(mMockCallInfo).getBluetoothCalls();
+        mBluetoothInCallService.onCallAdded(activeCall);
+
+        clearInvocations(mMockBluetoothHeadset, mMockCallInfo);
+        mBluetoothInCallService.listCurrentCalls();
+        mBluetoothInCallService.listCurrentCalls();
+
+        verify(mMockCallInfo).getBluetoothCalls();
+        verify(mMockBluetoothHeadset, times(2))
+                .clccResponse(
+                        eq(1),
+                        eq(0),
+                        eq(0),
+                        eq(0),
+                        eq(false),
+                        eq("555000"),
+                        eq(PhoneNumberUtils.TOA_Unknown));
+        verify(mMockBluetoothHeadset, times(2)).clccResponse(0, 0, 0, 0, false, null, 0);
+
+        mBluetoothInCallService
+                .getCallback(activeCall)
+                .onStateChanged(activeCall, Call.STATE_HOLDING);
+        clearInvocations(mMockCallInfo);
+        mBluetoothInCallService.listCurrentCalls();
+
+        verify(mMockCallInfo).getBluetoothCalls();
+    }
+
     /**
      * Verifies bluetooth call quality reports are properly parceled and set as a call event to
      * Telecom.
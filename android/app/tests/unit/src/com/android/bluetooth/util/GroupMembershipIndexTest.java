@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.bluetooth.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+
+import com.android.bluetooth.TestUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public final class GroupMembershipIndexTest {
+    private static final int GROUP_ID = 1;
+    private static final int OTHER_GROUP_ID = 2;
+
+    private final GroupMembershipIndex mIndex = new GroupMembershipIndex();
+    private BluetoothDevice mDevice1;
+    private BluetoothDevice mDevice2;
+    private BluetoothDevice mDevice3;
+
+    @Before
+    public void setUp() {
+        BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+        mDevice1 = TestUtils.getTestDevice(adapter, 1);
+        mDevice2 = TestUtils.getTestDevice(adapter, 2);
+        mDevice3 = TestUtils.getTestDevice(adapter, 3);
+    }
+
+    @Test
+    public void getMembers_orderedByRankThenJoinOrder() {
+        mIndex.add(mDevice1, GROUP_ID, 2);
+        mIndex.add(mDevice2, GROUP_ID, 1);
+        mIndex.add(mDevice3, GROUP_ID, 2);
+
+        assertThat(mIndex.getMembers(GROUP_ID))
+                .containsExactly(mDevice2, mDevice1, mDevice3)
+                .inOrder();
+
+        mIndex.add(mDevice3, GROUP_ID, 0);
+        assertThat(mIndex.getMembers(GROUP_ID))
+                .containsExactly(mDevice3, mDevice2, mDevice1)
+                .inOrder();
+    }
+
+    @Test
+    public void getMembers_isNotAffectedByLaterUpdates() {
+        mIndex.add(mDevice1, GROUP_ID, GroupMembershipIndex.RANK_UNKNOWN);
+        List<BluetoothDevice> members = mIndex.getMembers(GROUP_ID);
+
+        mIndex.add(mDevice2, GROUP_ID, GroupMembershipIndex.RANK_UNKNOWN);
+
+        assertThat(members).containsExactly(mDevice1);
+        assertThat(mIndex.getMembers(GROUP_ID)).containsExactly(mDevice1, mDevice2).inOrder();
+    }
+
+    @Test
+    public void removeDevice_removesFromAllGroups() {
+        mIndex.add(mDevice1, GROUP_ID, 1);
+        mIndex.add(mDevice1, OTHER_GROUP_ID, 1);
+        mIndex.add(mDevice2, OTHER_GROUP_ID, 2);
+
+        mIndex.removeDevice(mDevice1);
+
+        assertThat(mIndex.getMembers(GROUP_ID)).isEmpty();
+        assertThat(mIndex.getMembers(OTHER_GROUP_ID)).containsExactly(mDevice2);
+    }
+
+    @Test
+    public void remove_onlyLeavesGivenGroup() {
+        mIndex.add(mDevice1, GROUP_ID, 1);
+        mIndex.add(mDevice1, OTHER_GROUP_ID, 1);
+
+        mIndex.remove(mDevice1, GROUP_ID);
+        mIndex.remove(mDevice2, OTHER_GROUP_ID);
+
+        assertThat(mIndex.getMembers(GROUP_ID)).isEmpty();
+        assertThat(mIndex.getMembers(OTHER_GROUP_ID)).containsExactly(mDevice1);
+    }
+}
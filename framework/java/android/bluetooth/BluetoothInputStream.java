@@ -24,25 +24,87 @@ import java.io.InputStream;
 /**
  * BluetoothInputStream.
  *
- * <p>Used to write to a Bluetooth socket.
+ * <p>Used to read from a Bluetooth socket.
+ *
+ * <p>Single byte reads reuse one array instead of allocating per call. On RFCOMM sockets, single
+ * byte reads are always served from a read-ahead buffer filled by one socket read, so a byte-wise
+ * parser costs one system call per buffer instead of one per byte. Array reads first return what
+ * is left in that buffer and never wait for more data than the socket has, so callers see no
+ * difference.
  *
  * @hide
  */
 @SuppressLint("AndroidFrameworkBluetoothPermission")
-/*package*/ final class BluetoothInputStream extends InputStream {
-    private BluetoothSocket mSocket;
+public final class BluetoothInputStream extends InputStream {
+    /**
+     * Read-ahead used for RFCOMM sockets. L2CAP sockets do not need one since the socket already
+     * buffers a whole SDU, and other socket types are not read through this stream.
+     */
+    /*package*/ static final int RFCOMM_READ_AHEAD_SIZE = 1024;
+
+    /** Where the stream reads from, the {@link BluetoothSocket} outside of tests. */
+    public interface Source {
+        /** Reads at most {@code length} bytes, blocking until at least one is available. */
+        int read(byte[] b, int offset, int length) throws IOException;
+
+        /** Returns the number of bytes that can be read without blocking. */
+        int available() throws IOException;
+
+        void close() throws IOException;
+    }
+
+    private final Source mSource;
+    private final byte[] mSingleByte = new byte[1];
+    // Null when read-ahead is disabled
+    private final byte[] mReadAhead;
+    // Written with this held, read without it by available() which must not wait for a read
+    private volatile int mReadAheadPos;
+    private volatile int mReadAheadLimit;
 
     /*package*/ BluetoothInputStream(BluetoothSocket s) {
-        mSocket = s;
+        this(
+                new Source() {
+                    @Override
+                    public int read(byte[] b, int offset, int length) throws IOException {
+                        return s.read(b, offset, length);
+                    }
+
+                    @Override
+                    public int available() throws IOException {
+                        return s.available();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        s.close();
+                    }
+                },
+                s.getConnectionType() == BluetoothSocket.TYPE_RFCOMM
+                        ? RFCOMM_READ_AHEAD_SIZE
+                        : 0);
+    }
+
+    /**
+     * Creates a stream reading from {@code source}.
+     *
+     * @param readAheadSize size of the buffer used by single byte reads, 0 to read one byte at a
+     *     time from {@code source}
+     */
+    public BluetoothInputStream(Source source, int readAheadSize) {
+        if (readAheadSize < 0) {
+            throw new IllegalArgumentException("Invalid read-ahead size: " + readAheadSize);
+        }
+        mSource = source;
+        mReadAhead = readAheadSize > 0 ? new byte[readAheadSize] : null;
     }
 
     /** Return number of bytes available before this stream will block. */
     public int available() throws IOException {
-        return mSocket.available();
+        return Math.max(0, mReadAheadLimit - mReadAheadPos) + mSource.available();
     }
 
     public void close() throws IOException {
-        mSocket.close();
+        mSource.close();
     }
 
     /**
@@ -54,14 +116,25 @@ import java.io.InputStream;
      * @throws IOException if the stream is closed or another IOException occurs.
      * @since Android 1.5
      */
-    public int read() throws IOException {
-        byte[] b = new byte[1];
-        int ret = mSocket.read(b, 0, 1);
-        if (ret == 1) {
-            return (int) b[0] & 0xff;
-        } else {
-            return -1;
+    public synchronized int read() throws IOException {
+        if (mReadAhead == null) {
+            int ret = mSource.read(mSingleByte, 0, 1);
+            if (ret == 1) {
+                return (int) mSingleByte[0] & 0xff;
+            } else {
+                return -1;
+            }
         }
+        if (mReadAheadPos == mReadAheadLimit) {
+            int ret = mSource.read(mReadAhead, 0, mReadAhead.length);
+            if (ret < 1) {
+                return -1;
+            }
+            // Limit first, so that available() may undercount but never overcount meanwhile
+            mReadAheadLimit = ret;
+            mReadAheadPos = 0;
+        }
+        return (int) mReadAhead[mReadAheadPos++] & 0xff;
     }
 
     /**
@@ -85,6 +158,15 @@ import java.io.InputStream;
         if ((offset | length) < 0 || length > b.length - offset) {
             throw new ArrayIndexOutOfBoundsException("invalid offset or length");
         }
-        return mSocket.read(b, offset, length);
+        synchronized (this) {
+            int buffered = mReadAheadLimit - mReadAheadPos;
+            if (buffered > 0 && length > 0) {
+                int count = Math.min(buffered, length);
+                System.arraycopy(mReadAhead, mReadAheadPos, b, offset, count);
+                mReadAheadPos += count;
+                return count;
+            }
+        }
+        return mSource.read(b, offset, length);
     }
 }
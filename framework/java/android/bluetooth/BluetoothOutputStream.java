@@ -24,21 +24,48 @@ import java.io.OutputStream;
 /**
  * BluetoothOutputStream.
  *
- * <p>Used to read from a Bluetooth socket.
+ * <p>Used to write to a Bluetooth socket.
+ *
+ * <p>Single byte writes reuse one array instead of allocating per call. Every write goes straight
+ * to the socket, callers rely on it and never flush.
  *
  * @hide
  */
 @SuppressLint("AndroidFrameworkBluetoothPermission")
-/*package*/ final class BluetoothOutputStream extends OutputStream {
-    private BluetoothSocket mSocket;
+public final class BluetoothOutputStream extends OutputStream {
+    /** Where the stream writes to, the {@link BluetoothSocket} outside of tests. */
+    public interface Sink {
+        void write(byte[] b, int offset, int length) throws IOException;
+
+        void close() throws IOException;
+    }
+
+    private final Sink mSink;
+    private final byte[] mSingleByte = new byte[1];
 
     /*package*/ BluetoothOutputStream(BluetoothSocket s) {
-        mSocket = s;
+        this(
+                new Sink() {
+                    @Override
+                    public void write(byte[] b, int offset, int length) throws IOException {
+                        s.write(b, offset, length);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        s.close();
+                    }
+                });
+    }
+
+    /** Creates a stream writing to {@code sink}. */
+    public BluetoothOutputStream(Sink sink) {
+        mSink = sink;
     }
 
     /** Close this output stream and the socket associated with it. */
     public void close() throws IOException {
-        mSocket.close();
+        mSink.close();
     }
 
     /**
@@ -49,10 +76,9 @@ import java.io.OutputStream;
      * @throws IOException if an error occurs while writing to this stream.
      * @since Android 1.0
      */
-    public void write(int oneByte) throws IOException {
-        byte[] b = new byte[1];
-        b[0] = (byte) oneByte;
-        mSocket.write(b, 0, 1);
+    public synchronized void write(int oneByte) throws IOException {
+        mSingleByte[0] = (byte) oneByte;
+        mSink.write(mSingleByte, 0, 1);
     }
 
     /**
@@ -74,6 +100,6 @@ import java.io.OutputStream;
         if ((offset | count) < 0 || count > b.length - offset) {
             throw new IndexOutOfBoundsException("invalid offset or length");
         }
-        mSocket.write(b, offset, count);
+        mSink.write(b, offset, count);
     }
 }
@@ -32,9 +32,12 @@ import android.os.Build;
 import android.os.ParcelFileDescriptor;
 import android.os.ParcelUuid;
 import android.os.RemoteException;
+import android.system.ErrnoException;
+import android.system.Os;
 import android.util.Log;
 
 import com.android.bluetooth.flags.Flags;
+import com.android.internal.annotations.VisibleForTesting;
 
 import java.io.Closeable;
 import java.io.FileDescriptor;
@@ -278,8 +281,10 @@ public final class BluetoothSocket implements Closeable {
      * @param device is the remote {@link BluetoothDevice} that this socket is connected to
      * @param uuid is the service ID that this RFCOMM connection is using
      * @throws IOException if socket creation fails.
+     * @hide
      */
-    /*package*/ static BluetoothSocket createSocketFromOpenFd(
+    @VisibleForTesting
+    public static BluetoothSocket createSocketFromOpenFd(
             ParcelFileDescriptor pfd, BluetoothDevice device, ParcelUuid uuid) throws IOException {
         BluetoothSocket bluetoothSocket =
                 new BluetoothSocket(TYPE_RFCOMM, true, true, device, -1, uuid);
@@ -293,6 +298,33 @@ public final class BluetoothSocket implements Closeable {
         return bluetoothSocket;
     }
 
+    /**
+     * Creates a connected L2CAP socket from a {@link ParcelFileDescriptor} of a SEQPACKET socket,
+     * so that the packet API can be tested without a remote device.
+     *
+     * @hide
+     */
+    @VisibleForTesting
+    public static BluetoothSocket createL2capSocketFromOpenFd(
+            ParcelFileDescriptor pfd,
+            BluetoothDevice device,
+            int maxRxPacketSize,
+            int maxTxPacketSize)
+            throws IOException {
+        BluetoothSocket bluetoothSocket =
+                new BluetoothSocket(TYPE_L2CAP, false, false, device, -1, null);
+
+        bluetoothSocket.mPfd = pfd;
+        bluetoothSocket.mSocket = new LocalSocket(pfd.getFileDescriptor());
+        bluetoothSocket.mSocketIS = bluetoothSocket.mSocket.getInputStream();
+        bluetoothSocket.mSocketOS = bluetoothSocket.mSocket.getOutputStream();
+        bluetoothSocket.mMaxRxPacketSize = maxRxPacketSize;
+        bluetoothSocket.mMaxTxPacketSize = maxTxPacketSize;
+        bluetoothSocket.mSocketState = SocketState.CONNECTED;
+
+        return bluetoothSocket;
+    }
+
     private BluetoothSocket(BluetoothSocket s) {
         if (VDBG) Log.d(TAG, "Creating new Private BluetoothSocket of type: " + s.mType);
         mUuid = s.mUuid;
@@ -712,6 +744,95 @@ public final class BluetoothSocket implements Closeable {
         return length;
     }
 
+    /**
+     * Reads the next L2CAP packet into {@code dst}, from its position, and advances the position
+     * by the size of the packet. Direct buffers are filled by the kernel without an intermediate
+     * copy. If the stream API already consumed part of a packet, the rest of that packet is
+     * returned first.
+     *
+     * @param dst buffer with at least {@link #getMaxReceivePacketSize()} bytes remaining
+     * @return the size of the packet, or -1 at the end of the stream
+     * @throws IllegalArgumentException if {@code dst} cannot hold a full packet
+     * @throws IOException on error, or if this is not an L2CAP socket
+     * @hide
+     */
+    @RequiresNoPermission
+    public int readPacket(ByteBuffer dst) throws IOException {
+        checkL2capPacketApi();
+        if (mL2capBuffer != null && mL2capBuffer.hasRemaining()) {
+            int length = Math.min(mL2capBuffer.remaining(), dst.remaining());
+            ByteBuffer remaining = mL2capBuffer.slice();
+            remaining.limit(length);
+            dst.put(remaining);
+            mL2capBuffer.position(mL2capBuffer.position() + length);
+            return length;
+        }
+        if (dst.remaining() < mMaxRxPacketSize) {
+            throw new IllegalArgumentException(
+                    "Buffer of "
+                            + dst.remaining()
+                            + " bytes cannot hold a packet of "
+                            + mMaxRxPacketSize
+                            + " bytes");
+        }
+        return receivePacket(dst);
+    }
+
+    /**
+     * Sends {@code src}, from its position to its limit, as a single L2CAP packet and advances
+     * the position to the limit. Unlike the output stream, the data is never split into several
+     * packets, so callers control the packet boundaries.
+     *
+     * @param src packet of at most {@link #getMaxTransmitPacketSize()} bytes
+     * @return the number of bytes sent
+     * @throws IllegalArgumentException if {@code src} does not fit in one packet
+     * @throws IOException on error, or if this is not an L2CAP socket
+     * @hide
+     */
+    @RequiresNoPermission
+    public int writePacket(ByteBuffer src) throws IOException {
+        checkL2capPacketApi();
+        int length = src.remaining();
+        if (length > mMaxTxPacketSize) {
+            throw new IllegalArgumentException(
+                    "Packet of "
+                            + length
+                            + " bytes is larger than the maximum of "
+                            + mMaxTxPacketSize
+                            + " bytes");
+        }
+        try {
+            // A single write on the SEQPACKET socket is sent as a single SDU
+            int written = Os.write(mSocket.getFileDescriptor(), src);
+            if (written != length) {
+                throw new IOException("Partial L2CAP packet write: " + written + "/" + length);
+            }
+            return written;
+        } catch (ErrnoException e) {
+            throw e.rethrowAsIOException();
+        }
+    }
+
+    private void checkL2capPacketApi() throws IOException {
+        if ((mType != TYPE_L2CAP) && (mType != TYPE_L2CAP_LE)) {
+            throw new IOException("Packet API is only available on L2CAP sockets");
+        }
+        if (mSocket == null || mSocketState != SocketState.CONNECTED) {
+            throw new IOException("socket not connected");
+        }
+    }
+
+    /* Reads one packet into dst, which must be able to hold mMaxRxPacketSize bytes */
+    private int receivePacket(ByteBuffer dst) throws IOException {
+        try {
+            int ret = Os.read(mSocket.getFileDescriptor(), dst);
+            // A SEQPACKET read only returns 0 once the peer has closed the connection
+            return ret == 0 ? -1 : ret;
+        } catch (ErrnoException e) {
+            throw e.rethrowAsIOException();
+        }
+    }
+
     @Override
     public void close() throws IOException {
         Log.d(
@@ -1037,14 +1158,14 @@ public final class BluetoothSocket implements Closeable {
     }
 
     private int fillL2capRxBuffer() throws IOException {
-        mL2capBuffer.rewind();
-        int ret = mSocketIS.read(mL2capBuffer.array());
+        mL2capBuffer.clear();
+        int ret = receivePacket(mL2capBuffer);
         if (ret == -1) {
             // reached end of stream - return -1
             mL2capBuffer.limit(0);
             return -1;
         }
-        mL2capBuffer.limit(ret);
+        mL2capBuffer.flip();
         return ret;
     }
 
@@ -247,5 +247,14 @@ public final class DistanceMeasurementManager {
                     DistanceMeasurementSession session = mSessionMap.get(device);
                     session.onResult(device, result);
                 }
+
+                @Override
+                public void onResults(
+                        BluetoothDevice device, List<DistanceMeasurementResult> results) {
+                    DistanceMeasurementSession session = mSessionMap.get(device);
+                    for (DistanceMeasurementResult result : results) {
+                        session.onResult(device, result);
+                    }
+                }
             };
 }
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.bluetooth;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.Assert.assertThrows;
+
+import android.os.ParcelFileDescriptor;
+import android.os.ParcelUuid;
+import android.system.ErrnoException;
+import android.system.Os;
+
+import androidx.test.filters.SmallTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Test cases for the packet API of L2CAP {@link BluetoothSocket}, over a SEQPACKET socket pair
+ * that keeps the packet boundaries like an L2CAP channel.
+ */
+@SmallTest
+@RunWith(JUnit4.class)
+public class BluetoothSocketPacketTest {
+    private static final int MAX_RX_PACKET_SIZE = 20;
+    private static final int MAX_TX_PACKET_SIZE = 10;
+    private static final ParcelUuid SPP_UUID =
+            ParcelUuid.fromString("00001101-0000-1000-8000-00805F9B34FB");
+
+    private ParcelFileDescriptor mRemote;
+    private BluetoothSocket mSocket;
+
+    @Before
+    public void setUp() throws IOException {
+        ParcelFileDescriptor[] pair = ParcelFileDescriptor.createReliableSocketPair();
+        mRemote = pair[1];
+        mSocket =
+                BluetoothSocket.createL2capSocketFromOpenFd(
+                        pair[0], remoteDevice(), MAX_RX_PACKET_SIZE, MAX_TX_PACKET_SIZE);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mSocket.close();
+        mRemote.close();
+    }
+
+    @Test
+    public void readPacket_readsOnePacketAtATime() throws Exception {
+        sendFromRemote(packet(5, 0));
+        sendFromRemote(packet(7, 50));
+        ByteBuffer dst = ByteBuffer.allocateDirect(MAX_RX_PACKET_SIZE);
+
+        assertThat(mSocket.readPacket(dst)).isEqualTo(5);
+        assertThat(dst.position()).isEqualTo(5);
+        assertThat(contents(dst)).isEqualTo(packet(5, 0));
+
+        dst.clear();
+        assertThat(mSocket.readPacket(dst)).isEqualTo(7);
+        assertThat(contents(dst)).isEqualTo(packet(7, 50));
+    }
+
+    @Test
+    public void readPacket_bufferSmallerThanMaxPacket_throws() throws Exception {
+        sendFromRemote(packet(5, 0));
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> mSocket.readPacket(ByteBuffer.allocate(MAX_RX_PACKET_SIZE - 1)));
+
+        // The packet is still there
+        ByteBuffer dst = ByteBuffer.allocate(MAX_RX_PACKET_SIZE);
+        assertThat(mSocket.readPacket(dst)).isEqualTo(5);
+    }
+
+    @Test
+    public void readPacket_afterStreamRead_returnsRestOfPacketFirst() throws Exception {
+        sendFromRemote(packet(10, 0));
+        sendFromRemote(packet(6, 100));
+        InputStream in = mSocket.getInputStream();
+
+        byte[] head = new byte[3];
+        assertThat(in.read(head)).isEqualTo(3);
+        assertThat(head).isEqualTo(packet(3, 0));
+
+        ByteBuffer dst = ByteBuffer.allocate(MAX_RX_PACKET_SIZE);
+        assertThat(mSocket.readPacket(dst)).isEqualTo(7);
+        assertThat(contents(dst)).isEqualTo(Arrays.copyOfRange(packet(10, 0), 3, 10));
+
+        dst.clear();
+        assertThat(mSocket.readPacket(dst)).isEqualTo(6);
+        assertThat(contents(dst)).isEqualTo(packet(6, 100));
+    }
+
+    @Test
+    public void streamRead_afterPartialReadPacket_returnsRestOfPacket() throws Exception {
+        sendFromRemote(packet(10, 0));
+        sendFromRemote(packet(6, 100));
+        InputStream in = mSocket.getInputStream();
+        assertThat(in.read(new byte[3])).isEqualTo(3);
+
+        // Whatever is left of the packet can be read into a smaller buffer
+        ByteBuffer dst = ByteBuffer.allocate(4);
+        assertThat(mSocket.readPacket(dst)).isEqualTo(4);
+        assertThat(contents(dst)).isEqualTo(Arrays.copyOfRange(packet(10, 0), 3, 7));
+
+        byte[] rest = new byte[MAX_RX_PACKET_SIZE];
+        assertThat(in.read(rest)).isEqualTo(3);
+        assertThat(Arrays.copyOf(rest, 3)).isEqualTo(Arrays.copyOfRange(packet(10, 0), 7, 10));
+        assertThat(in.read(rest)).isEqualTo(6);
+        assertThat(Arrays.copyOf(rest, 6)).isEqualTo(packet(6, 100));
+    }
+
+    @Test
+    public void readPacket_remoteClosed_returnsEndOfStream() throws Exception {
+        mRemote.close();
+
+        assertThat(mSocket.readPacket(ByteBuffer.allocate(MAX_RX_PACKET_SIZE))).isEqualTo(-1);
+    }
+
+    @Test
+    public void streamRead_remoteClosed_returnsEndOfStream() throws Exception {
+        mRemote.close();
+
+        assertThat(mSocket.getInputStream().read(new byte[MAX_RX_PACKET_SIZE])).isEqualTo(-1);
+    }
+
+    @Test
+    public void writePacket_sendsOnePacket() throws Exception {
+        ByteBuffer src = ByteBuffer.allocateDirect(MAX_TX_PACKET_SIZE);
+        src.put(packet(MAX_TX_PACKET_SIZE, 0)).flip();
+
+        assertThat(mSocket.writePacket(src)).isEqualTo(MAX_TX_PACKET_SIZE);
+        assertThat(src.hasRemaining()).isFalse();
+
+        byte[] received = new byte[2 * MAX_TX_PACKET_SIZE];
+        int length = Os.read(mRemote.getFileDescriptor(), received, 0, received.length);
+        assertThat(length).isEqualTo(MAX_TX_PACKET_SIZE);
+        assertThat(Arrays.copyOf(received, length)).isEqualTo(packet(MAX_TX_PACKET_SIZE, 0));
+    }
+
+    @Test
+    public void writePacket_largerThanMaxPacket_throws() {
+        ByteBuffer src = ByteBuffer.wrap(packet(MAX_TX_PACKET_SIZE + 1, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> mSocket.writePacket(src));
+        assertThat(src.position()).isEqualTo(0);
+    }
+
+    @Test
+    public void packetApi_rfcommSocket_throws() throws IOException {
+        ParcelFileDescriptor[] pair = ParcelFileDescriptor.createReliableSocketPair();
+        BluetoothSocket socket =
+                BluetoothSocket.createSocketFromOpenFd(pair[0], remoteDevice(), SPP_UUID);
+        try {
+            assertThrows(
+                    IOException.class,
+                    () -> socket.readPacket(ByteBuffer.allocate(MAX_RX_PACKET_SIZE)));
+            assertThrows(IOException.class, () -> socket.writePacket(ByteBuffer.allocate(1)));
+        } finally {
+            socket.close();
+            pair[1].close();
+        }
+    }
+
+    private void sendFromRemote(byte[] packet) throws ErrnoException, IOException {
+        assertThat(Os.write(mRemote.getFileDescriptor(), packet, 0, packet.length))
+                .isEqualTo(packet.length);
+    }
+
+    private static BluetoothDevice remoteDevice() {
+        return BluetoothAdapter.getDefaultAdapter().getRemoteDevice("00:01:02:03:04:05");
+    }
+
+    /** Returns {@code length} bytes counting up from {@code first} */
+    private static byte[] packet(int length, int first) {
+        byte[] packet = new byte[length];
+        for (int i = 0; i < length; i++) {
+            packet[i] = (byte) (first + i);
+        }
+        return packet;
+    }
+
+    /** Returns the bytes of {@code buffer} before its position */
+    private static byte[] contents(ByteBuffer buffer) {
+        ByteBuffer written = buffer.duplicate();
+        written.flip();
+        byte[] bytes = new byte[written.remaining()];
+        written.get(bytes);
+        return bytes;
+    }
+}
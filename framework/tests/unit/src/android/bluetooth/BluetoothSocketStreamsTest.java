@@ -0,0 +1,155 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.bluetooth;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/** Test cases for {@link BluetoothInputStream} and {@link BluetoothOutputStream}. */
+@SmallTest
+@RunWith(JUnit4.class)
+public class BluetoothSocketStreamsTest {
+    private static final byte[] DATA = new byte[100];
+
+    static {
+        for (int i = 0; i < DATA.length; i++) {
+            DATA[i] = (byte) (i * 7);
+        }
+    }
+
+    /** Serves DATA, at most {@code mChunkSize} bytes per read, and counts the reads. */
+    private static class FakeSource implements BluetoothInputStream.Source {
+        private final int mChunkSize;
+        private int mPos;
+        int mReads;
+
+        FakeSource(int chunkSize) {
+            mChunkSize = chunkSize;
+        }
+
+        @Override
+        public int read(byte[] b, int offset, int length) {
+            mReads++;
+            if (mPos == DATA.length) {
+                return -1;
+            }
+            int count = Math.min(Math.min(length, mChunkSize), DATA.length - mPos);
+            System.arraycopy(DATA, mPos, b, offset, count);
+            mPos += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return DATA.length - mPos;
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    /** Collects written bytes and counts the writes. */
+    private static class FakeSink implements BluetoothOutputStream.Sink {
+        final ByteArrayOutputStream mData = new ByteArrayOutputStream();
+        int mWrites;
+        boolean mClosed;
+
+        @Override
+        public void write(byte[] b, int offset, int length) {
+            mWrites++;
+            mData.write(b, offset, length);
+        }
+
+        @Override
+        public void close() {
+            mClosed = true;
+        }
+    }
+
+    @Test
+    public void read_byteWise_withoutReadAhead_readsSourceOncePerByte() throws IOException {
+        FakeSource source = new FakeSource(DATA.length);
+        BluetoothInputStream in = new BluetoothInputStream(source, 0);
+
+        assertThat(readAllByteWise(in)).isEqualTo(DATA);
+        assertThat(source.mReads).isEqualTo(DATA.length + 1);
+    }
+
+    @Test
+    public void read_byteWise_withReadAhead_readsSourceOncePerBuffer() throws IOException {
+        FakeSource source = new FakeSource(DATA.length);
+        BluetoothInputStream in = new BluetoothInputStream(source, 32);
+
+        assertThat(readAllByteWise(in)).isEqualTo(DATA);
+        // 4 reads to get the 100 bytes, then one for the end of the stream
+        assertThat(source.mReads).isEqualTo(5);
+    }
+
+    @Test
+    public void read_array_returnsReadAheadBytesFirstWithoutBlocking() throws IOException {
+        FakeSource source = new FakeSource(10);
+        BluetoothInputStream in = new BluetoothInputStream(source, 32);
+
+        assertThat(in.read()).isEqualTo(DATA[0] & 0xff);
+        assertThat(in.available()).isEqualTo(DATA.length - 1);
+
+        byte[] b = new byte[50];
+        // Only what is left of the first chunk, without another read of the source
+        assertThat(in.read(b, 0, b.length)).isEqualTo(9);
+        assertThat(source.mReads).isEqualTo(1);
+        for (int i = 0; i < 9; i++) {
+            assertThat(b[i]).isEqualTo(DATA[i + 1]);
+        }
+
+        assertThat(in.read(b, 0, b.length)).isEqualTo(10);
+        assertThat(b[0]).isEqualTo(DATA[10]);
+        assertThat(source.mReads).isEqualTo(2);
+    }
+
+    @Test
+    public void write_byteWise_writesEveryByte() throws IOException {
+        FakeSink sink = new FakeSink();
+        BluetoothOutputStream out = new BluetoothOutputStream(sink);
+
+        for (byte b : DATA) {
+            out.write(b);
+        }
+
+        assertThat(sink.mWrites).isEqualTo(DATA.length);
+        assertThat(sink.mData.toByteArray()).isEqualTo(DATA);
+
+        out.close();
+        assertThat(sink.mClosed).isTrue();
+    }
+
+    private static byte[] readAllByteWise(BluetoothInputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            bytes.write(b);
+        }
+        return bytes.toByteArray();
+    }
+}